@@ -1,7 +1,5 @@
 package code.ponfee.commons.cache;
 
-import static code.ponfee.commons.concurrent.ThreadPoolExecutors.CALLER_RUN_HANDLER;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -10,13 +8,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.base.Preconditions;
 
+import code.ponfee.commons.concurrent.HashedWheelTimer;
 import code.ponfee.commons.jce.digest.DigestUtils;
 
 /**
@@ -28,9 +26,6 @@ public class Cache<T> {
 
     public static final long KEEPALIVE_FOREVER = 0; // 为0表示不失效
 
-    /** The default scheduled executor shared of class level */
-    private static volatile ScheduledExecutorService defaultExecutor;
-
     private final boolean caseSensitiveKey; // 是否忽略大小写（只针对String）
     private final boolean compressKey; // 是否压缩key（只针对String）
     private final long keepAliveInMillis; // 默认的数据保存的时间
@@ -39,6 +34,7 @@ public class Cache<T> {
     private volatile boolean isDestroy = false; // 是否被销毁
     private final Lock lock = new ReentrantLock(); // 定时清理加锁
     private ScheduledExecutorService executor;
+    private HashedWheelTimer.Timeout releaseTask; // 默认使用共享的时间轮定时清理
     private DateProvider dateProvider = DateProvider.SYSTEM;
 
     Cache(boolean caseSensitiveKey, boolean compressKey, long keepAliveInMillis, 
@@ -51,23 +47,8 @@ public class Cache<T> {
         this.keepAliveInMillis = keepAliveInMillis;
 
         if (autoReleaseInSeconds > 0) {
-            ScheduledExecutorService executor0;
-            if (scheduleExecutor != null) {
-                this.executor = executor0 = scheduleExecutor;
-            } else {
-                if (defaultExecutor == null) {
-                    synchronized (Cache.class) {
-                        if (defaultExecutor == null) { // double check lock
-                            defaultExecutor = new ScheduledThreadPoolExecutor(1, CALLER_RUN_HANDLER);
-                            Runtime.getRuntime().addShutdownHook(new Thread(defaultExecutor::shutdown));
-                        }
-                    }
-                }
-                executor0 = defaultExecutor;
-            }
-
             // 定时清理
-            executor0.scheduleAtFixedRate(() -> {
+            Runnable release = () -> {
                 // none exception to throw, so can not wrap try catch
                 if (!lock.tryLock()) {
                     return;
@@ -78,7 +59,16 @@ public class Cache<T> {
                 } finally {
                     lock.unlock();
                 }
-            }, autoReleaseInSeconds, autoReleaseInSeconds, TimeUnit.SECONDS);
+            };
+            if (scheduleExecutor != null) {
+                this.executor = scheduleExecutor;
+                scheduleExecutor.scheduleAtFixedRate(release, autoReleaseInSeconds, 
+                                                     autoReleaseInSeconds, TimeUnit.SECONDS);
+            } else {
+                this.releaseTask = HashedWheelTimer.shared().scheduleAtFixedRate(
+                    release, autoReleaseInSeconds, autoReleaseInSeconds, TimeUnit.SECONDS
+                );
+            }
         }
     }
 
@@ -280,6 +270,9 @@ public class Cache<T> {
      */
     public void destroy() {
         isDestroy = true;
+        if (releaseTask != null) {
+            releaseTask.cancel();
+        }
         if (executor != null) try {
             executor.shutdown();
         } catch (Exception ignored) {
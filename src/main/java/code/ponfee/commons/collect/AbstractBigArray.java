@@ -0,0 +1,223 @@
+package code.ponfee.commons.collect;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.io.Files;
+
+/**
+ * <pre>
+ * 堆外大数组的基类：按块（chunk）存放，元素下标为long，总长度不受Java数组2G的限制
+ *   1、direct：多个ByteBuffer.allocateDirect块，本机字节序
+ *   2、mapped：文件按块映射为MappedByteBuffer，小端字节序（文件可在不同机器间共享），
+ *      读写模式下文件长度不足时自动扩展
+ *   3、{@link #close()}立即释放内存/解除映射，关闭后不能再访问；
+ *      get/set是线程安全的（绝对位置读写），但close须在所有访问结束后调用
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public abstract class AbstractBigArray implements Closeable {
+
+    /** 默认每块1GB */
+    public static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    /** 批量操作时堆内临时数组的大小（元素个数） */
+    static final int BLOCK_SIZE = 8192;
+
+    protected final long length;
+    protected final int chunkElementShift; // 每块的元素个数 = 1 << chunkElementShift
+    protected final long chunkElementMask;
+    private final boolean mapped;
+    private ByteBuffer[] chunks;
+
+    /**
+     * 分配堆外内存
+     * @param length       the element count
+     * @param elementShift 元素字节数的log2：byte为0、int为2、long为3
+     * @param chunkShift   每块字节数的log2
+     */
+    protected AbstractBigArray(long length, int elementShift, int chunkShift) {
+        checkArguments(length, elementShift, chunkShift);
+        this.length = length;
+        this.chunkElementShift = chunkShift - elementShift;
+        this.chunkElementMask = (1L << chunkElementShift) - 1;
+        this.mapped = false;
+
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(length)];
+        try {
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = ByteBuffer.allocateDirect(chunkBytes(i, elementShift)).order(ByteOrder.nativeOrder());
+            }
+        } catch (OutOfMemoryError e) {
+            release(chunks);
+            throw e;
+        }
+        this.chunks = chunks;
+    }
+
+    /**
+     * 映射文件
+     * @param file         the file
+     * @param length       the element count, negative means the file size
+     * @param elementShift 元素字节数的log2
+     * @param chunkShift   每块字节数的log2
+     * @param readOnly     是否只读
+     */
+    protected AbstractBigArray(File file, long length, int elementShift, int chunkShift, boolean readOnly) {
+        if (length < 0) {
+            Preconditions.checkArgument(file.exists(), "file not found: " + file);
+            length = file.length() >>> elementShift;
+        }
+        checkArguments(length, elementShift, chunkShift);
+        this.length = length;
+        this.chunkElementShift = chunkShift - elementShift;
+        this.chunkElementMask = (1L << chunkElementShift) - 1;
+        this.mapped = true;
+
+        long bytes = length << elementShift;
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(length)];
+        try (RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+             FileChannel channel = raf.getChannel()
+        ) {
+            if (readOnly) {
+                Preconditions.checkArgument(raf.length() >= bytes, "file too small: " + raf.length());
+            } else if (raf.length() < bytes) {
+                raf.setLength(bytes);
+            }
+            MapMode mode = readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = (long) i << chunkShift;
+                chunks[i] = channel.map(mode, offset, chunkBytes(i, elementShift)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            release(chunks);
+            throw new UncheckedIOException(e);
+        }
+        this.chunks = chunks;
+    }
+
+    public final long length() {
+        return length;
+    }
+
+    public final boolean isMapped() {
+        return mapped;
+    }
+
+    public final boolean isClosed() {
+        return chunks == null;
+    }
+
+    /**
+     * 将映射文件的修改写入磁盘
+     */
+    public void force() {
+        for (ByteBuffer chunk : chunks()) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+    /**
+     * 释放堆外内存或解除映射（映射文件先写入磁盘）
+     */
+    @Override
+    public final synchronized void close() {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks == null) {
+            return;
+        }
+        if (mapped) {
+            force();
+        }
+        // 先断开引用，关闭后的访问抛出异常而不是读写已释放的内存
+        this.chunks = null;
+        clearViews();
+        release(chunks);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + length + ", mapped=" + mapped
+             + ", chunks=" + chunkCount(length) + (isClosed() ? ", closed" : "") + "]";
+    }
+
+    // ------------------------------------------------------------------------protected methods
+    protected final ByteBuffer[] chunks() {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks == null) {
+            throw new IllegalStateException("Big array has been closed");
+        }
+        return chunks;
+    }
+
+    /**
+     * 关闭时清除子类持有的视图
+     */
+    protected abstract void clearViews();
+
+    protected final int chunk(long index) {
+        return (int) (index >>> chunkElementShift);
+    }
+
+    protected final int offset(long index) {
+        return (int) (index & chunkElementMask);
+    }
+
+    /**
+     * @return 从index开始到所在块末尾的元素个数
+     */
+    protected final long remainingInChunk(long index) {
+        return (chunkElementMask + 1) - (index & chunkElementMask);
+    }
+
+    protected final void checkIndex(long index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+    }
+
+    protected final void checkRange(long from, long to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), Length: " + length);
+        }
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private int chunkCount(long length) {
+        long count = (length + chunkElementMask) >>> chunkElementShift;
+        Preconditions.checkArgument(count <= Integer.MAX_VALUE, "Too many chunks: " + count);
+        return (int) count;
+    }
+
+    private int chunkBytes(int i, int elementShift) {
+        long elements = Math.min(chunkElementMask + 1, length - ((long) i << chunkElementShift));
+        return (int) (elements << elementShift);
+    }
+
+    private static void checkArguments(long length, int elementShift, int chunkShift) {
+        Preconditions.checkArgument(length >= 0, "Negative length: " + length);
+        Preconditions.checkArgument(chunkShift >= elementShift && chunkShift <= DEFAULT_CHUNK_SHIFT,
+                                    "Invalid chunk shift: " + chunkShift);
+        Preconditions.checkArgument(length <= (Long.MAX_VALUE >>> elementShift), "Too large length: " + length);
+    }
+
+    private static void release(ByteBuffer[] chunks) {
+        for (ByteBuffer chunk : chunks) {
+            Files.unmap(chunk);
+        }
+    }
+
+}
@@ -0,0 +1,230 @@
+package code.ponfee.commons.collect;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 堆外byte大数组（下标为long），基于direct ByteBuffer或文件映射
+ *
+ *   try (BigByteArray array = BigByteArray.map(new File("data.bin"), 1L << 31)) {
+ *       array.set(index, flag);
+ *       array.fill(0, array.length(), (byte) 0);
+ *   }
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class BigByteArray extends AbstractBigArray {
+
+    private static final int ELEMENT_SHIFT = 0;
+
+    private ByteBuffer[] views;
+
+    private BigByteArray(long length, int chunkShift) {
+        super(length, ELEMENT_SHIFT, chunkShift);
+        this.views = views(chunks());
+    }
+
+    private BigByteArray(File file, long length, int chunkShift, boolean readOnly) {
+        super(file, length, ELEMENT_SHIFT, chunkShift, readOnly);
+        this.views = views(chunks());
+    }
+
+    public static BigByteArray allocateDirect(long length) {
+        return new BigByteArray(length, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * @param length     the element count
+     * @param chunkShift 每块字节数的log2，不超过30
+     * @return a BigByteArray of direct memory
+     */
+    public static BigByteArray allocateDirect(long length, int chunkShift) {
+        return new BigByteArray(length, chunkShift);
+    }
+
+    /**
+     * 读写模式映射文件，文件不足length个元素时扩展
+     */
+    public static BigByteArray map(File file, long length) {
+        return new BigByteArray(file, length, DEFAULT_CHUNK_SHIFT, false);
+    }
+
+    public static BigByteArray map(File file, long length, int chunkShift) {
+        return new BigByteArray(file, length, chunkShift, false);
+    }
+
+    /**
+     * 只读映射整个文件
+     */
+    public static BigByteArray mapReadOnly(File file) {
+        return new BigByteArray(file, -1, DEFAULT_CHUNK_SHIFT, true);
+    }
+
+    public byte get(long index) {
+        checkIndex(index);
+        return views()[chunk(index)].get(offset(index));
+    }
+
+    public void set(long index, byte value) {
+        checkIndex(index);
+        views()[chunk(index)].put(offset(index), value);
+    }
+
+    /**
+     * 读取[index, index+len)到dst[off, off+len)
+     */
+    public void get(long index, byte[] dst, int off, int len) {
+        checkRange(index, index + len);
+        Preconditions.checkPositionIndexes(off, off + len, dst.length);
+        ByteBuffer[] views = views();
+        while (len > 0) {
+            int n = (int) Math.min(len, remainingInChunk(index));
+            ByteBuffer view = views[chunk(index)].duplicate();
+            view.position(offset(index));
+            view.get(dst, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 将src[off, off+len)写入[index, index+len)
+     */
+    public void set(long index, byte[] src, int off, int len) {
+        checkRange(index, index + len);
+        Preconditions.checkPositionIndexes(off, off + len, src.length);
+        ByteBuffer[] views = views();
+        while (len > 0) {
+            int n = (int) Math.min(len, remainingInChunk(index));
+            ByteBuffer view = views[chunk(index)].duplicate();
+            view.position(offset(index));
+            view.put(src, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 将[from, to)设置为value
+     */
+    public void fill(long from, long to, byte value) {
+        checkRange(from, to);
+        byte[] block = new byte[(int) Math.min(to - from, BLOCK_SIZE)];
+        Arrays.fill(block, value);
+        for (long i = from; i < to; i += block.length) {
+            set(i, block, 0, (int) Math.min(block.length, to - i));
+        }
+    }
+
+    /**
+     * 复制[srcPos, srcPos+count)到dest的[destPos, destPos+count)，支持同一数组内重叠区间
+     */
+    public void copyTo(long srcPos, BigByteArray dest, long destPos, long count) {
+        checkRange(srcPos, srcPos + count);
+        dest.checkRange(destPos, destPos + count);
+        byte[] block = new byte[(int) Math.min(count, BLOCK_SIZE)];
+        if (dest == this && destPos > srcPos && destPos < srcPos + count) {
+            // 从后往前复制
+            for (long remain = count; remain > 0; ) {
+                int n = (int) Math.min(block.length, remain);
+                remain -= n;
+                get(srcPos + remain, block, 0, n);
+                dest.set(destPos + remain, block, 0, n);
+            }
+        } else {
+            for (long done = 0; done < count; ) {
+                int n = (int) Math.min(block.length, count - done);
+                get(srcPos + done, block, 0, n);
+                dest.set(destPos + done, block, 0, n);
+                done += n;
+            }
+        }
+    }
+
+    /**
+     * 在已升序排序的[from, to)中二分查找
+     * @return 下标，不存在时返回-(插入点)-1
+     */
+    public long binarySearch(long from, long to, byte key) {
+        checkRange(from, to);
+        long low = from, high = to - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            byte v = get(mid);
+            if (v < key) {
+                low = mid + 1;
+            } else if (v > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public long binarySearch(byte key) {
+        return binarySearch(0, length, key);
+    }
+
+    public void sort() {
+        sort(0, length);
+    }
+
+    /**
+     * 计数排序[from, to)（有符号byte升序），O(n)，按块并行计数
+     */
+    public void sort(long from, long to) {
+        checkRange(from, to);
+        long[] counts = LongStream.range(0, (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE).parallel().mapToObj(b -> {
+            long[] count = new long[256];
+            byte[] block = new byte[BLOCK_SIZE];
+            long start = from + b * BLOCK_SIZE;
+            int n = (int) Math.min(BLOCK_SIZE, to - start);
+            get(start, block, 0, n);
+            for (int i = 0; i < n; i++) {
+                count[block[i] & 0xFF]++;
+            }
+            return count;
+        }).reduce(new long[256], (a, b) -> {
+            long[] sum = new long[256];
+            for (int i = 0; i < 256; i++) {
+                sum[i] = a[i] + b[i];
+            }
+            return sum;
+        });
+
+        long pos = from;
+        for (int v = Byte.MIN_VALUE; v <= Byte.MAX_VALUE; v++) {
+            long count = counts[v & 0xFF];
+            fill(pos, pos + count, (byte) v);
+            pos += count;
+        }
+    }
+
+    @Override
+    protected void clearViews() {
+        this.views = null;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private ByteBuffer[] views() {
+        ByteBuffer[] views = this.views;
+        if (views == null) {
+            throw new IllegalStateException("Big array has been closed");
+        }
+        return views;
+    }
+
+    private static ByteBuffer[] views(ByteBuffer[] chunks) {
+        return chunks.clone();
+    }
+
+}
@@ -0,0 +1,262 @@
+package code.ponfee.commons.collect;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 堆外int大数组（下标为long），基于direct ByteBuffer或文件映射
+ *
+ *   try (BigIntArray array = BigIntArray.map(new File("counts.bin"), 1L << 31)) {
+ *       array.set(index, count);
+ *       array.sort();
+ *   }
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class BigIntArray extends AbstractBigArray {
+
+    private static final int ELEMENT_SHIFT = 2;
+    private static final int SORT_THRESHOLD = 1 << 20; // 不超过此长度时复制到堆内排序
+
+    private IntBuffer[] views;
+
+    private BigIntArray(long length, int chunkShift) {
+        super(length, ELEMENT_SHIFT, chunkShift);
+        this.views = views(chunks());
+    }
+
+    private BigIntArray(File file, long length, int chunkShift, boolean readOnly) {
+        super(file, length, ELEMENT_SHIFT, chunkShift, readOnly);
+        this.views = views(chunks());
+    }
+
+    public static BigIntArray allocateDirect(long length) {
+        return new BigIntArray(length, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * @param length     the element count
+     * @param chunkShift 每块字节数的log2，不超过30
+     * @return a BigIntArray of direct memory
+     */
+    public static BigIntArray allocateDirect(long length, int chunkShift) {
+        return new BigIntArray(length, chunkShift);
+    }
+
+    /**
+     * 读写模式映射文件，文件不足length个元素时扩展
+     */
+    public static BigIntArray map(File file, long length) {
+        return new BigIntArray(file, length, DEFAULT_CHUNK_SHIFT, false);
+    }
+
+    public static BigIntArray map(File file, long length, int chunkShift) {
+        return new BigIntArray(file, length, chunkShift, false);
+    }
+
+    /**
+     * 只读映射整个文件
+     */
+    public static BigIntArray mapReadOnly(File file) {
+        return new BigIntArray(file, -1, DEFAULT_CHUNK_SHIFT, true);
+    }
+
+    public int get(long index) {
+        checkIndex(index);
+        return views()[chunk(index)].get(offset(index));
+    }
+
+    public void set(long index, int value) {
+        checkIndex(index);
+        views()[chunk(index)].put(offset(index), value);
+    }
+
+    /**
+     * 读取[index, index+len)到dst[off, off+len)
+     */
+    public void get(long index, int[] dst, int off, int len) {
+        checkRange(index, index + len);
+        Preconditions.checkPositionIndexes(off, off + len, dst.length);
+        IntBuffer[] views = views();
+        while (len > 0) {
+            int n = (int) Math.min(len, remainingInChunk(index));
+            IntBuffer view = views[chunk(index)].duplicate();
+            view.position(offset(index));
+            view.get(dst, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 将src[off, off+len)写入[index, index+len)
+     */
+    public void set(long index, int[] src, int off, int len) {
+        checkRange(index, index + len);
+        Preconditions.checkPositionIndexes(off, off + len, src.length);
+        IntBuffer[] views = views();
+        while (len > 0) {
+            int n = (int) Math.min(len, remainingInChunk(index));
+            IntBuffer view = views[chunk(index)].duplicate();
+            view.position(offset(index));
+            view.put(src, off, n);
+            index += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 将[from, to)设置为value
+     */
+    public void fill(long from, long to, int value) {
+        checkRange(from, to);
+        int[] block = new int[(int) Math.min(to - from, BLOCK_SIZE)];
+        Arrays.fill(block, value);
+        for (long i = from; i < to; i += block.length) {
+            set(i, block, 0, (int) Math.min(block.length, to - i));
+        }
+    }
+
+    /**
+     * 复制[srcPos, srcPos+count)到dest的[destPos, destPos+count)，支持同一数组内重叠区间
+     */
+    public void copyTo(long srcPos, BigIntArray dest, long destPos, long count) {
+        checkRange(srcPos, srcPos + count);
+        dest.checkRange(destPos, destPos + count);
+        int[] block = new int[(int) Math.min(count, BLOCK_SIZE)];
+        if (dest == this && destPos > srcPos && destPos < srcPos + count) {
+            // 从后往前复制
+            for (long remain = count; remain > 0; ) {
+                int n = (int) Math.min(block.length, remain);
+                remain -= n;
+                get(srcPos + remain, block, 0, n);
+                dest.set(destPos + remain, block, 0, n);
+            }
+        } else {
+            for (long done = 0; done < count; ) {
+                int n = (int) Math.min(block.length, count - done);
+                get(srcPos + done, block, 0, n);
+                dest.set(destPos + done, block, 0, n);
+                done += n;
+            }
+        }
+    }
+
+    /**
+     * 在已升序排序的[from, to)中二分查找
+     * @return 下标，不存在时返回-(插入点)-1
+     */
+    public long binarySearch(long from, long to, int key) {
+        checkRange(from, to);
+        long low = from, high = to - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int v = get(mid);
+            if (v < key) {
+                low = mid + 1;
+            } else if (v > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public long binarySearch(int key) {
+        return binarySearch(0, length, key);
+    }
+
+    public void sort() {
+        sort(0, length);
+    }
+
+    /**
+     * 并行排序[from, to)：原地快速排序，子区间在ForkJoin公共池中并行，
+     * 不超过1M个元素的子区间复制到堆内排序
+     */
+    public void sort(long from, long to) {
+        checkRange(from, to);
+        ForkJoinPool.commonPool().invoke(new SortTask(from, to - 1));
+    }
+
+    @Override
+    protected void clearViews() {
+        this.views = null;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private IntBuffer[] views() {
+        IntBuffer[] views = this.views;
+        if (views == null) {
+            throw new IllegalStateException("Big array has been closed");
+        }
+        return views;
+    }
+
+    private static IntBuffer[] views(ByteBuffer[] chunks) {
+        IntBuffer[] views = new IntBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            views[i] = chunks[i].asIntBuffer();
+        }
+        return views;
+    }
+
+    private void swap(long i, long j) {
+        int t = get(i);
+        set(i, get(j));
+        set(j, t);
+    }
+
+    private final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 5127334072641896410L;
+
+        final long low, high; // inclusive
+
+        SortTask(long low, long high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected void compute() {
+            if (high <= low) {
+                return;
+            }
+            if (high - low < SORT_THRESHOLD) {
+                int[] block = new int[(int) (high - low + 1)];
+                BigIntArray.this.get(low, block, 0, block.length);
+                Arrays.sort(block);
+                BigIntArray.this.set(low, block, 0, block.length);
+                return;
+            }
+            int a = BigIntArray.this.get(low), b = BigIntArray.this.get((low + high) >>> 1),
+                c = BigIntArray.this.get(high);
+            int pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c)); // 三数取中
+            long i = low, j = high;
+            while (i <= j) {
+                while (BigIntArray.this.get(i) < pivot) {
+                    i++;
+                }
+                while (BigIntArray.this.get(j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            invokeAll(new SortTask(low, j), new SortTask(i, high));
+        }
+    }
+
+}
@@ -3,17 +3,26 @@ package code.ponfee.commons.collect;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.apache.poi.ss.formula.functions.T;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -138,8 +147,20 @@ public final class Collects {
 
     // -----------------------------the collection of intersect, union and different operations
     /**
-     * 求两list的交集
+     * 元素数量的乘积不超过此值时直接使用contains（无需建立哈希表）
+     */
+    private static final int LINEAR_THRESHOLD = 256;
+
+    /**
+     * 元素数量超过此值时并行过滤
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * 求两list的交集：list1中（保留顺序与重复）存在于list2的元素
      * intersect([1,2,3], [2,3,4]) = [2,3]
+     * 
+     * 对较小的一方建立哈希表，时间复杂度O(n+m)
      * @param list1
      * @param list2
      * @return
@@ -147,7 +168,7 @@ public final class Collects {
     @SuppressWarnings({ "unchecked", "hiding" })
     public static <T> T[] intersect(List<T> list1, List<T> list2) {
         //list1.retainAll(list2);
-        return (T[]) list1.stream().filter(list2::contains).toArray();
+        return (T[]) filter(list1.stream(), list1.size(), containedIn(list1, list2), true).toArray();
     }
 
     /**
@@ -158,7 +179,8 @@ public final class Collects {
      */
     @SuppressWarnings({ "unchecked", "hiding" })
     public static <T> T[] intersect(T[] array, List<T> list) {
-        return (T[]) Stream.of(array).filter(list::contains).toArray();
+        return filter(Stream.of(array), array.length, containedIn(Arrays.asList(array), list), true)
+            .toArray(n -> (T[]) Array.newInstance(array.getClass().getComponentType(), n));
     }
 
     /**
@@ -169,9 +191,10 @@ public final class Collects {
      */
     @SuppressWarnings({ "unchecked", "hiding" })
     public static <T> T[] union(List<T> list1, List<T> list2) {
-        list1 = Lists.newArrayList(list1);
-        list1.addAll(list2);
-        return (T[]) list1.stream().distinct().toArray();
+        Set<T> set = new LinkedHashSet<>(hashCapacity(list1.size() + list2.size()));
+        set.addAll(list1);
+        set.addAll(list2);
+        return (T[]) set.toArray();
     }
 
     /**
@@ -184,15 +207,186 @@ public final class Collects {
      */
     @SuppressWarnings({ "hiding" })
     public static <T> List<T> different(List<T> list1, List<T> list2) {
-        List<T> list = list1.stream().filter(t -> !list2.contains(t))
-                                     .collect(Collectors.toList());
+        Predicate<T> in2 = hashIfLarge(list1.size(), list2), in1 = hashIfLarge(list2.size(), list1);
+        List<T> list = filter(list1.stream(), list1.size(), in2, false)
+                       .collect(Collectors.toList());
 
-        list.addAll(list2.stream().filter(t -> !list1.contains(t))
-                                  .collect(Collectors.toList()));
+        list.addAll(filter(list2.stream(), list2.size(), in1, false)
+                    .collect(Collectors.toList()));
 
         return list;
     }
 
+    // -----------------------------sort-merge operations for the sorted list
+    /**
+     * 两个已升序排序的list求交集（多重集语义：重复元素取较少的次数），O(n+m)
+     * intersectSorted([1,2,2,3], [2,2,4]) = [2,2]
+     * @param sorted1
+     * @param sorted2
+     * @return the sorted result list
+     */
+    @SuppressWarnings({ "hiding" })
+    public static <T extends Comparable<? super T>> List<T> intersectSorted(List<T> sorted1, List<T> sorted2) {
+        return intersectSorted(sorted1, sorted2, Comparator.naturalOrder());
+    }
+
+    @SuppressWarnings({ "hiding" })
+    public static <T> List<T> intersectSorted(List<T> sorted1, List<T> sorted2, Comparator<? super T> c) {
+        List<T> result = new ArrayList<>(Math.min(sorted1.size(), sorted2.size()));
+        Iterator<T> i1 = sorted1.iterator(), i2 = sorted2.iterator();
+        T a = next(i1), b = next(i2);
+        while (a != null && b != null) {
+            int cmp = c.compare(a, b);
+            if (cmp < 0) {
+                a = next(i1);
+            } else if (cmp > 0) {
+                b = next(i2);
+            } else {
+                result.add(a);
+                a = next(i1);
+                b = next(i2);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 两个已升序排序的list求并集（去重），O(n+m)
+     * @param sorted1
+     * @param sorted2
+     * @return the sorted distinct result list
+     */
+    @SuppressWarnings({ "hiding" })
+    public static <T extends Comparable<? super T>> List<T> unionSorted(List<T> sorted1, List<T> sorted2) {
+        return unionSorted(sorted1, sorted2, Comparator.naturalOrder());
+    }
+
+    @SuppressWarnings({ "hiding" })
+    public static <T> List<T> unionSorted(List<T> sorted1, List<T> sorted2, Comparator<? super T> c) {
+        List<T> result = new ArrayList<>(sorted1.size() + sorted2.size());
+        Iterator<T> i1 = sorted1.iterator(), i2 = sorted2.iterator();
+        T a = next(i1), b = next(i2), t;
+        while (a != null || b != null) {
+            int cmp = a == null ? 1 : b == null ? -1 : c.compare(a, b);
+            if (cmp <= 0) {
+                t = a;
+                a = next(i1);
+                if (cmp == 0) {
+                    b = next(i2);
+                }
+            } else {
+                t = b;
+                b = next(i2);
+            }
+            if (result.isEmpty() || c.compare(result.get(result.size() - 1), t) != 0) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 两个已升序排序的list求差集（对称差，多重集语义），O(n+m)
+     * differentSorted([1,2,3], [2,3,4]) = [1,4]
+     * @param sorted1
+     * @param sorted2
+     * @return the sorted result list
+     */
+    @SuppressWarnings({ "hiding" })
+    public static <T extends Comparable<? super T>> List<T> differentSorted(List<T> sorted1, List<T> sorted2) {
+        return differentSorted(sorted1, sorted2, Comparator.naturalOrder());
+    }
+
+    @SuppressWarnings({ "hiding" })
+    public static <T> List<T> differentSorted(List<T> sorted1, List<T> sorted2, Comparator<? super T> c) {
+        List<T> result = new ArrayList<>();
+        Iterator<T> i1 = sorted1.iterator(), i2 = sorted2.iterator();
+        T a = next(i1), b = next(i2);
+        while (a != null || b != null) {
+            int cmp = a == null ? 1 : b == null ? -1 : c.compare(a, b);
+            if (cmp < 0) {
+                result.add(a);
+                a = next(i1);
+            } else if (cmp > 0) {
+                result.add(b);
+                b = next(i2);
+            } else {
+                a = next(i1);
+                b = next(i2);
+            }
+        }
+        return result;
+    }
+
+    // -----------------------------primitive operations
+    /**
+     * array1中（保留顺序与重复）存在于array2的元素
+     * @param array1
+     * @param array2
+     * @return
+     */
+    public static long[] intersect(long[] array1, long[] array2) {
+        LongHashSet set = LongHashSet.of(array2);
+        return filter(LongStream.of(array1), array1.length).filter(set::contains).toArray();
+    }
+
+    /**
+     * 保留首次出现顺序的去重并集
+     * @param array1
+     * @param array2
+     * @return
+     */
+    public static long[] union(long[] array1, long[] array2) {
+        LongHashSet set = new LongHashSet(array1.length + array2.length);
+        LongList list = new LongList(array1.length + array2.length);
+        for (long[] array : new long[][] { array1, array2 }) {
+            for (long v : array) {
+                if (set.add(v)) {
+                    list.add(v);
+                }
+            }
+        }
+        return list.toArray();
+    }
+
+    /**
+     * 对称差：array1中不存在于array2的元素，加上array2中不存在于array1的元素
+     * @param array1
+     * @param array2
+     * @return
+     */
+    public static long[] different(long[] array1, long[] array2) {
+        LongHashSet set1 = LongHashSet.of(array1), set2 = LongHashSet.of(array2);
+        return LongStream.concat(filter(LongStream.of(array1), array1.length).filter(v -> !set2.contains(v)),
+                                 filter(LongStream.of(array2), array2.length).filter(v -> !set1.contains(v)))
+                         .toArray();
+    }
+
+    public static int[] intersect(int[] array1, int[] array2) {
+        IntHashSet set = IntHashSet.of(array2);
+        return filter(IntStream.of(array1), array1.length).filter(set::contains).toArray();
+    }
+
+    public static int[] union(int[] array1, int[] array2) {
+        IntHashSet set = new IntHashSet(array1.length + array2.length);
+        IntList list = new IntList(array1.length + array2.length);
+        for (int[] array : new int[][] { array1, array2 }) {
+            for (int v : array) {
+                if (set.add(v)) {
+                    list.add(v);
+                }
+            }
+        }
+        return list.toArray();
+    }
+
+    public static int[] different(int[] array1, int[] array2) {
+        IntHashSet set1 = IntHashSet.of(array1), set2 = IntHashSet.of(array2);
+        return IntStream.concat(filter(IntStream.of(array1), array1.length).filter(v -> !set2.contains(v)),
+                                filter(IntStream.of(array2), array2.length).filter(v -> !set1.contains(v)))
+                        .toArray();
+    }
+
     /**
      * map差集
      * @param map1
@@ -298,4 +492,61 @@ public final class Collects {
         //return list.toArray((T[]) new Object[list.size()]);
     }
 
+    // -----------------------------private methods
+    /**
+     * 返回判断元素是否存在于target中的谓词：对source与target中较小的一方建立哈希表，
+     * source较小时先找出target中命中的source元素，避免为大的一方建表
+     */
+    private static <E> Predicate<E> containedIn(Collection<E> source, Collection<E> target) {
+        if ((long) source.size() * target.size() <= LINEAR_THRESHOLD) {
+            return target::contains;
+        }
+        if (source.size() >= target.size()) {
+            return new HashSet<>(target)::contains;
+        }
+        Set<E> small = new HashSet<>(source), found = new HashSet<>(hashCapacity(small.size()));
+        for (E e : target) {
+            if (small.contains(e)) {
+                found.add(e);
+            }
+        }
+        return found::contains;
+    }
+
+    private static <E> Predicate<E> hashIfLarge(int probes, Collection<E> target) {
+        if ((long) probes * target.size() <= LINEAR_THRESHOLD) {
+            return target::contains;
+        }
+        return new HashSet<>(target)::contains;
+    }
+
+    /**
+     * 元素数量超过阈值时并行（并行流的toArray/collect仍保持原顺序）
+     */
+    private static <E> Stream<E> filter(Stream<E> stream, int size, Predicate<E> predicate, boolean include) {
+        if (size > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        return stream.filter(include ? predicate : predicate.negate());
+    }
+
+    private static LongStream filter(LongStream stream, int size) {
+        return size > PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    private static IntStream filter(IntStream stream, int size) {
+        return size > PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    private static int hashCapacity(int expectedSize) {
+        return Math.max(16, (int) (expectedSize / 0.75F) + 1);
+    }
+
+    /**
+     * sort-merge不支持null元素，以null表示迭代结束
+     */
+    private static <E> E next(Iterator<E> iter) {
+        return iter.hasNext() ? Preconditions.checkNotNull(iter.next(), "sorted list cannot contains null") : null;
+    }
+
 }
@@ -0,0 +1,336 @@
+package code.ponfee.commons.collect;
+
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_EXPECTED_SIZE;
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_LOAD_FACTOR;
+import static code.ponfee.commons.collect.PrimitiveHashes.arraySize;
+import static code.ponfee.commons.collect.PrimitiveHashes.maxFill;
+import static code.ponfee.commons.collect.PrimitiveHashes.mix;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * <pre>
+ * 开放寻址（线性探测）的int集合，元素以原始类型存储，无装箱开销
+ *   1、0作为空槽位标记，元素0单独记录
+ *   2、删除时回移后续元素（backward shift），不使用删除标记，查找性能不随删除退化
+ *   3、非线程安全
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class IntHashSet implements Serializable {
+
+    private static final long serialVersionUID = 2740262359318917368L;
+
+    private final float loadFactor;
+    private int[] keys;
+    private int mask;
+    private int maxFill;
+    private boolean containsZero = false;
+    private int size = 0;
+
+    public IntHashSet() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntHashSet(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntHashSet(int expectedSize, float loadFactor) {
+        int n = arraySize(expectedSize, loadFactor);
+        this.loadFactor = loadFactor;
+        this.keys = new int[n];
+        this.mask = n - 1;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet(values.length);
+        set.addAll(values);
+        return set;
+    }
+
+    /**
+     * @param key the key
+     * @return {@code true} if this set did not already contain the key
+     */
+    public boolean add(int key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int pos = mix(key) & mask;
+        for (int curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                return false;
+            }
+        }
+        keys[pos] = key;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(int key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int pos = mix(key) & mask;
+        for (int curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean remove(int key) {
+        if (key == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int pos = mix(key) & mask;
+        for (int curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                shiftKeys(pos);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param values the values
+     * @return the number of values added
+     */
+    public int addAll(int... values) {
+        ensureCapacity(size + values.length);
+        int count = 0;
+        for (int value : values) {
+            if (add(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int addAll(IntHashSet other) {
+        ensureCapacity(size + other.size);
+        int[] count = { 0 };
+        other.forEach(value -> {
+            if (add(value)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    public int removeAll(int... values) {
+        int count = 0;
+        for (int value : values) {
+            if (remove(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 只保留同时存在于other中的元素
+     * @param other the other set
+     */
+    public void retainAll(IntHashSet other) {
+        if (containsZero && !other.containsZero) {
+            containsZero = false;
+            size--;
+        }
+        for (int pos = 0; pos < keys.length; ) {
+            int curr = keys[pos];
+            if (curr != 0 && !other.contains(curr)) {
+                shiftKeys(pos);
+                size--;
+                // 回移后当前槽位可能是未检查的元素，需重新检查
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * 预先扩容以容纳expectedSize个元素
+     */
+    public void ensureCapacity(int expectedSize) {
+        int n = arraySize(expectedSize, loadFactor);
+        if (n > keys.length) {
+            rehash(n);
+        }
+    }
+
+    public void forEach(IntConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * 迭代期间不可修改集合
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            int pos = containsZero ? -1 : nextPos(0);
+
+            @Override
+            public boolean hasNext() {
+                return pos < keys.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int key = pos < 0 ? 0 : keys[pos];
+                pos = nextPos(pos + 1);
+                return key;
+            }
+        };
+    }
+
+    public int[] toArray() {
+        int[] array = new int[size];
+        int i = 0;
+        if (containsZero) {
+            array[i++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                array[i++] = key;
+            }
+        }
+        return array;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IntHashSet)) {
+            return false;
+        }
+        IntHashSet other = (IntHashSet) obj;
+        if (size != other.size || containsZero != other.containsZero) {
+            return false;
+        }
+        for (int key : keys) {
+            if (key != 0 && !other.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0; // 与顺序无关
+        for (int key : keys) {
+            h += key;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size * 6 + 2).append('[');
+        forEach(key -> {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append(key);
+        });
+        return builder.append(']').toString();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private int nextPos(int pos) {
+        while (pos < keys.length && keys[pos] == 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 删除pos位置的元素，并把后续探测链上的元素回移到空出的位置
+     */
+    private void shiftKeys(int pos) {
+        for (int last, slot, curr; ; ) {
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((curr = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                slot = mix(curr) & mask;
+                // slot不在(last, pos]的循环区间内时可以回移到last
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = curr;
+        }
+    }
+
+    private void rehash(int n) {
+        int[] old = keys;
+        int[] table = new int[n];
+        int m = n - 1;
+        for (int key : old) {
+            if (key != 0) {
+                int pos = mix(key) & m;
+                while (table[pos] != 0) {
+                    pos = (pos + 1) & m;
+                }
+                table[pos] = key;
+            }
+        }
+        this.keys = table;
+        this.mask = m;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+}
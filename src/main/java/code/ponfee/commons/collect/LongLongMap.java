@@ -0,0 +1,292 @@
+package code.ponfee.commons.collect;
+
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_EXPECTED_SIZE;
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_LOAD_FACTOR;
+import static code.ponfee.commons.collect.PrimitiveHashes.arraySize;
+import static code.ponfee.commons.collect.PrimitiveHashes.maxFill;
+import static code.ponfee.commons.collect.PrimitiveHashes.mix;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * 开放寻址（线性探测）的long -> long映射，键值以原始类型存储，无装箱开销
+ *   1、不存在的键返回noEntryValue（默认0），可用{@link #containsKey(long)}区分
+ *   2、{@link #addTo(long, long)}用于计数器场景
+ *   3、0作为空槽位标记，键0单独记录；删除时回移后续元素，不使用删除标记
+ *   4、非线程安全
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class LongLongMap implements Serializable {
+
+    private static final long serialVersionUID = 6632409915218307467L;
+
+    private final float loadFactor;
+    private final long noEntryValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int maxFill;
+    private boolean containsZeroKey = false;
+    private long zeroValue;
+    private int size = 0;
+
+    public LongLongMap() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public LongLongMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public LongLongMap(int expectedSize, float loadFactor, long noEntryValue) {
+        int n = arraySize(expectedSize, loadFactor);
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        this.keys = new long[n];
+        this.values = new long[n];
+        this.mask = n - 1;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+    public long get(long key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0) {
+            return containsZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(key);
+        return pos < 0 ? defaultValue : values[pos];
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? containsZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or noEntryValue if absent
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = containsZeroKey ? zeroValue : noEntryValue;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int pos = mix(key) & mask;
+        for (long curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                long old = values[pos];
+                values[pos] = value;
+                return old;
+            }
+        }
+        insert(pos, key, value);
+        return noEntryValue;
+    }
+
+    /**
+     * 累加：键不存在时以noEntryValue为初始值
+     * @param key       the key
+     * @param increment the increment
+     * @return the new value
+     */
+    public long addTo(long key, long increment) {
+        if (key == 0) {
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                zeroValue = noEntryValue;
+                size++;
+            }
+            return zeroValue += increment;
+        }
+        int pos = mix(key) & mask;
+        for (long curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                return values[pos] += increment;
+            }
+        }
+        long value = noEntryValue + increment;
+        insert(pos, key, value);
+        return value;
+    }
+
+    /**
+     * @param key the key
+     * @return the removed value, or noEntryValue if absent
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!containsZeroKey) {
+                return noEntryValue;
+            }
+            containsZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return noEntryValue;
+        }
+        long old = values[pos];
+        shiftKeys(pos);
+        size--;
+        return old;
+    }
+
+    public void putAll(LongLongMap other) {
+        ensureCapacity(size + other.size);
+        other.forEach(this::put);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZeroKey = false;
+        size = 0;
+    }
+
+    public void ensureCapacity(int expectedSize) {
+        int n = arraySize(expectedSize, loadFactor);
+        if (n > keys.length) {
+            rehash(n);
+        }
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (containsZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] array = new long[size];
+        int n = 0;
+        if (containsZeroKey) {
+            array[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                array[n++] = key;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * @return 与{@link #keys()}顺序一致的值
+     */
+    public long[] values() {
+        long[] array = new long[size];
+        int n = 0;
+        if (containsZeroKey) {
+            array[n++] = zeroValue;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                array[n++] = values[i];
+            }
+        }
+        return array;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size * 20 + 2).append('{');
+        forEach((k, v) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(k).append('=').append(v);
+        });
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private int find(long key) {
+        int pos = mix(key) & mask;
+        for (long curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int pos, long key, long value) {
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftKeys(int pos) {
+        long curr;
+        for (int last, slot; ; ) {
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((curr = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                slot = mix(curr) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = curr;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int n) {
+        long[] oldKeys = keys, oldValues = values;
+        long[] newKeys = new long[n], newValues = new long[n];
+        int m = n - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = mix(key) & m;
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & m;
+                }
+                newKeys[pos] = key;
+                newValues[pos] = oldValues[i];
+            }
+        }
+        this.keys = newKeys;
+        this.values = newValues;
+        this.mask = m;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+}
@@ -0,0 +1,293 @@
+package code.ponfee.commons.collect;
+
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_EXPECTED_SIZE;
+import static code.ponfee.commons.collect.PrimitiveHashes.DEFAULT_LOAD_FACTOR;
+import static code.ponfee.commons.collect.PrimitiveHashes.arraySize;
+import static code.ponfee.commons.collect.PrimitiveHashes.maxFill;
+import static code.ponfee.commons.collect.PrimitiveHashes.mix;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * <pre>
+ * 开放寻址（线性探测）的long -> Object映射，键以原始类型存储，无装箱开销
+ *   1、不存在的键返回null，值可以为null（用{@link #containsKey(long)}区分）
+ *   2、0作为空槽位标记，键0单独记录；删除时回移后续元素，不使用删除标记
+ *   3、非线程安全
+ * </pre>
+ *
+ * @author Ponfee
+ * @param <V> the value type
+ */
+public class LongObjectMap<V> implements Serializable {
+
+    private static final long serialVersionUID = 1453092372183640826L;
+
+    private final float loadFactor;
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int maxFill;
+    private boolean containsZeroKey = false;
+    private V zeroValue;
+    private int size = 0;
+
+    public LongObjectMap() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int expectedSize, float loadFactor) {
+        int n = arraySize(expectedSize, loadFactor);
+        this.loadFactor = loadFactor;
+        this.keys = new long[n];
+        this.values = new Object[n];
+        this.mask = n - 1;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int pos = find(key);
+        return pos < 0 ? null : (V) values[pos];
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == 0) {
+            return containsZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(key);
+        return pos < 0 ? defaultValue : value(pos);
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? containsZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or null if absent
+     */
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int pos = mix(key) & mask;
+        for (long curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                V old = value(pos);
+                values[pos] = value;
+                return old;
+            }
+        }
+        insert(pos, key, value);
+        return null;
+    }
+
+    /**
+     * 键不存在（或值为null）时计算并放入
+     * @param key      the key
+     * @param function the mapping function
+     * @return the current (existing or computed) value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param key the key
+     * @return the removed value, or null if absent
+     */
+    public V remove(long key) {
+        if (key == 0) {
+            if (!containsZeroKey) {
+                return null;
+            }
+            V old = zeroValue;
+            containsZeroKey = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return null;
+        }
+        V old = value(pos);
+        shiftKeys(pos);
+        size--;
+        return old;
+    }
+
+    public void putAll(LongObjectMap<? extends V> other) {
+        ensureCapacity(size + other.size);
+        other.forEach(this::put);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        containsZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    public void ensureCapacity(int expectedSize) {
+        int n = arraySize(expectedSize, loadFactor);
+        if (n > keys.length) {
+            rehash(n);
+        }
+    }
+
+    public void forEach(EntryConsumer<? super V> action) {
+        if (containsZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], value(i));
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] array = new long[size];
+        int n = 0;
+        if (containsZeroKey) {
+            array[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                array[n++] = key;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * @return 与{@link #keys()}顺序一致的值
+     */
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        forEach((k, v) -> list.add(v));
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size * 20 + 2).append('{');
+        forEach((k, v) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(k).append('=').append(v);
+        });
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    // ------------------------------------------------------------------------private methods
+    @SuppressWarnings("unchecked")
+    private V value(int pos) {
+        return (V) values[pos];
+    }
+
+    private int find(long key) {
+        int pos = mix(key) & mask;
+        for (long curr; (curr = keys[pos]) != 0; pos = (pos + 1) & mask) {
+            if (curr == key) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int pos, long key, V value) {
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size >= maxFill) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftKeys(int pos) {
+        long curr;
+        for (int last, slot; ; ) {
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((curr = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                slot = mix(curr) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = curr;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int n) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        long[] newKeys = new long[n];
+        Object[] newValues = new Object[n];
+        int m = n - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = mix(key) & m;
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & m;
+                }
+                newKeys[pos] = key;
+                newValues[pos] = oldValues[i];
+            }
+        }
+        this.keys = newKeys;
+        this.values = newValues;
+        this.mask = m;
+        this.maxFill = maxFill(n, loadFactor);
+    }
+
+}
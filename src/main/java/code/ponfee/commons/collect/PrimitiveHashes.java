@@ -0,0 +1,52 @@
+package code.ponfee.commons.collect;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 开放寻址（线性探测）原始类型哈希表的公共方法
+ *
+ * @author Ponfee
+ */
+final class PrimitiveHashes {
+    private PrimitiveHashes() {}
+
+    static final float DEFAULT_LOAD_FACTOR = 0.75F;
+    static final int DEFAULT_EXPECTED_SIZE = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static final int INT_PHI = 0x9E3779B9;
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    /**
+     * 乘以黄金分割数后再做高低位混合，避免连续的ID聚集在相邻槽位
+     */
+    static int mix(int x) {
+        int h = x * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long x) {
+        long h = x * LONG_PHI;
+        h ^= (h >>> 32);
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * 容纳expected个元素所需的表长（2的幂）
+     */
+    static int arraySize(int expected, float loadFactor) {
+        Preconditions.checkArgument(expected >= 0, "Illegal expected size: " + expected);
+        Preconditions.checkArgument(loadFactor > 0 && loadFactor < 1, "Illegal load factor: " + loadFactor);
+        long n = Math.max(2, (long) Math.ceil(expected / loadFactor));
+        Preconditions.checkArgument(n <= MAX_CAPACITY, "Too large expected size: " + expected);
+        return Integer.highestOneBit((int) n - 1) << 1;
+    }
+
+    /**
+     * 表长为n时最多可存放的元素个数（至少保留一个空槽位）
+     */
+    static int maxFill(int n, float loadFactor) {
+        return Math.min((int) Math.ceil(n * loadFactor), n - 1);
+    }
+
+}
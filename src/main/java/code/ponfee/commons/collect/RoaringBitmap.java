@@ -0,0 +1,1307 @@
+package code.ponfee.commons.collect;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Roaring风格的压缩位图，用于存放大量long型ID
+ *   1、值按高48位（value >> 16）分桶，每个桶的低16位存放在容器中：
+ *      array容器：有序char[]，元素数不超过4096（每个元素2字节）
+ *      bitmap容器：long[1024]（固定8KB，每个元素1位）
+ *      run容器：连续区间[start, start+length]（连续的ID段只需4字节）
+ *   2、add/remove后array与bitmap容器按元素数自动转换，
+ *      run容器由{@link #addRange(long, long)}生成，或调用{@link #runOptimize()}转换
+ *   3、迭代顺序为有符号long的升序
+ *   4、序列化格式（大端序，跨语言可读）：
+ *      int cookie(0x52424D31) int containerCount
+ *      containerCount * { long key, byte type(1:array,2:bitmap,3:run), int cardinality, payload }
+ *      payload: array为cardinality个uint16，bitmap为1024个long，run为int runCount及runCount个(uint16 start, uint16 length)
+ *   5、非线程安全
+ *
+ *   redis: valueOps.set(key, bitmap.serialize(), false, seconds);
+ *          RoaringBitmap.deserialize(valueOps.get(key, false));
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class RoaringBitmap implements Cloneable {
+
+    private static final int SERIAL_COOKIE = 0x52424D31; // "RBM1"
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final byte TYPE_ARRAY = 1;
+    private static final byte TYPE_BITMAP = 2;
+    private static final byte TYPE_RUN = 3;
+
+    private long[] keys;
+    private Container[] containers;
+    private int size; // 容器数量
+
+    public RoaringBitmap() {
+        this.keys = new long[4];
+        this.containers = new Container[4];
+    }
+
+    private RoaringBitmap(int capacity) {
+        this.keys = new long[Math.max(capacity, 4)];
+        this.containers = new Container[keys.length];
+    }
+
+    public static RoaringBitmap of(long... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.addAll(values);
+        return bitmap;
+    }
+
+    // ------------------------------------------------------------------------mutations
+    public void add(long value) {
+        long key = value >> 16;
+        int i = indexOf(key);
+        if (i >= 0) {
+            containers[i] = containers[i].add(low(value));
+        } else {
+            insert(-i - 1, key, new ArrayContainer().add(low(value)));
+        }
+    }
+
+    /**
+     * 批量添加，先排序可减少容器查找
+     */
+    public void addAll(long... values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int i = -1;
+        long key = 0;
+        for (long value : sorted) {
+            long k = value >> 16;
+            if (i < 0 || k != key) {
+                key = k;
+                i = indexOf(key);
+                if (i < 0) {
+                    i = -i - 1;
+                    insert(i, key, new ArrayContainer());
+                }
+            }
+            containers[i] = containers[i].add(low(value));
+        }
+    }
+
+    /**
+     * 添加区间[start, end)内的所有值
+     * @param start inclusive
+     * @param end   exclusive
+     */
+    public void addRange(long start, long end) {
+        Preconditions.checkArgument(start <= end, "start must be less than or equal to end");
+        if (start == end) {
+            return;
+        }
+        long last = end - 1;
+        for (long key = start >> 16, lastKey = last >> 16; key <= lastKey; key++) {
+            int from = key == (start >> 16) ? low(start) : 0;
+            int to = key == lastKey ? low(last) : CHUNK_SIZE - 1;
+            Container range = RunContainer.range(from, to);
+            int i = indexOf(key);
+            if (i >= 0) {
+                containers[i] = containers[i].or(range);
+            } else {
+                insert(-i - 1, key, range);
+            }
+        }
+    }
+
+    public boolean remove(long value) {
+        int i = indexOf(value >> 16);
+        if (i < 0 || !containers[i].contains(low(value))) {
+            return false;
+        }
+        Container c = containers[i].remove(low(value));
+        if (c.cardinality() == 0) {
+            delete(i);
+        } else {
+            containers[i] = c;
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * 将适合的容器转为run容器（或从run容器转回），连续ID段较多时可显著减少内存与序列化大小
+     * @return {@code true} if any container changed
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i].runOptimize();
+            changed |= c != containers[i];
+            containers[i] = c;
+        }
+        return changed;
+    }
+
+    // ------------------------------------------------------------------------queries
+    public boolean contains(long value) {
+        int i = indexOf(value >> 16);
+        return i >= 0 && containers[i].contains(low(value));
+    }
+
+    public long getCardinality() {
+        long card = 0;
+        for (int i = 0; i < size; i++) {
+            card += containers[i].cardinality();
+        }
+        return card;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long first() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty bitmap");
+        }
+        return value(keys[0], containers[0].nextValue(0));
+    }
+
+    public long last() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty bitmap");
+        }
+        return value(keys[size - 1], containers[size - 1].last());
+    }
+
+    /**
+     * @param value the value
+     * @return 小于或等于value的元素个数
+     */
+    public long rank(long value) {
+        long key = value >> 16, rank = 0;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] < key) {
+                rank += containers[i].cardinality();
+            } else {
+                if (keys[i] == key) {
+                    rank += containers[i].rank(low(value));
+                }
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param j the index, start with 0
+     * @return 第j小（从0开始）的元素
+     */
+    public long select(long j) {
+        Preconditions.checkArgument(j >= 0, "Negative index: " + j);
+        for (int i = 0; i < size; i++) {
+            int card = containers[i].cardinality();
+            if (j < card) {
+                return value(keys[i], containers[i].select((int) j));
+            }
+            j -= card;
+        }
+        throw new IllegalArgumentException("Index out of cardinality");
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * 迭代期间不可修改
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            int index = 0, next = size > 0 ? containers[0].nextValue(0) : -1;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                long value = value(keys[index], next);
+                next = next == CHUNK_SIZE - 1 ? -1 : containers[index].nextValue(next + 1);
+                if (next < 0 && ++index < size) {
+                    next = containers[index].nextValue(0);
+                }
+                return value;
+            }
+        };
+    }
+
+    public long[] toArray() {
+        long card = getCardinality();
+        Preconditions.checkState(card <= Integer.MAX_VALUE - 8, "Too large cardinality: " + card);
+        long[] array = new long[(int) card];
+        int[] n = { 0 };
+        forEach(v -> array[n[0]++] = v);
+        return array;
+    }
+
+    /**
+     * @return 估算的内存占用字节数（容器数据部分）
+     */
+    public long getSizeInBytes() {
+        long bytes = size * 12L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // ------------------------------------------------------------------------set algebra
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(Math.min(a.size, b.size));
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendNonEmpty(a.keys[i], a.containers[i++].and(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(a.size + b.size);
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.append(a.keys[i], a.containers[i++].or(b.containers[j++]));
+            }
+        }
+        result.appendCopies(a, i);
+        result.appendCopies(b, j);
+        return result;
+    }
+
+    public static RoaringBitmap xor(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(a.size + b.size);
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.appendNonEmpty(a.keys[i], a.containers[i++].xor(b.containers[j++]));
+            }
+        }
+        result.appendCopies(a, i);
+        result.appendCopies(b, j);
+        return result;
+    }
+
+    /**
+     * @return a中不存在于b的元素
+     */
+    public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap(a.size);
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendNonEmpty(a.keys[i], a.containers[i++].andNot(b.containers[j++]));
+            }
+        }
+        result.appendCopies(a, i);
+        return result;
+    }
+
+    public static long andCardinality(RoaringBitmap a, RoaringBitmap b) {
+        long card = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                card += a.containers[i++].and(b.containers[j++]).cardinality();
+            }
+        }
+        return card;
+    }
+
+    // ------------------------------------------------------------------------serialization
+    public int serializedSizeInBytes() {
+        int bytes = 8;
+        for (int i = 0; i < size; i++) {
+            bytes += 13 + containers[i].serializedSizeInBytes();
+        }
+        return bytes;
+    }
+
+    public byte[] serialize() {
+        ByteBuffer buffer = ByteBuffer.allocate(serializedSizeInBytes());
+        serialize(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * 写入buffer（从position开始，按大端序）
+     * @param buffer the byte buffer
+     */
+    public void serialize(ByteBuffer buffer) {
+        ByteBuffer out = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        out.putInt(SERIAL_COOKIE).putInt(size);
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            out.putLong(keys[i]).put(c.type()).putInt(c.cardinality());
+            c.serialize(out);
+        }
+        buffer.position(out.position());
+    }
+
+    public static RoaringBitmap deserialize(byte[] data) {
+        return data == null ? null : deserialize(ByteBuffer.wrap(data));
+    }
+
+    public static RoaringBitmap deserialize(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            Preconditions.checkArgument(in.getInt() == SERIAL_COOKIE, "Invalid roaring bitmap data");
+            int count = in.getInt();
+            Preconditions.checkArgument(count >= 0, "Invalid container count: " + count);
+            RoaringBitmap bitmap = new RoaringBitmap(count);
+            for (int i = 0; i < count; i++) {
+                long key = in.getLong();
+                byte type = in.get();
+                int card = in.getInt();
+                Container c;
+                switch (type) {
+                    case TYPE_ARRAY:
+                        c = ArrayContainer.deserialize(in, card);
+                        break;
+                    case TYPE_BITMAP:
+                        c = BitmapContainer.deserialize(in, card);
+                        break;
+                    case TYPE_RUN:
+                        c = RunContainer.deserialize(in);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown container type: " + type);
+                }
+                Preconditions.checkArgument(i == 0 || key > bitmap.keys[i - 1], "Unordered container key");
+                bitmap.append(key, c);
+            }
+            buffer.position(in.position());
+            return bitmap;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated roaring bitmap data", e);
+        }
+    }
+
+    // ------------------------------------------------------------------------Object methods
+    @Override
+    public RoaringBitmap clone() {
+        RoaringBitmap copy = new RoaringBitmap(size);
+        copy.appendCopies(this, 0);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RoaringBitmap)) {
+            return false;
+        }
+        RoaringBitmap other = (RoaringBitmap) obj;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != other.keys[i] || !containers[i].sameValues(other.containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + Long.hashCode(keys[i]);
+            h = 31 * h + containers[i].cardinality();
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        PrimitiveIterator.OfLong iter = iterator();
+        for (int n = 0; iter.hasNext(); n++) {
+            if (n > 0) {
+                builder.append(',');
+            }
+            if (n == 100) {
+                builder.append("...");
+                break;
+            }
+            builder.append(iter.nextLong());
+        }
+        return builder.append('}').toString();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private static int low(long value) {
+        return (int) (value & 0xFFFF);
+    }
+
+    private static long value(long key, int low) {
+        return (key << 16) | low;
+    }
+
+    private int indexOf(long key) {
+        // 顺序添加时命中最后一个容器
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int i, long key, Container c) {
+        if (size == keys.length) {
+            int capacity = size + (size >> 1) + 1;
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void delete(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    private void append(long key, Container c) {
+        insert(size, key, c);
+    }
+
+    private void appendNonEmpty(long key, Container c) {
+        if (c.cardinality() > 0) {
+            append(key, c);
+        }
+    }
+
+    private void appendCopies(RoaringBitmap source, int from) {
+        for (int i = from; i < source.size; i++) {
+            append(source.keys[i], source.containers[i].copy());
+        }
+    }
+
+    /**
+     * bitmap容器元素数不超过4096时转为array容器
+     */
+    private static Container normalize(BitmapContainer c) {
+        return c.cardinality <= ARRAY_MAX_SIZE ? c.toArrayContainer() : c;
+    }
+
+    // ------------------------------------------------------------------------containers
+    /**
+     * 存放低16位的容器，修改操作返回的可能是新的容器
+     */
+    private abstract static class Container {
+        abstract byte type();
+
+        abstract int cardinality();
+
+        abstract boolean contains(int x);
+
+        abstract Container add(int x);
+
+        abstract Container remove(int x);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container xor(Container other);
+
+        abstract Container andNot(Container other);
+
+        /** 小于等于x的元素个数 */
+        abstract int rank(int x);
+
+        abstract int select(int j);
+
+        /** 大于等于from的最小元素，不存在时返回-1 */
+        abstract int nextValue(int from);
+
+        abstract int last();
+
+        abstract void forEach(long high, LongConsumer action);
+
+        abstract BitmapContainer toBitmapContainer();
+
+        abstract int sizeInBytes();
+
+        abstract int serializedSizeInBytes();
+
+        abstract void serialize(ByteBuffer out);
+
+        abstract Container copy();
+
+        Container runOptimize() {
+            int runs = numberOfRuns(), card = cardinality();
+            int runBytes = 4 + runs * 4, otherBytes = card <= ARRAY_MAX_SIZE ? card * 2 : BITMAP_WORDS * 8;
+            if (runBytes < otherBytes) {
+                return this instanceof RunContainer ? this : RunContainer.from(this, runs);
+            }
+            if (this instanceof RunContainer) {
+                return normalize(toBitmapContainer());
+            }
+            return this;
+        }
+
+        int numberOfRuns() {
+            int runs = 0, prev = -2;
+            for (int x = nextValue(0); x >= 0; x = x == CHUNK_SIZE - 1 ? -1 : nextValue(x + 1)) {
+                if (x != prev + 1) {
+                    runs++;
+                }
+                prev = x;
+            }
+            return runs;
+        }
+
+        boolean sameValues(Container other) {
+            if (cardinality() != other.cardinality()) {
+                return false;
+            }
+            if (this instanceof ArrayContainer && other instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) this, b = (ArrayContainer) other;
+                for (int i = 0; i < a.cardinality; i++) {
+                    if (a.content[i] != b.content[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return Arrays.equals(toBitmapContainer().words, other.toBitmapContainer().words);
+        }
+    }
+
+    /**
+     * 有序char[]存放，元素数不超过4096
+     */
+    private static final class ArrayContainer extends Container {
+        char[] content;
+        int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        byte type() {
+            return TYPE_ARRAY;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return binarySearch(x) >= 0;
+        }
+
+        @Override
+        Container add(int x) {
+            int i = binarySearch(x);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX_SIZE) {
+                return toBitmapContainer().add(x);
+            }
+            i = -i - 1;
+            if (cardinality == content.length) {
+                content = Arrays.copyOf(content, Math.min(ARRAY_MAX_SIZE, cardinality * 2));
+            }
+            System.arraycopy(content, i, content, i + 1, cardinality - i);
+            content[i] = (char) x;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(int x) {
+            int i = binarySearch(x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int n = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0, j = 0; i < cardinality && j < o.cardinality; ) {
+                    if (content[i] < o.content[j]) {
+                        i++;
+                    } else if (content[i] > o.content[j]) {
+                        j++;
+                    } else {
+                        result[n++] = content[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(content[i])) {
+                        result[n++] = content[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer)) {
+                return other.or(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            if (cardinality + o.cardinality > ARRAY_MAX_SIZE) {
+                BitmapContainer bitmap = toBitmapContainer();
+                for (int j = 0; j < o.cardinality; j++) {
+                    bitmap.set(o.content[j]);
+                }
+                return normalize(bitmap);
+            }
+            char[] result = new char[cardinality + o.cardinality];
+            int i = 0, j = 0, n = 0;
+            while (i < cardinality && j < o.cardinality) {
+                if (content[i] < o.content[j]) {
+                    result[n++] = content[i++];
+                } else if (content[i] > o.content[j]) {
+                    result[n++] = o.content[j++];
+                } else {
+                    result[n++] = content[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                result[n++] = content[i++];
+            }
+            while (j < o.cardinality) {
+                result[n++] = o.content[j++];
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container xor(Container other) {
+            if (!(other instanceof ArrayContainer)) {
+                return other.xor(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            if (cardinality + o.cardinality > ARRAY_MAX_SIZE) {
+                return toBitmapContainer().xor(o);
+            }
+            char[] result = new char[cardinality + o.cardinality];
+            int i = 0, j = 0, n = 0;
+            while (i < cardinality && j < o.cardinality) {
+                if (content[i] < o.content[j]) {
+                    result[n++] = content[i++];
+                } else if (content[i] > o.content[j]) {
+                    result[n++] = o.content[j++];
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                result[n++] = content[i++];
+            }
+            while (j < o.cardinality) {
+                result[n++] = o.content[j++];
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(content[i])) {
+                    result[n++] = content[i];
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        int rank(int x) {
+            int i = binarySearch(x);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        @Override
+        int select(int j) {
+            return content[j];
+        }
+
+        @Override
+        int nextValue(int from) {
+            int i = binarySearch(from);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return i < cardinality ? content[i] : -1;
+        }
+
+        @Override
+        int last() {
+            return content[cardinality - 1];
+        }
+
+        @Override
+        void forEach(long high, LongConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | content[i]);
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmapContainer() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.set(content[i]);
+            }
+            return bitmap;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return content.length * 2;
+        }
+
+        @Override
+        int serializedSizeInBytes() {
+            return cardinality * 2;
+        }
+
+        @Override
+        void serialize(ByteBuffer out) {
+            for (int i = 0; i < cardinality; i++) {
+                out.putChar(content[i]);
+            }
+        }
+
+        static ArrayContainer deserialize(ByteBuffer in, int card) {
+            Preconditions.checkArgument(card > 0 && card <= ARRAY_MAX_SIZE, "Invalid array cardinality: " + card);
+            char[] content = new char[card];
+            for (int i = 0; i < card; i++) {
+                content[i] = in.getChar();
+                Preconditions.checkArgument(i == 0 || content[i] > content[i - 1], "Unordered array container");
+            }
+            return new ArrayContainer(content, card);
+        }
+
+        @Override
+        ArrayContainer copy() {
+            return new ArrayContainer(Arrays.copyOf(content, cardinality), cardinality);
+        }
+
+        private int binarySearch(int x) {
+            int low = 0, high = cardinality - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1, v = content[mid];
+                if (v < x) {
+                    low = mid + 1;
+                } else if (v > x) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    /**
+     * 65536位的位图
+     */
+    private static final class BitmapContainer extends Container {
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        byte type() {
+            return TYPE_BITMAP;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        void set(int x) {
+            long before = words[x >>> 6];
+            long after = before | (1L << x);
+            words[x >>> 6] = after;
+            cardinality += (int) ((before ^ after) >>> x);
+        }
+
+        @Override
+        Container add(int x) {
+            set(x);
+            return this;
+        }
+
+        @Override
+        Container remove(int x) {
+            long before = words[x >>> 6];
+            long after = before & ~(1L << x);
+            words[x >>> 6] = after;
+            cardinality -= (int) ((before ^ after) >>> x);
+            return normalize(this);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] o = other.toBitmapContainer().words, result = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                card += Long.bitCount(result[i] = words[i] & o[i]);
+            }
+            return normalize(new BitmapContainer(result, card));
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0; i < o.cardinality; i++) {
+                    result.set(o.content[i]);
+                }
+                return result;
+            }
+            long[] o = other.toBitmapContainer().words;
+            int card = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                card += Long.bitCount(result.words[i] |= o[i]);
+            }
+            result.cardinality = card;
+            return normalize(result); // run容器转换的位图元素可能较少
+        }
+
+        @Override
+        Container xor(Container other) {
+            long[] o = other.toBitmapContainer().words, result = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                card += Long.bitCount(result[i] = words[i] ^ o[i]);
+            }
+            return normalize(new BitmapContainer(result, card));
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] o = other.toBitmapContainer().words, result = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                card += Long.bitCount(result[i] = words[i] & ~o[i]);
+            }
+            return normalize(new BitmapContainer(result, card));
+        }
+
+        @Override
+        int rank(int x) {
+            int rank = 0, w = x >>> 6;
+            for (int i = 0; i < w; i++) {
+                rank += Long.bitCount(words[i]);
+            }
+            // 包含x本身：保留第0~(x%64)位
+            return rank + Long.bitCount(words[w] & (-1L >>> (63 - (x & 63))));
+        }
+
+        @Override
+        int select(int j) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                int count = Long.bitCount(words[i]);
+                if (j < count) {
+                    long w = words[i];
+                    for (; j > 0; j--) {
+                        w &= w - 1; // 清除最低位的1
+                    }
+                    return (i << 6) + Long.numberOfTrailingZeros(w);
+                }
+                j -= count;
+            }
+            throw new IllegalArgumentException("Index out of cardinality");
+        }
+
+        @Override
+        int nextValue(int from) {
+            int i = from >>> 6;
+            long w = words[i] & (-1L << from);
+            while (w == 0) {
+                if (++i == BITMAP_WORDS) {
+                    return -1;
+                }
+                w = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        @Override
+        int last() {
+            for (int i = BITMAP_WORDS - 1; i >= 0; i--) {
+                if (words[i] != 0) {
+                    return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+                }
+            }
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        void forEach(long high, LongConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long w = words[i]; w != 0; w &= w - 1) {
+                    action.accept(high | ((i << 6) + Long.numberOfTrailingZeros(w)));
+                }
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmapContainer() {
+            return this;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] content = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long w = words[i]; w != 0; w &= w - 1) {
+                    content[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(w));
+                }
+            }
+            return new ArrayContainer(content, n);
+        }
+
+        @Override
+        int sizeInBytes() {
+            return BITMAP_WORDS * 8;
+        }
+
+        @Override
+        int serializedSizeInBytes() {
+            return BITMAP_WORDS * 8;
+        }
+
+        @Override
+        void serialize(ByteBuffer out) {
+            for (long w : words) {
+                out.putLong(w);
+            }
+        }
+
+        static BitmapContainer deserialize(ByteBuffer in, int card) {
+            long[] words = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                count += Long.bitCount(words[i] = in.getLong());
+            }
+            Preconditions.checkArgument(count == card && card > 0, "Invalid bitmap cardinality: " + card);
+            return new BitmapContainer(words, card);
+        }
+
+        @Override
+        BitmapContainer copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+    }
+
+    /**
+     * 连续区间存放：runs[2i]为起始值，runs[2i+1]为长度减1
+     */
+    private static final class RunContainer extends Container {
+        final char[] runs;
+        final int runCount;
+        final int cardinality;
+
+        RunContainer(char[] runs, int runCount) {
+            this.runs = runs;
+            this.runCount = runCount;
+            int card = 0;
+            for (int i = 0; i < runCount; i++) {
+                card += runs[2 * i + 1] + 1;
+            }
+            this.cardinality = card;
+        }
+
+        static RunContainer range(int from, int to) {
+            return new RunContainer(new char[] { (char) from, (char) (to - from) }, 1);
+        }
+
+        static RunContainer from(Container c, int runCount) {
+            char[] runs = new char[runCount * 2];
+            int n = -1, prev = -2;
+            for (int x = c.nextValue(0); x >= 0; x = x == CHUNK_SIZE - 1 ? -1 : c.nextValue(x + 1)) {
+                if (x == prev + 1) {
+                    runs[2 * n + 1]++;
+                } else {
+                    runs[2 * ++n] = (char) x;
+                }
+                prev = x;
+            }
+            return new RunContainer(runs, runCount);
+        }
+
+        @Override
+        byte type() {
+            return TYPE_RUN;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            int i = runIndex(x);
+            return i >= 0 && x <= runs[2 * i] + runs[2 * i + 1];
+        }
+
+        @Override
+        Container add(int x) {
+            return contains(x) ? this : toMutable().add(x);
+        }
+
+        @Override
+        Container remove(int x) {
+            return contains(x) ? toMutable().remove(x) : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            return toBitmapContainer().and(other);
+        }
+
+        @Override
+        Container or(Container other) {
+            return toBitmapContainer().or(other);
+        }
+
+        @Override
+        Container xor(Container other) {
+            return toBitmapContainer().xor(other);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            return toBitmapContainer().andNot(other);
+        }
+
+        @Override
+        int rank(int x) {
+            int rank = 0;
+            for (int i = 0; i < runCount; i++) {
+                int start = runs[2 * i], length = runs[2 * i + 1];
+                if (x < start) {
+                    break;
+                }
+                rank += Math.min(x - start, length) + 1;
+            }
+            return rank;
+        }
+
+        @Override
+        int select(int j) {
+            for (int i = 0; i < runCount; i++) {
+                int length = runs[2 * i + 1] + 1;
+                if (j < length) {
+                    return runs[2 * i] + j;
+                }
+                j -= length;
+            }
+            throw new IllegalArgumentException("Index out of cardinality");
+        }
+
+        @Override
+        int nextValue(int from) {
+            int i = runIndex(from);
+            if (i >= 0 && from <= runs[2 * i] + runs[2 * i + 1]) {
+                return from;
+            }
+            i++; // 下一个区间
+            return i < runCount ? runs[2 * i] : -1;
+        }
+
+        @Override
+        int last() {
+            return runs[2 * (runCount - 1)] + runs[2 * (runCount - 1) + 1];
+        }
+
+        @Override
+        void forEach(long high, LongConsumer action) {
+            for (int i = 0; i < runCount; i++) {
+                for (int x = runs[2 * i], end = x + runs[2 * i + 1]; x <= end; x++) {
+                    action.accept(high | x);
+                }
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmapContainer() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < runCount; i++) {
+                int start = runs[2 * i], end = start + runs[2 * i + 1] + 1; // [start, end)
+                int first = start >>> 6, last = (end - 1) >>> 6;
+                long firstMask = -1L << start, lastMask = -1L >>> -end;
+                if (first == last) {
+                    words[first] |= firstMask & lastMask;
+                } else {
+                    words[first] |= firstMask;
+                    for (int w = first + 1; w < last; w++) {
+                        words[w] = -1L;
+                    }
+                    words[last] |= lastMask;
+                }
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+
+        @Override
+        int numberOfRuns() {
+            return runCount;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return runs.length * 2;
+        }
+
+        @Override
+        int serializedSizeInBytes() {
+            return 4 + runCount * 4;
+        }
+
+        @Override
+        void serialize(ByteBuffer out) {
+            out.putInt(runCount);
+            for (int i = 0; i < runCount * 2; i++) {
+                out.putChar(runs[i]);
+            }
+        }
+
+        static RunContainer deserialize(ByteBuffer in) {
+            int runCount = in.getInt();
+            Preconditions.checkArgument(runCount > 0 && runCount <= CHUNK_SIZE / 2, "Invalid run count: " + runCount);
+            char[] runs = new char[runCount * 2];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = in.getChar();
+            }
+            for (int i = 0; i < runCount; i++) {
+                int end = runs[2 * i] + runs[2 * i + 1];
+                Preconditions.checkArgument(end < CHUNK_SIZE, "Run overflow");
+                Preconditions.checkArgument(i == runCount - 1 || end + 1 < runs[2 * i + 2], "Unordered runs");
+            }
+            return new RunContainer(runs, runCount);
+        }
+
+        @Override
+        RunContainer copy() {
+            return this; // 不可变
+        }
+
+        private Container toMutable() {
+            return cardinality <= ARRAY_MAX_SIZE ? toBitmapContainer().toArrayContainer() : toBitmapContainer();
+        }
+
+        /**
+         * @return 起始值小于等于x的最后一个区间，不存在时返回-1
+         */
+        private int runIndex(int x) {
+            int low = 0, high = runCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (runs[2 * mid] <= x) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+
+}
@@ -5,13 +5,14 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.math.NumberUtils;
 
 import com.google.common.base.Preconditions;
 
 /**
- * 异步批量数据中转站
+ * 异步批量数据中转站（由共享的{@link HashedWheelTimer}定时触发，在单独的线程中聚合消费）
  * @author Ponfee
  * @param <T>
  */
@@ -99,17 +100,19 @@ public final class AsyncBatchTransmitter<T> {
     }
 
     /**
-     * asnyc batch consume into this alone thread
+     * asnyc batch consume by the shared hashed wheel timer periodically
      */
-    private final class AsyncBatchThread extends Thread {
+    private final class AsyncBatchThread implements Runnable {
 
         final RunnableFactory<T> factory; // 线程工厂
-        final int sleepTimeMillis; // 休眠时间
         final int thresholdPeriod; // 消费周期阀值
         final int thresholdChunk; // 消费数量阀值
         final boolean requireDestroyWhenEnd;
         final ThreadPoolExecutor executor;
+        final ThreadPoolExecutor drainer; // 聚合线程，不占用时间轮的共享线程池
+        volatile HashedWheelTimer.Timeout timeout;
 
+        List<T> list; // 只在定时任务中访问，定时任务不会并发执行
         long lastConsumeTimeMillis = System.currentTimeMillis(); // 最近刷新时间
 
         /**
@@ -124,30 +127,35 @@ public final class AsyncBatchTransmitter<T> {
             Preconditions.checkArgument(thresholdChunk > 0);
 
             this.factory = factory;
-            this.sleepTimeMillis = NumberUtils.max(9, thresholdPeriod / 2);
             this.thresholdPeriod = thresholdPeriod;
             this.thresholdChunk = thresholdChunk;
+            this.list = new ArrayList<>(thresholdChunk);
             if (executor == null) {
                 this.requireDestroyWhenEnd = true;
-                this.executor = ThreadPoolExecutors.create(0, 10, 300, 0, "async-batch-transmitter");
+                // end时shutdown，线程池终止后自动从ThreadPoolRegistry注销
+                this.executor = ThreadPoolExecutors.createRegistered(0, 10, 300, 0, "async-batch-transmitter");
             } else {
                 this.requireDestroyWhenEnd = false;
                 this.executor = executor;
             }
-            super.setName("async-batch-transmitter-thread-" + Integer.toHexString(hashCode()));
-            super.setDaemon(true);
-            super.start();
+            // 单线程：周期任务不会并发执行，队列中最多只有一个待执行的聚合任务
+            this.drainer = ThreadPoolExecutors.create(1, 1, 60, 2, "async-batch-transmitter-drain");
+            this.drainer.allowCoreThreadTimeOut(true);
+            int periodMillis = NumberUtils.max(9, thresholdPeriod / 2);
+            this.timeout = HashedWheelTimer.shared().scheduleAtFixedRate(
+                this, periodMillis, periodMillis, TimeUnit.MILLISECONDS, drainer
+            );
         }
 
         /**
-         * thread run, don't to direct call into the code
-         * it is a thread and the alone thread
+         * timer task run in the drain thread, don't to direct call into the code
          */
         public @Override void run() {
             T t;
-            List<T> list = new ArrayList<>(thresholdChunk);
             for (;;) {
                 if (isEnd && queue.isEmpty() && cumulate() > 2 * thresholdPeriod) {
+                    timeout.cancel();
+                    drainer.shutdown(); // 当前任务执行完后线程退出
                     if (requireDestroyWhenEnd) {
                         try {
                             executor.shutdown();
@@ -155,7 +163,7 @@ public final class AsyncBatchTransmitter<T> {
                             ignored.printStackTrace();
                         }
                     }
-                    break; // exit while loop when end
+                    return; // end
                 }
 
                 // 尽量不要使用queue.size()，时间复杂度O(n)
@@ -179,11 +187,7 @@ public final class AsyncBatchTransmitter<T> {
                     list = new ArrayList<>(thresholdChunk);
                     refresh();
                 } else {
-                    try {
-                        Thread.sleep(sleepTimeMillis); // to sleep for prevent endless loop
-                    } catch (InterruptedException ignored) {
-                        ignored.printStackTrace();
-                    }
+                    return; // wait for next period
                 }
             }
         }
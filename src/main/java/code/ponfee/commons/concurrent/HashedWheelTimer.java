@@ -0,0 +1,533 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 时间轮定时器
+ *   1、单个工作线程每隔一个tick推进一格，到期的任务被执行
+ *   2、添加与取消任务均为O(1)（先放入无锁队列，由工作线程移入/移出对应的格子），
+ *      超过一圈的任务记录剩余圈数，适合大量（百万级）的定时/超时任务
+ *   3、任务的触发精度为一个tick
+ *   4、任务默认在工作线程中执行，耗时任务应指定taskExecutor，避免阻塞时间轮；
+ *      阻塞（IO）任务可在添加时单独指定执行器，时间轮只负责触发
+ *
+ * 参考Netty的HashedWheelTimer
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class HashedWheelTimer {
+
+    private static Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int ST_INIT = 0, ST_STARTED = 1, ST_SHUTDOWN = 2;
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private static volatile HashedWheelTimer shared;
+    private static volatile ThreadPoolExecutor ioExecutor;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Thread worker;
+    private final AtomicInteger state = new AtomicInteger(ST_INIT);
+    private final CountDownLatch startLatch = new CountDownLatch(1);
+    private final Queue<TimerTask> pendings = new ConcurrentLinkedQueue<>();
+    private final Queue<TimerTask> cancels = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private volatile long startTime;
+
+    public HashedWheelTimer(String name) {
+        this(name, 100, TimeUnit.MILLISECONDS, 512, null);
+    }
+
+    /**
+     * @param name         工作线程名称
+     * @param tick         每格的时长
+     * @param unit         时间单位
+     * @param wheelSize    格子数量（调整为2的幂）
+     * @param taskExecutor 任务执行器，为null时在工作线程中执行
+     */
+    public HashedWheelTimer(String name, long tick, TimeUnit unit, int wheelSize, Executor taskExecutor) {
+        Preconditions.checkArgument(tick > 0);
+        Preconditions.checkArgument(wheelSize > 0 && wheelSize <= (1 << 30));
+        this.tickNanos = Math.max(unit.toNanos(tick), TimeUnit.MILLISECONDS.toNanos(1));
+
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.taskExecutor = taskExecutor;
+        this.worker = new NamedThreadFactory(name, true).newThread(new Worker());
+    }
+
+    /**
+     * <pre>
+     * 共享的时间轮（10毫秒/格，1024格），任务在"hashed-wheel-timer-task"线程池中执行，
+     * 线程池满时在工作线程中执行
+     * </pre>
+     * @return the shared timer
+     */
+    public static HashedWheelTimer shared() {
+        if (shared == null) {
+            synchronized (HashedWheelTimer.class) {
+                if (shared == null) { // double check lock
+                    ThreadPoolExecutor executor = InstrumentedThreadPoolExecutor.create(
+                        "hashed-wheel-timer-task", 1, 16, 300, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                        new NamedThreadFactory("hashed-wheel-timer-task", true), ThreadPoolExecutors.CALLER_RUN_HANDLER
+                    );
+                    shared = new HashedWheelTimer("hashed-wheel-timer", 10, TimeUnit.MILLISECONDS, 1024, executor);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * <pre>
+     * 共享的阻塞任务执行器（如访问redis、http的定时任务），与时间轮的任务线程池隔离，
+     * 避免阻塞任务占满线程后由时间轮工作线程执行（CALLER_RUNS）
+     * 队列满时拒绝，由时间轮工作线程执行并输出错误日志
+     * </pre>
+     * @return the shared io executor
+     */
+    public static Executor ioExecutor() {
+        if (ioExecutor == null) {
+            synchronized (HashedWheelTimer.class) {
+                if (ioExecutor == null) { // double check lock
+                    ThreadPoolExecutor executor = InstrumentedThreadPoolExecutor.create(
+                        "hashed-wheel-timer-io", 8, 8, 300, TimeUnit.SECONDS, new ResizableBlockingQueue<>(1024),
+                        new NamedThreadFactory("hashed-wheel-timer-io", true), new ThreadPoolExecutor.AbortPolicy()
+                    );
+                    executor.allowCoreThreadTimeOut(true);
+                    ioExecutor = executor;
+                }
+            }
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * 添加延时任务
+     * @param task  the task
+     * @param delay 延时
+     * @param unit  时间单位
+     * @return the timeout handle
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        return newTimeout(task, delay, unit, null);
+    }
+
+    /**
+     * 添加延时任务，到期后在指定的执行器中执行
+     * @param task     the task
+     * @param delay    延时
+     * @param unit     时间单位
+     * @param executor 任务执行器，为null时使用时间轮的taskExecutor
+     * @return the timeout handle
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        Preconditions.checkNotNull(task);
+        return schedule(task, unit.toNanos(Math.max(0, delay)), executor);
+    }
+
+    /**
+     * 添加周期任务（固定频率，上次未执行完时不会并发执行，而是在其完成后立即执行）
+     * @param task         the task
+     * @param initialDelay 首次延时
+     * @param period       周期
+     * @param unit         时间单位
+     * @return the timeout handle, cancel it to stop the periodic task
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return scheduleAtFixedRate(task, initialDelay, period, unit, null);
+    }
+
+    /**
+     * 添加周期任务，每次到期后在指定的执行器中执行（时间轮只负责触发）
+     * @param task         the task
+     * @param initialDelay 首次延时
+     * @param period       周期
+     * @param unit         时间单位
+     * @param executor     任务执行器，为null时使用时间轮的taskExecutor
+     * @return the timeout handle, cancel it to stop the periodic task
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+                                       TimeUnit unit, Executor executor) {
+        Preconditions.checkNotNull(task);
+        Preconditions.checkArgument(period > 0);
+        Periodic periodic = new Periodic(task, unit.toNanos(period), executor);
+        long delay = unit.toNanos(Math.max(0, initialDelay));
+        periodic.nextTime = System.nanoTime() + delay;
+        periodic.current = schedule(periodic, delay, executor);
+        return periodic;
+    }
+
+    /**
+     * 停止时间轮，未执行的任务被丢弃
+     * @return 丢弃的任务数量
+     */
+    public long stop() {
+        Preconditions.checkState(Thread.currentThread() != worker, "cannot stop timer from the worker thread.");
+        if (!state.compareAndSet(ST_STARTED, ST_SHUTDOWN)) {
+            state.set(ST_SHUTDOWN);
+            return pendingCount.getAndSet(0);
+        }
+        while (worker.isAlive()) {
+            worker.interrupt();
+            try {
+                worker.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (taskExecutor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) taskExecutor).shutdown();
+        }
+        return pendingCount.getAndSet(0);
+    }
+
+    /**
+     * @return 待执行的任务数量
+     */
+    public long pendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private TimerTask schedule(Runnable task, long delayNanos, Executor executor) {
+        start();
+        long deadline = System.nanoTime() + delayNanos - startTime;
+        if (delayNanos > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE; // overflow
+        }
+        TimerTask timeout = new TimerTask(task, deadline, executor);
+        pendingCount.incrementAndGet();
+        pendings.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        switch (state.get()) {
+            case ST_INIT:
+                if (state.compareAndSet(ST_INIT, ST_STARTED)) {
+                    worker.start();
+                }
+                break;
+            case ST_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("the timer has been stopped.");
+        }
+        while (startTime == 0) {
+            try {
+                startLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void execute(TimerTask timeout) {
+        Runnable task = timeout.task;
+        Executor executor = timeout.executor != null ? timeout.executor : taskExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (Throwable t) {
+                logger.error("submit timer task occur error, run it in worker thread.", t);
+            }
+        }
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.error("timer task occur error.", t);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public interface Timeout {
+
+        /**
+         * 取消任务
+         * @return {@code true} if cancel success
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private final class Worker implements Runnable {
+        long tick = 0;
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            startTime = now == 0 ? 1 : now; // 0表示未启动
+            startLatch.countDown();
+
+            do {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancels();
+                    transfer();
+                    wheel[(int) (tick & mask)].expire(deadline, tick);
+                    tick++;
+                }
+            } while (state.get() == ST_STARTED);
+        }
+
+        /**
+         * 等待到下一个tick
+         * @return 当前相对于startTime的时间，被停止时返回-1
+         */
+        long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            for (;;) {
+                long current = System.nanoTime() - startTime;
+                long sleepMillis = (deadline - current + 999999) / 1000000;
+                if (sleepMillis <= 0) {
+                    return current <= 0 ? 1 : current;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (state.get() == ST_SHUTDOWN) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        void transfer() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                TimerTask timeout = pendings.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state.get() != TimerTask.ST_INIT) {
+                    pendingCount.decrementAndGet(); // cancelled before transfer
+                    continue;
+                }
+                place(timeout, tick);
+            }
+        }
+
+        void processCancels() {
+            for (TimerTask timeout; (timeout = cancels.poll()) != null; ) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按到期时间放入对应的格子（只在工作线程中调用）
+     */
+    private void place(TimerTask timeout, long tick) {
+        long calculated = timeout.deadline / tickNanos;
+        timeout.remainingRounds = (calculated - tick) / wheel.length;
+        long ticks = Math.max(calculated, tick); // 已过期的放在当前格
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+
+    /**
+     * 时间轮的一个格子（双向链表，只在工作线程中访问）
+     */
+    private final class Bucket {
+        TimerTask head, tail;
+
+        void add(TimerTask timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long deadline, long tick) {
+            TimerTask timeout = head;
+            while (timeout != null) {
+                TimerTask next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline > deadline) {
+                        // 未到期（如工作线程落后时提前进入了本格），重新放入时间轮
+                        pendingCount.incrementAndGet();
+                        place(timeout, tick);
+                    } else if (timeout.expire()) {
+                        execute(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(TimerTask timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            TimerTask next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private final class TimerTask implements Timeout {
+        static final int ST_INIT = 0, ST_CANCELLED = 1, ST_EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline; // 相对于startTime
+        final Executor executor;
+        final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // 以下字段只在工作线程中访问
+        long remainingRounds;
+        TimerTask prev, next;
+        Bucket bucket;
+
+        TimerTask(Runnable task, long deadline, Executor executor) {
+            this.task = task;
+            this.deadline = deadline;
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            cancels.add(this);
+            return true;
+        }
+
+        boolean expire() {
+            return state.compareAndSet(ST_INIT, ST_EXPIRED);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+    }
+
+    /**
+     * 周期任务：每次执行完成后按固定频率添加下一次
+     */
+    private final class Periodic implements Timeout, Runnable {
+        final Runnable task;
+        final long periodNanos;
+        final Executor executor;
+        volatile long nextTime;
+        volatile TimerTask current;
+        volatile boolean cancelled = false;
+
+        Periodic(Runnable task, long periodNanos, Executor executor) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.error("periodic timer task occur error.", t);
+            }
+            if (cancelled || state.get() != ST_STARTED) {
+                return;
+            }
+            nextTime += periodNanos;
+            long delay = nextTime - System.nanoTime();
+            if (delay < 0) {
+                nextTime -= delay; // 执行超时，不追赶
+                delay = 0;
+            }
+            current = schedule(this, delay, executor);
+            if (cancelled) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            TimerTask c = current;
+            if (c != null) {
+                c.cancel();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,343 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.math.Histogram;
+
+/**
+ * <pre>
+ * 带监控指标的线程池
+ *   1、任务在队列中的等待耗时、执行耗时直方图（微秒）
+ *      执行耗时在beforeExecute/afterExecute中统计；排队耗时由任务的入队时间计算：
+ *      submit/invokeAll等创建的FutureTask记录了创建时间，execute提交的普通任务包装为带入队时间的任务，
+ *      remove(task)、shutdownNow()及拒绝策略看到的仍是原始任务，getQueue()中为包装后的任务
+ *   2、提交数、完成数、失败数、拒绝数与吞吐量（拒绝后由调用方执行的任务不计入耗时）
+ *   3、运行时调整核心线程数、最大线程数，工作队列为{@link ResizableBlockingQueue}时可调整队列容量
+ *   4、调用{@link #register()}后按名称注册到{@link ThreadPoolRegistry}并导出到JMX，线程池终止时自动注销
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements InstrumentedThreadPoolMXBean {
+
+    private final Histogram queueWait = new Histogram();
+    private final Histogram exec = new Histogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    private volatile String name;
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleCount = 0;
+
+    public InstrumentedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize,
+                                          long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        super.setRejectedExecutionHandler(new CountingRejectedHandler(handler));
+        this.name = name;
+    }
+
+    /**
+     * 创建并注册到{@link ThreadPoolRegistry}，用于常驻的具名线程池
+     */
+    public static InstrumentedThreadPoolExecutor create(String name, int corePoolSize, int maximumPoolSize,
+                                                        long keepAliveTime, TimeUnit unit,
+                                                        BlockingQueue<Runnable> workQueue,
+                                                        ThreadFactory threadFactory,
+                                                        RejectedExecutionHandler handler) {
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+            name, corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler
+        );
+        return executor.register();
+    }
+
+    /**
+     * 注册到{@link ThreadPoolRegistry}（名称重复时追加序号），线程池终止时自动注销
+     * @return this
+     */
+    public InstrumentedThreadPoolExecutor register() {
+        this.name = ThreadPoolRegistry.register(name, this);
+        return this;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command);
+        submitted.increment();
+        super.execute(command instanceof TimedFutureTask ? command : new TimedRunnable(command));
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        for (Runnable r : getQueue()) {
+            if (r instanceof TimedRunnable && ((TimedRunnable) r).task == task) {
+                return super.remove(r);
+            }
+        }
+        return super.remove(task);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return super.shutdownNow().stream().map(TimedRunnable::unwrap).collect(Collectors.toList());
+    }
+
+    @Override
+    protected <V> RunnableFuture<V> newTaskFor(Runnable runnable, V value) {
+        return new TimedFutureTask<>(runnable, value);
+    }
+
+    @Override
+    protected <V> RunnableFuture<V> newTaskFor(Callable<V> callable) {
+        return new TimedFutureTask<>(callable);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long start = System.nanoTime();
+        if (r instanceof TimedFutureTask) {
+            queueWait.record(TimeUnit.NANOSECONDS.toMicros(start - ((TimedFutureTask<?>) r).enqueueNanos));
+        } else if (r instanceof TimedRunnable) {
+            queueWait.record(TimeUnit.NANOSECONDS.toMicros(start - ((TimedRunnable) r).enqueueNanos));
+        }
+        startNanos.get()[0] = start;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        exec.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos.get()[0]));
+        completed.increment();
+        if (t != null || (r instanceof TimedFutureTask && ((TimedFutureTask<?>) r).failed)) {
+            failed.increment();
+        }
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectedHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((CountingRejectedHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    /**
+     * 同时调整核心线程数与最大线程数（按正确的先后顺序设置）
+     * @param corePoolSize
+     * @param maximumPoolSize
+     */
+    public synchronized void resize(int corePoolSize, int maximumPoolSize) {
+        Preconditions.checkArgument(corePoolSize >= 0 && maximumPoolSize > 0 && corePoolSize <= maximumPoolSize);
+        if (maximumPoolSize >= getMaximumPoolSize()) {
+            super.setMaximumPoolSize(maximumPoolSize);
+            super.setCorePoolSize(corePoolSize);
+        } else {
+            super.setCorePoolSize(corePoolSize);
+            super.setMaximumPoolSize(maximumPoolSize);
+        }
+    }
+
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        if (corePoolSize > getMaximumPoolSize()) {
+            resize(corePoolSize, corePoolSize);
+        } else {
+            super.setCorePoolSize(corePoolSize);
+        }
+    }
+
+    @Override
+    protected void terminated() {
+        super.terminated();
+        ThreadPoolRegistry.unregister(name, this);
+    }
+
+    // ------------------------------------------------------------------------mxbean
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        BlockingQueue<Runnable> queue = getQueue();
+        if (queue instanceof ResizableBlockingQueue) {
+            return ((ResizableBlockingQueue<Runnable>) queue).getCapacity();
+        }
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    @Override
+    public void setQueueCapacity(int queueCapacity) {
+        BlockingQueue<Runnable> queue = getQueue();
+        if (!(queue instanceof ResizableBlockingQueue)) {
+            throw new UnsupportedOperationException("work queue is not resizable: " + queue.getClass());
+        }
+        ((ResizableBlockingQueue<Runnable>) queue).setCapacity(queueCapacity);
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return 距上次调用期间每秒完成的任务数
+     */
+    @Override
+    public synchronized double getThroughput() {
+        long now = System.nanoTime(), count = completed.sum();
+        double seconds = (now - lastSampleNanos) / 1e9D;
+        double throughput = seconds <= 0 ? 0 : (count - lastSampleCount) / seconds;
+        lastSampleNanos = now;
+        lastSampleCount = count;
+        return throughput;
+    }
+
+    @Override
+    public double getQueueWaitMeanMicros() {
+        return queueWait.mean();
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return queueWait.percentile(99);
+    }
+
+    @Override
+    public long getQueueWaitMaxMicros() {
+        return queueWait.max();
+    }
+
+    @Override
+    public double getExecMeanMicros() {
+        return exec.mean();
+    }
+
+    @Override
+    public long getExecP99Micros() {
+        return exec.percentile(99);
+    }
+
+    @Override
+    public long getExecMaxMicros() {
+        return exec.max();
+    }
+
+    @Override
+    public void resetStatistics() {
+        queueWait.reset();
+        exec.reset();
+    }
+
+    public Histogram queueWaitHistogram() {
+        return queueWait;
+    }
+
+    public Histogram execHistogram() {
+        return exec;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + super.toString() + "]";
+    }
+
+    /**
+     * 记录创建时间的FutureTask，用于统计排队耗时与失败数
+     */
+    private static final class TimedFutureTask<V> extends FutureTask<V> {
+        final long enqueueNanos = System.nanoTime();
+        volatile boolean failed = false; // 异常被FutureTask捕获，afterExecute中无法得到
+
+        TimedFutureTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        TimedFutureTask(Runnable runnable, V result) {
+            super(runnable, result);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            failed = true;
+            super.setException(t);
+        }
+    }
+
+    /**
+     * execute提交的普通任务，记录入队时间用于统计排队耗时
+     */
+    private static final class TimedRunnable implements Runnable {
+        final Runnable task;
+        final long enqueueNanos = System.nanoTime();
+
+        TimedRunnable(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+
+        static Runnable unwrap(Runnable r) {
+            return r instanceof TimedRunnable ? ((TimedRunnable) r).task : r;
+        }
+    }
+
+    private final class CountingRejectedHandler implements RejectedExecutionHandler {
+        final RejectedExecutionHandler delegate;
+
+        CountingRejectedHandler(RejectedExecutionHandler delegate) {
+            this.delegate = Preconditions.checkNotNull(delegate);
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.increment();
+            delegate.rejectedExecution(TimedRunnable.unwrap(r), executor);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package code.ponfee.commons.concurrent;
+
+/**
+ * 线程池监控的JMX接口
+ * @author Ponfee
+ */
+public interface InstrumentedThreadPoolMXBean {
+
+    String getName();
+
+    int getCorePoolSize();
+
+    void setCorePoolSize(int corePoolSize);
+
+    int getMaximumPoolSize();
+
+    void setMaximumPoolSize(int maximumPoolSize);
+
+    int getPoolSize();
+
+    int getLargestPoolSize();
+
+    int getActiveCount();
+
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    void setQueueCapacity(int queueCapacity);
+
+    long getSubmittedCount();
+
+    long getCompletedTaskCount();
+
+    long getFailedCount();
+
+    long getRejectedCount();
+
+    double getThroughput();
+
+    double getQueueWaitMeanMicros();
+
+    long getQueueWaitP99Micros();
+
+    long getQueueWaitMaxMicros();
+
+    double getExecMeanMicros();
+
+    long getExecP99Micros();
+
+    long getExecMaxMicros();
+
+    void resetStatistics();
+}
@@ -0,0 +1,325 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.math.Histogram;
+
+/**
+ * <pre>
+ * 按key亲和的条带化执行器：同一key的任务严格按提交顺序串行执行，不同key之间并行
+ *   1、固定数量的通道（lane），每个通道一个消费线程与有界队列，key按hash值选择通道，
+ *      有序任务只会在其所属通道的线程中执行，因此同一key的任务不会并发执行
+ *   2、无序任务优先分配到空闲通道，空闲通道会窃取其它通道积压的无序任务
+ *   3、有序任务所属通道的队列满时{@link #execute(Object, Runnable)}阻塞（背压），
+ *      {@link #tryExecute(Object, Runnable)}返回false；
+ *      无序任务只有在所有通道的无序队列都满时{@link #execute(Runnable)}才阻塞
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class KeyedExecutor {
+
+    private static Logger logger = LoggerFactory.getLogger(KeyedExecutor.class);
+    private static final long IDLE_WAIT_MILLIS = 50;
+
+    private final String name;
+    private final Lane[] lanes;
+    private final Histogram execHistogram = new Histogram(); // 执行耗时（微秒）
+    private volatile boolean shutdown = false;
+
+    public KeyedExecutor(String name) {
+        this(name, Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    /**
+     * @param name          名称（线程名前缀）
+     * @param laneCount     通道数量
+     * @param queueCapacity 每个通道的队列容量（有序与无序分别计算）
+     */
+    public KeyedExecutor(String name, int laneCount, int queueCapacity) {
+        Preconditions.checkArgument(laneCount > 0);
+        Preconditions.checkArgument(queueCapacity > 0);
+        this.name = name;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+        NamedThreadFactory factory = new NamedThreadFactory(name, true);
+        for (Lane lane : lanes) {
+            factory.newThread(lane).start();
+        }
+    }
+
+    /**
+     * 提交有序任务，通道队列满时阻塞
+     * @param key  the key, the same key tasks are executed in order
+     * @param task the task
+     */
+    public void execute(Object key, Runnable task) {
+        Preconditions.checkNotNull(task);
+        checkShutdown();
+        Lane lane = laneOf(key);
+        try {
+            lane.ordered.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for lane " + lane.index, e);
+        }
+        lane.submitted();
+    }
+
+    /**
+     * 提交有序任务
+     * @param key  the key
+     * @param task the task
+     * @return {@code false} if the lane queue is full
+     */
+    public boolean tryExecute(Object key, Runnable task) {
+        Preconditions.checkNotNull(task);
+        checkShutdown();
+        Lane lane = laneOf(key);
+        if (!lane.ordered.offer(task)) {
+            lane.rejected.increment();
+            return false;
+        }
+        lane.submitted();
+        return true;
+    }
+
+    /**
+     * 提交无序任务（可被任意通道执行）：选中的通道队列满时依次尝试其它通道，
+     * 所有通道的无序队列都满时在选中的通道上阻塞
+     * @param task the task
+     */
+    public void execute(Runnable task) {
+        Preconditions.checkNotNull(task);
+        checkShutdown();
+        Lane lane = pickLane();
+        if (lane.unordered.offer(task)) {
+            lane.submitted();
+            return;
+        }
+        for (int n = lanes.length, i = 1; i < n; i++) {
+            Lane other = lanes[(lane.index + i) % n];
+            if (other.unordered.offer(task)) {
+                other.submitted();
+                return;
+            }
+        }
+        try {
+            lane.unordered.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for lane " + lane.index, e);
+        }
+        lane.submitted();
+    }
+
+    /**
+     * 停止接收任务，已提交的任务执行完后线程退出
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        for (Lane lane : lanes) {
+            lane.signal.release();
+        }
+    }
+
+    /**
+     * 等待所有通道的线程结束
+     * @param timeout
+     * @param unit
+     * @return {@code true} if terminated
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Lane lane : lanes) {
+            while (!lane.terminated) {
+                long wait = deadline - System.nanoTime();
+                if (wait <= 0) {
+                    return false;
+                }
+                lane.signal.release();
+                Thread.sleep(Math.min(10, Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait))));
+            }
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------------metrics
+    public String getName() {
+        return name;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return 等待执行的任务数
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.ordered.size() + lane.unordered.size();
+        }
+        return size;
+    }
+
+    public Histogram getExecHistogram() {
+        return execHistogram;
+    }
+
+    /**
+     * 各通道的指标
+     * @return lane index -> metrics
+     */
+    public Map<Integer, Map<String, Long>> snapshot() {
+        Map<Integer, Map<String, Long>> result = new LinkedHashMap<>();
+        for (Lane lane : lanes) {
+            Map<String, Long> metrics = new LinkedHashMap<>();
+            metrics.put("orderedQueueSize", (long) lane.ordered.size());
+            metrics.put("unorderedQueueSize", (long) lane.unordered.size());
+            metrics.put("submitted", lane.submitted.sum());
+            metrics.put("completed", lane.completed.sum());
+            metrics.put("failed", lane.failed.sum());
+            metrics.put("rejected", lane.rejected.sum());
+            metrics.put("stolen", lane.stolen.sum());
+            metrics.put("busy", lane.busy ? 1L : 0L);
+            result.put(lane.index, metrics);
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private void checkShutdown() {
+        if (shutdown) {
+            throw new RejectedExecutionException("keyed executor has been shutdown: " + name);
+        }
+    }
+
+    private Lane laneOf(Object key) {
+        int h = Objects.hashCode(key);
+        h ^= (h >>> 16); // spread
+        return lanes[(h & 0x7FFFFFFF) % lanes.length];
+    }
+
+    /**
+     * 优先选择空闲通道，否则在两个随机通道中选择积压少的
+     */
+    private Lane pickLane() {
+        int n = lanes.length, start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Lane lane = lanes[(start + i) % n];
+            if (!lane.busy && lane.ordered.isEmpty() && lane.unordered.isEmpty()) {
+                return lane;
+            }
+        }
+        Lane a = lanes[start], b = lanes[ThreadLocalRandom.current().nextInt(n)];
+        return a.backlog() <= b.backlog() ? a : b;
+    }
+
+    private Runnable steal(Lane thief) {
+        int n = lanes.length;
+        for (int i = 1; i < n; i++) {
+            Runnable task = lanes[(thief.index + i) % n].unordered.pollLast(); // 从队尾窃取
+            if (task != null) {
+                thief.stolen.increment();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private final class Lane implements Runnable {
+        final int index;
+        final BlockingQueue<Runnable> ordered;
+        final BlockingDeque<Runnable> unordered;
+        final Semaphore signal = new Semaphore(0);
+        final LongAdder submitted = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder stolen = new LongAdder();
+        volatile boolean busy = false;
+        volatile boolean terminated = false;
+
+        Lane(int index, int queueCapacity) {
+            this.index = index;
+            this.ordered = new LinkedBlockingQueue<>(queueCapacity);
+            this.unordered = new LinkedBlockingDeque<>(queueCapacity);
+        }
+
+        void submitted() {
+            submitted.increment();
+            signal.release();
+        }
+
+        int backlog() {
+            return ordered.size() + unordered.size() + (busy ? 1 : 0);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    Runnable task = ordered.poll();
+                    if (task == null) {
+                        task = unordered.pollFirst();
+                    }
+                    if (task == null) {
+                        task = steal(this);
+                    }
+                    if (task != null) {
+                        run(task);
+                        continue;
+                    }
+                    if (shutdown) {
+                        break; // 队列已空
+                    }
+                    signal.drainPermits();
+                    if (ordered.isEmpty() && unordered.isEmpty()) {
+                        signal.tryAcquire(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                terminated = true;
+            }
+        }
+
+        void run(Runnable task) {
+            busy = true;
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failed.increment();
+                logger.error("keyed executor task occur error: " + name + "-" + index, t);
+            } finally {
+                execHistogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                completed.increment();
+                busy = false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.json.Jsons;
+import code.ponfee.commons.math.Histogram;
+
+/**
+ * <pre>
+ * 进程内压测驱动
+ *   1、预热：先按相同方式执行warmup时长，不记录结果
+ *   2、闭环模式（closed-loop）：每个线程执行完一次后立即执行下一次，
+ *      如指定了expectedInterval，则按其修正协同遗漏（coordinated omission）
+ *   3、固定速率模式（open model）：按ratePerSecond均匀排定每次请求的计划开始时间，
+ *      延迟从计划开始时间算起，因此被阻塞而推迟的请求会计入排队时间（无协同遗漏）
+ *   4、结果：吞吐量、延迟直方图（微秒）、每秒完成数时间线，可输出CSV/JSON
+ *
+ *   LoadDriver.newBuilder().threads(8).warmup(5, SECONDS).duration(30, SECONDS)
+ *             .ratePerSecond(10000).build().run(() -> idWorker.nextId());
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class LoadDriver {
+
+    private final String name;
+    private final int threads;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final double ratePerSecond;
+    private final long expectedIntervalMicros;
+
+    private LoadDriver(Builder builder) {
+        this.name = builder.name;
+        this.threads = builder.threads;
+        this.warmupNanos = builder.warmupNanos;
+        this.durationNanos = builder.durationNanos;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.expectedIntervalMicros = builder.expectedIntervalMicros;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 执行压测
+     * @param executable the executable
+     * @return the result
+     */
+    public Result run(Executable executable) {
+        if (warmupNanos > 0) {
+            execute(executable, warmupNanos, null);
+        }
+        Result result = new Result(name, threads, ratePerSecond, durationNanos);
+        execute(executable, durationNanos, result);
+        return result;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private void execute(Executable executable, long duration, Result result) {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] startAt = new long[1];
+        List<Thread> list = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (ratePerSecond > 0) {
+                    fixedRate(executable, startAt[0], duration, index, result);
+                } else {
+                    closedLoop(executable, startAt[0], duration, result);
+                }
+            }, name + "-" + i);
+            thread.setDaemon(true);
+            list.add(thread);
+            thread.start();
+        }
+
+        try {
+            ready.await();
+            startAt[0] = System.nanoTime();
+            start.countDown();
+            for (Thread thread : list) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            list.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (result != null) {
+            result.elapsedNanos = System.nanoTime() - startAt[0];
+        }
+    }
+
+    private void closedLoop(Executable executable, long startAt, long duration, Result result) {
+        long end = startAt + duration, begin;
+        while ((begin = System.nanoTime()) < end && !Thread.currentThread().isInterrupted()) {
+            boolean success = exec(executable);
+            if (result != null) {
+                long now = System.nanoTime(), micros = TimeUnit.NANOSECONDS.toMicros(now - begin);
+                result.service.record(micros);
+                result.latency.recordCorrected(micros, expectedIntervalMicros);
+                result.completed(now - startAt, success);
+            }
+        }
+    }
+
+    /**
+     * 线程index负责第index, index+threads, index+2*threads...次请求
+     */
+    private void fixedRate(Executable executable, long startAt, long duration, int index, Result result) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        for (long k = index; ; k += threads) {
+            long intended = startAt + (long) (k * intervalNanos);
+            if (intended - startAt >= duration || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(wait);
+            }
+            long begin = System.nanoTime();
+            boolean success = exec(executable);
+            if (result != null) {
+                long now = System.nanoTime();
+                result.service.record(TimeUnit.NANOSECONDS.toMicros(now - begin));
+                result.latency.record(TimeUnit.NANOSECONDS.toMicros(now - intended));
+                result.completed(now - startAt, success);
+            }
+        }
+    }
+
+    private static boolean exec(Executable executable) {
+        try {
+            executable.exec();
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    public static final class Result {
+        private final String name;
+        private final int threads;
+        private final double ratePerSecond;
+        private final Histogram latency = new Histogram(); // 响应时间（固定速率模式含排队时间）
+        private final Histogram service = new Histogram(); // 实际执行耗时
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLongArray timeline; // 每秒完成数
+        private long elapsedNanos;
+
+        private Result(String name, int threads, double ratePerSecond, long durationNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.ratePerSecond = ratePerSecond;
+            this.timeline = new AtomicLongArray((int) (durationNanos / TimeUnit.SECONDS.toNanos(1)) + 2);
+        }
+
+        private void completed(long offsetNanos, boolean success) {
+            int second = (int) (offsetNanos / TimeUnit.SECONDS.toNanos(1));
+            timeline.incrementAndGet(Math.min(second, timeline.length() - 1));
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMode() {
+            return ratePerSecond > 0 ? "fixed-rate" : "closed-loop";
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public long getCount() {
+            return service.count();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return 每秒完成数
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getCount() * 1e9D / elapsedNanos;
+        }
+
+        /**
+         * @return 延迟的百分位数（微秒），如p50、p99、p99.9
+         */
+        public Map<String, Long> getLatencyMicros() {
+            return percentiles(latency);
+        }
+
+        /**
+         * @return 执行耗时的百分位数（微秒）
+         */
+        public Map<String, Long> getServiceMicros() {
+            return percentiles(service);
+        }
+
+        public long[] getTimeline() {
+            int n = timeline.length();
+            while (n > 0 && timeline.get(n - 1) == 0) {
+                n--;
+            }
+            long[] array = new long[n];
+            for (int i = 0; i < n; i++) {
+                array[i] = timeline.get(i);
+            }
+            return array;
+        }
+
+        public Histogram latencyHistogram() {
+            return latency;
+        }
+
+        public Histogram serviceHistogram() {
+            return service;
+        }
+
+        public String toJson() {
+            return Jsons.toJson(this);
+        }
+
+        /**
+         * @return 汇总（metric,value）与每秒时间线（second,count）的CSV
+         */
+        public String toCsv() {
+            StringBuilder builder = new StringBuilder("metric,value\n");
+            builder.append("name,").append(name).append('\n')
+                   .append("mode,").append(getMode()).append('\n')
+                   .append("threads,").append(threads).append('\n')
+                   .append("elapsedMillis,").append(getElapsedMillis()).append('\n')
+                   .append("count,").append(getCount()).append('\n')
+                   .append("errors,").append(getErrors()).append('\n')
+                   .append("throughput,").append(String.format("%.2f", getThroughput())).append('\n');
+            getLatencyMicros().forEach((k, v) -> builder.append("latency.").append(k).append(',').append(v).append('\n'));
+            getServiceMicros().forEach((k, v) -> builder.append("service.").append(k).append(',').append(v).append('\n'));
+            builder.append("\nsecond,count\n");
+            long[] array = getTimeline();
+            for (int i = 0; i < array.length; i++) {
+                builder.append(i).append(',').append(array[i]).append('\n');
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public String toString() {
+            Map<String, Long> p = getLatencyMicros();
+            return String.format("%s[%s, threads=%d, count=%d, errors=%d, elapsed=%dms, throughput=%.2f/s, "
+                               + "latency(us): p50=%d, p99=%d, p99.9=%d, max=%d]",
+                               name, getMode(), threads, getCount(), getErrors(), getElapsedMillis(),
+                               getThroughput(), p.get("p50"), p.get("p99"), p.get("p99.9"), p.get("max"));
+        }
+
+        private static Map<String, Long> percentiles(Histogram histogram) {
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("mean", (long) histogram.mean());
+            result.put("p50", histogram.percentile(50));
+            result.put("p90", histogram.percentile(90));
+            result.put("p99", histogram.percentile(99));
+            result.put("p99.9", histogram.percentile(99.9));
+            result.put("max", histogram.max());
+            return result;
+        }
+    }
+
+    /**
+     * 压测驱动构建类
+     */
+    public static final class Builder {
+        private String name = "load-driver";
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private long warmupNanos = 0;
+        private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+        private double ratePerSecond = 0;
+        private long expectedIntervalMicros = 0;
+
+        private Builder() {}
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder warmup(long warmup, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        public Builder duration(long duration, TimeUnit unit) {
+            this.durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 固定速率模式的总请求速率，0为闭环模式
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        /**
+         * 闭环模式下每个线程期望的请求间隔，用于修正协同遗漏，0为不修正
+         */
+        public Builder expectedInterval(long interval, TimeUnit unit) {
+            this.expectedIntervalMicros = unit.toMicros(interval);
+            return this;
+        }
+
+        public LoadDriver build() {
+            Preconditions.checkArgument(threads > 0);
+            Preconditions.checkArgument(warmupNanos >= 0 && durationNanos > 0);
+            Preconditions.checkArgument(ratePerSecond >= 0 && expectedIntervalMicros >= 0);
+            return new LoadDriver(this);
+        }
+    }
+
+}
@@ -1,49 +1,44 @@
 package code.ponfee.commons.concurrent;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Stopwatch;
-
 /**
  * Multi Thread executor
  * 
  * usual use in test case
  * 
+ * @see LoadDriver
  * @author Ponfee
  */
 public class MultithreadExecutor {
     private static Logger logger = LoggerFactory.getLogger(MultithreadExecutor.class);
 
+    /**
+     * 闭环模式下多线程持续执行指定时长，并输出吞吐量与延迟统计
+     * @param threadCount  the thread count
+     * @param executable   the executable
+     * @param sleepSeconds the duration seconds
+     */
     public static void exec(int threadCount, Executable executable, int sleepSeconds) {
-        Stopwatch watch = Stopwatch.createStarted();
-        AtomicBoolean flag = new AtomicBoolean(true);
-        Thread[] threads = new Thread[threadCount];
-        for (int i = 0; i < threadCount; i++) {
-            threads[i] = new Thread(() -> {
-                while (flag.get() && !Thread.interrupted()) {
-                    executable.exec();
-                }
-            });
-        }
-        for (Thread thread : threads) {
-            thread.start();
-        }
-
-        try {
-            Thread.sleep(sleepSeconds * 1000); // main thread sleep
-            flag.set(false);
+        load(threadCount, executable, sleepSeconds);
+    }
 
-            for (Thread thread : threads) {
-                thread.join();
-            }
-        } catch (InterruptedException e) {
-            flag.set(false);
-            throw new RuntimeException(e);
-        } finally {
-            logger.info("multi thread execute duration: {}", watch.stop());
-        }
+    /**
+     * 同{@link #exec(int, Executable, int)}，并返回统计结果
+     * @param threadCount  the thread count
+     * @param executable   the executable
+     * @param sleepSeconds the duration seconds
+     * @return the load result
+     */
+    public static LoadDriver.Result load(int threadCount, Executable executable, int sleepSeconds) {
+        LoadDriver.Result result = LoadDriver.newBuilder().name("multithread-executor")
+                                             .threads(threadCount)
+                                             .duration(sleepSeconds, TimeUnit.SECONDS)
+                                             .build().run(executable);
+        logger.info("multi thread execute result: {}", result);
+        return result;
     }
 }
@@ -0,0 +1,230 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 按key分区的异步批量数据中转站
+ *   1、数据按key的hash值分配到N个分区，每个分区有独立的有界队列与消费线程
+ *   2、每个分区按数量阀值与周期阀值独立聚合批量，并在本分区线程中串行执行，
+ *      因此同一key的数据严格按put的顺序消费，不同分区之间并行
+ *   3、队列满时put阻塞（背压）
+ *   4、end之后put返回false；end之前已返回true的数据都会被消费
+ * </pre>
+ *
+ * @author Ponfee
+ * @param <K> the key type
+ * @param <T> the element type
+ */
+public final class PartitionedBatchTransmitter<K, T> {
+
+    private static Logger logger = LoggerFactory.getLogger(PartitionedBatchTransmitter.class);
+
+    private final Function<T, K> keyMapper;
+    private final List<Partition> partitions;
+    private final AtomicInteger putting = new AtomicInteger(); // 正在入队的put数量
+    private volatile boolean isEnd = false;
+
+    public PartitionedBatchTransmitter(Function<T, K> keyMapper, RunnableFactory<T> factory) {
+        this(keyMapper, factory, Runtime.getRuntime().availableProcessors(), 1000, 200, 8192);
+    }
+
+    /**
+     * @param keyMapper       获取数据的分区key
+     * @param factory         消费线程工厂
+     * @param partitionCount  分区数量
+     * @param thresholdPeriod 消费周期阀值（毫秒）
+     * @param thresholdChunk  消费数量阀值
+     * @param queueCapacity   每个分区的队列容量
+     */
+    public PartitionedBatchTransmitter(Function<T, K> keyMapper, RunnableFactory<T> factory,
+                                       int partitionCount, int thresholdPeriod,
+                                       int thresholdChunk, int queueCapacity) {
+        Preconditions.checkArgument(partitionCount > 0);
+        Preconditions.checkArgument(thresholdPeriod > 0);
+        Preconditions.checkArgument(thresholdChunk > 0);
+        Preconditions.checkArgument(queueCapacity > 0);
+        this.keyMapper = keyMapper;
+        this.partitions = new ArrayList<>(partitionCount);
+        String prefix = "partitioned-batch-transmitter-" + Integer.toHexString(hashCode()) + "-";
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new Partition(prefix + i, factory, thresholdPeriod, thresholdChunk, queueCapacity));
+        }
+    }
+
+    /**
+     * put one, blocks if the partition queue is full
+     * @param t
+     * @return {@code false} if has end
+     */
+    public boolean put(T t) {
+        // 先登记再检查isEnd：分区线程只在isEnd且无正在入队的put时才判定结束，
+        // 因此返回true的数据一定在结束前入队
+        putting.incrementAndGet();
+        try {
+            if (isEnd) {
+                return false;
+            }
+            partitionOf(keyMapper.apply(t)).queue.put(t);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            putting.decrementAndGet();
+        }
+    }
+
+    /**
+     * batch put
+     * @param list
+     * @return
+     */
+    public boolean put(List<T> list) {
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+
+        boolean flag = true;
+        for (T t : list) {
+            flag &= put(t);
+        }
+        return flag;
+    }
+
+    /**
+     * 结束：各分区消费完队列中剩余数据后退出，每个分区最后一个批次的isEnd为true
+     * （结束时分区已无剩余数据则以一个空批次通知）
+     */
+    public void end() {
+        this.isEnd = true;
+    }
+
+    /**
+     * 等待所有分区线程结束
+     * @param timeoutMillis
+     * @return {@code true} if all partitions terminated
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Partition partition : partitions) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                return false;
+            }
+            partition.join(wait);
+            if (partition.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private Partition partitionOf(K key) {
+        int h = Objects.hashCode(key);
+        h ^= (h >>> 16); // spread
+        return partitions.get((h & 0x7FFFFFFF) % partitions.size());
+    }
+
+    /**
+     * 分区：独立的队列与消费线程，批量在本线程内串行执行
+     */
+    private final class Partition extends Thread {
+        final BlockingQueue<T> queue;
+        final RunnableFactory<T> factory;
+        final int thresholdPeriod;
+        final int thresholdChunk;
+
+        Partition(String name, RunnableFactory<T> factory, int thresholdPeriod,
+                  int thresholdChunk, int queueCapacity) {
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+            this.factory = factory;
+            this.thresholdPeriod = thresholdPeriod;
+            this.thresholdChunk = thresholdChunk;
+            super.setName(name);
+            super.setDaemon(true);
+            super.start();
+        }
+
+        public @Override void run() {
+            List<T> list = new ArrayList<>(thresholdChunk);
+            long batchStart = System.currentTimeMillis();
+            for (;;) {
+                // 先读isEnd再读putting，两者都满足后不会再有数据入队
+                boolean end = isEnd && putting.get() == 0;
+                queue.drainTo(list, thresholdChunk - list.size());
+                if (list.isEmpty()) {
+                    if (end) {
+                        execute(list, true); // 队列已消费完，通知结束
+                        return;
+                    }
+                    T t;
+                    try {
+                        t = queue.poll(thresholdPeriod, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (t != null) {
+                        list.add(t);
+                    }
+                    batchStart = System.currentTimeMillis();
+                    continue;
+                }
+
+                long remain = thresholdPeriod - (System.currentTimeMillis() - batchStart);
+                if (list.size() < thresholdChunk && remain > 0 && !end) {
+                    T t;
+                    try {
+                        t = queue.poll(remain, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (t != null) {
+                        list.add(t);
+                    }
+                    continue;
+                }
+
+                boolean last = end && queue.isEmpty();
+                execute(list, last);
+                if (last) {
+                    return;
+                }
+                list = new ArrayList<>(thresholdChunk);
+                batchStart = System.currentTimeMillis();
+            }
+            if (!list.isEmpty()) {
+                execute(list, true); // interrupted
+            }
+        }
+
+        void execute(List<T> list, boolean end) {
+            try {
+                factory.create(list, end).run();
+            } catch (Throwable t) {
+                logger.error("partitioned batch consume occur error: " + getName(), t);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 可在运行时调整容量的阻塞队列（用于线程池的工作队列）
+ *   容量调小时已入队的元素不受影响，直到队列长度降到新容量以下才能再入队
+ * </pre>
+ *
+ * @author Ponfee
+ * @param <E>
+ */
+public class ResizableBlockingQueue<E> extends LinkedBlockingQueue<E> {
+
+    private static final long serialVersionUID = -2938012464196547634L;
+    private static final long MAX_AWAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ReentrantLock putLock = new ReentrantLock();
+    private final Condition notFull = putLock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile int capacity;
+
+    public ResizableBlockingQueue(int capacity) {
+        Preconditions.checkArgument(capacity > 0);
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        Preconditions.checkArgument(capacity > 0);
+        this.capacity = capacity;
+        signalNotFull();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        putLock.lock();
+        try {
+            return size() < capacity && super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        putLock.lockInterruptibly();
+        try {
+            while (size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos -= await(Math.min(nanos, MAX_AWAIT_NANOS));
+            }
+            return super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        putLock.lockInterruptibly();
+        try {
+            while (size() >= capacity) {
+                await(MAX_AWAIT_NANOS);
+            }
+            super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = super.take();
+        signalNotFull();
+        return e;
+    }
+
+    @Override
+    public E poll() {
+        E e = super.poll();
+        if (e != null) {
+            signalNotFull();
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = super.poll(timeout, unit);
+        if (e != null) {
+            signalNotFull();
+        }
+        return e;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean removed = super.remove(o);
+        if (removed) {
+            signalNotFull();
+        }
+        return removed;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int n = super.drainTo(c, maxElements);
+        if (n > 0) {
+            signalNotFull();
+        }
+        return n;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        signalNotFull();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    /**
+     * 限时等待，避免出队时未加锁检查waiters而丢失唤醒信号
+     */
+    private long await(long nanos) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            return nanos - Math.max(0, notFull.awaitNanos(nanos));
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void signalNotFull() {
+        if (waiters.get() > 0) {
+            putLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                putLock.unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+package code.ponfee.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * <pre>
+ * 基于Disruptor环形缓冲区的异步批量数据中转站
+ *   与{@link AsyncBatchTransmitter}使用相同的{@link RunnableFactory}，区别：
+ *   1、有界缓冲区，缓冲区满时按{@link FullPolicy}处理（阻塞、丢弃、调用方执行）
+ *   2、消费线程由等待策略唤醒（不再sleep轮询），
+ *      当次可消费的数据取完（endOfBatch）或达到批量数量阀值时即提交，
+ *      低负载时延迟低，高负载时批量自然变大
+ * </pre>
+ *
+ * @author Ponfee
+ * @param <T>
+ */
+public final class RingBufferBatchTransmitter<T> {
+
+    /**
+     * 消费线程的等待策略
+     */
+    public enum WaitStrategy {
+        /** 锁与条件变量，CPU占用最低 */
+        BLOCKING,
+        /** 自旋后Thread.yield()，低延迟 */
+        YIELDING,
+        /** 忙等待，延迟最低，独占一个CPU核 */
+        BUSY_SPIN;
+
+        com.lmax.disruptor.WaitStrategy create() {
+            switch (this) {
+                case YIELDING:
+                    return new YieldingWaitStrategy();
+                case BUSY_SPIN:
+                    return new BusySpinWaitStrategy();
+                default:
+                    return new BlockingWaitStrategy();
+            }
+        }
+    }
+
+    /**
+     * 缓冲区满时的处理策略
+     */
+    public enum FullPolicy {
+        /** 阻塞直到有空闲位置 */
+        BLOCK,
+        /** 丢弃，put返回false */
+        DROP,
+        /** 在调用线程中直接执行（单条数据作为一个批次） */
+        CALLER_RUNS
+    }
+
+    private final RunnableFactory<T> factory;
+    private final FullPolicy fullPolicy;
+    private final Disruptor<Holder<T>> disruptor;
+    private final RingBuffer<Holder<T>> ringBuffer;
+    private final ThreadPoolExecutor executor;
+    private final boolean requireDestroyWhenEnd;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger putting = new AtomicInteger(); // 正在入队的put数量
+    private final CountDownLatch endConsumed = new CountDownLatch(1); // 结束标记已被消费
+    private final EventTranslatorOneArg<Holder<T>, T> translator = (holder, sequence, t) -> holder.value = t;
+    private volatile boolean isEnd = false;
+
+    public RingBufferBatchTransmitter(RunnableFactory<T> factory) {
+        this(factory, 8192, 200);
+    }
+
+    public RingBufferBatchTransmitter(RunnableFactory<T> factory, int bufferSize, int thresholdChunk) {
+        this(factory, bufferSize, thresholdChunk, WaitStrategy.BLOCKING, FullPolicy.BLOCK, null);
+    }
+
+    /**
+     * @param factory        消费线程工厂
+     * @param bufferSize     缓冲区大小，必须为2的幂
+     * @param thresholdChunk 消费数量阀值
+     * @param waitStrategy   消费线程的等待策略
+     * @param fullPolicy     缓冲区满时的处理策略
+     * @param executor       线程执行器
+     */
+    public RingBufferBatchTransmitter(RunnableFactory<T> factory, int bufferSize, int thresholdChunk,
+                                      WaitStrategy waitStrategy, FullPolicy fullPolicy,
+                                      ThreadPoolExecutor executor) {
+        Preconditions.checkArgument(bufferSize > 0 && Integer.bitCount(bufferSize) == 1,
+                                    "buffer size must be a power of 2.");
+        Preconditions.checkArgument(thresholdChunk > 0);
+        this.factory = factory;
+        this.fullPolicy = fullPolicy;
+        if (executor == null) {
+            this.requireDestroyWhenEnd = true;
+            this.executor = ThreadPoolExecutors.create(0, 10, 300, 0, "ring-buffer-batch-transmitter");
+        } else {
+            this.requireDestroyWhenEnd = false;
+            this.executor = executor;
+        }
+
+        this.disruptor = new Disruptor<>(Holder::new, bufferSize,
+                                         new NamedThreadFactory("ring-buffer-batch-transmitter-consumer", true),
+                                         ProducerType.MULTI, waitStrategy.create());
+        handleEventsWith(this.disruptor, new BatchHandler(thresholdChunk));
+        this.ringBuffer = this.disruptor.start();
+    }
+
+    /**
+     * put one
+     * @param t
+     * @return {@code false} if has end or dropped
+     */
+    public boolean put(T t) {
+        // 先登记再检查isEnd：end()等待正在入队的put完成后才发布结束标记，
+        // 因此返回true的数据一定在结束标记之前入队
+        putting.incrementAndGet();
+        try {
+            if (isEnd) {
+                return false;
+            }
+            switch (fullPolicy) {
+                case DROP:
+                    if (ringBuffer.tryPublishEvent(translator, t)) {
+                        return true;
+                    }
+                    dropped.increment();
+                    return false;
+                case CALLER_RUNS:
+                    if (!ringBuffer.tryPublishEvent(translator, t)) {
+                        factory.create(Collections.singletonList(t), false).run();
+                    }
+                    return true;
+                default:
+                    ringBuffer.publishEvent(translator, t);
+                    return true;
+            }
+        } finally {
+            putting.decrementAndGet();
+        }
+    }
+
+    /**
+     * batch put
+     * @param ts
+     * @return
+     */
+    @SafeVarargs
+    public final boolean put(T... ts) {
+        if (ts == null || ts.length == 0) {
+            return false;
+        }
+
+        boolean flag = true;
+        for (T t : ts) {
+            flag &= put(t);
+        }
+        return flag;
+    }
+
+    /**
+     * batch put
+     * @param list
+     * @return
+     */
+    public boolean put(List<T> list) {
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+
+        boolean flag = true;
+        for (T t : list) {
+            flag &= put(t);
+        }
+        return flag;
+    }
+
+    /**
+     * 结束：等待缓冲区中的数据全部提交后停止消费线程，最后一个批次（可能为空）的end为true
+     */
+    public synchronized void end() {
+        if (isEnd) {
+            return;
+        }
+        this.isEnd = true;
+        // 等待正在入队的put完成（消费线程仍在运行，阻塞中的put会被唤醒）
+        while (putting.get() > 0) {
+            Thread.yield();
+        }
+        ringBuffer.publishEvent((holder, sequence) -> holder.end = true); // 结束标记
+        // Disruptor#shutdown不等待尚未启动的消费线程，因此先等待结束标记被消费
+        Uninterruptibles.awaitUninterruptibly(endConsumed);
+        disruptor.shutdown();
+        if (requireDestroyWhenEnd) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return 缓冲区剩余容量
+     */
+    public long remainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * @return 因缓冲区满而丢弃的数量
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Disruptor#handleEventsWith的泛型可变参数未声明@SafeVarargs，
+     * 此处只传入单个handler，创建的数组不会被写入其它类型，是类型安全的
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> void handleEventsWith(Disruptor<E> disruptor, EventHandler<E> handler) {
+        disruptor.handleEventsWith(handler);
+    }
+
+    /**
+     * 环形缓冲区中预分配的数据槽
+     */
+    private static final class Holder<T> {
+        T value;
+        boolean end;
+    }
+
+    /**
+     * 单线程消费：聚合为批量后提交到线程执行器
+     */
+    private final class BatchHandler implements EventHandler<Holder<T>> {
+        final int thresholdChunk;
+        List<T> list;
+
+        BatchHandler(int thresholdChunk) {
+            this.thresholdChunk = thresholdChunk;
+            this.list = new ArrayList<>(thresholdChunk);
+        }
+
+        @Override
+        public void onEvent(Holder<T> holder, long sequence, boolean endOfBatch) {
+            if (holder.end) {
+                holder.end = false;
+                try {
+                    submit(true); // 数据已消费完时提交空批次，通知结束
+                } finally {
+                    endConsumed.countDown();
+                }
+                return;
+            }
+
+            list.add(holder.value);
+            holder.value = null; // help gc
+            if (list.size() >= thresholdChunk || endOfBatch) {
+                submit(false);
+            }
+        }
+
+        void submit(boolean end) {
+            // submit方式task抛异常不会结束线程
+            executor.submit(factory.create(list, end));
+            list = new ArrayList<>(thresholdChunk);
+        }
+    }
+
+}
@@ -1,7 +1,6 @@
 package code.ponfee.commons.concurrent;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
@@ -38,7 +37,20 @@ public final class ThreadPoolExecutors {
     }
 
     /**
-     * 线程池创建器
+     * 创建并注册到{@link ThreadPoolRegistry}，用于常驻的具名线程池
+     */
+    public static InstrumentedThreadPoolExecutor createRegistered(int corePoolSize, int maximumPoolSize,
+                                                                  long keepAliveTime, int queueCapacity,
+                                                                  String threadName) {
+        ThreadPoolExecutor executor = create(corePoolSize, maximumPoolSize, keepAliveTime, 
+                                             queueCapacity, threadName, null);
+        return ((InstrumentedThreadPoolExecutor) executor).register();
+    }
+
+    /**
+     * 线程池创建器，返回的线程池为{@link InstrumentedThreadPoolExecutor}，
+     * 默认不注册；需要通过JMX查看指标及调整大小时调用{@link InstrumentedThreadPoolExecutor#register()}，
+     * 或使用{@link #createRegistered(int, int, long, int, String)}
      * @param corePoolSize     核心线程数
      * @param maximumPoolSize  最大线程数
      * @param keepAliveTime    线程存活时间
@@ -53,7 +65,7 @@ public final class ThreadPoolExecutors {
         // work queue
         BlockingQueue<Runnable> workQueue;
         if (queueCapacity > 0) {
-            workQueue = new LinkedBlockingQueue<>(queueCapacity);
+            workQueue = new ResizableBlockingQueue<>(queueCapacity);
         } else {
             workQueue = new SynchronousQueue<>();
         }
@@ -67,8 +79,9 @@ public final class ThreadPoolExecutors {
         }
 
         // create ThreadPoolExecutor instance
-        return new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTime, TimeUnit.SECONDS, 
-                                      workQueue, threadFactory, rejectedHandler);
+        return new InstrumentedThreadPoolExecutor(threadName, corePoolSize, maximumPoolSize, 
+                                                  keepAliveTime, TimeUnit.SECONDS, workQueue, 
+                                                  threadFactory, rejectedHandler);
     }
 
 }
@@ -0,0 +1,119 @@
+package code.ponfee.commons.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * 具名线程池注册表：列出已注册的{@link InstrumentedThreadPoolExecutor}并导出到JMX
+ *   注册是可选的（{@link InstrumentedThreadPoolExecutor#register()}），线程池终止时自动注销，
+ *   因此只应注册常驻或会被shutdown的线程池
+ *   名称重复时自动追加序号，如：mail-sender、mail-sender#2
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class ThreadPoolRegistry {
+    private ThreadPoolRegistry() {}
+
+    private static final String JMX_DOMAIN = "code.ponfee.commons.concurrent";
+    private static Logger logger = LoggerFactory.getLogger(ThreadPoolRegistry.class);
+
+    private static final ConcurrentMap<String, InstrumentedThreadPoolExecutor> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * 注册线程池
+     * @param name
+     * @param executor
+     * @return 实际注册的名称
+     */
+    public static String register(String name, InstrumentedThreadPoolExecutor executor) {
+        if (StringUtils.isBlank(name)) {
+            name = "pool";
+        }
+        String actual = name;
+        for (int i = 2; POOLS.putIfAbsent(actual, executor) != null; i++) {
+            actual = name + "#" + i;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = objectName(actual);
+            if (!server.isRegistered(on)) {
+                server.registerMBean(executor, on);
+            }
+        } catch (Exception e) {
+            logger.error("register thread pool mbean error: " + actual, e);
+        }
+        return actual;
+    }
+
+    /**
+     * 注销线程池
+     * @param name
+     * @param executor
+     */
+    public static void unregister(String name, InstrumentedThreadPoolExecutor executor) {
+        if (name == null || !POOLS.remove(name, executor)) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = objectName(name);
+            if (server.isRegistered(on)) {
+                server.unregisterMBean(on);
+            }
+        } catch (Exception e) {
+            logger.error("unregister thread pool mbean error: " + name, e);
+        }
+    }
+
+    public static InstrumentedThreadPoolExecutor get(String name) {
+        return POOLS.get(name);
+    }
+
+    public static Map<String, InstrumentedThreadPoolExecutor> getAll() {
+        return Collections.unmodifiableMap(POOLS);
+    }
+
+    /**
+     * 所有线程池的主要指标
+     * @return name -> metrics
+     */
+    public static Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (InstrumentedThreadPoolExecutor pool : POOLS.values()) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("corePoolSize", pool.getCorePoolSize());
+            metrics.put("maximumPoolSize", pool.getMaximumPoolSize());
+            metrics.put("poolSize", pool.getPoolSize());
+            metrics.put("activeCount", pool.getActiveCount());
+            metrics.put("queueSize", pool.getQueueSize());
+            metrics.put("queueCapacity", pool.getQueueCapacity());
+            metrics.put("submittedCount", pool.getSubmittedCount());
+            metrics.put("completedCount", pool.getCompletedTaskCount());
+            metrics.put("failedCount", pool.getFailedCount());
+            metrics.put("rejectedCount", pool.getRejectedCount());
+            metrics.put("queueWaitP99Micros", pool.getQueueWaitP99Micros());
+            metrics.put("execP99Micros", pool.getExecP99Micros());
+            result.put(pool.getName(), metrics);
+        }
+        return result;
+    }
+
+    private static ObjectName objectName(String name) throws Exception {
+        return new ObjectName(JMX_DOMAIN + ":type=ThreadPool,name=" + ObjectName.quote(name));
+    }
+
+}
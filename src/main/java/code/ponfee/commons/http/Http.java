@@ -10,6 +10,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,6 +27,7 @@ import com.google.common.base.Preconditions;
 
 import code.ponfee.commons.io.Files;
 import code.ponfee.commons.json.Jsons;
+import code.ponfee.commons.limit.CircuitBreaker;
 
 /**
  * <pre>
@@ -73,6 +75,7 @@ public final class Http {
     private String contentCharset; // 请求内容编码
     private String accept; // 接收类型
     private SSLSocketFactory sslSocketFactory; // 走SSL/TSL通道
+    private CircuitBreaker circuitBreaker; // 熔断器
 
     private Map<String, List<String>> respHeaders;
 
@@ -283,6 +286,17 @@ public final class Http {
         return setSSLSocketFactory(sslContext.getSocketFactory());
     }
 
+    /**
+     * 熔断器：熔断期间直接抛出异常，不再发起请求；
+     * 请求异常或响应状态码为5xx时记为失败
+     * @param circuitBreaker
+     * @return
+     */
+    public Http circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
     // --------------------------------request------------------------------
     public <T> T request(JavaType type) {
         return Jsons.fromJson(request(), type);
@@ -297,11 +311,17 @@ public final class Http {
      * @return
      */
     public String request() {
-        HttpRequest request = request0();
+        long start = acquire();
+        HttpRequest request = null;
+        boolean failed = true;
         try {
-            return request.body();
+            request = request0();
+            String body = request.body();
+            failed = request.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return body;
         } finally {
             disconnect(request);
+            complete(start, failed);
         }
     }
 
@@ -325,9 +345,12 @@ public final class Http {
      */
     //private static final Pattern FILENAME_PATTERN = Pattern.compile("(?i)^.*;.*filename=(.*)$");
     public void download(OutputStream output) {
+        long start = acquire();
         BufferedOutputStream bos = null;
-        HttpRequest request = request0();
+        HttpRequest request = null;
+        boolean failed = true;
         try {
+            request = request0();
             if (request.ok() || request.created()) {
                 /*// 获取文件名
                 String disposition = UrlCoder.decodeURIComponent(request.header("content-Disposition"));
@@ -337,11 +360,14 @@ public final class Http {
                 }*/
                 bos = new BufferedOutputStream(output);
                 request.receive(bos);
+                failed = false;
             } else {
+                failed = request.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
                 throw new HttpException("request failed, status: " + request.code());
             }
         } finally {
             disconnect(request);
+            complete(start, failed);
             if (bos != null) try {
                 bos.close();
             } catch (IOException ignored) {
@@ -435,6 +461,24 @@ public final class Http {
         return request;
     }
 
+    private long acquire() {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            throw new HttpException("circuit breaker open: " + circuitBreaker.getName());
+        }
+        return System.nanoTime();
+    }
+
+    private void complete(long start, boolean failed) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (failed) {
+            circuitBreaker.onError(System.nanoTime() - start);
+        } else {
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+        }
+    }
+
     private void disconnect(HttpRequest request) {
         if (request != null) {
             this.respHeaders = request.headers(); // get the response headers
@@ -8,6 +8,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -154,7 +156,11 @@ public final class Files {
              FileChannel channel = in.getChannel()
         ) {
             ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
-            return Charset.forName(charset).decode(buffer).toString();
+            try {
+                return Charset.forName(charset).decode(buffer).toString();
+            } finally {
+                unmap(buffer);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -172,12 +178,64 @@ public final class Files {
             ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
             byte[] bytes = new byte[buffer.capacity()];
             buffer.get(bytes, 0, bytes.length);
+            unmap(buffer);
             return bytes;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 立即释放direct buffer或解除文件映射（不等待GC），释放后不能再访问该buffer，
+     * 否则可能导致JVM崩溃；只能传入allocateDirect或map返回的原始buffer（不能是slice/duplicate）
+     * 
+     * @param buffer the direct or mapped byte buffer
+     * @return {@code true} if released
+     */
+    public static boolean unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return false;
+        }
+        try {
+            if (BufferCleaner.INVOKE_CLEANER != null) {
+                // jdk9+: sun.misc.Unsafe#invokeCleaner
+                BufferCleaner.INVOKE_CLEANER.invoke(BufferCleaner.UNSAFE, buffer);
+                return true;
+            }
+            // jdk8: ((sun.nio.ch.DirectBuffer) buffer).cleaner().clean()
+            Method method = buffer.getClass().getMethod("cleaner");
+            method.setAccessible(true);
+            Object cleaner = method.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+            return true;
+        } catch (Exception e) {
+            return false; // 交由GC回收
+        }
+    }
+
+    private static final class BufferCleaner {
+        static final Object UNSAFE;
+        static final Method INVOKE_CLEANER;
+        static {
+            Object unsafe = null;
+            Method method = null;
+            try {
+                Class<?> type = Class.forName("sun.misc.Unsafe");
+                method = type.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = type.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+            } catch (Exception ignored) {
+                method = null; // jdk8
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = method;
+        }
+    }
+
     public static List<String> readLines(File file) throws FileNotFoundException {
         return readLines(new FileInputStream(file), null);
     }
@@ -20,11 +20,26 @@ public interface JedisCallback<T> {
      * @return a result
      */
     default T call(JedisClient jedisClient, T occurErrorRtnVal, Object... args) {
+        JedisMonitor monitor = jedisClient.monitor();
+        ShardedJedis borrowed = null;
+        long start = 0, elapsed;
+        T result;
         try (ShardedJedis shardedJedis = jedisClient.getShardedJedis()) {
-            return this.call(shardedJedis);
+            borrowed = shardedJedis;
+            start = System.nanoTime();
+            result = this.call(shardedJedis);
+            elapsed = System.nanoTime() - start;
         } catch (Exception e) {
+            if (monitor != null && borrowed != null) {
+                monitor.recordCommand(borrowed, args, System.nanoTime() - start, false);
+            }
             JedisClient.exception(e, args);
             return occurErrorRtnVal;
         }
+        // 在try之外记录，避免监控自身的异常被当作命令失败
+        if (monitor != null) {
+            monitor.recordCommand(borrowed, args, elapsed, true);
+        }
+        return result;
     }
 }
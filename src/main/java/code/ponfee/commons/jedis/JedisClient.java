@@ -44,6 +44,7 @@ public class JedisClient implements DisposableBean {
     private ZSetOperations zsetOps;
     private ScriptOperations scriptOps;
     private MQOperations mqOps;
+    private volatile JedisMonitor monitor;
 
     // -----------------------------------ShardedJedisPool（分片模式）-----------------------------------
     public JedisClient(GenericObjectPoolConfig poolCfg, String hosts) {
@@ -206,8 +207,34 @@ public class JedisClient implements DisposableBean {
         return this.mqOps;
     }
 
+    /**
+     * 开启连接池监控，并注册到JMX
+     * @param name 监控名称（JMX中的name属性）
+     * @return the JedisMonitor
+     */
+    public synchronized JedisMonitor enableMonitor(String name) {
+        if (this.monitor == null) {
+            JedisMonitor monitor = new JedisMonitor(name, shardedJedisPool);
+            monitor.registerMBean();
+            this.monitor = monitor;
+        }
+        return this.monitor;
+    }
+
+    /**
+     * 获取连接池监控，未开启时返回null
+     * @return the JedisMonitor
+     */
+    public JedisMonitor monitor() {
+        return this.monitor;
+    }
+
     @Override
     public void destroy() {
+        if (monitor != null) {
+            monitor.close();
+            monitor = null;
+        }
         if (shardedJedisPool != null && !shardedJedisPool.isClosed()) {
             shardedJedisPool.close();
             shardedJedisPool = null;
@@ -215,7 +242,20 @@ public class JedisClient implements DisposableBean {
     }
 
     ShardedJedis getShardedJedis() throws JedisException {
-        return this.shardedJedisPool.getResource();
+        JedisMonitor monitor = this.monitor;
+        if (monitor == null) {
+            return this.shardedJedisPool.getResource();
+        }
+
+        long start = System.nanoTime();
+        try {
+            ShardedJedis shardedJedis = this.shardedJedisPool.getResource();
+            monitor.recordBorrow(System.nanoTime() - start, true);
+            return shardedJedis;
+        } catch (JedisException e) {
+            monitor.recordBorrow(System.nanoTime() - start, false);
+            throw e;
+        }
     }
 
     /**
@@ -17,10 +17,24 @@ public interface JedisHook {
      * @param args        参数列表
      */
     default void hook(JedisClient jedisClient, Object... args) {
+        JedisMonitor monitor = jedisClient.monitor();
+        ShardedJedis borrowed = null;
+        long start = 0, elapsed;
         try (ShardedJedis shardedJedis = jedisClient.getShardedJedis()) {
+            borrowed = shardedJedis;
+            start = System.nanoTime();
             this.hook(shardedJedis);
+            elapsed = System.nanoTime() - start;
         } catch (Exception e) {
+            if (monitor != null && borrowed != null) {
+                monitor.recordCommand(borrowed, args, System.nanoTime() - start, false);
+            }
             JedisClient.exception(e, args);
+            return;
+        }
+        // 在try之外记录，避免监控自身的异常被当作命令失败
+        if (monitor != null) {
+            monitor.recordCommand(borrowed, args, elapsed, true);
         }
     }
 }
@@ -0,0 +1,344 @@
+package code.ponfee.commons.jedis;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.concurrent.NamedThreadFactory;
+import code.ponfee.commons.math.Histogram;
+import code.ponfee.commons.reflect.Fields;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.util.Pool;
+
+/**
+ * <pre>
+ * jedis连接池监控：
+ *   1、连接获取（borrow）等待时间直方图、失败次数
+ *   2、连接池活跃/空闲/等待数
+ *   3、按分片统计命令耗时及错误数（以操作的第一个参数作为key路由到分片）
+ *   4、可选的自适应控制：根据borrow等待时间在[lowerBound, upperBound]内调整maxTotal
+ *
+ * 通过JMX（code.ponfee.commons.jedis:type=JedisMonitor,name=xxx）或getter方法轮询获取
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class JedisMonitor implements JedisMonitorMXBean {
+
+    private static Logger logger = LoggerFactory.getLogger(JedisMonitor.class);
+    private static final String UNKNOWN_SHARD = "*";
+    private static final String JMX_DOMAIN = "code.ponfee.commons.jedis";
+
+    private final String name;
+    private final Pool<ShardedJedis> pool;
+
+    private final Histogram borrowWait = new Histogram(); // micros
+    private final Histogram intervalBorrowWait = new Histogram(); // micros, 自适应控制周期内的统计
+    private final LongAdder borrowFailures = new LongAdder();
+    private final ConcurrentMap<String, CommandStats> shards = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> adaptiveTask;
+
+    JedisMonitor(String name, Pool<ShardedJedis> pool) {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    // ------------------------------------------------------------------------record
+    void recordBorrow(long nanos, boolean success) {
+        if (success) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            borrowWait.record(micros);
+            intervalBorrowWait.record(micros);
+        } else {
+            borrowFailures.increment();
+        }
+    }
+
+    void recordCommand(ShardedJedis shardedJedis, Object[] args, long nanos, boolean success) {
+        String shard = shardName(shardedJedis, args);
+        CommandStats stats = shards.get(shard);
+        if (stats == null) {
+            stats = shards.computeIfAbsent(shard, k -> new CommandStats());
+        }
+        stats.latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    // ------------------------------------------------------------------------adaptive
+    /**
+     * 开启自适应连接池大小控制：
+     *   周期内borrow等待的p99超过targetWaitMillis或有线程在等待时，扩大maxTotal（每次增加1/4）；
+     *   等待的p99低于targetWaitMillis/4且活跃连接不足一半时，缩小maxTotal（每次减少1/8）
+     *
+     * @param lowerBound       maxTotal下限
+     * @param upperBound       maxTotal上限
+     * @param targetWaitMillis 目标等待时间
+     * @param periodSeconds    调整周期
+     */
+    public synchronized void enableAdaptive(int lowerBound, int upperBound,
+                                            long targetWaitMillis, int periodSeconds) {
+        Preconditions.checkArgument(lowerBound > 0 && lowerBound <= upperBound);
+        Preconditions.checkArgument(targetWaitMillis > 0 && periodSeconds > 0);
+        disableAdaptive();
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("jedis-monitor-" + name, true));
+        }
+        long targetMicros = TimeUnit.MILLISECONDS.toMicros(targetWaitMillis);
+        intervalBorrowWait.reset();
+        adaptiveTask = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                adjust(lowerBound, upperBound, targetMicros);
+            } catch (Throwable t) {
+                logger.error("jedis pool adaptive adjust error", t);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void disableAdaptive() {
+        if (adaptiveTask != null) {
+            adaptiveTask.cancel(false);
+            adaptiveTask = null;
+        }
+    }
+
+    void adjust(int lowerBound, int upperBound, long targetMicros) {
+        GenericObjectPool<ShardedJedis> internal = internalPool();
+        if (internal == null) {
+            return;
+        }
+        long p99 = intervalBorrowWait.percentile(99);
+        intervalBorrowWait.reset();
+
+        int current = internal.getMaxTotal(), target = current;
+        if (current < 0) {
+            return; // negative is unlimited
+        }
+        if (p99 > targetMicros || internal.getNumWaiters() > 0) {
+            target = Math.min(upperBound, current + Math.max(1, current >> 2));
+        } else if (p99 < (targetMicros >> 2) && internal.getNumActive() < (current >> 1)) {
+            target = Math.max(Math.max(lowerBound, internal.getNumActive()), current - Math.max(1, current >> 3));
+        }
+        target = Math.max(lowerBound, Math.min(upperBound, target));
+        if (target != current) {
+            internal.setMaxTotal(target);
+            logger.info("jedis pool [{}] adjust max total {} -> {}, borrow wait p99 {}us", name, current, target, p99);
+        }
+    }
+
+    // ------------------------------------------------------------------------jmx
+    synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName(JMX_DOMAIN + ":type=JedisMonitor,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(on)) {
+                server.registerMBean(this, on);
+                this.objectName = on;
+            }
+        } catch (Exception e) {
+            logger.error("register jedis monitor mbean error: " + name, e);
+        }
+    }
+
+    synchronized void close() {
+        disableAdaptive();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                logger.error("unregister jedis monitor mbean error: " + name, e);
+            }
+            objectName = null;
+        }
+    }
+
+    // ------------------------------------------------------------------------polling api
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getNumActive() {
+        return pool.getNumActive();
+    }
+
+    @Override
+    public int getNumIdle() {
+        return pool.getNumIdle();
+    }
+
+    @Override
+    public int getNumWaiters() {
+        return pool.getNumWaiters();
+    }
+
+    @Override
+    public int getMaxTotal() {
+        GenericObjectPool<ShardedJedis> internal = internalPool();
+        return internal == null ? -1 : internal.getMaxTotal();
+    }
+
+    @Override
+    public void setMaxTotal(int maxTotal) {
+        Preconditions.checkArgument(maxTotal > 0);
+        GenericObjectPool<ShardedJedis> internal = internalPool();
+        if (internal != null) {
+            internal.setMaxTotal(maxTotal);
+        }
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowWait.count();
+    }
+
+    @Override
+    public long getBorrowFailureCount() {
+        return borrowFailures.sum();
+    }
+
+    @Override
+    public double getBorrowWaitMeanMicros() {
+        return borrowWait.mean();
+    }
+
+    @Override
+    public long getBorrowWaitP99Micros() {
+        return borrowWait.percentile(99);
+    }
+
+    @Override
+    public long getBorrowWaitMaxMicros() {
+        return borrowWait.max();
+    }
+
+    @Override
+    public Map<String, Long> getShardCommandCounts() {
+        return collect(s -> s.latency.count());
+    }
+
+    @Override
+    public Map<String, Long> getShardErrorCounts() {
+        return collect(s -> s.errors.sum());
+    }
+
+    @Override
+    public Map<String, Long> getShardLatencyP99Micros() {
+        return collect(s -> s.latency.percentile(99));
+    }
+
+    @Override
+    public void reset() {
+        borrowWait.reset();
+        intervalBorrowWait.reset();
+        borrowFailures.reset();
+        shards.clear();
+    }
+
+    /**
+     * borrow等待时间的直方图（微秒）
+     * @return
+     */
+    public Histogram borrowWaitHistogram() {
+        return borrowWait;
+    }
+
+    /**
+     * 分片命令耗时的直方图（微秒）
+     * @param shard 分片名称
+     * @return
+     */
+    public Histogram shardLatencyHistogram(String shard) {
+        CommandStats stats = shards.get(shard);
+        return stats == null ? null : stats.latency;
+    }
+
+    /**
+     * 当前监控数据快照
+     * @return
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("numActive", getNumActive());
+        map.put("numIdle", getNumIdle());
+        map.put("numWaiters", getNumWaiters());
+        map.put("maxTotal", getMaxTotal());
+        map.put("borrowCount", getBorrowCount());
+        map.put("borrowFailureCount", getBorrowFailureCount());
+        map.put("borrowWaitMicros", borrowWait.toString());
+        Map<String, Object> shardMap = new TreeMap<>();
+        for (Map.Entry<String, CommandStats> entry : shards.entrySet()) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("errors", entry.getValue().errors.sum());
+            stats.put("latencyMicros", entry.getValue().latency.toString());
+            shardMap.put(entry.getKey(), stats);
+        }
+        map.put("shards", shardMap);
+        return map;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    @SuppressWarnings("unchecked")
+    private GenericObjectPool<ShardedJedis> internalPool() {
+        // 哨兵模式下master切换时会重建internalPool，故每次重新获取
+        return (GenericObjectPool<ShardedJedis>) Fields.get(pool, "internalPool");
+    }
+
+    private Map<String, Long> collect(ToLongFunction<CommandStats> mapper) {
+        Map<String, Long> map = new TreeMap<>();
+        for (Map.Entry<String, CommandStats> entry : shards.entrySet()) {
+            map.put(entry.getKey(), mapper.applyAsLong(entry.getValue()));
+        }
+        return map;
+    }
+
+    private static String shardName(ShardedJedis shardedJedis, Object[] args) {
+        if (args == null || args.length == 0) {
+            return UNKNOWN_SHARD;
+        }
+        JedisShardInfo info;
+        if (args[0] instanceof String) {
+            info = shardedJedis.getShardInfo((String) args[0]);
+        } else if (args[0] instanceof byte[]) {
+            info = shardedJedis.getShardInfo((byte[]) args[0]);
+        } else {
+            return UNKNOWN_SHARD;
+        }
+        return info.getName() != null ? info.getName() : info.getHost() + ":" + info.getPort();
+    }
+
+    private static class CommandStats {
+        final Histogram latency = new Histogram(); // micros
+        final LongAdder errors = new LongAdder();
+    }
+
+}
@@ -0,0 +1,40 @@
+package code.ponfee.commons.jedis;
+
+import java.util.Map;
+
+/**
+ * jedis连接池监控的JMX接口
+ * @author Ponfee
+ */
+public interface JedisMonitorMXBean {
+
+    String getName();
+
+    int getNumActive();
+
+    int getNumIdle();
+
+    int getNumWaiters();
+
+    int getMaxTotal();
+
+    void setMaxTotal(int maxTotal);
+
+    long getBorrowCount();
+
+    long getBorrowFailureCount();
+
+    double getBorrowWaitMeanMicros();
+
+    long getBorrowWaitP99Micros();
+
+    long getBorrowWaitMaxMicros();
+
+    Map<String, Long> getShardCommandCounts();
+
+    Map<String, Long> getShardErrorCounts();
+
+    Map<String, Long> getShardLatencyP99Micros();
+
+    void reset();
+}
@@ -2,7 +2,10 @@ package code.ponfee.commons.jedis;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
+import code.ponfee.commons.concurrent.KeyedExecutor;
 import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.JedisPubSub;
 
@@ -54,6 +57,28 @@ public class MQOperations extends JedisOperations {
         });
     }
 
+    /**
+     * 订阅频道，消息在KeyedExecutor中处理（处理过程不占用订阅线程）：
+     * 相同key（如实体id）的消息按接收顺序串行处理，不同key并行处理
+     * 
+     * 注意：
+     *   1、与{@link #subscribe(JedisPubSub, String...)}相同，本方法阻塞调用线程直到取消订阅
+     *   2、key所属通道的队列满时订阅线程阻塞等待（背压），期间redis端的消息会在输出缓冲区中积压
+     * @param executor  the keyed executor
+     * @param keyMapper (channel, message) -> key
+     * @param listener  (channel, message) -> void
+     * @param channels  the channels
+     */
+    public void subscribe(KeyedExecutor executor, BiFunction<String, String, ?> keyMapper,
+                          BiConsumer<String, String> listener, String... channels) {
+        subscribe(new JedisPubSub() {
+            @Override
+            public void onMessage(String channel, String message) {
+                executor.execute(keyMapper.apply(channel, message), () -> listener.accept(channel, message));
+            }
+        }, channels);
+    }
+
     public void psubscribe(JedisPubSub jedisPubSub, String... patterns) {
         hook(shardedJedis -> {
             getShard(shardedJedis, JEDIS_MQ_OPS_BYTES).psubscribe(jedisPubSub, patterns);
@@ -1,15 +1,33 @@
 package code.ponfee.commons.jedis;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import code.ponfee.commons.jce.digest.DigestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 /**
+ * <pre>
  * redis lua script
+ *   1、eval/evalsha/evalScript：固定在名为jedis-script-ops的分片上执行，适用于无key或key不分片的脚本
+ *   2、evalScriptByKey：在第一个key所在的分片上执行，适用于操作业务key的脚本，
+ *      所有key须在同一分片（可先用groupByShard分组）
+ * </pre>
+ *
  * @author fupf
  */
 public class ScriptOperations extends JedisOperations {
 
      public static final String JEDIS_SCRIPT_OPS = "jedis-script-ops";
      private static final byte[] JEDIS_SCRIPT_OPS_BYTES = JEDIS_SCRIPT_OPS.getBytes();
+     private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+     private static final Map<String, String> SCRIPT_SHA1_CACHE = new ConcurrentHashMap<>();
 
     ScriptOperations(JedisClient jedisClient) {
         super(jedisClient);
@@ -52,4 +70,70 @@ public class ScriptOperations extends JedisOperations {
         );
     }
 
+    /**
+     * 以EVALSHA执行脚本（只传输SHA1校验和），
+     * 当服务端未缓存该脚本（NOSCRIPT）时以EVAL执行并缓存，整个过程一次取连接
+     * @param script
+     * @param keys
+     * @param args
+     * @return
+     */
+    public Object evalScript(String script, List<String> keys, List<String> args) {
+        String sha1 = SCRIPT_SHA1_CACHE.computeIfAbsent(script, DigestUtils::sha1Hex);
+        return call(sj -> {
+            Jedis jedis = getShard(sj, JEDIS_SCRIPT_OPS_BYTES);
+            try {
+                return jedis.evalsha(sha1, keys, args);
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                    throw e;
+                }
+                return jedis.eval(script, keys, args);
+            }
+        }, null, sha1, keys, args);
+    }
+
+
+    /**
+     * 在keys.get(0)所在的分片上执行脚本（EVALSHA，NOSCRIPT时以EVAL执行），
+     * 与普通命令的路由一致，脚本中的所有key须在同一分片
+     * @param script
+     * @param keys   the keys, cannot be empty
+     * @param args
+     * @return
+     */
+    public Object evalScriptByKey(String script, List<String> keys, List<String> args) {
+        String key = keys.get(0), sha1 = SCRIPT_SHA1_CACHE.computeIfAbsent(script, DigestUtils::sha1Hex);
+        return call(sj -> {
+            Jedis jedis = getShard(sj, key);
+            try {
+                return jedis.evalsha(sha1, keys, args);
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                    throw e;
+                }
+                return jedis.eval(script, keys, args);
+            }
+        }, null, key, sha1, keys, args);
+    }
+
+    /**
+     * 按所在分片对key分组（保持原有顺序），同一分组的key可在一个脚本中操作
+     * @param keys
+     * @return the groups, a single group if occur error
+     */
+    public List<List<String>> groupByShard(List<String> keys) {
+        if (keys.size() < 2) {
+            return Collections.singletonList(keys);
+        }
+        List<List<String>> groups = call(sj -> {
+            Map<JedisShardInfo, List<String>> map = new LinkedHashMap<>();
+            for (String key : keys) {
+                map.computeIfAbsent(sj.getShardInfo(key), k -> new ArrayList<>()).add(key);
+            }
+            return new ArrayList<>(map.values());
+        }, null, keys);
+        return groups != null ? groups : Collections.singletonList(keys);
+    }
+
 }
@@ -231,6 +231,19 @@ public class ValueOperations extends JedisOperations {
         }, null, key, step, seconds);
     }
 
+    /**
+     * 将 key中储存的数字值加上step，不设置（也不修改）失效期，
+     * 用于需要永久保存的计数器（如号段分配）
+     * @param key
+     * @param step
+     * @return 执行 INCRBY 命令之后 key 的值
+     */
+    public Long incrByWithoutExpire(String key, long step) {
+        return call(shardedJedis -> {
+            return shardedJedis.incrBy(key, step);
+        }, null, key, step);
+    }
+
     /**
      * 为 key 中所储存的值加上浮点数增量 increment，如果 key 不存在，那么 INCRBYFLOAT 会先将 key 的值设为 0 ，再执行加法操作。
      * @param key
@@ -0,0 +1,88 @@
+package code.ponfee.commons.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * <pre>
+ * json数组流式迭代器：每次只反序列化一个元素，内存占用与数组长度无关
+ * 数组读完时自动关闭parser，未读完时需调用{@link #close()}
+ *
+ *   try (JsonArrayIterator<User> iter = Jsons.NORMAL.iterate(input, User.class)) {
+ *       while (iter.hasNext()) {
+ *           process(iter.next());
+ *       }
+ *   }
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private JsonToken current; // 当前元素的起始token，null表示尚未读取
+    private boolean finished = false;
+
+    JsonArrayIterator(JsonParser parser, ObjectReader reader) throws IOException {
+        this.parser = parser;
+        this.reader = reader;
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            this.finished = true; // empty input
+            parser.close();
+        } else if (token != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new JsonException("Expected json array but was: " + token);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) {
+            return false;
+        }
+        if (current != null) {
+            return true;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                close(); // 数组已读完，及时释放parser及底层输入流
+                return false;
+            }
+            current = token;
+            return true;
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            // 元素为null时readValue返回null
+            T value = current == JsonToken.VALUE_NULL ? null : reader.readValue(parser);
+            current = null;
+            return value;
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        parser.close();
+    }
+
+}
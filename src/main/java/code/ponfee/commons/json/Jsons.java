@@ -1,18 +1,41 @@
 package code.ponfee.commons.json;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * The json utility based jackson
  * 
+ * <pre>
+ *  1、按类型缓存ObjectReader/ObjectWriter（ObjectWriter按运行时类型缓存，有数量上限），避免每次查找序列化器
+ *  2、支持byte[]、InputStream、Reader直接解析及直接写入OutputStream、Writer，无需中间String
+ *  3、classpath中存在jackson-module-afterburner时自动注册（字节码生成的属性访问器），
+ *     可通过-Djsons.afterburner=false关闭
+ *  4、{@link #iterate(InputStream, Class)}流式逐个解析大数组
+ * </pre>
+ * 
  * @author fupf
  */
 public final class Jsons {
@@ -29,9 +52,18 @@ public final class Jsons {
     /** 忽略对象中值为默认值的属性（慎用） */
     public static final Jsons NON_DEFAULT = new Jsons(JsonInclude.Include.NON_DEFAULT);
 
+    private static final int MAX_CACHED_WRITERS = 1024;
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+    private static Logger logger = LoggerFactory.getLogger(Jsons.class);
+
     /** Jackson ObjectMapper(thread safe) */
     private final ObjectMapper mapper = new ObjectMapper();
 
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    /** 按运行时类型缓存，数量有界（运行时类型可能无限多，如动态代理、匿名类） */
+    private final Cache<Class<?>, ObjectWriter> writers = CacheBuilder.newBuilder()
+                                                                      .maximumSize(MAX_CACHED_WRITERS).build();
+
     private Jsons(JsonInclude.Include include) {
         // 设置序列化时的特性
         if (include != null) {
@@ -41,6 +73,8 @@ public final class Jsons {
         // 反序列化时忽略不存在于对象中的属性
         mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 
+        registerAfterburner(mapper);
+
         /*mapper.enable(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
         mapper.enable(com.fasterxml.jackson.core.JsonGenerator.Feature.QUOTE_FIELD_NAMES);
         //mapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
@@ -61,7 +95,7 @@ public final class Jsons {
      */
     public String stringify(Object target) throws JsonException {
         try {
-            return mapper.writeValueAsString(target);
+            return writer(target).writeValueAsString(target);
         } catch (IOException e) {
             throw new JsonException(e);
         }
@@ -76,7 +110,7 @@ public final class Jsons {
      */
     public byte[] serialize(Object target) throws JsonException {
         try {
-            return mapper.writeValueAsBytes(target);
+            return writer(target).writeValueAsBytes(target);
         } catch (IOException e) {
             throw new JsonException(e);
         }
@@ -97,7 +131,7 @@ public final class Jsons {
         }
 
         try {
-            return mapper.readValue(json, target);
+            return reader(target).readValue(json);
         } catch (IOException e) {
             throw new JsonException(e);
         }
@@ -118,7 +152,7 @@ public final class Jsons {
         }
 
         try {
-            return mapper.readValue(json, type);
+            return reader(mapper.getTypeFactory().constructType(type)).readValue(json);
         } catch (Exception e) {
             throw new JsonException(e);
         }
@@ -154,12 +188,125 @@ public final class Jsons {
         }
 
         try {
-            return mapper.readValue(json, javaType);
+            return reader(javaType).readValue(json);
         } catch (Exception e) {
             throw new JsonException(e);
         }
     }
 
+    /**
+     * Writes the object as json to the output stream, the stream is not closed
+     *
+     * @param out    the output stream
+     * @param target the object
+     * @throws JsonException the exception for json
+     */
+    public void writeTo(OutputStream out, Object target) throws JsonException {
+        try {
+            writer(target).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                          .writeValue(out, target);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    public void writeTo(Writer out, Object target) throws JsonException {
+        try {
+            writer(target).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                          .writeValue(out, target);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Deserialize the json byte array(UTF-8/16/32 auto detected) to target class object
+     *
+     * @param json   the json byte array
+     * @param target target class
+     * @return target object
+     * @throws JsonException the exception for json
+     */
+    public <T> T parse(byte[] json, Class<T> target) throws JsonException {
+        return parse(json, mapper.constructType(target));
+    }
+
+    public <T> T parse(byte[] json, TypeReference<T> type) throws JsonException {
+        return parse(json, mapper.getTypeFactory().constructType(type));
+    }
+
+    public <T> T parse(byte[] json, JavaType javaType) throws JsonException {
+        if (json == null || json.length == 0) {
+            return null;
+        }
+
+        try {
+            return reader(javaType).readValue(json);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Deserialize the json input stream to target class object, the stream is not closed
+     *
+     * @param json   the json input stream
+     * @param target target class
+     * @return target object, or null if the stream is empty
+     * @throws JsonException the exception for json
+     */
+    public <T> T parse(InputStream json, Class<T> target) throws JsonException {
+        return parse(json, mapper.constructType(target));
+    }
+
+    public <T> T parse(InputStream json, JavaType javaType) throws JsonException {
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return parser.nextToken() == null ? null : reader(javaType).readValue(parser);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    public <T> T parse(Reader json, Class<T> target) throws JsonException {
+        return parse(json, mapper.constructType(target));
+    }
+
+    public <T> T parse(Reader json, JavaType javaType) throws JsonException {
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return parser.nextToken() == null ? null : reader(javaType).readValue(parser);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Streaming deserialize the json array, element by element with constant memory
+     *
+     * @param json        the json array input stream, it will be closed by the iterator
+     * @param elementType the element type
+     * @return a JsonArrayIterator, should be closed after use
+     * @throws JsonException the exception for json
+     */
+    public <T> JsonArrayIterator<T> iterate(InputStream json, Class<T> elementType) throws JsonException {
+        try {
+            return new JsonArrayIterator<>(mapper.getFactory().createParser(json), 
+                                           reader(mapper.constructType(elementType)));
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    public <T> JsonArrayIterator<T> iterate(Reader json, Class<T> elementType) throws JsonException {
+        try {
+            return new JsonArrayIterator<>(mapper.getFactory().createParser(json), 
+                                           reader(mapper.constructType(elementType)));
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
     /**
      * Constructs collection type
      *
@@ -173,6 +320,46 @@ public final class Jsons {
                      .constructParametricType(collecClass, elemClasses);
     }
 
+    // ----------------------------------------------------private methods
+    private ObjectReader reader(Class<?> type) {
+        return reader(mapper.constructType(type));
+    }
+
+    private ObjectReader reader(JavaType type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, mapper::readerFor);
+        }
+        return reader;
+    }
+
+    private ObjectWriter writer(Object target) {
+        if (target == null) {
+            return mapper.writer();
+        }
+        Class<?> type = target.getClass();
+        ObjectWriter writer = writers.getIfPresent(type);
+        if (writer == null) {
+            writer = mapper.writerFor(type); // 并发时可能重复创建，无副作用
+            writers.put(type, writer);
+        }
+        return writer;
+    }
+
+    private static void registerAfterburner(ObjectMapper mapper) {
+        if ("false".equalsIgnoreCase(System.getProperty("jsons.afterburner"))) {
+            return;
+        }
+        try {
+            Class<?> type = Class.forName(AFTERBURNER_MODULE, true, Jsons.class.getClassLoader());
+            mapper.registerModule((Module) type.newInstance());
+        } catch (ClassNotFoundException ignored) {
+            // not in classpath
+        } catch (Exception e) {
+            logger.warn("register jackson afterburner module failed", e);
+        }
+    }
+
     // ----------------------------------------------------static methods
     public static String toJson(Object target) {
         return NORMAL.stringify(target);
@@ -199,4 +386,16 @@ public final class Jsons {
         return NORMAL.parse(json, collectClass, elemClasses);
     }
 
+    public static <T> T fromJson(byte[] json, Class<T> target) {
+        return NORMAL.parse(json, target);
+    }
+
+    public static <T> T fromJson(InputStream json, Class<T> target) {
+        return NORMAL.parse(json, target);
+    }
+
+    public static void writeJson(OutputStream out, Object target) {
+        NORMAL.writeTo(out, target);
+    }
+
 }
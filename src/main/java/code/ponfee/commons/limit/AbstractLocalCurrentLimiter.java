@@ -0,0 +1,117 @@
+package code.ponfee.commons.limit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * <pre>
+ * 本地（进程内）限流器基类，无需远程调用
+ *   1、每个key的限流状态保存在有界的注册表中：超过最大key数量时按LRU淘汰，
+ *      长时间未访问的key也会被淘汰，被淘汰的key再次访问时以初始状态重新计数
+ *   2、阀值保存在本地内存，未设置的key使用默认阀值
+ * </pre>
+ *
+ * @author Ponfee
+ * @param <S> the limiter state type of per key
+ */
+public abstract class AbstractLocalCurrentLimiter<S> implements CurrentLimiter {
+
+    static final int DEFAULT_MAXIMUM_KEYS = 10000;
+    static final int DEFAULT_EXPIRE_SECONDS = 600;
+
+    private final Map<String, Long> thresholds = new ConcurrentHashMap<>();
+    private final LoadingCache<String, S> registry;
+    private final long defaultThreshold;
+
+    /**
+     * @param defaultThreshold 未设置阀值的key的默认阀值，小于0表示无限制
+     * @param maximumKeys      最多保存的key数量
+     * @param expireSeconds    key在多久未访问后淘汰
+     */
+    protected AbstractLocalCurrentLimiter(long defaultThreshold, int maximumKeys, int expireSeconds) {
+        Preconditions.checkArgument(maximumKeys > 0 && expireSeconds > 0);
+        this.defaultThreshold = defaultThreshold;
+        this.registry = CacheBuilder.newBuilder()
+                                    .maximumSize(maximumKeys)
+                                    .expireAfterAccess(expireSeconds, TimeUnit.SECONDS)
+                                    .build(new CacheLoader<String, S>() {
+                                        @Override
+                                        public S load(String key) {
+                                            return createState(key);
+                                        }
+                                    });
+    }
+
+    @Override
+    public final boolean checkpoint(String key) {
+        return checkpoint(key, getRequestThreshold(key));
+    }
+
+    @Override
+    public final boolean checkpoint(String key, long requestThreshold) {
+        if (requestThreshold < 0) {
+            return true; // 小于0表示无限制
+        } else if (requestThreshold == 0) {
+            return false; // 禁止访问
+        }
+        return tryAcquire(registry.getUnchecked(key), requestThreshold);
+    }
+
+    @Override
+    public boolean setRequestThreshold(String key, long threshold) {
+        thresholds.put(key, threshold);
+        return true;
+    }
+
+    @Override
+    public long getRequestThreshold(String key) {
+        Long threshold = thresholds.get(key);
+        return threshold == null ? defaultThreshold : threshold;
+    }
+
+    /**
+     * 获取已存在的key的状态，不存在时返回null（不会创建）
+     * @param key
+     * @return
+     */
+    protected final S getState(String key) {
+        return registry.getIfPresent(key);
+    }
+
+    /**
+     * 当前注册表中的key数量
+     * @return
+     */
+    public long size() {
+        return registry.size();
+    }
+
+    /**
+     * 清空所有key的限流状态
+     */
+    public void clear() {
+        registry.invalidateAll();
+    }
+
+    /**
+     * 创建key的初始限流状态
+     * @param key
+     * @return
+     */
+    protected abstract S createState(String key);
+
+    /**
+     * 校验并记录
+     * @param state     the key state
+     * @param threshold 阀值（大于0）
+     * @return 是否允许访问
+     */
+    protected abstract boolean tryAcquire(S state, long threshold);
+
+}
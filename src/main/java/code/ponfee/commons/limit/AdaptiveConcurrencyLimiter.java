@@ -0,0 +1,159 @@
+package code.ponfee.commons.limit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 自适应并发数限流器（TCP Vegas算法）
+ *   按key（如方法签名）分别统计请求耗时（RTT），根据排队估算动态调整并发上限：
+ *     rttNoLoad：无负载时的最小耗时
+ *     queue = limit * (1 - rttNoLoad / rtt)，即估算的排队请求数
+ *     queue <= log10(limit)       ：limit += beta（快速增长）
+ *     queue <  alpha              ：limit += log10(limit)
+ *     queue >  beta 或 请求被丢弃  ：limit -= log10(limit)
+ *   其中 alpha = 3 * log10(limit)，beta = 6 * log10(limit)
+ *   并发数不足上限一半时（应用未达到瓶颈）不调整上限
+ *   每隔约probeMultiplier*limit个样本重置rttNoLoad，以适应基准耗时的变化
+ *
+ * 使用：acquire成功后，必须在请求结束时调用release
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int probeMultiplier;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter() {
+        this(20, 1, 1000, 30);
+    }
+
+    /**
+     * @param initialLimit    初始并发上限
+     * @param minLimit        最小并发上限
+     * @param maxLimit        最大并发上限
+     * @param probeMultiplier 重置rttNoLoad的样本间隔倍数
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit,
+                                      int maxLimit, int probeMultiplier) {
+        Preconditions.checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit);
+        Preconditions.checkArgument(probeMultiplier > 0);
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.probeMultiplier = probeMultiplier;
+    }
+
+    /**
+     * 获取执行许可
+     * @param key
+     * @return 是否获取成功，false表示已达到并发上限
+     */
+    public boolean acquire(String key) {
+        Limit limit = limits.computeIfAbsent(key, k -> new Limit());
+        for (;;) {
+            int current = limit.inflight.get();
+            if (current >= (int) limit.limit) {
+                return false;
+            }
+            if (limit.inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求结束，以请求耗时作为样本调整上限
+     * @param key
+     * @param rttNanos 请求耗时（纳秒）
+     * @param dropped  是否因超时或被拒绝而失败（视为过载）
+     */
+    public void release(String key, long rttNanos, boolean dropped) {
+        Limit limit = limits.get(key);
+        if (limit == null) {
+            return;
+        }
+        int inflight = limit.inflight.getAndDecrement();
+        limit.update(rttNanos, inflight, dropped);
+    }
+
+    /**
+     * 请求结束，不作为样本（如业务异常）
+     * @param key
+     */
+    public void release(String key) {
+        Limit limit = limits.get(key);
+        if (limit != null) {
+            limit.inflight.decrementAndGet();
+        }
+    }
+
+    public int getLimit(String key) {
+        Limit limit = limits.get(key);
+        return limit == null ? initialLimit : (int) limit.limit;
+    }
+
+    public int getInflight(String key) {
+        Limit limit = limits.get(key);
+        return limit == null ? 0 : limit.inflight.get();
+    }
+
+    private final class Limit {
+        final AtomicInteger inflight = new AtomicInteger();
+        volatile double limit = initialLimit;
+        long rttNoLoad = 0;
+        int probeCountdown = nextProbeCountdown(initialLimit);
+
+        synchronized void update(long rtt, int inflight, boolean dropped) {
+            if (rtt <= 0 && !dropped) {
+                return;
+            }
+
+            double current = limit;
+            if (--probeCountdown <= 0) {
+                probeCountdown = nextProbeCountdown(current);
+                rttNoLoad = rtt; // 重置基准耗时
+                return;
+            }
+            if (!dropped && (rttNoLoad == 0 || rtt < rttNoLoad)) {
+                rttNoLoad = rtt;
+                return;
+            }
+
+            double log = Math.max(1, Math.log10(current));
+            double next;
+            if (dropped) {
+                next = current - log;
+            } else if (inflight * 2 < current) {
+                return; // 未达到瓶颈，不调整
+            } else {
+                double queue = Math.ceil(current * (1 - (double) rttNoLoad / rtt));
+                if (queue <= log) {
+                    next = current + 6 * log; // beta
+                } else if (queue < 3 * log) { // alpha
+                    next = current + log;
+                } else if (queue > 6 * log) { // beta
+                    next = current - log;
+                } else {
+                    return;
+                }
+            }
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        }
+
+        private int nextProbeCountdown(double limit) {
+            // 加入随机因子，避免多个节点同时重置
+            return (int) (probeMultiplier * limit * (0.5 + ThreadLocalRandom.current().nextDouble()));
+        }
+    }
+
+}
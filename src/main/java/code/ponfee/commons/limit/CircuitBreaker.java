@@ -0,0 +1,371 @@
+package code.ponfee.commons.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 熔断器
+ *   CLOSED   ：正常放行，以环形桶滚动统计最近窗口内的失败率与慢调用率，
+ *              调用数达到minimumCalls且任一比率超过阀值时转为OPEN
+ *   OPEN     ：直接拒绝（仅一次volatile读），经过openMillis后转为HALF_OPEN
+ *   HALF_OPEN：只放行halfOpenPermits个探测请求，全部完成后按失败率（慢调用视为失败）
+ *              决定转为CLOSED或重新OPEN；探测请求在openMillis内未全部完成时开始新一轮探测
+ *
+ * 使用：
+ *   if (!breaker.tryAcquire()) { 快速失败 }
+ *   long start = System.nanoTime();
+ *   try { 调用; breaker.onSuccess(System.nanoTime() - start); }
+ *   catch (Exception e) { breaker.onError(System.nanoTime() - start); throw e; }
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold; // 百分比
+    private final int slowCallRateThreshold; // 百分比
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenPermits;
+
+    private final long bucketNanos;
+    private final AtomicLongArray epochs;
+    private final LongAdder[] calls;
+    private final LongAdder[] failures;
+    private final LongAdder[] slowCalls;
+
+    private final AtomicReference<Status> status;
+
+    private CircuitBreaker(Builder builder) {
+        this.name = builder.name;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(builder.slowCallMillis);
+        this.minimumCalls = builder.minimumCalls;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(builder.openMillis);
+        this.halfOpenPermits = builder.halfOpenPermits;
+
+        int buckets = builder.buckets;
+        this.bucketNanos = TimeUnit.MILLISECONDS.toNanos(builder.windowMillis) / buckets;
+        this.epochs = new AtomicLongArray(buckets);
+        this.calls = new LongAdder[buckets];
+        this.failures = new LongAdder[buckets];
+        this.slowCalls = new LongAdder[buckets];
+        for (int i = 0; i < buckets; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+            calls[i] = new LongAdder();
+            failures[i] = new LongAdder();
+            slowCalls[i] = new LongAdder();
+        }
+        this.status = new AtomicReference<>(new Status(State.CLOSED, System.nanoTime(), 0));
+    }
+
+    public static Builder newBuilder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 是否允许调用
+     * @return true允许；false熔断中；
+     */
+    public boolean tryAcquire() {
+        Status current = status.get();
+        switch (current.state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - current.since < openNanos) {
+                    return false;
+                }
+                Status halfOpen = new Status(State.HALF_OPEN, System.nanoTime(), halfOpenPermits);
+                if (!status.compareAndSet(current, halfOpen)) {
+                    return tryAcquire(); // 其它线程已转换状态
+                }
+                return halfOpen.takePermit();
+            case HALF_OPEN:
+            default:
+                if (current.takePermit()) {
+                    return true;
+                }
+                if (System.nanoTime() - current.since < openNanos) {
+                    return false;
+                }
+                // 探测请求超时未完成（如未调用onSuccess/onError），开始新一轮探测
+                Status renew = new Status(State.HALF_OPEN, System.nanoTime(), halfOpenPermits);
+                return status.compareAndSet(current, renew) ? renew.takePermit() : tryAcquire();
+        }
+    }
+
+    /**
+     * 调用成功
+     * @param durationNanos 调用耗时
+     */
+    public void onSuccess(long durationNanos) {
+        record(durationNanos, false);
+    }
+
+    /**
+     * 调用失败
+     * @param durationNanos 调用耗时
+     */
+    public void onError(long durationNanos) {
+        record(durationNanos, true);
+    }
+
+    /**
+     * 获取许可后未执行调用（如被其它限流拒绝），归还半开状态的探测许可
+     */
+    public void release() {
+        Status current = status.get();
+        if (current.state == State.HALF_OPEN) {
+            current.permits.updateAndGet(p -> p < halfOpenPermits ? p + 1 : p);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return status.get().state;
+    }
+
+    /**
+     * @return 窗口内的失败率（百分比），调用数不足时返回-1
+     */
+    public float getFailureRate() {
+        long[] sums = sums(System.nanoTime() / bucketNanos);
+        return sums[0] < minimumCalls ? -1 : sums[1] * 100F / sums[0];
+    }
+
+    /**
+     * @return 窗口内的慢调用率（百分比），调用数不足时返回-1
+     */
+    public float getSlowCallRate() {
+        long[] sums = sums(System.nanoTime() / bucketNanos);
+        return sums[0] < minimumCalls ? -1 : sums[2] * 100F / sums[0];
+    }
+
+    /**
+     * 强制转为关闭状态并清空统计
+     */
+    public void reset() {
+        for (int i = 0; i < epochs.length(); i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+        status.set(new Status(State.CLOSED, System.nanoTime(), 0));
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{name=" + name + ", state=" + getState() + "}";
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private void record(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        Status current = status.get();
+        switch (current.state) {
+            case CLOSED:
+                long epoch = System.nanoTime() / bucketNanos;
+                int slot = bucket(epoch);
+                calls[slot].increment();
+                if (failed) {
+                    failures[slot].increment();
+                }
+                if (slow) {
+                    slowCalls[slot].increment();
+                }
+                if (failed || slow) {
+                    long[] sums = sums(epoch);
+                    if (sums[0] >= minimumCalls
+                        && (sums[1] * 100 >= failureRateThreshold * sums[0]
+                            || sums[2] * 100 >= slowCallRateThreshold * sums[0])) {
+                        status.compareAndSet(current, new Status(State.OPEN, System.nanoTime(), 0));
+                    }
+                }
+                break;
+            case HALF_OPEN:
+                if (failed || slow) {
+                    current.failures.incrementAndGet();
+                }
+                if (current.calls.incrementAndGet() == halfOpenPermits) {
+                    boolean open = current.failures.get() * 100 >= failureRateThreshold * halfOpenPermits;
+                    if (open) {
+                        status.compareAndSet(current, new Status(State.OPEN, System.nanoTime(), 0));
+                    } else if (status.compareAndSet(current, new Status(State.CLOSED, System.nanoTime(), 0))) {
+                        for (int i = 0; i < epochs.length(); i++) {
+                            epochs.set(i, Long.MIN_VALUE); // 恢复后重新统计
+                        }
+                    }
+                }
+                break;
+            default:
+                break; // OPEN状态前放行的请求结果忽略
+        }
+    }
+
+    /**
+     * 获取当前时间桶，桶已过期时重置（无锁，重置期间的并发计数可能少量丢失）
+     */
+    private int bucket(long epoch) {
+        int slot = (int) Math.floorMod(epoch, (long) epochs.length()); // nanoTime可能为负数
+        long old = epochs.get(slot);
+        if (old != epoch && epochs.compareAndSet(slot, old, epoch)) {
+            calls[slot].reset();
+            failures[slot].reset();
+            slowCalls[slot].reset();
+        }
+        return slot;
+    }
+
+    private long[] sums(long epoch) {
+        long total = 0, failed = 0, slow = 0;
+        for (int i = 0, n = epochs.length(); i < n; i++) {
+            long e = epochs.get(i);
+            if (e > epoch - n && e <= epoch) {
+                total += calls[i].sum();
+                failed += failures[i].sum();
+                slow += slowCalls[i].sum();
+            }
+        }
+        return new long[] { total, failed, slow };
+    }
+
+    private static final class Status {
+        final State state;
+        final long since;
+        final AtomicInteger permits; // 半开状态剩余的探测许可
+        final AtomicInteger calls = new AtomicInteger(); // 半开状态已完成的探测数
+        final AtomicInteger failures = new AtomicInteger(); // 半开状态失败的探测数
+
+        Status(State state, long since, int permits) {
+            this.state = state;
+            this.since = since;
+            this.permits = new AtomicInteger(permits);
+        }
+
+        boolean takePermit() {
+            for (int p; (p = permits.get()) > 0;) {
+                if (permits.compareAndSet(p, p - 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 熔断器构建类
+     */
+    public static final class Builder {
+        private final String name;
+        private int failureRateThreshold = 50;
+        private int slowCallRateThreshold = 100;
+        private long slowCallMillis = 60000;
+        private int minimumCalls = 20;
+        private long windowMillis = 10000;
+        private int buckets = 10;
+        private long openMillis = 5000;
+        private int halfOpenPermits = 10;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 失败率阀值（百分比），默认50
+         */
+        public Builder failureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * 慢调用率阀值（百分比），默认100（即窗口内全部为慢调用时才熔断）
+         */
+        public Builder slowCallRateThreshold(int slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * 慢调用耗时阀值（毫秒），默认60000
+         */
+        public Builder slowCallMillis(long slowCallMillis) {
+            this.slowCallMillis = slowCallMillis;
+            return this;
+        }
+
+        /**
+         * 计算比率所需的最少调用数，默认20
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * 滚动统计窗口（毫秒）与桶数量，默认10秒10个桶
+         */
+        public Builder window(long windowMillis, int buckets) {
+            this.windowMillis = windowMillis;
+            this.buckets = buckets;
+            return this;
+        }
+
+        /**
+         * 熔断持续时间（毫秒），默认5000
+         */
+        public Builder openMillis(long openMillis) {
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        /**
+         * 半开状态的探测许可数，默认10
+         */
+        public Builder halfOpenPermits(int halfOpenPermits) {
+            this.halfOpenPermits = halfOpenPermits;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 100);
+            Preconditions.checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 100);
+            Preconditions.checkArgument(slowCallMillis > 0 && minimumCalls > 0);
+            Preconditions.checkArgument(buckets > 0 && windowMillis >= buckets);
+            Preconditions.checkArgument(openMillis > 0 && halfOpenPermits > 0);
+            return new CircuitBreaker(this);
+        }
+
+        /**
+         * 以当前配置创建指定名称的熔断器
+         */
+        public CircuitBreaker build(String name) {
+            Builder builder = new Builder(name);
+            builder.failureRateThreshold = failureRateThreshold;
+            builder.slowCallRateThreshold = slowCallRateThreshold;
+            builder.slowCallMillis = slowCallMillis;
+            builder.minimumCalls = minimumCalls;
+            builder.windowMillis = windowMillis;
+            builder.buckets = buckets;
+            builder.openMillis = openMillis;
+            builder.halfOpenPermits = halfOpenPermits;
+            return builder.build();
+        }
+    }
+
+}
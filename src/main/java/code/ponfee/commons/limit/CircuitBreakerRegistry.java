@@ -0,0 +1,46 @@
+package code.ponfee.commons.limit;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * 熔断器注册表：按名称（如方法签名、服务地址）获取熔断器，
+ * 不存在时以模板配置创建
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreaker.Builder template;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry() {
+        this(CircuitBreaker.newBuilder(null));
+    }
+
+    /**
+     * @param template 熔断器的模板配置
+     */
+    public CircuitBreakerRegistry(CircuitBreaker.Builder template) {
+        this.template = template;
+        template.build(); // 校验配置
+    }
+
+    public CircuitBreaker get(String name) {
+        CircuitBreaker breaker = breakers.get(name);
+        return breaker != null ? breaker : breakers.computeIfAbsent(name, template::build);
+    }
+
+    public CircuitBreaker remove(String name) {
+        return breakers.remove(name);
+    }
+
+    public Collection<CircuitBreaker> getAll() {
+        return Collections.unmodifiableCollection(breakers.values());
+    }
+
+}
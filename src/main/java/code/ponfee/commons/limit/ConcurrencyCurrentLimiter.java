@@ -0,0 +1,84 @@
+package code.ponfee.commons.limit;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 本地并发数限流器（信号量方式，无锁）
+ *   阀值表示同时执行的最大请求数（而非每分钟的访问量），
+ *   {@link #checkpoint(String)}成功后必须调用{@link #release(String)}释放
+ *
+ *   注：执行中的key不会因长时间未访问而被淘汰（每次访问都会刷新），
+ *   但超过最大key数量被淘汰时其执行中的计数会丢失
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class ConcurrencyCurrentLimiter extends AbstractLocalCurrentLimiter<AtomicLong> {
+
+    public ConcurrencyCurrentLimiter(long defaultThreshold) {
+        this(defaultThreshold, DEFAULT_MAXIMUM_KEYS, DEFAULT_EXPIRE_SECONDS);
+    }
+
+    /**
+     * @param defaultThreshold 默认的最大并发数，小于0表示无限制
+     * @param maximumKeys      最多保存的key数量
+     * @param expireSeconds    key在多久未访问后淘汰
+     */
+    public ConcurrencyCurrentLimiter(long defaultThreshold, int maximumKeys, int expireSeconds) {
+        super(defaultThreshold, maximumKeys, expireSeconds);
+    }
+
+    @Override
+    protected AtomicLong createState(String key) {
+        return new AtomicLong();
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong inflight, long threshold) {
+        for (;;) {
+            long current = inflight.get();
+            if (current >= threshold) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        AtomicLong inflight = getState(key);
+        if (inflight == null) {
+            return;
+        }
+        for (;;) {
+            long current = inflight.get();
+            if (current <= 0 || inflight.compareAndSet(current, current - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前执行中的请求数
+     * @param key
+     * @return
+     */
+    public long inflight(String key) {
+        AtomicLong inflight = getState(key);
+        return inflight == null ? 0 : inflight.get();
+    }
+
+    /**
+     * 并发数限流不记录访问明细，不支持按区间统计
+     * @return -1
+     */
+    @Override
+    public long countByRange(String key, Date from, Date to) {
+        return -1;
+    }
+
+}
@@ -26,10 +26,11 @@ public interface CurrentLimiter {
 
     /**
      * 按区间统计
+     * 不记录访问明细的限流器（如令牌桶、并发数、租约限流器）无法按区间统计，返回-1
      * @param key
      * @param from
      * @param to
-     * @return
+     * @return 区间内的访问量，不支持按区间统计时返回-1
      */
     long countByRange(String key, Date from, Date to);
 
@@ -47,4 +48,12 @@ public interface CurrentLimiter {
      * @return
      */
     long getRequestThreshold(String key);
+
+    /**
+     * 释放（用于并发数限流，checkpoint通过后在请求结束时调用）
+     * @param key
+     */
+    default void release(String key) {
+        // default no-thing to do
+    }
 }
@@ -0,0 +1,297 @@
+package code.ponfee.commons.limit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.cache.Cache;
+import code.ponfee.commons.cache.CacheBuilder;
+import code.ponfee.commons.concurrent.HashedWheelTimer;
+import code.ponfee.commons.jedis.JedisClient;
+
+/**
+ * <pre>
+ * 本地与Redis混合的租约限流器（用于高QPS的全局限流）
+ *   1、Redis端为每个key维护一个令牌桶（容量为每分钟阀值，按阀值/60秒匀速补充）
+ *   2、各节点通过一次lua脚本调用预领取一批令牌（租约），在本地以CAS方式消耗
+ *   3、租约大小根据本地观测到的访问速率自适应（约为一个租约周期的用量），
+ *      且不超过阀值*maxErrorRatio，即单节点持有的未使用令牌最多为阀值的maxErrorRatio，
+ *      N个节点的全局误差不超过N*maxErrorRatio*阀值
+ *   4、租约到期后未使用的令牌在续租（或后台清理）时归还到Redis
+ *
+ * 阀值与{@link RedisCurrentLimiter}共用同一redis key
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class LeasingCurrentLimiter implements CurrentLimiter {
+
+    private static Logger logger = LoggerFactory.getLogger(LeasingCurrentLimiter.class);
+
+    private static final String BUCKET_KEY_PREFIX = "cir:lea:"; // redis令牌桶key前缀
+    private static final int EXPIRE_SECONDS = (int) TimeUnit.DAYS.toSeconds(30) + 1; // 阀值key的失效日期
+    private static final long PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * <pre>
+     * 归还未使用的令牌并领取新的租约
+     * KEYS[1]：令牌桶key
+     * ARGV[1]：桶容量
+     * ARGV[2]：每毫秒补充的令牌数
+     * ARGV[3]：归还的令牌数
+     * ARGV[4]：请求领取的令牌数
+     * 返回：实际领取的令牌数
+     * </pre>
+     */
+    private static final String LEASE_SCRIPT =
+        "if redis.replicate_commands then redis.replicate_commands() end "
+      + "local t = redis.call('TIME') "
+      + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) "
+      + "local capacity = tonumber(ARGV[1]) "
+      + "local rate = tonumber(ARGV[2]) "
+      + "local b = redis.call('HMGET', KEYS[1], 'tokens', 'ts') "
+      + "local tokens = tonumber(b[1]) or capacity "
+      + "local ts = tonumber(b[2]) or now "
+      + "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate + tonumber(ARGV[3])) "
+      + "local granted = math.min(tonumber(ARGV[4]), math.floor(tokens)) "
+      + "if granted < 0 then granted = 0 end "
+      + "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens - granted), 'ts', tostring(now)) "
+      + "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000) "
+      + "return granted";
+
+    private final JedisClient jedisClient;
+    private final long leaseMillis;
+    private final double maxErrorRatio;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final HashedWheelTimer.Timeout expireTask;
+
+    private final Cache<Long> confCache = CacheBuilder.newBuilder().keepaliveInMillis(120000L) // 2 minutes of cache alive
+                                                      .autoReleaseInSeconds(1800).build(); // 30 minutes to release expire cache
+
+    public LeasingCurrentLimiter(JedisClient jedisClient) {
+        this(jedisClient, 1000, 0.01D);
+    }
+
+    /**
+     * @param jedisClient   the JedisClient
+     * @param leaseMillis   租约周期（毫秒）
+     * @param maxErrorRatio 单节点持有的令牌最多占阀值的比例，(0, 1]
+     */
+    public LeasingCurrentLimiter(JedisClient jedisClient, long leaseMillis, double maxErrorRatio) {
+        Preconditions.checkArgument(leaseMillis > 0);
+        Preconditions.checkArgument(maxErrorRatio > 0 && maxErrorRatio <= 1);
+        this.jedisClient = jedisClient;
+        this.leaseMillis = leaseMillis;
+        this.maxErrorRatio = maxErrorRatio;
+
+        // 定时归还已到期租约的令牌，并清除长时间未访问的key
+        this.expireTask = HashedWheelTimer.shared().scheduleAtFixedRate(() -> {
+            try {
+                expire();
+            } catch (Throwable t) {
+                logger.error("leasing limiter expire occur error", t);
+            }
+        }, leaseMillis, leaseMillis, TimeUnit.MILLISECONDS, HashedWheelTimer.ioExecutor());
+    }
+
+    @Override
+    public boolean checkpoint(String key) {
+        return checkpoint(key, getRequestThreshold(key));
+    }
+
+    @Override
+    public boolean checkpoint(String key, long requestThreshold) {
+        if (requestThreshold < 0) {
+            return true; // 小于0表示无限制
+        } else if (requestThreshold == 0) {
+            return false; // 禁止访问
+        }
+
+        for (;;) {
+            Lease lease = leases.computeIfAbsent(key, Lease::new);
+            long now = System.currentTimeMillis();
+            if (lease.tryTake(now)) {
+                return true;
+            }
+            synchronized (lease) {
+                if (lease.removed) {
+                    continue; // 已被后台清理移除，不能再续租（否则领取的令牌无法归还）
+                }
+                if (lease.tryTake(now)) {
+                    return true; // 其它线程已续租
+                }
+                if (now < lease.expireAt && !lease.renewable) {
+                    return false; // 租约期内redis端已无令牌
+                }
+                renew(lease, requestThreshold, now);
+                return lease.tryTake(now);
+            }
+        }
+    }
+
+    /**
+     * 租约模式不记录访问明细，不支持按区间统计
+     * @return -1
+     */
+    @Override
+    public long countByRange(String key, Date from, Date to) {
+        return -1;
+    }
+
+    @Override
+    public boolean setRequestThreshold(String key, long threshold) {
+        boolean flag = jedisClient.valueOps().setLong(
+            RedisCurrentLimiter.THRESHOLD_KEY_PREFIX + key, threshold, EXPIRE_SECONDS
+        );
+        if (flag) {
+            confCache.set(key, threshold); // refresh key value
+        }
+        return flag;
+    }
+
+    @Override
+    public long getRequestThreshold(String key) {
+        Long threshold = confCache.get(key);
+        if (threshold == null) {
+            threshold = jedisClient.valueOps().getLong(
+                RedisCurrentLimiter.THRESHOLD_KEY_PREFIX + key, EXPIRE_SECONDS
+            );
+            if (threshold == null) {
+                threshold = -1L; // -1表示无限制
+            }
+            confCache.set(key, threshold); // put into local cache
+        }
+        return threshold;
+    }
+
+    /**
+     * 销毁：归还所有未使用的令牌
+     */
+    public void destroy() {
+        expireTask.cancel();
+        for (Lease lease : leases.values()) {
+            synchronized (lease) {
+                giveBack(lease);
+            }
+        }
+        leases.clear();
+        confCache.destroy();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    /**
+     * 续租：归还剩余令牌（已到期时）并按观测速率领取新的令牌
+     */
+    private void renew(Lease lease, long threshold, long now) {
+        long elapsed = Math.max(1, now - lease.startAt);
+        // 只统计实际消耗的令牌，归还的令牌不计入
+        double rate = lease.consumed.sumThenReset() / (double) elapsed; // 每毫秒用量
+        lease.rate = lease.rate == 0 ? rate : (lease.rate + rate) / 2; // 平滑
+
+        long maxSize = Math.max(1, (long) (threshold * maxErrorRatio));
+        long size = Math.min(maxSize, Math.max(1, (long) Math.ceil(lease.rate * leaseMillis * 1.2D)));
+
+        long returned = now >= lease.expireAt ? lease.remaining.getAndSet(0) : 0;
+        if (returned < 0) {
+            returned = 0;
+        }
+        double refillRate = threshold / (double) PERIOD_MILLIS;
+        Long granted = (Long) jedisClient.scriptOps().evalScriptByKey(
+            LEASE_SCRIPT, Collections.singletonList(BUCKET_KEY_PREFIX + lease.key),
+            Arrays.asList(Long.toString(threshold), Double.toString(refillRate),
+                          Long.toString(returned), Long.toString(size))
+        );
+        if (granted == null) {
+            granted = size; // redis异常时降级为本地限流
+        }
+
+        lease.startAt = now;
+        lease.renewable = granted > 0;
+        if (granted > 0) {
+            lease.expireAt = now + leaseMillis;
+        } else {
+            // redis端无令牌：在补充一个令牌所需的时间内不再请求redis
+            lease.expireAt = now + Math.min(leaseMillis, Math.max(1, (long) Math.ceil(1 / refillRate)));
+        }
+        lease.remaining.set(granted);
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases.values()) {
+            if (now < lease.expireAt) {
+                continue;
+            }
+            synchronized (lease) {
+                if (now >= lease.expireAt && lease.remaining.get() > 0) {
+                    giveBack(lease);
+                }
+                if (now - lease.expireAt > PERIOD_MILLIS) {
+                    lease.removed = true; // 持有锁时标记，并发的checkpoint会改用新的租约
+                    leases.remove(lease.key, lease); // 一分钟未使用则移除
+                }
+            }
+        }
+    }
+
+    private void giveBack(Lease lease) {
+        long returned = lease.remaining.getAndSet(0);
+        if (returned <= 0) {
+            return;
+        }
+        long threshold = getRequestThreshold(lease.key);
+        if (threshold <= 0) {
+            return;
+        }
+        jedisClient.scriptOps().evalScriptByKey(
+            LEASE_SCRIPT, Collections.singletonList(BUCKET_KEY_PREFIX + lease.key),
+            Arrays.asList(Long.toString(threshold), Double.toString(threshold / (double) PERIOD_MILLIS),
+                          Long.toString(returned), "0")
+        );
+    }
+
+    /**
+     * 本地持有的租约
+     */
+    private static final class Lease {
+        final String key;
+        final AtomicLong remaining = new AtomicLong(0); // 剩余可用令牌
+        final LongAdder consumed = new LongAdder(); // 本次租约实际消耗的令牌数
+        volatile long expireAt = 0; // 租约到期时间
+        long startAt = System.currentTimeMillis(); // 租约开始时间
+        double rate = 0; // 观测到的每毫秒用量
+        boolean renewable = true; // 租约期内是否可再次续租（redis端无令牌时为false）
+        boolean removed = false; // 是否已从leases中移除（持有锁时读写）
+
+        Lease(String key) {
+            this.key = key;
+        }
+
+        boolean tryTake(long now) {
+            if (now >= expireAt) {
+                return false;
+            }
+            for (;;) {
+                long current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - 1)) {
+                    consumed.increment();
+                    return true;
+                }
+            }
+        }
+    }
+
+}
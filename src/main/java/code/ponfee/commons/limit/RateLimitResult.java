@@ -0,0 +1,37 @@
+package code.ponfee.commons.limit;
+
+/**
+ * 限流校验结果
+ * @author Ponfee
+ */
+public class RateLimitResult {
+
+    private final boolean allowed; // 是否允许访问
+    private final long remaining; // 剩余可用配额
+    private final long retryAfterMillis; // 被拒绝时，需要等待多久后再重试
+
+    public RateLimitResult(boolean allowed, long remaining, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.remaining = remaining;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitResult{allowed=" + allowed + ", remaining=" + remaining
+             + ", retryAfterMillis=" + retryAfterMillis + "}";
+    }
+
+}
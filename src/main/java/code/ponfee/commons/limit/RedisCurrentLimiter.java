@@ -3,6 +3,7 @@ package code.ponfee.commons.limit;
 import code.ponfee.commons.cache.Cache;
 import code.ponfee.commons.cache.CacheBuilder;
 import code.ponfee.commons.concurrent.AsyncBatchTransmitter;
+import code.ponfee.commons.concurrent.HashedWheelTimer;
 import code.ponfee.commons.jedis.JedisClient;
 import code.ponfee.commons.jedis.JedisLock;
 import code.ponfee.commons.util.Bytes;
@@ -11,19 +12,27 @@ import com.google.common.base.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-import static code.ponfee.commons.concurrent.ThreadPoolExecutors.CALLER_RUN_HANDLER;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- * Redis限流器
+ * <pre>
+ * Redis限流器，支持两种模式：
+ *   1、记录模式（构造函数创建）：每次请求作为一个zset成员记录，可按任意时间区间统计，
+ *      内存随请求量线性增长，需定时清理
+ *   2、滑动窗口模式（{@link #slidingWindow(JedisClient, int)}创建）：按秒分桶计数，
+ *      每个key为一个hash（field为秒级时间桶，value为计数），校验与计数在一次lua脚本中完成，
+ *      每次只读取统计区间内的桶，过期的桶在新建桶时删除，内存为O(窗口/桶)，与请求量无关
+ *   两种模式的阀值语义一致：统计的计数（不含本次）大于阀值时拒绝
+ * </pre>
  *
  * @author fupf
  */
@@ -34,14 +43,87 @@ public class RedisCurrentLimiter implements CurrentLimiter {
     private static final int EXPIRE_SECONDS = (int) TimeUnit.DAYS.toSeconds(30) + 1; // key的失效日期
     private static final String TRACE_KEY_PREFIX = "cir:bre:"; // 频率缓存key前缀
     private static final byte[] TRACE_KEY_BYTES = TRACE_KEY_PREFIX.getBytes(); // 频率缓存key前缀
-    private static final String THRESHOLD_KEY_PREFIX = "freq:thrd:"; // 限制次数缓存key前缀
+    static final String THRESHOLD_KEY_PREFIX = "freq:thrd:"; // 限制次数缓存key前缀
     private static final Map<String, Object> LOCK_MAP = new HashMap<>(); // the map for store lock object
 
+    private static final String WINDOW_KEY_PREFIX = "cir:win:"; // 滑动窗口缓存key前缀
+    private static final int WINDOW_BUCKET_MILLIS = 1000; // 滑动窗口的桶大小：1秒
+    private static final int MIN_WINDOW_SECONDS = 60; // 最少保留一分钟的桶
+
+    /**
+     * 统计[from, to]区间内桶的计数：按桶号HMGET（每次最多1000个field），
+     * 复杂度为统计的桶数量，与hash中保留的桶数量无关
+     */
+    private static final String WINDOW_SUM_FUNCTION =
+        "local function total(from, to) "
+      + "  local sum = 0 "
+      + "  for s = from, to, 1000 do "
+      + "    local fields = {} "
+      + "    for b = s, math.min(s + 999, to) do fields[#fields + 1] = string.format('%d', b) end "
+      + "    for _, v in ipairs(redis.call('HMGET', KEYS[1], unpack(fields))) do "
+      + "      if v then sum = sum + tonumber(v) end "
+      + "    end "
+      + "  end "
+      + "  return sum "
+      + "end "
+      + "local t = redis.call('TIME') "
+      + "local size = tonumber(ARGV[1]) "
+      + "local bucket = math.floor((tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)) / size) "
+      + "local retain = tonumber(ARGV[2]) ";
+
+    /**
+     * <pre>
+     * 滑动窗口校验并计数
+     * KEYS[1]：hash key
+     * ARGV[1]：桶大小（毫秒）
+     * ARGV[2]：保留的桶数量
+     * ARGV[3]：统计的桶数量（最近的n个桶）
+     * ARGV[4]：阀值，小于0表示只统计不校验；与记录模式一致，已有计数大于阀值时拒绝
+     * ARGV[5]：本次计数增量，为0表示只统计
+     * 返回：[是否通过(1|0), 统计的计数]
+     *
+     * 新建桶且hash的field数超过保留数量时才清理过期的桶（每个key每个桶最多一次）
+     * </pre>
+     */
+    private static final String WINDOW_SCRIPT =
+        "if redis.replicate_commands then redis.replicate_commands() end "
+      + WINDOW_SUM_FUNCTION
+      + "local threshold = tonumber(ARGV[4]) "
+      + "local incr = tonumber(ARGV[5]) "
+      + "local sum = total(bucket - tonumber(ARGV[3]) + 1, bucket) "
+      + "if incr == 0 then return {1, sum} end "
+      + "if threshold >= 0 and sum > threshold then return {0, sum} end "
+      + "if redis.call('HINCRBY', KEYS[1], string.format('%d', bucket), incr) == incr "
+      + "   and redis.call('HLEN', KEYS[1]) > retain then "
+      + "  local stale = {} "
+      + "  for _, f in ipairs(redis.call('HKEYS', KEYS[1])) do "
+      + "    if tonumber(f) <= bucket - retain then stale[#stale + 1] = f end "
+      + "  end "
+      + "  for s = 1, #stale, 1000 do "
+      + "    redis.call('HDEL', KEYS[1], unpack(stale, s, math.min(s + 999, #stale))) "
+      + "  end "
+      + "end "
+      + "redis.call('PEXPIRE', KEYS[1], (retain + 1) * size) "
+      + "return {1, sum + incr}";
+
+    /**
+     * 按时间区间统计滑动窗口中保留的桶
+     * KEYS[1]：hash key；ARGV[1]：桶大小（毫秒）；ARGV[2]：保留的桶数量；
+     * ARGV[3]：起始桶（包含）；ARGV[4]：结束桶（包含）
+     */
+    private static final String WINDOW_RANGE_SCRIPT =
+        WINDOW_SUM_FUNCTION
+      + "local from = math.max(tonumber(ARGV[3]), bucket - retain + 1) "
+      + "local to = math.min(tonumber(ARGV[4]), bucket) "
+      + "if from > to then return 0 end "
+      + "return total(from, to)";
+
     private final JedisClient jedisClient;
     private final JedisLock lock;
-    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, CALLER_RUN_HANDLER);
+    private final HashedWheelTimer.Timeout clearTask; // 共享时间轮中的定时清除任务
     private final AsyncBatchTransmitter<Trace> transmitter;
     private final int clearBeforeMillis;
+    private final int windowBuckets; // 滑动窗口模式保留的桶数量，记录模式为0
 
     private final Cache<Long> confCache = CacheBuilder.newBuilder().keepaliveInMillis(120000L) // 2 minutes of cache alive
                                                       .autoReleaseInSeconds(1800).build(); // 30 minutes to release expire cache
@@ -52,10 +134,11 @@ public class RedisCurrentLimiter implements CurrentLimiter {
     public RedisCurrentLimiter(JedisClient jedisClient, int clearBeforeMinutes, int autoClearInSeconds) {
         this.jedisClient = jedisClient;
         this.clearBeforeMillis = (int) TimeUnit.MINUTES.toMillis(clearBeforeMinutes);
+        this.windowBuckets = 0;
 
         // 定时清除记录(zrem range by score)，jedis:lock:cir:bre:clear
         this.lock = new JedisLock(jedisClient, TRACE_KEY_PREFIX + "clear", autoClearInSeconds / 2);
-        this.executor.scheduleAtFixedRate(() -> {
+        this.clearTask = HashedWheelTimer.shared().scheduleAtFixedRate(() -> {
             try {
                 if (this.lock.tryLock()) { // 不用释放锁，让其自动超时
                     long beforeTimeMillis = System.currentTimeMillis() - clearBeforeMillis;
@@ -66,7 +149,7 @@ public class RedisCurrentLimiter implements CurrentLimiter {
             } catch (Throwable t) {
                 logger.error("JedisLock tryLock occur error", t);
             }
-        }, autoClearInSeconds, autoClearInSeconds, TimeUnit.SECONDS);
+        }, autoClearInSeconds, autoClearInSeconds, TimeUnit.SECONDS, HashedWheelTimer.ioExecutor());
 
         // 批量记录
         this.transmitter = new AsyncBatchTransmitter<>((traces, isEnd) -> {
@@ -97,6 +180,29 @@ public class RedisCurrentLimiter implements CurrentLimiter {
         }, 100, 5000); // 100毫秒间隔，5000条∕次
     }
 
+    private RedisCurrentLimiter(JedisClient jedisClient, int windowSeconds) {
+        Preconditions.checkArgument(windowSeconds >= MIN_WINDOW_SECONDS,
+                                    "window seconds cannot less than " + MIN_WINDOW_SECONDS);
+        this.jedisClient = jedisClient;
+        this.clearBeforeMillis = 0;
+        this.windowBuckets = (int) (TimeUnit.SECONDS.toMillis(windowSeconds) / WINDOW_BUCKET_MILLIS);
+        this.lock = null;
+        this.clearTask = null;
+        this.transmitter = null;
+    }
+
+    /**
+     * 创建滑动窗口模式的限流器：按秒分桶计数，不需要定时清理
+     * @param jedisClient
+     * @param windowSeconds 保留的统计时长（秒），最小60秒，
+     *                      {@link #countByLastTime(String, int, TimeUnit)}与
+     *                      {@link #countByRange(String, Date, Date)}只能统计该时长内的数据
+     * @return a RedisCurrentLimiter of sliding window mode
+     */
+    public static RedisCurrentLimiter slidingWindow(JedisClient jedisClient, int windowSeconds) {
+        return new RedisCurrentLimiter(jedisClient, windowSeconds);
+    }
+
     /**
      * 校验并记录
      * @param key
@@ -113,6 +219,12 @@ public class RedisCurrentLimiter implements CurrentLimiter {
             return false; // 禁止访问
         }
 
+        if (windowBuckets > 0) {
+            // 校验并计数（一次脚本调用）
+            List<Long> result = evalWindow(key, bucketsOf(TimeUnit.MINUTES.toMillis(1)), requestThreshold, 1);
+            return result == null || result.get(0) == 1; // redis异常时放行
+        }
+
         // 超过频率
         return requestThreshold >= countByLastTime(key, 1, TimeUnit.MINUTES)
             && transmitter.put(new Trace(key, System.currentTimeMillis()));
@@ -120,6 +232,11 @@ public class RedisCurrentLimiter implements CurrentLimiter {
 
     public long countByLastTime(String key, int time, TimeUnit unit) {
         long millis = unit.toMillis(time);
+        if (windowBuckets > 0) {
+            List<Long> result = evalWindow(key, bucketsOf(millis), -1, 0);
+            return result == null ? 0 : result.get(1);
+        }
+
         String key0 = new StringBuilder(key).append(':').append(millis).toString();
         Long count = countCache.get(key0);
         if (count == null) {
@@ -186,8 +303,12 @@ public class RedisCurrentLimiter implements CurrentLimiter {
     public void destory() {
         confCache.destroy();
         countCache.destroy();
-        transmitter.end();
-        executor.shutdown();
+        if (transmitter != null) {
+            transmitter.end();
+        }
+        if (clearTask != null) {
+            clearTask.cancel();
+        }
         synchronized (RedisCurrentLimiter.class) {
             LOCK_MAP.clear();
         }
@@ -213,9 +334,34 @@ public class RedisCurrentLimiter implements CurrentLimiter {
      */
     private long countByRangeMillis(String key, long fromMillis, long toMillis) {
         Preconditions.checkArgument(fromMillis < toMillis, "from time must before to time.");
+        if (windowBuckets > 0) {
+            // 按桶粒度统计，只包含保留时长内的数据
+            Long count = (Long) jedisClient.scriptOps().evalScriptByKey(
+                WINDOW_RANGE_SCRIPT, Collections.singletonList(WINDOW_KEY_PREFIX + key),
+                Arrays.asList(Integer.toString(WINDOW_BUCKET_MILLIS), Integer.toString(windowBuckets),
+                              Long.toString(fromMillis / WINDOW_BUCKET_MILLIS), 
+                              Long.toString(toMillis / WINDOW_BUCKET_MILLIS))
+            );
+            return count == null ? 0 : count;
+        }
         return jedisClient.zsetOps().zcount(TRACE_KEY_PREFIX + key, fromMillis, toMillis);
     }
 
+    private int bucketsOf(long millis) {
+        int buckets = (int) ((millis + WINDOW_BUCKET_MILLIS - 1) / WINDOW_BUCKET_MILLIS);
+        Preconditions.checkArgument(buckets <= windowBuckets, "count time cannot greater than window.");
+        return buckets;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> evalWindow(String key, int buckets, long threshold, int incr) {
+        return (List<Long>) jedisClient.scriptOps().evalScriptByKey(
+            WINDOW_SCRIPT, Collections.singletonList(WINDOW_KEY_PREFIX + key),
+            Arrays.asList(Integer.toString(WINDOW_BUCKET_MILLIS), Integer.toString(windowBuckets),
+                          Integer.toString(buckets), Long.toString(threshold), Integer.toString(incr))
+        );
+    }
+
     private static class Trace {
         final String key;
         final double timeMillis;
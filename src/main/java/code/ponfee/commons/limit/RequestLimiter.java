@@ -1,8 +1,17 @@
 package code.ponfee.commons.limit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import com.google.common.base.Preconditions;
+
 import code.ponfee.commons.jce.digest.HmacUtils;
 import code.ponfee.commons.jedis.JedisClient;
 import code.ponfee.commons.util.ObjectUtils;
@@ -26,10 +35,105 @@ public class RequestLimiter {
     /** image captcha code verify key */
     private static final String CACHE_CAPTCHA_KEY = "req:cah:cap:";
 
+    /** gcra rate limit key */
+    private static final String CHECK_RATE_KEY = "req:lmt:rat:";
+
     /** count operation action key */
     private static final String INCR_ACTION_KEY = "req:inc:act:";
     private static final String COUNT_ACTION_KEY = "req:cnt:act:";
 
+    /**
+     * 计数并在第一次计数时设置失效时间（原子操作，避免进程中断导致key无失效期）
+     * KEYS[1]：计数key；ARGV[1]：失效时间（秒）
+     */
+    private static final String INCR_EXPIRE_SCRIPT =
+        "local n = redis.call('INCR', KEYS[1]) "
+      + "if n == 1 then redis.call('EXPIRE', KEYS[1], ARGV[1]) end "
+      + "return n";
+
+    /**
+     * 缓存验证码并清除校验次数
+     * KEYS[1]：验证码key；KEYS[2]：校验次数key；ARGV[1]：验证码；ARGV[2]：失效时间（秒）
+     */
+    private static final String CACHE_CODE_SCRIPT =
+        "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) "
+      + "redis.call('DEL', KEYS[2]) "
+      + "return 1";
+
+    /**
+     * 校验验证码，返回：1验证成功；0验证码错误；-1验证码失效；-2验证错误次数过多
+     * KEYS[1]：验证码key；KEYS[2]：校验次数key；ARGV[1]：用户输入的验证码；ARGV[2]：最大校验次数
+     */
+    private static final String CHECK_CODE_SCRIPT =
+        "local actual = redis.call('GET', KEYS[1]) "
+      + "if not actual then return -1 end "
+      + "local times = redis.call('INCR', KEYS[2]) "
+      + "if times == 1 then "
+      + "  local ttl = redis.call('TTL', KEYS[1]) "
+      + "  if ttl > 0 then redis.call('EXPIRE', KEYS[2], ttl + 1) end "
+      + "end "
+      + "if times > tonumber(ARGV[2]) then redis.call('DEL', KEYS[1], KEYS[2]) return -2 end "
+      + "if actual ~= ARGV[1] then return 0 end "
+      + "redis.call('DEL', KEYS[1], KEYS[2]) "
+      + "return 1";
+
+    /**
+     * <pre>
+     * GCRA（Generic Cell Rate Algorithm，等价于令牌桶）限流，一次脚本调用完成校验与记录
+     * 每个key只存储一个理论到达时间（TAT，微秒），使用redis服务器时间避免各节点时钟偏差
+     *
+     * KEYS：限流key（可多个）
+     * ARGV[1]：令牌产生间隔（微秒），即period/limit
+     * ARGV[2]：容忍度（微秒），即interval*burst
+     * ARGV[3]：本次消耗令牌数
+     * ARGV[4]：1表示全部key通过才记录（all-or-nothing），0表示各key独立校验，2表示只校验不记录
+     * 返回：每个key依次返回[是否通过(1|0), 剩余配额, 重试等待毫秒数]
+     * </pre>
+     */
+    private static final String GCRA_SCRIPT =
+        "if redis.replicate_commands then redis.replicate_commands() end "
+      + "local t = redis.call('TIME') "
+      + "local now = tonumber(t[1]) * 1000000 + tonumber(t[2]) "
+      + "local interval = tonumber(ARGV[1]) "
+      + "local tolerance = tonumber(ARGV[2]) "
+      + "local cost = tonumber(ARGV[3]) "
+      + "local atomic = ARGV[4] == '1' "
+      + "local peek = ARGV[4] == '2' "
+      + "local result, tats, denied = {}, {}, false "
+      + "for i, key in ipairs(KEYS) do "
+      + "  local tat = tonumber(redis.call('GET', key) or now) "
+      + "  if tat < now then tat = now end "
+      + "  local newTat = tat + interval * cost "
+      + "  local diff = now - (newTat - tolerance) "
+      + "  if diff < 0 then "
+      + "    denied = true "
+      + "    tats[i] = false "
+      + "    result[#result + 1] = 0 "
+      + "    result[#result + 1] = math.max(0, math.floor((now - (tat - tolerance)) / interval)) "
+      + "    result[#result + 1] = math.ceil(-diff / 1000) "
+      + "  else "
+      + "    tats[i] = newTat "
+      + "    result[#result + 1] = 1 "
+      + "    result[#result + 1] = math.floor(diff / interval) "
+      + "    result[#result + 1] = 0 "
+      + "  end "
+      + "end "
+      + "for i, key in ipairs(KEYS) do "
+      + "  if tats[i] then "
+      + "    if atomic and denied then "
+      + "      result[3 * i - 2] = 0 "
+      + "    elseif not peek then "
+      + "      redis.call('SET', key, string.format('%d', math.ceil(tats[i])), "
+      + "                 'PX', math.ceil((tats[i] - now) / 1000) + 1) "
+      + "    end "
+      + "  end "
+      + "end "
+      + "return result";
+
+    private static final String GCRA_INDEPENDENT = "0";
+    private static final String GCRA_ATOMIC = "1";
+    private static final String GCRA_PEEK = "2";
+
     private final JedisClient client;
 
     private RequestLimiter(JedisClient client) {
@@ -79,6 +183,112 @@ public class RequestLimiter {
         return this;
     }
 
+    // ---------------------------------GCRA（令牌桶）限流-------------------------------
+    /**
+     * 平滑限流：一个周期内最多允许访问limit次，并允许burst次的突发访问，
+     * 被限流时异常信息中包含重试等待时间
+     * @param key
+     * @param period 周期（秒）
+     * @param limit  周期内允许的访问次数
+     * @param burst  突发容量（令牌桶容量），最小为1
+     * @throws RequestLimitException
+     */
+    public RequestLimiter limitRate(String key, int period, int limit, int burst)
+        throws RequestLimitException {
+        RateLimitResult result = acquire(key, period, limit, burst);
+        if (!result.isAllowed()) {
+            int retryAfter = (int) ((result.getRetryAfterMillis() + 999) / 1000);
+            throw new RequestLimitException("请求频繁，请" + format(retryAfter) + "后再试！");
+        }
+        return this;
+    }
+
+    /**
+     * 平滑限流：一个周期内最多允许访问limit次，并允许burst次的突发访问<p>
+     * 比如接口每秒最多100次且允许20次突发：limitRate(key, 1, 100, 20, message)
+     * 参数顺序与limitThreshold(key, period, limit)一致
+     * @param key
+     * @param period 周期（秒）
+     * @param limit  周期内允许的访问次数
+     * @param burst  突发容量（令牌桶容量），最小为1
+     * @param message
+     * @throws RequestLimitException
+     */
+    public RequestLimiter limitRate(String key, int period, int limit, int burst, String message)
+        throws RequestLimitException {
+        if (!acquire(key, period, limit, burst).isAllowed()) {
+            throw new RequestLimitException(message);
+        }
+        return this;
+    }
+
+    /**
+     * 获取一个令牌（一次redis调用）
+     * @param key
+     * @param period 周期（秒）
+     * @param limit  周期内允许的访问次数
+     * @param burst  突发容量（令牌桶容量），最小为1
+     * @return 校验结果，包含剩余配额及重试等待时间
+     */
+    public RateLimitResult acquire(String key, int period, int limit, int burst) {
+        return acquire(Collections.singletonList(key), period, limit, burst, false).get(0);
+    }
+
+    /**
+     * 批量校验多个key，如同时按用户和按IP限流，
+     * 每个分片一次redis调用（脚本在key所在的分片上执行）
+     *
+     * allOrNothing的key分布在多个分片时无法在一个脚本中原子完成：
+     * 先在各分片上只校验不记录，全部通过后再逐个分片记录，两阶段之间的并发请求可能导致略微超限
+     *
+     * @param keys
+     * @param period       周期（秒）
+     * @param limit        周期内允许的访问次数
+     * @param burst        突发容量（令牌桶容量），最小为1
+     * @param allOrNothing true表示只有全部key都通过时才消耗令牌
+     * @return 与keys一一对应的校验结果
+     */
+    public List<RateLimitResult> acquire(List<String> keys, int period, int limit,
+                                         int burst, boolean allOrNothing) {
+        Preconditions.checkArgument(limit > 0 && period > 0 && burst > 0);
+        Preconditions.checkArgument(!keys.isEmpty());
+        double interval = period * 1000000D / limit;
+        List<String> actualKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            actualKeys.add(CHECK_RATE_KEY + key);
+        }
+
+        List<List<String>> groups = client.scriptOps().groupByShard(actualKeys);
+        Map<String, RateLimitResult> results = new HashMap<>();
+        if (groups.size() == 1 || !allOrNothing) {
+            String mode = allOrNothing ? GCRA_ATOMIC : GCRA_INDEPENDENT;
+            for (List<String> group : groups) {
+                gcra(group, interval, burst, mode, results);
+            }
+        } else {
+            boolean denied = false;
+            for (List<String> group : groups) {
+                denied |= !gcra(group, interval, burst, GCRA_PEEK, results);
+            }
+            if (denied) {
+                for (Map.Entry<String, RateLimitResult> entry : results.entrySet()) {
+                    RateLimitResult r = entry.getValue();
+                    entry.setValue(new RateLimitResult(false, r.getRemaining(), r.getRetryAfterMillis()));
+                }
+            } else {
+                for (List<String> group : groups) {
+                    gcra(group, interval, burst, GCRA_ATOMIC, results);
+                }
+            }
+        }
+
+        List<RateLimitResult> list = new ArrayList<>(keys.size());
+        for (String key : actualKeys) {
+            list.add(results.get(key));
+        }
+        return list;
+    }
+
     // ------------------------------用于验证码校验（如手机验证码）----------------------------------
     /**
      * cache for the server generate validation code
@@ -88,8 +298,10 @@ public class RequestLimiter {
      * @return
      */
     public void cacheCode(String key, String code, int ttl) {
-        client.valueOps().set(CACHE_CODE_KEY + key, code, ttl);
-        client.keysOps().del(CHECK_CODE_KEY + key);
+        client.scriptOps().evalScriptByKey(
+            CACHE_CODE_SCRIPT, Arrays.asList(CACHE_CODE_KEY + key, CHECK_CODE_KEY + key),
+            Arrays.asList(code, Integer.toString(ttl))
+        );
     }
 
     /**
@@ -106,33 +318,19 @@ public class RequestLimiter {
             throw new RequestLimitException("验证码不能为空！");
         }
 
-        String cacheKey = CACHE_CODE_KEY + key;
-
-        // 1、判断验证码是否已失效
-        String actual = client.valueOps().get(cacheKey);
-        if (actual == null) {
+        // 一次脚本调用完成：判断是否失效、校验次数、匹配验证码及验证成功后删除
+        Long result = (Long) client.scriptOps().evalScriptByKey(
+            CHECK_CODE_SCRIPT, Arrays.asList(CACHE_CODE_KEY + key, CHECK_CODE_KEY + key),
+            Arrays.asList(code, Integer.toString(limit))
+        );
+        if (result == null || result == -1) {
             throw new RequestLimitException("验证码失效，请重新获取！");
-        }
-
-        String checkKey = CHECK_CODE_KEY + key;
-
-        // 2、检查是否验证超过限定次数
-        long times = client.valueOps().incrBy(checkKey);
-        if (times == 1) {
-            int ttl = client.keysOps().ttl(cacheKey).intValue() + 1; // calc check key ttl
-            client.keysOps().expire(checkKey, ttl); // 第一次验证，设置验证标识数据的缓存失效期
-        } else if (times > limit) {
-            client.keysOps().dels(cacheKey, checkKey); // 超过验证次数，删除缓存中的验证码
+        } else if (result == -2) {
             throw new RequestLimitException("验证错误次数过多，请重新获取！");
-        }
-
-        // 3、检查验证码是否匹配
-        if (!actual.equals(code)) {
+        } else if (result == 0) {
             throw new RequestLimitException("验证码错误！");
         }
 
-        // 验证成功，删除缓存key
-        client.keysOps().dels(cacheKey, checkKey);
         return this;
     }
 
@@ -236,15 +434,41 @@ public class RequestLimiter {
     // -------------------------------------private methods----------------------------------
     private void checkLimit(String key, int ttl, int limit, String message)
         throws RequestLimitException {
-        long times = client.valueOps().incrBy(key);
-        if (times == 1) {
-            client.keysOps().expire(key, ttl); // 第一次缓存，则设置失效时间
-        }
-        if (times > limit) {
+        // 计数与设置失效时间在一次脚本调用中原子完成
+        Long times = (Long) client.scriptOps().evalScriptByKey(
+            INCR_EXPIRE_SCRIPT, Collections.singletonList(key),
+            Collections.singletonList(Integer.toString(ttl))
+        );
+        if (times != null && times > limit) {
             throw new RequestLimitException(message);
         }
     }
 
+    /**
+     * 在keys所在的分片上执行GCRA脚本，结果放入results
+     * @return 是否全部通过，redis异常时放行
+     */
+    private boolean gcra(List<String> keys, double interval, int burst,
+                         String mode, Map<String, RateLimitResult> results) {
+        List<String> args = Arrays.asList(
+            Double.toString(interval), Double.toString(interval * burst), "1", mode
+        );
+        @SuppressWarnings("unchecked")
+        List<Long> reply = (List<Long>) client.scriptOps().evalScriptByKey(GCRA_SCRIPT, keys, args);
+        boolean allowed = true;
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            RateLimitResult result;
+            if (reply == null) {
+                result = new RateLimitResult(true, -1, 0); // redis异常时放行
+            } else {
+                result = new RateLimitResult(reply.get(3 * i) == 1, reply.get(3 * i + 1), reply.get(3 * i + 2));
+            }
+            allowed &= result.isAllowed();
+            results.put(keys.get(i), result);
+        }
+        return allowed;
+    }
+
     /**
      * 时间格式化，5/6 rate
      * @param seconds
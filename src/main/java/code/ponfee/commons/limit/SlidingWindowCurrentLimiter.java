@@ -0,0 +1,134 @@
+package code.ponfee.commons.limit;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 本地滑动窗口限流器
+ *   每个key为一个环形数组，一分钟分为buckets个桶，每个桶使用LongAdder计数（分段无竞争）
+ *   已结束的桶的计数和在桶切换时计算一次，校验时只需读取当前桶，
+ *   只有桶切换（每个桶周期一次）时加锁
+ *
+ *   校验与计数不是原子操作，高并发时可能少量超出阀值
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class SlidingWindowCurrentLimiter extends AbstractLocalCurrentLimiter<SlidingWindowCurrentLimiter.Window> {
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final int buckets;
+    private final long bucketMillis;
+
+    public SlidingWindowCurrentLimiter(long defaultThreshold) {
+        this(defaultThreshold, 60, DEFAULT_MAXIMUM_KEYS, DEFAULT_EXPIRE_SECONDS);
+    }
+
+    /**
+     * @param defaultThreshold 默认每分钟的访问限制量，小于0表示无限制
+     * @param buckets          一分钟划分的桶数量，须能整除60000
+     * @param maximumKeys      最多保存的key数量
+     * @param expireSeconds    key在多久未访问后淘汰
+     */
+    public SlidingWindowCurrentLimiter(long defaultThreshold, int buckets,
+                                       int maximumKeys, int expireSeconds) {
+        super(defaultThreshold, maximumKeys, expireSeconds);
+        Preconditions.checkArgument(buckets > 0 && WINDOW_MILLIS % buckets == 0);
+        this.buckets = buckets;
+        this.bucketMillis = WINDOW_MILLIS / buckets;
+    }
+
+    @Override
+    protected Window createState(String key) {
+        return new Window(buckets);
+    }
+
+    @Override
+    protected boolean tryAcquire(Window window, long threshold) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        LongAdder current = window.current(epoch);
+        if (window.completedSum + current.sum() >= threshold) {
+            return false;
+        }
+        current.increment();
+        return true;
+    }
+
+    /**
+     * 统计区间内（只包含最近一分钟）的访问量，按桶粒度计算
+     */
+    @Override
+    public long countByRange(String key, Date from, Date to) {
+        Preconditions.checkArgument(from.before(to), "from time must before to time.");
+        Window window = getState(key);
+        if (window == null) {
+            return 0;
+        }
+
+        long fromEpoch = from.getTime() / bucketMillis, toEpoch = to.getTime() / bucketMillis;
+        long nowEpoch = System.currentTimeMillis() / bucketMillis, count = 0;
+        for (int i = 0; i < buckets; i++) {
+            long epoch = window.epochs.get(i);
+            if (epoch > nowEpoch - buckets && epoch >= fromEpoch && epoch <= toEpoch) {
+                count += window.counts[i].sum();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 一个key的滑动窗口
+     */
+    static final class Window {
+        final LongAdder[] counts;
+        final AtomicLongArray epochs;
+        volatile long currentEpoch = -1;
+        volatile LongAdder current;
+        volatile long completedSum = 0; // 窗口内已结束的桶的计数和
+
+        Window(int buckets) {
+            this.counts = new LongAdder[buckets];
+            this.epochs = new AtomicLongArray(buckets);
+            for (int i = 0; i < buckets; i++) {
+                counts[i] = new LongAdder();
+                epochs.set(i, -1);
+            }
+        }
+
+        LongAdder current(long epoch) {
+            if (epoch == currentEpoch) {
+                return current;
+            }
+            synchronized (this) {
+                if (epoch > currentEpoch) {
+                    roll(epoch);
+                }
+                return current; // 时钟回拨时沿用当前桶
+            }
+        }
+
+        private void roll(long epoch) {
+            int n = counts.length, slot = (int) (epoch % n);
+            counts[slot].reset();
+            epochs.set(slot, epoch);
+
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                long e = epochs.get(i);
+                if (i != slot && e > epoch - n && e < epoch) {
+                    sum += counts[i].sum();
+                }
+            }
+            this.completedSum = sum;
+            this.current = counts[slot];
+            this.currentEpoch = epoch;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package code.ponfee.commons.limit;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 本地令牌桶限流器（无锁）
+ *   令牌按阀值（每分钟）匀速产生，桶容量为burstSeconds秒内产生的令牌数（最少1个）
+ *   每个key只保存一个理论到达时间（GCRA），获取令牌为一次CAS操作
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class TokenBucketCurrentLimiter extends AbstractLocalCurrentLimiter<AtomicLong> {
+
+    private static final long PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final double burstSeconds;
+
+    public TokenBucketCurrentLimiter(long defaultThreshold) {
+        this(defaultThreshold, 1, DEFAULT_MAXIMUM_KEYS, DEFAULT_EXPIRE_SECONDS);
+    }
+
+    /**
+     * @param defaultThreshold 默认每分钟的访问限制量，小于0表示无限制
+     * @param burstSeconds     桶容量（以秒计的令牌产生量）
+     * @param maximumKeys      最多保存的key数量
+     * @param expireSeconds    key在多久未访问后淘汰
+     */
+    public TokenBucketCurrentLimiter(long defaultThreshold, double burstSeconds,
+                                     int maximumKeys, int expireSeconds) {
+        super(defaultThreshold, maximumKeys, expireSeconds);
+        Preconditions.checkArgument(burstSeconds > 0);
+        this.burstSeconds = burstSeconds;
+    }
+
+    @Override
+    protected AtomicLong createState(String key) {
+        return new AtomicLong(Long.MIN_VALUE); // 理论到达时间（纳秒）
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong tat, long threshold) {
+        long interval = PERIOD_NANOS / threshold; // 令牌产生间隔
+        long capacity = Math.max(1, (long) (threshold * burstSeconds / 60));
+        long tolerance = interval * capacity;
+        for (long now = System.nanoTime();;) {
+            long current = tat.get();
+            // 纳秒时间可能为负数，故用差值比较
+            long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + interval;
+            if (next - now > tolerance) {
+                return false; // 桶中无令牌
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 令牌桶不记录访问明细，不支持按区间统计
+     * @return -1
+     */
+    @Override
+    public long countByRange(String key, Date from, Date to) {
+        return -1;
+    }
+
+}
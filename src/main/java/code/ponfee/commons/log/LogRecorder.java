@@ -1,6 +1,9 @@
 package code.ponfee.commons.log;
 
 import code.ponfee.commons.exception.Throwables;
+import code.ponfee.commons.limit.AdaptiveConcurrencyLimiter;
+import code.ponfee.commons.limit.CircuitBreaker;
+import code.ponfee.commons.limit.CircuitBreakerRegistry;
 import code.ponfee.commons.limit.CurrentLimiter;
 import code.ponfee.commons.reflect.ClassUtils;
 import code.ponfee.commons.util.ObjectUtils;
@@ -11,6 +14,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * <pre>
@@ -37,6 +42,8 @@ public abstract class LogRecorder {
 
     private final int alarmThresholdMillis; // 告警阀值
     private final CurrentLimiter circuitBreaker; // 访问频率限制
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter; // 自适应并发数限制
+    private final CircuitBreakerRegistry breakerRegistry; // 按失败率/慢调用率熔断
 
     public LogRecorder() {
         this(DEFAULT_ALARM_THRESHOLD_MILLIS);
@@ -51,9 +58,36 @@ public abstract class LogRecorder {
     }
 
     public LogRecorder(int alarmThresholdMillis, CurrentLimiter circuitBreaker) {
+        this(alarmThresholdMillis, circuitBreaker, null);
+    }
+
+    public LogRecorder(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(DEFAULT_ALARM_THRESHOLD_MILLIS, null, concurrencyLimiter);
+    }
+
+    public LogRecorder(CircuitBreakerRegistry breakerRegistry) {
+        this(DEFAULT_ALARM_THRESHOLD_MILLIS, null, null, breakerRegistry);
+    }
+
+    public LogRecorder(int alarmThresholdMillis, CurrentLimiter circuitBreaker,
+                       AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(alarmThresholdMillis, circuitBreaker, concurrencyLimiter, null);
+    }
+
+    /**
+     * @param alarmThresholdMillis 执行时间告警阀值
+     * @param circuitBreaker       访问频率限制，可为null
+     * @param concurrencyLimiter   按方法签名的自适应并发数限制，可为null
+     * @param breakerRegistry      按方法签名的熔断器，可为null
+     */
+    public LogRecorder(int alarmThresholdMillis, CurrentLimiter circuitBreaker,
+                       AdaptiveConcurrencyLimiter concurrencyLimiter,
+                       CircuitBreakerRegistry breakerRegistry) {
         Preconditions.checkArgument(alarmThresholdMillis > 0);
         this.alarmThresholdMillis = alarmThresholdMillis;
         this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.breakerRegistry = breakerRegistry;
     }
 
     /**
@@ -78,12 +112,72 @@ public abstract class LogRecorder {
         Method method = pjp.getTarget().getClass().getMethod(m.getName(), m.getParameterTypes());
         String methodName = ClassUtils.getMethodSignature(method);
 
-        // request volume threshold
-        if (circuitBreaker != null && log != null && log.enabled()
-            && !circuitBreaker.checkpoint(methodName)) {
-            throw new IllegalStateException("request denied");
+        boolean enabled = log != null && log.enabled();
+        CircuitBreaker breaker = null;
+        boolean acquired = false, limited = false, invoked = false;
+        long startNanos = 0;
+        Throwable error = null;
+        // 许可的获取放在try中：任一步骤失败（包括拒绝或抛出异常）时在finally中归还已获取的许可
+        try {
+            // circuit breaker: fail fast while open
+            if (enabled && breakerRegistry != null) {
+                CircuitBreaker b = breakerRegistry.get(methodName);
+                if (!b.tryAcquire()) {
+                    throw new IllegalStateException("circuit breaker open");
+                }
+                breaker = b;
+            }
+
+            // request volume threshold
+            if (enabled && circuitBreaker != null) {
+                if (!circuitBreaker.checkpoint(methodName)) {
+                    throw new IllegalStateException("request denied");
+                }
+                acquired = true;
+            }
+
+            // adaptive concurrency limit
+            if (enabled && concurrencyLimiter != null) {
+                if (!concurrencyLimiter.acquire(methodName)) {
+                    throw new IllegalStateException("request denied");
+                }
+                limited = true;
+            }
+
+            invoked = true;
+            startNanos = System.nanoTime();
+            return proceed(pjp, log, methodName);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (acquired) {
+                circuitBreaker.release(methodName);
+            }
+            if (limited) {
+                if (!invoked) {
+                    concurrencyLimiter.release(methodName);
+                } else if (error == null) {
+                    concurrencyLimiter.release(methodName, System.nanoTime() - startNanos, false);
+                } else if (error instanceof TimeoutException || error instanceof RejectedExecutionException) {
+                    concurrencyLimiter.release(methodName, System.nanoTime() - startNanos, true); // 过载
+                } else {
+                    concurrencyLimiter.release(methodName); // 业务异常不作为样本
+                }
+            }
+            if (breaker != null) {
+                if (!invoked) {
+                    breaker.release(); // 归还探测许可
+                } else if (error == null) {
+                    breaker.onSuccess(System.nanoTime() - startNanos);
+                } else {
+                    breaker.onError(System.nanoTime() - startNanos);
+                }
+            }
         }
+    }
 
+    private Object proceed(ProceedingJoinPoint pjp, LogAnnotation log, String methodName) throws Throwable {
         LogInfo logInfo = new LogInfo(methodName);
         if (log != null) {
             logInfo.setType(log.type());
@@ -19,7 +19,7 @@ import java.util.concurrent.ExecutorService;
 public class ThreadPoolMailSender {
 
     private static Logger logger = LoggerFactory.getLogger(ThreadPoolMailSender.class);
-    private static final ExecutorService EXECUTOR = ThreadPoolExecutors.create(0, 20, 120, 40, "mail-sender");
+    private static final ExecutorService EXECUTOR = ThreadPoolExecutors.createRegistered(0, 20, 120, 40, "mail-sender");
 
     public static boolean send(MailSender mailSender, MailEnvelope envlop) {
         return send(mailSender, envlop, true);
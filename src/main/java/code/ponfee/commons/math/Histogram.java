@@ -0,0 +1,191 @@
+package code.ponfee.commons.math;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的对数-线性直方图（HDR风格），用于统计耗时等非负长整数的分布
+ *
+ * 桶划分：[0, 2*SUB_BUCKETS)为线性桶（精确值），之后每个2的幂区间
+ * 再等分为SUB_BUCKETS个子桶，相对误差不超过1/SUB_BUCKETS（约3%）
+ *
+ * 记录为O(1)且无锁，百分位数为近似值（取桶的上界）
+ *
+ * @author Ponfee
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 32
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS; // 1888
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    /**
+     * 记录一个值，小于0的值按0记录
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+        min.accumulate(value);
+    }
+
+    /**
+     * 记录一个值并修正协同遗漏（coordinated omission）：
+     * 当value超过期望间隔时，补记value-interval, value-2*interval...等被阻塞而未能发出的请求
+     * @param value
+     * @param expectedInterval 期望的请求间隔，小于等于0时不做修正
+     */
+    public void recordCorrected(long value, long expectedInterval) {
+        record(value);
+        if (expectedInterval <= 0) {
+            return;
+        }
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            record(missing);
+        }
+    }
+
+    /**
+     * 合并另一个直方图的数据到当前对象
+     * @param other
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c > 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        if (other.count() > 0) {
+            max.accumulate(other.max());
+            min.accumulate(other.min());
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long min() {
+        long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 计算百分位数
+     * @param percentile 百分比，取值范围[0, 100]
+     * @return 近似的百分位值（不超过实际最大值）
+     */
+    public long percentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) {
+                return Math.min(highestOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * 重置统计数据（并发记录时为近似重置）
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+        min.reset();
+    }
+
+    /**
+     * 遍历所有非空的桶
+     * @param consumer (桶下界, 桶上界, 计数)
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                consumer.accept(lowestOf(i), highestOf(i), c);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long lowest, long highest, long count);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("Histogram{count=").append(count())
+            .append(", min=").append(min()).append(", mean=").append(String.format("%.2f", mean()))
+            .append(", p50=").append(percentile(50)).append(", p90=").append(percentile(90))
+            .append(", p99=").append(percentile(99)).append(", p999=").append(percentile(99.9))
+            .append(", max=").append(max()).append('}').toString();
+    }
+
+    // ------------------------------------------------------------------------private methods
+    static int indexOf(long value) {
+        if (value < (SUB_BUCKETS << 1)) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long lowestOf(int index) {
+        if (index < (SUB_BUCKETS << 1)) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return ((long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS)) << shift;
+    }
+
+    static long highestOf(int index) {
+        if (index < (SUB_BUCKETS << 1)) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = ((long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS)) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+
+}
@@ -0,0 +1,73 @@
+package code.ponfee.commons.serial;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 序列化器注册表：codec id（1~255）与序列化器的双向映射，供{@link EnvelopeSerializer}
+ * 写入及自动识别使用；id一经使用不可更改含义
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class CodecRegistry {
+
+    public static final int JDK     = 1;
+    public static final int KRYO    = 2;
+    public static final int FST     = 3;
+    public static final int HESSIAN = 4;
+    public static final int JSON    = 5;
+    public static final int STRING  = 6;
+
+    private final Serializer[] codecs = new Serializer[256];
+    private final Map<Serializer, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * @return 注册了内置序列化器的注册表
+     */
+    public static CodecRegistry createDefault() {
+        CodecRegistry registry = new CodecRegistry();
+        registry.register(JDK, new JdkSerializer());
+        registry.register(KRYO, new KryoSerializer());
+        registry.register(FST, new FstSerializer());
+        registry.register(HESSIAN, new HessianSerializer());
+        registry.register(JSON, new JsonSerializer());
+        registry.register(STRING, new StringSerializer("UTF-8"));
+        return registry;
+    }
+
+    /**
+     * 注册序列化器，已存在时覆盖（用于替换为相同格式的其它配置）
+     * @param id the codec id
+     * @param serializer the serializer
+     * @return this
+     */
+    public synchronized CodecRegistry register(int id, Serializer serializer) {
+        Preconditions.checkArgument(id > 0 && id < codecs.length, "codec id must between 1 and 255");
+        Preconditions.checkArgument(!(serializer instanceof EnvelopeSerializer), "cannot register envelope serializer");
+        Serializer old = codecs[id];
+        if (old != null) {
+            ids.remove(old);
+        }
+        codecs[id] = Preconditions.checkNotNull(serializer);
+        ids.put(serializer, id);
+        return this;
+    }
+
+    public Serializer get(int id) {
+        return id > 0 && id < codecs.length ? codecs[id] : null;
+    }
+
+    /**
+     * @param serializer the serializer
+     * @return codec id, or -1 if not registered
+     */
+    public int idOf(Serializer serializer) {
+        Integer id = ids.get(serializer);
+        return id == null ? -1 : id;
+    }
+
+}
@@ -0,0 +1,148 @@
+package code.ponfee.commons.serial;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 自描述的序列化封装：在序列化数据前写入5字节的头
+ *   | magic(2) | codec id(1) | compression(1) | schema version(1) | payload |
+ *   1、反序列化时根据头自动选择序列化器与是否解压，忽略调用方传入的isCompress
+ *   2、没有头的旧数据交由legacy序列化器按调用方传入的isCompress处理
+ *   3、切换codec时只需修改写入的codec id，新旧数据可同时读取，无需清空缓存
+ *
+ *   new JedisClient(poolCfg, hosts, new EnvelopeSerializer(
+ *       CodecRegistry.createDefault(), CodecRegistry.KRYO, new FstSerializer()
+ *   ));
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class EnvelopeSerializer extends Serializer {
+
+    public static final int HEADER_SIZE = 5;
+    private static final byte MAGIC_0 = (byte) 0xEC;
+    private static final byte MAGIC_1 = (byte) 0x5D;
+
+    public static final int COMPRESSION_NONE = 0;
+    public static final int COMPRESSION_GZIP = 1;
+
+    private final CodecRegistry registry;
+    private final int codecId;
+    private final Serializer codec;
+    private final int schemaVersion;
+    private final Serializer legacy;
+
+    public EnvelopeSerializer(CodecRegistry registry, int codecId, Serializer legacy) {
+        this(registry, codecId, 0, legacy);
+    }
+
+    /**
+     * @param registry      the codec registry
+     * @param codecId       写入时使用的codec id
+     * @param schemaVersion 写入头中的模式版本（0~255）
+     * @param legacy        读取无头旧数据的序列化器，为null时不支持旧数据
+     */
+    public EnvelopeSerializer(CodecRegistry registry, int codecId, int schemaVersion, Serializer legacy) {
+        Preconditions.checkArgument(schemaVersion >= 0 && schemaVersion < 256);
+        this.registry = registry;
+        this.codecId = codecId;
+        this.codec = Preconditions.checkNotNull(registry.get(codecId), "unregistered codec id: " + codecId);
+        this.schemaVersion = schemaVersion;
+        this.legacy = legacy;
+    }
+
+    @Override
+    public <T extends Object> byte[] serialize(T t, boolean isCompress) {
+        if (t == null) {
+            return null;
+        }
+
+        return serializeBuffered(t, isCompress);
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        try {
+            out.write(new byte[] {
+                MAGIC_0, MAGIC_1, (byte) codecId,
+                (byte) (isCompress ? COMPRESSION_GZIP : COMPRESSION_NONE), (byte) schemaVersion
+            });
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+        codec.serialize(t, out, isCompress);
+    }
+
+    @Override
+    public <T extends Object> T deserialize(byte[] data, Class<T> clazz, boolean isCompress) {
+        if (data == null) {
+            return null;
+        }
+
+        Header header = header(data);
+        if (header != null) {
+            Serializer serializer = registry.get(header.codecId);
+            try {
+                // 不能使用deserialize(ByteBuffer, ...)：无剩余字节时直接返回null，空payload（如""）会读成null
+                return serializer.deserialize(
+                    Arrays.copyOfRange(data, HEADER_SIZE, data.length),
+                    clazz, header.compression == COMPRESSION_GZIP
+                );
+            } catch (RuntimeException e) {
+                if (legacy == null) {
+                    throw e;
+                }
+                // 无头数据恰好以magic开头的极小概率情况
+            }
+        }
+        if (legacy == null) {
+            throw new SerializationException("missing envelope header");
+        }
+        return legacy.deserialize(data, clazz, isCompress);
+    }
+
+    /**
+     * 解析头
+     * @param data the data
+     * @return the header, or null if without header
+     */
+    public Header header(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE || data[0] != MAGIC_0 || data[1] != MAGIC_1) {
+            return null;
+        }
+        int id = data[2] & 0xFF, compression = data[3] & 0xFF;
+        if (registry.get(id) == null || compression > COMPRESSION_GZIP) {
+            return null;
+        }
+        return new Header(id, compression, data[4] & 0xFF);
+    }
+
+    public static final class Header {
+        private final int codecId;
+        private final int compression;
+        private final int schemaVersion;
+
+        private Header(int codecId, int compression, int schemaVersion) {
+            this.codecId = codecId;
+            this.compression = compression;
+            this.schemaVersion = schemaVersion;
+        }
+
+        public int getCodecId() {
+            return codecId;
+        }
+
+        public int getCompression() {
+            return compression;
+        }
+
+        public int getSchemaVersion() {
+            return schemaVersion;
+        }
+    }
+
+}
@@ -1,13 +1,18 @@
 package code.ponfee.commons.serial;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTObjectInput;
+import org.nustaq.serialization.FSTObjectOutput;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
-import code.ponfee.commons.io.GzipProcessor;
 import code.ponfee.commons.reflect.ClassUtils;
 
 /**
@@ -26,14 +31,29 @@ public class FstSerializer extends Serializer {
             return null;
         }
 
-        byte[] data = FST_CFG.get().asByteArray(t);
-        if (isCompress) {
-            data = GzipProcessor.compress(data);
+        if (!isCompress) {
+            return FST_CFG.get().asByteArray(t); // fst内部复用缓冲区
+        }
+        return serializeBuffered(t, isCompress);
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        OutputStream os = null;
+        try {
+            os = wrap(out, isCompress);
+            FSTObjectOutput output = FST_CFG.get().getObjectOutput(os); // 复用的对象，不能关闭
+            output.writeObject(t);
+            output.flush();
+            os.close();
+            os = null;
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        } finally {
+            close(os, "close OutputStream exception");
         }
-        return data;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <T extends Object> T deserialize(byte[] data, Class<T> clazz, boolean isCompress) {
         if (data == null) {
@@ -41,14 +61,34 @@ public class FstSerializer extends Serializer {
         }
 
         if (isCompress) {
-            data = GzipProcessor.decompress(data);
+            return deserialize(new ByteArrayInputStream(data), clazz, isCompress);
         }
-        T t = (T) FST_CFG.get().asObject(data);
-        if (!clazz.isInstance(t)) {
-            throw new ClassCastException(ClassUtils.getClassName(t.getClass())
+        return cast(FST_CFG.get().asObject(data), clazz);
+    }
+
+    @Override
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
+        InputStream is = null;
+        Object obj;
+        try {
+            is = wrap(in, isCompress);
+            FSTObjectInput input = FST_CFG.get().getObjectInput(is); // 复用的对象，不能关闭
+            obj = input.readObject();
+        } catch (Exception e) {
+            throw new SerializationException(e);
+        } finally {
+            close(is, "close InputStream exception");
+        }
+        return cast(obj, clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object obj, Class<T> clazz) {
+        if (!clazz.isInstance(obj)) {
+            throw new ClassCastException(ClassUtils.getClassName(obj.getClass())
                      + " can't be cast to " + ClassUtils.getClassName(clazz));
         }
-        return t;
+        return (T) obj;
     }
 
     @SuppressWarnings("unchecked")
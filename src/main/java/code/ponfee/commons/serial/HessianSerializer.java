@@ -1,10 +1,9 @@
 package code.ponfee.commons.serial;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import com.caucho.hessian.io.HessianSerializerInput;
 import com.caucho.hessian.io.HessianSerializerOutput;
 
-import code.ponfee.commons.io.ExtendedGZIPOutputStream;
 import code.ponfee.commons.reflect.ClassUtils;
 
 /**
@@ -29,24 +27,21 @@ public class HessianSerializer extends Serializer {
             return null;
         }
 
-        GZIPOutputStream gzout = null;
+        return serializeBuffered(t, isCompress);
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        OutputStream os = null;
         HessianSerializerOutput hessian = null;
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-            if (isCompress) {
-                gzout = new ExtendedGZIPOutputStream(baos);
-                hessian = new HessianSerializerOutput(gzout);
-            } else {
-                hessian = new HessianSerializerOutput(baos);
-            }
+            os = wrap(out, isCompress);
+            hessian = new HessianSerializerOutput(os);
             hessian.writeObject(t);
             hessian.close();
             hessian = null;
-            if (gzout != null) {
-                gzout.close();
-                gzout = null;
-            }
-            return baos.toByteArray();
+            os.close();
+            os = null;
         } catch (IOException e) {
             throw new SerializationException(e);
         } finally {
@@ -55,27 +50,27 @@ public class HessianSerializer extends Serializer {
             } catch (IOException e) {
                 logger.error("close hessian exception", e);
             }
-            close(gzout, "close GZIPOutputStream exception");
+            close(os, "close OutputStream exception");
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <T extends Object> T deserialize(byte[] data, Class<T> clazz, boolean isCompress) {
         if (data == null) {
             return null;
         }
 
-        GZIPInputStream gzin = null;
+        return deserialize(new ByteArrayInputStream(data), clazz, isCompress);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
+        InputStream is = null;
         HessianSerializerInput hessian = null;
         try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            if (isCompress) {
-                gzin = new GZIPInputStream(bais);
-                hessian = new HessianSerializerInput(gzin);
-            } else {
-                hessian = new HessianSerializerInput(bais);
-            }
+            is = wrap(in, isCompress);
+            hessian = new HessianSerializerInput(is);
             T t = (T) hessian.readObject();
             if (!clazz.isInstance(t)) {
                 throw new ClassCastException(ClassUtils.getClassName(t.getClass())
@@ -90,7 +85,7 @@ public class HessianSerializer extends Serializer {
             } catch (Exception e) {
                 logger.error("close hessian exception", e);
             }
-            close(gzin, "close GZIPInputStream exception");
+            close(is, "close InputStream exception");
         }
     }
 
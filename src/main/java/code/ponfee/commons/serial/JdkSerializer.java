@@ -1,15 +1,13 @@
 package code.ponfee.commons.serial;
 
-import code.ponfee.commons.io.ExtendedGZIPOutputStream;
 import code.ponfee.commons.reflect.ClassUtils;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.OutputStream;
 
 /**
  * java序例化
@@ -23,24 +21,17 @@ public class JdkSerializer extends Serializer {
             return null;
         }
 
-        GZIPOutputStream gzout = null;
+        return serializeBuffered(t, isCompress);
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
         ObjectOutputStream oos = null;
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-            if (isCompress) {
-                gzout = new ExtendedGZIPOutputStream(baos);
-                oos = new ObjectOutputStream(gzout);
-            } else {
-                oos = new ObjectOutputStream(baos);
-            }
+            oos = new ObjectOutputStream(wrap(out, isCompress));
             oos.writeObject(t);
             oos.close();
             oos = null;
-            if (gzout != null) {
-                gzout.close();
-                gzout = null;
-            }
-            return baos.toByteArray();
         } catch (IOException e) {
             throw new SerializationException(e);
         } finally {
@@ -48,28 +39,24 @@ public class JdkSerializer extends Serializer {
             // 看依赖关系，如果流a依赖流b，应该先关闭流a，再关闭流b
             // 处理流a依赖节点流b，应该先关闭处理流a，再关闭节点流b
             close(oos, "close ObjectOutputStream exception");
-            close(gzout, "close GZIPOutputStream exception");
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <T extends Object> T deserialize(byte[] data, Class<T> clazz, boolean isCompress) {
         if (data == null || data.length == 0) {
             return null;
         }
 
-        GZIPInputStream gzin = null;
+        return deserialize(new ByteArrayInputStream(data), clazz, isCompress);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
         ObjectInputStream ois = null;
         try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            if (isCompress) {
-                gzin = new GZIPInputStream(bais);
-                ois = new ObjectInputStream(gzin);
-            } else {
-                ois = new ObjectInputStream(bais);
-            }
-
+            ois = new ObjectInputStream(wrap(in, isCompress));
             T t = (T) ois.readObject();
             if (!clazz.isInstance(t)) {
                 throw new ClassCastException(ClassUtils.getClassName(t.getClass())
@@ -80,7 +67,6 @@ public class JdkSerializer extends Serializer {
             throw new SerializationException(e);
         } finally {
             close(ois, "close ObjectInputStream exception");
-            close(gzin, "close GZIPInputStream exception");
         }
     }
 
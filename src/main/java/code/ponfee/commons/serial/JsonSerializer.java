@@ -1,16 +1,13 @@
 package code.ponfee.commons.serial;
 
-import code.ponfee.commons.io.ExtendedGZIPOutputStream;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * json序例化
@@ -31,22 +28,22 @@ public class JsonSerializer extends Serializer {
             return null;
         }
 
-        GZIPOutputStream gzout = null;
-        try {
-            byte[] data = MAPPER.writeValueAsBytes(t);
-            if (isCompress) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-                gzout = new ExtendedGZIPOutputStream(baos);
-                gzout.write(data, 0, data.length);
-                gzout.close();
-                gzout = null;
-                data = baos.toByteArray();
+        if (!isCompress) {
+            try {
+                return MAPPER.writeValueAsBytes(t); // jackson内部复用缓冲区
+            } catch (IOException e) {
+                throw new SerializationException(e);
             }
-            return data;
+        }
+        return serializeBuffered(t, isCompress);
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        try {
+            MAPPER.writeValue(wrap(out, isCompress), t); // 写完后关闭（gzip在关闭时结束）
         } catch (IOException e) {
             throw new SerializationException(e);
-        } finally {
-            close(gzout, "close GZIPOutputStream exception");
         }
     }
 
@@ -56,17 +53,22 @@ public class JsonSerializer extends Serializer {
             return null;
         }
 
-        GZIPInputStream gzin = null;
-        try {
-            if (isCompress) {
-                gzin = new GZIPInputStream(new ByteArrayInputStream(data));
-                data =  IOUtils.toByteArray(gzin);
+        if (!isCompress) {
+            try {
+                return MAPPER.readValue(data, clazz);
+            } catch (IOException e) {
+                throw new SerializationException(e);
             }
-            return MAPPER.readValue(data, clazz);
+        }
+        return deserialize(new ByteArrayInputStream(data), clazz, isCompress);
+    }
+
+    @Override
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
+        try {
+            return MAPPER.readValue(wrap(in, isCompress), clazz);
         } catch (IOException e) {
             throw new SerializationException(e);
-        } finally {
-            close(gzin, "close GZIPInputStream exception");
         }
     }
 
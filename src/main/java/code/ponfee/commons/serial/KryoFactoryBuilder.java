@@ -0,0 +1,170 @@
+package code.ponfee.commons.serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.resource.ResourceScanner;
+
+/**
+ * <pre>
+ * 可配置的Kryo工厂
+ *   1、类注册：注册后写入的是类ID而不是类全名，注册表可来自代码、配置文件（类名=ID）或包扫描，
+ *      读写双方的注册表必须一致；包扫描按类名排序后从起始ID依次分配，新增类会改变后续ID，
+ *      生产环境建议使用固定的配置文件
+ *   2、compatible：使用{@link CompatibleFieldSerializer}，字段增删后仍可读取（体积略大）
+ *   3、references：默认关闭引用跟踪（对象图中有循环引用时须开启）
+ *   4、unsafe：使用UnsafeOutput/UnsafeInput读写（按本机字节序，须双方一致）
+ *
+ *   KryoFactoryBuilder.newBuilder().register(User.class, 101).scan("code.ponfee.model").build();
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class KryoFactoryBuilder {
+
+    private static final int DEFAULT_SCAN_START_ID = 100; // 0~9为kryo内置类型
+
+    private final Map<Class<?>, Integer> registrations = new LinkedHashMap<>();
+    private final Map<Integer, Class<?>> ids = new HashMap<>(); // 反向索引，检查ID重复
+    private boolean registrationRequired = false;
+    private boolean compatible = false;
+    private boolean references = false;
+    private boolean unsafe = true;
+
+    private KryoFactoryBuilder() {}
+
+    public static KryoFactoryBuilder newBuilder() {
+        return new KryoFactoryBuilder();
+    }
+
+    /**
+     * 注册类，同一个类不能注册为不同的ID，同一个ID不能注册给不同的类
+     * @param type the class
+     * @param id   the registration id
+     * @return this
+     */
+    public KryoFactoryBuilder register(Class<?> type, int id) {
+        Preconditions.checkArgument(id >= 0, "id must be non negative");
+        Integer exists = registrations.get(type);
+        Preconditions.checkArgument(exists == null || exists == id, "duplicate register: " + type);
+        Class<?> owner = ids.get(id);
+        Preconditions.checkArgument(owner == null || owner == type,
+                                    "duplicate register id " + id + ": " + owner + ", " + type);
+        registrations.put(type, id);
+        ids.put(id, type);
+        return this;
+    }
+
+    /**
+     * 从classpath中的properties文件加载注册表，格式为：类名=ID
+     * @param resource the classpath resource, such as kryo-registration.properties
+     * @return this
+     */
+    public KryoFactoryBuilder registerFromResource(String resource) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = KryoFactoryBuilder.class.getClassLoader();
+        }
+        Properties props = new Properties();
+        try (InputStream input = loader.getResourceAsStream(resource)) {
+            Preconditions.checkArgument(input != null, "resource not found: " + resource);
+            props.load(input);
+        } catch (IOException e) {
+            throw new SerializationException("load kryo registration error: " + resource, e);
+        }
+        for (String name : props.stringPropertyNames()) {
+            try {
+                register(ClassUtils.getClass(loader, name.trim()), Integer.parseInt(props.getProperty(name).trim()));
+            } catch (ClassNotFoundException e) {
+                throw new SerializationException("kryo registration class not found: " + name, e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 扫描包下的类并注册，ID按类名排序从100开始分配（跳过已注册的类及已使用的ID）
+     * @param packages the package names
+     * @return this
+     */
+    public KryoFactoryBuilder scan(String... packages) {
+        int id = registrations.values().stream().mapToInt(Integer::intValue).max().orElse(DEFAULT_SCAN_START_ID - 1) + 1;
+        id = Math.max(id, DEFAULT_SCAN_START_ID);
+        Class<?>[] classes = new ResourceScanner(packages).scan4class().stream()
+            .filter(c -> !c.isInterface() && !c.isAnnotation() && !c.isAnonymousClass())
+            .sorted(Comparator.comparing(Class::getName))
+            .toArray(Class<?>[]::new);
+        for (Class<?> type : classes) {
+            if (!registrations.containsKey(type)) {
+                while (ids.containsKey(id)) {
+                    id++;
+                }
+                register(type, id++);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 是否必须注册：true时序列化未注册的类会抛出异常
+     */
+    public KryoFactoryBuilder registrationRequired(boolean registrationRequired) {
+        this.registrationRequired = registrationRequired;
+        return this;
+    }
+
+    public KryoFactoryBuilder compatible(boolean compatible) {
+        this.compatible = compatible;
+        return this;
+    }
+
+    public KryoFactoryBuilder references(boolean references) {
+        this.references = references;
+        return this;
+    }
+
+    public KryoFactoryBuilder unsafe(boolean unsafe) {
+        this.unsafe = unsafe;
+        return this;
+    }
+
+    public boolean isUnsafe() {
+        return unsafe;
+    }
+
+    public Map<Class<?>, Integer> getRegistrations() {
+        return new LinkedHashMap<>(registrations);
+    }
+
+    public KryoFactory build() {
+        Map<Class<?>, Integer> table = getRegistrations();
+        boolean registrationRequired = this.registrationRequired,
+                compatible = this.compatible, references = this.references;
+        return () -> {
+            Kryo kryo = new Kryo();
+            kryo.setReferences(references);
+            kryo.setRegistrationRequired(registrationRequired);
+            // 优先无参构造函数，没有时不调用构造函数创建实例
+            kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+            if (compatible) {
+                kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
+            }
+            table.forEach(kryo::register);
+            return kryo;
+        };
+    }
+
+}
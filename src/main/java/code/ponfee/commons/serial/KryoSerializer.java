@@ -1,26 +1,32 @@
 package code.ponfee.commons.serial;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.ByteBufferInput;
-import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
 
-import code.ponfee.commons.io.ExtendedGZIPOutputStream;
 import code.ponfee.commons.io.Files;
 
 /**
  * kryo序例化
+ * 
+ * Output/Input按线程复用，不压缩时直接写入线程缓存的字节缓冲区
+ * 
+ * 默认构造的实例与原有格式兼容；通过{@link KryoFactoryBuilder}构造时
+ * 可使用类注册、CompatibleFieldSerializer及unsafe读写，读写双方的配置须一致
+ * 
+ * @see KryoFactoryBuilder
  * @author fupf
  */
 public class KryoSerializer extends Serializer {
@@ -28,9 +34,25 @@ public class KryoSerializer extends Serializer {
     private static Logger logger = LoggerFactory.getLogger(KryoSerializer.class);
 
     private final KryoPool kryoPool;
+    private final boolean unsafe;
+    private final ThreadLocal<Output> bytesOutput;
+    private final ThreadLocal<Output> streamOutput;
+    private final ThreadLocal<Input> streamInput;
 
     public KryoSerializer() {
-        this.kryoPool = new KryoPool.Builder(Kryo::new).softReferences().build();
+        this(Kryo::new, false);
+    }
+
+    public KryoSerializer(KryoFactoryBuilder builder) {
+        this(builder.build(), builder.isUnsafe());
+    }
+
+    private KryoSerializer(KryoFactory factory, boolean unsafe) {
+        this.kryoPool = new KryoPool.Builder(factory).softReferences().build();
+        this.unsafe = unsafe;
+        this.bytesOutput = ThreadLocal.withInitial(() -> newOutput(SerialBuffers.INITIAL_SIZE, -1));
+        this.streamOutput = ThreadLocal.withInitial(() -> newOutput(Files.BUFF_SIZE, Files.BUFF_SIZE));
+        this.streamInput = ThreadLocal.withInitial(() -> newInput(new byte[Files.BUFF_SIZE]));
     }
 
     @Override
@@ -38,32 +60,41 @@ public class KryoSerializer extends Serializer {
         if (t == null) {
             return null;
         }
+        if (isCompress) {
+            return serializeBuffered(t, isCompress);
+        }
 
-        GZIPOutputStream gzout = null;
-        Output output = null;
+        Output output = bytesOutput.get();
         Kryo kryo = null;
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-            if (isCompress) {
-                gzout = new ExtendedGZIPOutputStream(baos);
-                output = new ByteBufferOutput(gzout, Files.BUFF_SIZE);
-            } else {
-                output = new ByteBufferOutput(baos, Files.BUFF_SIZE);
-            }
+            output.clear();
             (kryo = getKryo()).writeObject(output, t);
-            output.close();
-            output = null;
-            if (gzout != null) {
-                gzout.close();
-                gzout = null;
+            return output.toBytes();
+        } finally {
+            this.releaseKryo(kryo);
+            if (output.getBuffer().length > SerialBuffers.MAX_RETAINED_SIZE) {
+                bytesOutput.remove(); // 不缓存大缓冲区
             }
-            return baos.toByteArray();
+        }
+    }
+
+    @Override
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        Output output = streamOutput.get();
+        OutputStream os = null;
+        Kryo kryo = null;
+        try {
+            output.setOutputStream(os = wrap(out, isCompress));
+            (kryo = getKryo()).writeObject(output, t);
+            output.flush();
+            os.close();
+            os = null;
         } catch (IOException e) {
             throw new SerializationException(e);
         } finally {
             this.releaseKryo(kryo);
-            close(output, "close Output exception");
-            close(gzout, "close GZIPOutputStream exception");
+            output.setOutputStream(null);
+            close(os, "close OutputStream exception");
         }
     }
 
@@ -72,25 +103,51 @@ public class KryoSerializer extends Serializer {
         if (data == null) {
             return null;
         }
+        if (isCompress) {
+            return deserialize(new ByteArrayInputStream(data), clazz, isCompress);
+        }
 
-        GZIPInputStream gzin = null;
-        Input input = null;
         Kryo kryo = null;
         try {
-            if (isCompress) {
-                gzin = new GZIPInputStream(new ByteArrayInputStream(data));
-                input = new ByteBufferInput(gzin);
-            } else {
-                input = new ByteBufferInput(data);
-            }
+            return (kryo = getKryo()).readObject(newInput(data), clazz);
+        } finally {
+            this.releaseKryo(kryo);
+        }
+    }
+
+    @Override
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
+        Input input = streamInput.get();
+        InputStream is = null;
+        Kryo kryo = null;
+        try {
+            input.setInputStream(is = wrap(in, isCompress));
             return (kryo = getKryo()).readObject(input, clazz);
         } catch (IOException e) {
             throw new SerializationException(e);
         } finally {
             this.releaseKryo(kryo);
-            close(input, "close Input exception");
-            close(gzin, "close GZIPInputStream exception");
+            input.setInputStream(null);
+            close(is, "close InputStream exception");
+        }
+    }
+
+    private Output newOutput(int bufferSize, int maxBufferSize) {
+        if (!unsafe) {
+            return new Output(bufferSize, maxBufferSize);
+        }
+        UnsafeOutput output = new UnsafeOutput(bufferSize, maxBufferSize);
+        output.supportVarInts(true); // 默认写定长int/long，体积较大
+        return output;
+    }
+
+    private Input newInput(byte[] buffer) {
+        if (!unsafe) {
+            return new Input(buffer);
         }
+        UnsafeInput input = new UnsafeInput(buffer);
+        input.setVarIntsEnabled(true);
+        return input;
     }
 
     private Kryo getKryo() {
@@ -0,0 +1,153 @@
+package code.ponfee.commons.serial;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <pre>
+ * 序列化缓冲区管理
+ *   1、每个线程缓存一个可复用的字节输出流，序列化时无需每次新建并扩容缓冲区，
+ *      超过{@link #MAX_RETAINED_SIZE}的缓冲区不缓存，避免大对象长期占用内存
+ *   2、同一线程嵌套使用时（缓存的流正在使用中）返回新建的流
+ *   3、ByteBuffer与InputStream/OutputStream之间的适配
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class SerialBuffers {
+    private SerialBuffers() {}
+
+    static final int INITIAL_SIZE = 512;
+    static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<PooledOutputStream> POOL =
+        ThreadLocal.withInitial(() -> new PooledOutputStream(INITIAL_SIZE));
+
+    /**
+     * 获取当前线程缓存的输出流，使用完后须调用{@link #release(PooledOutputStream)}
+     * @return an empty output stream
+     */
+    public static PooledOutputStream borrow() {
+        PooledOutputStream out = POOL.get();
+        if (out.inUse) {
+            return new PooledOutputStream(INITIAL_SIZE);
+        }
+        out.inUse = true;
+        out.reset();
+        return out;
+    }
+
+    public static void release(PooledOutputStream out) {
+        if (out == null || !out.inUse) {
+            return;
+        }
+        out.inUse = false;
+        if (out.capacity() > MAX_RETAINED_SIZE && POOL.get() == out) {
+            POOL.remove();
+        }
+    }
+
+    public static OutputStream asOutputStream(ByteBuffer buffer) {
+        return new ByteBufferOutputStream(buffer);
+    }
+
+    public static InputStream asInputStream(ByteBuffer buffer) {
+        return new ByteBufferInputStream(buffer);
+    }
+
+    /**
+     * 可复用的字节输出流，可直接访问内部缓冲区
+     */
+    public static final class PooledOutputStream extends ByteArrayOutputStream {
+        private boolean inUse = false;
+
+        PooledOutputStream(int size) {
+            super(size);
+        }
+
+        /**
+         * @return 内部缓冲区，有效数据为[0, size())
+         */
+        public byte[] buffer() {
+            return buf;
+        }
+
+        public int capacity() {
+            return buf.length;
+        }
+
+        public void writeTo(ByteBuffer buffer) {
+            buffer.put(buf, 0, count);
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+
+    /**
+     * 写入ByteBuffer，空间不足时抛出{@link java.nio.BufferOverflowException}
+     */
+    private static final class ByteBufferOutputStream extends OutputStream {
+        final ByteBuffer buffer;
+
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.put(b, off, len);
+        }
+    }
+
+    /**
+     * 从ByteBuffer的position读取到limit
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skip = (int) Math.min(Math.max(n, 0), buffer.remaining());
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
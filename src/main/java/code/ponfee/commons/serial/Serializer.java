@@ -4,14 +4,28 @@ import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import code.ponfee.commons.io.ExtendedGZIPOutputStream;
 import code.ponfee.commons.io.GzipProcessor;
+import code.ponfee.commons.serial.SerialBuffers.PooledOutputStream;
 
 /**
  * 序例化抽象类
+ * 
+ * 除字节数组外，支持直接写入OutputStream/ByteBuffer及从InputStream/ByteBuffer读取，
+ * 子类可覆盖流式方法以避免中间字节数组的拷贝
+ * 
  * @author fupf
  */
 public abstract class Serializer {
@@ -63,6 +77,120 @@ public abstract class Serializer {
         return this.deserialize(data, clazz, true);
     }
 
+    /**
+     * 对象序例化并写入输出流（不会关闭输出流）
+     * @param t 对象
+     * @param out 输出流
+     * @param isCompress 是否要压缩：true是；false否；
+     */
+    public <T extends Object> void serialize(T t, OutputStream out, boolean isCompress) {
+        byte[] data = serialize(t, isCompress);
+        if (data != null) try {
+            out.write(data);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    public final <T extends Object> void serialize(T t, OutputStream out) {
+        if (t != null) {
+            serialize(t, out, true);
+        }
+    }
+
+    /**
+     * 对象序例化并从ByteBuffer的position处写入，空间不足时抛出BufferOverflowException
+     * @param t 对象
+     * @param buffer 字节缓冲区
+     * @param isCompress 是否要压缩：true是；false否；
+     * @return 写入的字节数
+     */
+    public final <T extends Object> int serialize(T t, ByteBuffer buffer, boolean isCompress) {
+        if (t == null) {
+            return 0;
+        }
+        int position = buffer.position();
+        serialize(t, SerialBuffers.asOutputStream(buffer), isCompress);
+        return buffer.position() - position;
+    }
+
+    public final <T extends Object> int serialize(T t, ByteBuffer buffer) {
+        return serialize(t, buffer, true);
+    }
+
+    /**
+     * 从输入流反序例化为对象（不会关闭输入流）
+     * @param in 输入流
+     * @param clazz 对象类型
+     * @param isCompress 是否被压缩：true是；false否；
+     * @return 反序例化后的对象
+     */
+    public <T extends Object> T deserialize(InputStream in, Class<T> clazz, boolean isCompress) {
+        try {
+            return deserialize(IOUtils.toByteArray(in), clazz, isCompress);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    /**
+     * 从ByteBuffer的position至limit反序例化为对象，读取后position移至limit
+     * @param buffer 字节缓冲区
+     * @param clazz 对象类型
+     * @param isCompress 是否被压缩：true是；false否；
+     * @return 反序例化后的对象
+     */
+    public final <T extends Object> T deserialize(ByteBuffer buffer, Class<T> clazz, boolean isCompress) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+            && buffer.limit() == buffer.array().length) {
+            T t = deserialize(buffer.array(), clazz, isCompress); // 无需拷贝
+            buffer.position(buffer.limit());
+            return t;
+        }
+        T t = deserialize(SerialBuffers.asInputStream(buffer), clazz, isCompress);
+        buffer.position(buffer.limit());
+        return t;
+    }
+
+    public final <T extends Object> T deserialize(ByteBuffer buffer, Class<T> clazz) {
+        return deserialize(buffer, clazz, true);
+    }
+
+    /**
+     * 使用线程缓存的缓冲区调用流式序例化，仅在最后拷贝一次结果
+     * @param t 对象
+     * @param isCompress 是否要压缩
+     * @return 序例化后的流数据
+     */
+    protected final <T extends Object> byte[] serializeBuffered(T t, boolean isCompress) {
+        PooledOutputStream out = SerialBuffers.borrow();
+        try {
+            serialize(t, out, isCompress);
+            return out.toByteArray();
+        } finally {
+            SerialBuffers.release(out);
+        }
+    }
+
+    /**
+     * 包装输出流：关闭时不关闭原输出流，需要压缩时包装为gzip输出流
+     */
+    protected static OutputStream wrap(OutputStream out, boolean isCompress) throws IOException {
+        out = new CloseShieldOutputStream(out);
+        return isCompress ? new ExtendedGZIPOutputStream(out) : out;
+    }
+
+    /**
+     * 包装输入流：关闭时不关闭原输入流，被压缩时包装为gzip输入流
+     */
+    protected static InputStream wrap(InputStream in, boolean isCompress) throws IOException {
+        in = new CloseShieldInputStream(in);
+        return isCompress ? new GZIPInputStream(in) : in;
+    }
+
     /**
      * 关闭流
      * @param closeable
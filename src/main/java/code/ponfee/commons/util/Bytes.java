@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -135,16 +136,8 @@ public final class Bytes {
      */
     public static String hexEncode(byte[] bytes, boolean lowercase) {
         //new BigInteger(1, bytes).toString(16);
-        int len = bytes.length;
-        char[] out = new char[len << 1];
-
-        char[] codes = lowercase ? HEX_LOWER_CODES : HEX_UPPER_CODES;
-
-        // one byte -> two char
-        for (int i = 0, j = 0; i < len; i++) {
-            out[j++] = codes[(0xF0 & bytes[i]) >>> 4];
-            out[j++] = codes[ 0x0F & bytes[i]       ];
-        }
+        char[] out = new char[bytes.length << 1];
+        hexEncode(bytes, 0, bytes.length, out, 0, lowercase);
         return new String(out);
     }
 
@@ -154,20 +147,77 @@ public final class Bytes {
      * @return
      */
     public static byte[] hexDecode(String hex) {
-        char[] data = hex.toCharArray();
-        int len = data.length;
+        int len = hex.length();
         if ((len & 0x01) == 1) {
             throw new IllegalArgumentException("Invalid hex string.");
         }
 
         byte[] out = new byte[len >> 1];
+        hexDecode(hex, 0, len, out, 0);
+        return out;
+    }
+
+    /**
+     * encode src[off, off+len) to hex chars, write into out[outOff, outOff+len*2)
+     * @param src       the source byte array
+     * @param off       the source offset
+     * @param len       the source length
+     * @param out       the output char array
+     * @param outOff    the output offset
+     * @param lowercase is lowercase
+     * @return the number of chars written
+     */
+    public static int hexEncode(byte[] src, int off, int len,
+                                char[] out, int outOff, boolean lowercase) {
+        checkPositionIndexes(off, off + len, src.length);
+        checkPositionIndexes(outOff, outOff + (len << 1), out.length);
+        char[] codes = lowercase ? HEX_LOWER_CODES : HEX_UPPER_CODES;
+        for (int i = off, j = outOff, end = off + len; i < end; i++) {
+            out[j++] = codes[(0xF0 & src[i]) >>> 4];
+            out[j++] = codes[ 0x0F & src[i]       ];
+        }
+        return len << 1;
+    }
+
+    /**
+     * decode hex[off, off+len) to bytes, write into out[outOff, outOff+len/2)
+     * 查表解码，非hex字符抛出IllegalArgumentException
+     * @param hex    the hex char sequence, such as String, StringBuilder or CharBuffer
+     * @param off    the hex offset
+     * @param len    the hex length, must be even
+     * @param out    the output byte array
+     * @param outOff the output offset
+     * @return the number of bytes written
+     */
+    public static int hexDecode(CharSequence hex, int off, int len, byte[] out, int outOff) {
+        checkPositionIndexes(off, off + len, hex.length());
+        if ((len & 0x01) == 1) {
+            throw new IllegalArgumentException("Invalid hex string.");
+        }
+        checkPositionIndexes(outOff, outOff + (len >> 1), out.length);
 
         // two char -> one byte
-        for (int i = 0, j = 0; j < len; i++, j += 2) {
-            out[i] = (byte) (Character.digit(data[j], 16) << 4 
-                           | Character.digit(data[j + 1], 16));
+        for (int i = off, j = outOff, end = off + len; i < end; i += 2) {
+            out[j++] = (byte) (hexDigit(hex.charAt(i)) << 4 | hexDigit(hex.charAt(i + 1)));
         }
-        return out;
+        return len >> 1;
+    }
+
+    private static final byte[] HEX_DECODES = new byte[128];
+    static {
+        Arrays.fill(HEX_DECODES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            HEX_DECODES[HEX_LOWER_CODES[i]] = (byte) i;
+            HEX_DECODES[HEX_UPPER_CODES[i]] = (byte) i;
+        }
+    }
+
+    private static int hexDigit(char c) {
+        int digit;
+        if (c >= HEX_DECODES.length || (digit = HEX_DECODES[c]) < 0) {
+            throw new IllegalArgumentException("Invalid hex char: " + c);
+        }
+        return digit;
     }
 
     // -----------------------------------------------------------------base64 encode/decode
@@ -181,39 +231,189 @@ public final class Bytes {
         }
         BASE64_DECODES['='] = 0;
     }
+    private static final byte[] BASE64_STRICT_DECODES = new byte[256]; // '='与非法字符均为-1
+    static {
+        Arrays.fill(BASE64_STRICT_DECODES, (byte) -1);
+        for (int i = 0, len = BASE64_ENCODES.length; i < len; i++) {
+            BASE64_STRICT_DECODES[BASE64_ENCODES[i]] = (byte) i;
+        }
+    }
+    private static final int BASE64_CHUNK_SIZE = 3 << 10; // 非数组ByteBuffer的分块大小
 
     /**
      * base64 encode
      * @param data
-     * @return 
+     * @return
      * @deprecated {@code Base64.getEncoder().encodeToString(data)}
      */
     @Deprecated
     public static String base64Encode(byte[] data) {
-        StringBuilder builder = new StringBuilder((data.length << 2) / 3 + 2);
-        for (int i = 0, len = data.length, b1, b2, b3; i < len;) {
-            b1 = data[i++] & 0xFF;
-            if (i == len) {
-                builder.append(BASE64_ENCODES[b1 >>> 2]);
-                builder.append(BASE64_ENCODES[(b1 & 0x3) << 4]);
-                builder.append("==");
+        byte[] out = new byte[base64EncodedLength(data.length)];
+        base64Encode(data, 0, data.length, out, 0);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @param len the source byte length
+     * @return the padded base64 length of len bytes
+     */
+    public static int base64EncodedLength(int len) {
+        return ((len + 2) / 3) << 2;
+    }
+
+    /**
+     * @param b64 the base64 ascii bytes
+     * @param off the offset
+     * @param len the length, must be a multiple of 4
+     * @return the decoded byte length of b64[off, off+len)
+     */
+    public static int base64DecodedLength(byte[] b64, int off, int len) {
+        checkPositionIndexes(off, off + len, b64.length);
+        if ((len & 0x03) != 0) {
+            throw new IllegalArgumentException("Invalid base64 length: " + len);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int pad = b64[off + len - 1] != '=' ? 0 : b64[off + len - 2] != '=' ? 1 : 2;
+        return (len >> 2) * 3 - pad;
+    }
+
+    /**
+     * base64 encode src[off, off+len) with padding,
+     * write the ascii bytes into out[outOff, outOff+base64EncodedLength(len))
+     * 每次处理3个字节
+     * @param src    the source byte array
+     * @param off    the source offset
+     * @param len    the source length
+     * @param out    the output byte array
+     * @param outOff the output offset
+     * @return the number of bytes written
+     */
+    public static int base64Encode(byte[] src, int off, int len, byte[] out, int outOff) {
+        checkPositionIndexes(off, off + len, src.length);
+        int outLen = base64EncodedLength(len);
+        checkPositionIndexes(outOff, outOff + outLen, out.length);
+
+        char[] codes = BASE64_ENCODES;
+        int i = off, j = outOff, bits;
+        for (int end = off + len - len % 3; i < end; i += 3) {
+            bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            out[j++] = (byte) codes[ bits >>> 18        ];
+            out[j++] = (byte) codes[(bits >>> 12) & 0x3F];
+            out[j++] = (byte) codes[(bits >>>  6) & 0x3F];
+            out[j++] = (byte) codes[ bits         & 0x3F];
+        }
+        switch (len % 3) {
+            case 1:
+                bits = (src[i] & 0xFF) << 16;
+                out[j++] = (byte) codes[ bits >>> 18        ];
+                out[j++] = (byte) codes[(bits >>> 12) & 0x3F];
+                out[j++] = '=';
+                out[j  ] = '=';
                 break;
-            }
-            b2 = data[i++] & 0xFF;
-            if (i == len) {
-                builder.append(BASE64_ENCODES[b1 >>> 2]);
-                builder.append(BASE64_ENCODES[((b1 & 0x03) << 4) | ((b2 & 0xf0) >>> 4)]);
-                builder.append(BASE64_ENCODES[(b2 & 0x0f) << 2]);
-                builder.append("=");
+            case 2:
+                bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+                out[j++] = (byte) codes[ bits >>> 18        ];
+                out[j++] = (byte) codes[(bits >>> 12) & 0x3F];
+                out[j++] = (byte) codes[(bits >>>  6) & 0x3F];
+                out[j  ] = '=';
+                break;
+            default:
                 break;
+        }
+        return outLen;
+    }
+
+    /**
+     * base64 decode b64[off, off+len), write into out[outOff, outOff+base64DecodedLength(...))
+     * 严格模式：长度须为4的倍数，'='只能出现在末尾，不允许空白等非法字符
+     * @param b64    the base64 ascii bytes
+     * @param off    the b64 offset
+     * @param len    the b64 length
+     * @param out    the output byte array
+     * @param outOff the output offset
+     * @return the number of bytes written
+     */
+    public static int base64Decode(byte[] b64, int off, int len, byte[] out, int outOff) {
+        int outLen = base64DecodedLength(b64, off, len);
+        checkPositionIndexes(outOff, outOff + outLen, out.length);
+        if (decodeStrict(b64, off, len, out, outOff) < 0) {
+            throw new IllegalArgumentException("Invalid base64 string.");
+        }
+        return outLen;
+    }
+
+    /**
+     * base64 encode src.remaining() bytes into dst, advance both positions
+     * heap buffer直接操作底层数组，其它（direct/只读）按块经堆内数组中转
+     * @param src the source buffer
+     * @param dst the destination buffer
+     * @return the number of bytes written
+     * @throws BufferOverflowException if dst has insufficient space
+     */
+    public static int base64Encode(ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining(), outLen = base64EncodedLength(len);
+        if (dst.remaining() < outLen) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            base64Encode(src.array(), src.arrayOffset() + src.position(), len,
+                         dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + outLen);
+            return outLen;
+        }
+
+        // 块大小为3的倍数，只有最后一块有填充
+        byte[] in = new byte[Math.min(len, BASE64_CHUNK_SIZE)],
+              out = new byte[base64EncodedLength(in.length)];
+        for (int n; src.hasRemaining(); ) {
+            src.get(in, 0, n = Math.min(in.length, src.remaining()));
+            dst.put(out, 0, base64Encode(in, 0, n, out, 0));
+        }
+        return outLen;
+    }
+
+    /**
+     * base64 decode src.remaining() bytes into dst, advance both positions
+     * @param src the base64 ascii buffer
+     * @param dst the destination buffer
+     * @return the number of bytes written
+     * @throws BufferOverflowException if dst has insufficient space
+     * @see #base64Decode(byte[], int, int, byte[], int)
+     */
+    public static int base64Decode(ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (src.hasArray() && dst.hasArray()) {
+            byte[] b64 = src.array();
+            int off = src.arrayOffset() + src.position(),
+             outLen = base64DecodedLength(b64, off, len);
+            if (dst.remaining() < outLen) {
+                throw new BufferOverflowException();
             }
-            b3 = data[i++] & 0xFF;
-            builder.append(BASE64_ENCODES[b1 >>> 2]);
-            builder.append(BASE64_ENCODES[((b1 & 0x03) << 4) | ((b2 & 0xf0) >>> 4)]);
-            builder.append(BASE64_ENCODES[((b2 & 0x0f) << 2) | ((b3 & 0xc0) >>> 6)]);
-            builder.append(BASE64_ENCODES[b3 & 0x3f]);
+            base64Decode(b64, off, len, dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + outLen);
+            return outLen;
         }
-        return builder.toString();
+
+        if ((len & 0x03) != 0) {
+            throw new IllegalArgumentException("Invalid base64 length: " + len);
+        }
+        // 块大小为4的倍数，非最后一块不能有填充
+        byte[] in = new byte[Math.min(len, BASE64_CHUNK_SIZE)],
+              out = new byte[(in.length >> 2) * 3];
+        int total = 0;
+        for (int n, m; src.hasRemaining(); total += m) {
+            src.get(in, 0, n = Math.min(in.length, src.remaining()));
+            m = base64Decode(in, 0, n, out, 0);
+            if (src.hasRemaining() && m != (n >> 2) * 3) {
+                throw new IllegalArgumentException("Invalid base64 string.");
+            }
+            dst.put(out, 0, m);
+        }
+        return total;
     }
 
     /**
@@ -225,6 +425,13 @@ public final class Bytes {
     @Deprecated
     public static byte[] base64Decode(String b64) {
         byte[] data = b64.getBytes(StandardCharsets.US_ASCII);
+        if ((data.length & 0x03) == 0) {
+            // 格式规范时走快速路径，否则按原有的宽松方式解码（跳过非法字符）
+            byte[] out = new byte[base64DecodedLength(data, 0, data.length)];
+            if (decodeStrict(data, 0, data.length, out, 0) >= 0) {
+                return out;
+            }
+        }
         StringBuilder builder = new StringBuilder(data.length * 3 / 4 + 1);
         for (int i = 0, len = data.length, b1, b2, b3, b4; i < len;) {
             /* b1 */
@@ -296,6 +503,54 @@ public final class Bytes {
         return base64Decode(b64);
     }
 
+    /**
+     * 严格解码，调用方已校验长度与边界
+     * @return the number of bytes written, -1 if contains invalid char
+     */
+    private static int decodeStrict(byte[] b64, int off, int len, byte[] out, int outOff) {
+        if (len == 0) {
+            return 0;
+        }
+        byte[] codes = BASE64_STRICT_DECODES;
+        int i = off, j = outOff, bits;
+        // 任一字符非法时查表为-1，移位或运算后为负数
+        for (int end = off + len - 4; i < end; i += 4) {
+            bits = codes[b64[i] & 0xFF] << 18 | codes[b64[i + 1] & 0xFF] << 12
+                 | codes[b64[i + 2] & 0xFF] << 6 | codes[b64[i + 3] & 0xFF];
+            if (bits < 0) {
+                return -1;
+            }
+            out[j++] = (byte) (bits >>> 16);
+            out[j++] = (byte) (bits >>>  8);
+            out[j++] = (byte) (bits       );
+        }
+
+        // the last quantum
+        bits = codes[b64[i] & 0xFF] << 18 | codes[b64[i + 1] & 0xFF] << 12;
+        if (b64[i + 2] == '=') {
+            if (b64[i + 3] != '=' || bits < 0) {
+                return -1;
+            }
+            out[j++] = (byte) (bits >>> 16);
+        } else if (b64[i + 3] == '=') {
+            bits |= codes[b64[i + 2] & 0xFF] << 6;
+            if (bits < 0) {
+                return -1;
+            }
+            out[j++] = (byte) (bits >>> 16);
+            out[j++] = (byte) (bits >>>  8);
+        } else {
+            bits |= codes[b64[i + 2] & 0xFF] << 6 | codes[b64[i + 3] & 0xFF];
+            if (bits < 0) {
+                return -1;
+            }
+            out[j++] = (byte) (bits >>> 16);
+            out[j++] = (byte) (bits >>>  8);
+            out[j++] = (byte) (bits       );
+        }
+        return j - outOff;
+    }
+
     /**
      * convert byte array to char array
      * @param bytes the byte array
@@ -473,10 +728,100 @@ public final class Bytes {
      * @param offset
      */
     public static void toByteArray(int n, byte[] out, int offset) {
-        out[  offset] = (byte) (n >>> 24);
-        out[++offset] = (byte) (n >>> 16);
-        out[++offset] = (byte) (n >>>  8);
-        out[++offset] = (byte) (n       );
+        putInt(out, offset, n);
+    }
+
+    // ----------------------------------------write into the caller's byte array
+    // 大端（big-endian）与fromXxx/toXxx一致，XxxLE为小端（little-endian），
+    // 均不分配内存，可配合ByteBuffer.wrap(out).order(...)视图混用
+    public static void putShort(byte[] out, int offset, short value) {
+        out[  offset] = (byte) (value >>> 8);
+        out[++offset] = (byte) (value      );
+    }
+
+    public static void putChar(byte[] out, int offset, char value) {
+        out[  offset] = (byte) (value >>> 8);
+        out[++offset] = (byte) (value      );
+    }
+
+    public static void putInt(byte[] out, int offset, int value) {
+        out[  offset] = (byte) (value >>> 24);
+        out[++offset] = (byte) (value >>> 16);
+        out[++offset] = (byte) (value >>>  8);
+        out[++offset] = (byte) (value       );
+    }
+
+    /**
+     * write the long value into out[offset, offset+8) as big-endian
+     * @param out    the output byte array
+     * @param offset the output offset
+     * @param value  the long value
+     */
+    public static void putLong(byte[] out, int offset, long value) {
+        out[  offset] = (byte) (value >>> 56);
+        out[++offset] = (byte) (value >>> 48);
+        out[++offset] = (byte) (value >>> 40);
+        out[++offset] = (byte) (value >>> 32);
+        out[++offset] = (byte) (value >>> 24);
+        out[++offset] = (byte) (value >>> 16);
+        out[++offset] = (byte) (value >>>  8);
+        out[++offset] = (byte) (value       );
+    }
+
+    public static void putFloat(byte[] out, int offset, float value) {
+        putInt(out, offset, Float.floatToIntBits(value));
+    }
+
+    public static void putDouble(byte[] out, int offset, double value) {
+        putLong(out, offset, Double.doubleToLongBits(value));
+    }
+
+    public static void putShortLE(byte[] out, int offset, short value) {
+        out[  offset] = (byte) (value      );
+        out[++offset] = (byte) (value >>> 8);
+    }
+
+    public static void putIntLE(byte[] out, int offset, int value) {
+        out[  offset] = (byte) (value       );
+        out[++offset] = (byte) (value >>>  8);
+        out[++offset] = (byte) (value >>> 16);
+        out[++offset] = (byte) (value >>> 24);
+    }
+
+    public static void putLongLE(byte[] out, int offset, long value) {
+        out[  offset] = (byte) (value       );
+        out[++offset] = (byte) (value >>>  8);
+        out[++offset] = (byte) (value >>> 16);
+        out[++offset] = (byte) (value >>> 24);
+        out[++offset] = (byte) (value >>> 32);
+        out[++offset] = (byte) (value >>> 40);
+        out[++offset] = (byte) (value >>> 48);
+        out[++offset] = (byte) (value >>> 56);
+    }
+
+    public static short toShortLE(byte[] bytes, int fromIdx) {
+        return (short) (
+              (bytes[  fromIdx] & 0xFF)
+            | (bytes[++fromIdx]       ) << 8
+        );
+    }
+
+    public static int toIntLE(byte[] bytes, int fromIdx) {
+        return (bytes[  fromIdx] & 0xFF)
+             | (bytes[++fromIdx] & 0xFF) <<  8
+             | (bytes[++fromIdx] & 0xFF) << 16
+             | (bytes[++fromIdx]       ) << 24;
+    }
+
+    public static long toLongLE(byte[] bytes, int fromIdx) {
+        return ((long) bytes[  fromIdx] & 0xFF)
+             | ((long) bytes[++fromIdx] & 0xFF) <<  8
+             | ((long) bytes[++fromIdx] & 0xFF) << 16
+             | ((long) bytes[++fromIdx] & 0xFF) << 24
+             | ((long) bytes[++fromIdx] & 0xFF) << 32
+             | ((long) bytes[++fromIdx] & 0xFF) << 40
+             | ((long) bytes[++fromIdx] & 0xFF) << 48
+             | ((long) bytes[++fromIdx]       ) << 56;
     }
 
     /**
@@ -531,6 +876,30 @@ public final class Bytes {
         return baos.toByteArray();*/
     }
 
+    /**
+     * merge byte arrays into the caller's byte array, null array will be skipped
+     * @param out    the output byte array
+     * @param offset the output offset
+     * @param arrays the byte arrays
+     * @return the end offset (exclusive) in out
+     */
+    public static int concatTo(byte[] out, int offset, byte[]... arrays) {
+        int totalLength = 0;
+        for (byte[] array : arrays) {
+            if (array != null) {
+                totalLength += array.length;
+            }
+        }
+        checkPositionIndexes(offset, offset + totalLength, out.length);
+        for (byte[] array : arrays) {
+            if (array != null) {
+                System.arraycopy(array, 0, out, offset, array.length);
+                offset += array.length;
+            }
+        }
+        return offset;
+    }
+
     public static void reverse(byte[] array) {
         checkNotNull(array);
         reverse(array, 0, array.length);
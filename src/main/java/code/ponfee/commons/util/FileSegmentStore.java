@@ -0,0 +1,83 @@
+package code.ponfee.commons.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * 基于本地文件的号段存储：每个业务标识一个文件，存放当前最大值（8字节）
+ *   文件锁保证多进程间互斥，写入后强制刷盘，重启后从文件中的最大值继续分配
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class FileSegmentStore implements SegmentStore {
+
+    /** 同一目录的所有实例共用一个进程内的锁（同一JVM内对同一文件重复加FileLock会抛OverlappingFileLockException） */
+    private static final ConcurrentMap<String, Object> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final Object mutex;
+
+    public FileSegmentStore(String directory) {
+        this.directory = new File(directory);
+        if (!this.directory.exists()) {
+            this.directory.mkdirs();
+        }
+        Preconditions.checkArgument(this.directory.isDirectory(), "not a directory: " + directory);
+        String path;
+        try {
+            path = this.directory.getCanonicalPath();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("invalid directory: " + directory, e);
+        }
+        this.mutex = DIRECTORY_LOCKS.computeIfAbsent(path, k -> new Object());
+    }
+
+    @Override
+    public long increment(String tag, int step) {
+        Preconditions.checkArgument(step > 0);
+        File file = new File(directory, tag + ".seg");
+        synchronized (mutex) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 FileChannel channel = raf.getChannel()
+            ) {
+                FileLock lock = channel.lock(); // 多进程间互斥
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                    long max = 0;
+                    if (channel.size() >= Long.BYTES) {
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer, buffer.position()) < 0) {
+                                throw new IOException("unexpected end of file");
+                            }
+                        }
+                        buffer.flip();
+                        max = buffer.getLong();
+                        buffer.clear();
+                    }
+                    max += step;
+                    buffer.putLong(max).flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, buffer.position());
+                    }
+                    channel.force(false);
+                    return max;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("file segment increment failed: " + file, e);
+            }
+        }
+    }
+
+}
@@ -4,6 +4,9 @@ import code.ponfee.commons.concurrent.MultithreadExecutor;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <pre>
@@ -22,13 +25,19 @@ import java.util.concurrent.ConcurrentHashMap;
  * 计算掩码方式：(1<<bits)-1 或 -1L^(-1L<<bits)
  * 基于snowflake算法的ID生成器
  *
+ * 无锁实现：将（时间戳-TWEPOCH, 序列）打包为一个long存放在AtomicLong中，
+ * 每次通过一次CAS分配一个或一段连续的序列；当前毫秒序列用尽时直接进位到
+ * 下一毫秒（借用未来时间），超前系统时钟不超过maxDriftMillis，超过时等待时钟追上
+ *
  * @author fupf
  */
 public final class IdWorker {
 
     private static final int MAX_SIZE = Long.toBinaryString(Long.MAX_VALUE).length();
     private static final long TWEPOCH = 1514736000000L; // 起始基准时间点(2018-01-01)
+    private static final long DEFAULT_MAX_DRIFT_MILLIS = 10;
 
+    private final int sequenceBits;
     private final long sequenceMask;
     private final long workerIdShift;
     private final long datacenterIdShift;
@@ -38,11 +47,21 @@ public final class IdWorker {
     private final int datacenterId; // 数据中心id
     private final int workerId; // 工作机器id
 
-    private long lastTimestamp = -1L; // 时间戳
-    private long sequence = 0L; // 0，并发控制
+    private final long maxDriftMillis; // 最多超前系统时钟的毫秒数
+
+    private final AtomicLong state = new AtomicLong(0L); // (时间戳-TWEPOCH) << sequenceBits | 序列
 
     public IdWorker(int workerId, int datacenterId,
                     int sequenceBits, int workerIdBits, int datacenterIdBits) {
+        this(workerId, datacenterId, sequenceBits, workerIdBits,
+             datacenterIdBits, DEFAULT_MAX_DRIFT_MILLIS);
+    }
+
+    public IdWorker(int workerId, int datacenterId, int sequenceBits, int workerIdBits,
+                    int datacenterIdBits, long maxDriftMillis) {
+        if (maxDriftMillis < 0) {
+            throw new IllegalArgumentException("max drift millis can't be less than 0");
+        }
         long maxWorkerId = (1L << workerIdBits) - 1;
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(
@@ -58,6 +77,7 @@ public final class IdWorker {
             );
         }
 
+        this.sequenceBits = sequenceBits;
         this.sequenceMask = (1L << sequenceBits) - 1;
         this.workerIdShift = sequenceBits;
         this.datacenterIdShift = this.workerIdShift + workerIdBits;
@@ -66,6 +86,7 @@ public final class IdWorker {
 
         this.workerId = workerId;
         this.datacenterId = datacenterId;
+        this.maxDriftMillis = maxDriftMillis;
     }
 
     /**
@@ -90,36 +111,65 @@ public final class IdWorker {
         this(workerId, 0);
     }
 
-    public synchronized long nextId() {
-        long timestamp = timeGen();
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(
-                String.format("Clock moved backwards. Refusing to generate id "
-                            + "for %d milliseconds", lastTimestamp - timestamp)
-            );
+    public long nextId() {
+        return toId(reserve(1));
+    }
+
+    /**
+     * 一次CAS分配n个ID（序列连续，跨毫秒时进位到下一毫秒）
+     * @param n the count, not greater than 2^sequenceBits
+     * @return the id array
+     */
+    public long[] nextIds(int n) {
+        if (n < 1 || n > sequenceMask + 1) {
+            throw new IllegalArgumentException("count must between 1 and " + (sequenceMask + 1));
         }
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            sequence = 0L;
+        long start = reserve(n);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = toId(start + i);
         }
-        lastTimestamp = timestamp;
+        return ids;
+    }
 
-        return (((timestamp - TWEPOCH) << timestampShift) & timestampMask)
-             | (datacenterId << datacenterIdShift)
-             | (workerId << workerIdShift)
-             | sequence;
+    /**
+     * 分配n个连续的序列
+     * @param n the count
+     * @return the first packed (timestamp, sequence) value
+     */
+    private long reserve(int n) {
+        for (;;) {
+            long current = state.get();
+            long now = timeGen() - TWEPOCH;
+            long ahead = (current >>> sequenceBits) - now;
+            if (ahead > maxDriftMillis) {
+                // CAS成功时都满足不超前maxDriftMillis，到这里说明时钟回拨了
+                throw new RuntimeException(
+                    String.format("Clock moved backwards. Refusing to generate id "
+                                + "for %d milliseconds", ahead)
+                );
+            }
+
+            long start = Math.max(current + 1, now << sequenceBits);
+            long end = start + n - 1;
+            long wait = (end >>> sequenceBits) - now - maxDriftMillis;
+            if (wait > 0) {
+                // 借用的未来时间超出范围，等待时钟追上
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+                continue;
+            }
+            if (state.compareAndSet(current, end)) {
+                return start;
+            }
+        }
     }
 
-    protected long tilNextMillis(long lastTimestamp) {
-        long timestamp;
-        do {
-            timestamp = timeGen();
-        } while (timestamp <= lastTimestamp);
-        return timestamp;
+    private long toId(long value) {
+        long timestamp = value >>> sequenceBits;
+        return ((timestamp & timestampMask) << timestampShift)
+             | ((long) datacenterId << datacenterIdShift)
+             | ((long) workerId << workerIdShift)
+             | (value & sequenceMask);
     }
 
     protected long timeGen() {
@@ -0,0 +1,30 @@
+package code.ponfee.commons.util;
+
+import code.ponfee.commons.jedis.JedisClient;
+
+/**
+ * 基于redis INCRBY的号段存储（key不设置失效期）
+ *
+ * @author Ponfee
+ */
+public class RedisSegmentStore implements SegmentStore {
+
+    private static final String KEY_PREFIX = "seg:id:";
+
+    private final JedisClient jedisClient;
+
+    public RedisSegmentStore(JedisClient jedisClient) {
+        this.jedisClient = jedisClient;
+    }
+
+    @Override
+    public long increment(String tag, int step) {
+        // 号段key必须永久保存，过期后会重新从0分配导致重复ID
+        Long max = jedisClient.valueOps().incrByWithoutExpire(KEY_PREFIX + tag, step);
+        if (max == null) {
+            throw new IllegalStateException("redis incrby segment failed: " + tag);
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,136 @@
+package code.ponfee.commons.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import code.ponfee.commons.concurrent.InstrumentedThreadPoolExecutor;
+import code.ponfee.commons.concurrent.NamedThreadFactory;
+import code.ponfee.commons.concurrent.ThreadPoolExecutors;
+
+/**
+ * <pre>
+ * 号段模式（leaf-segment）的ID生成器，不依赖时钟与workerId
+ *   1、从{@link SegmentStore}批量获取号段(max-step, max]，在内存中通过CAS分配
+ *   2、双缓冲：当前号段消耗到prefetchRatio时异步预取下一号段，
+ *      当前号段用完时直接切换，切换时无需等待存储
+ *   3、预取失败或未完成时，切换线程同步获取号段
+ *
+ *   new SegmentIdGenerator("order", new RedisSegmentStore(jedisClient), 10000).nextId();
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class SegmentIdGenerator {
+
+    private static Logger logger = LoggerFactory.getLogger(SegmentIdGenerator.class);
+
+    private static final double DEFAULT_PREFETCH_RATIO = 0.15;
+    private static final Executor PREFETCH_EXECUTOR = InstrumentedThreadPoolExecutor.create(
+        "segment-id-prefetch", 1, 4, 300, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        new NamedThreadFactory("segment-id-prefetch", true), ThreadPoolExecutors.CALLER_RUN_HANDLER
+    );
+
+    private final String tag;
+    private final SegmentStore store;
+    private final int step;
+    private final double prefetchRatio;
+    private final Executor executor;
+
+    private volatile Segment current = new Segment(0, 0, -1); // 空号段，首次获取时同步加载
+    private volatile CompletableFuture<Segment> next;
+
+    public SegmentIdGenerator(String tag, SegmentStore store, int step) {
+        this(tag, store, step, DEFAULT_PREFETCH_RATIO, PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * @param tag           业务标识
+     * @param store         号段存储
+     * @param step          号段长度
+     * @param prefetchRatio 当前号段消耗到该比例时预取下一号段
+     * @param executor      预取执行器
+     */
+    public SegmentIdGenerator(String tag, SegmentStore store, int step,
+                              double prefetchRatio, Executor executor) {
+        Preconditions.checkArgument(step > 0);
+        Preconditions.checkArgument(prefetchRatio >= 0 && prefetchRatio < 1);
+        this.tag = Preconditions.checkNotNull(tag);
+        this.store = Preconditions.checkNotNull(store);
+        this.executor = Preconditions.checkNotNull(executor);
+        this.step = step;
+        this.prefetchRatio = prefetchRatio;
+    }
+
+    public long nextId() {
+        for (;;) {
+            Segment segment = current;
+            long id = segment.value.getAndIncrement();
+            if (id < segment.end) {
+                if (id == segment.prefetchAt) {
+                    prefetch(); // 仅有一个线程会取到该值
+                }
+                return id;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    // ------------------------------------------------------------------------private methods
+    private void prefetch() {
+        if (next == null) {
+            next = CompletableFuture.supplyAsync(this::load, executor);
+        }
+    }
+
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return; // 已被其它线程切换
+        }
+
+        Segment segment = null;
+        CompletableFuture<Segment> future = next;
+        if (future != null) {
+            try {
+                segment = future.join();
+            } catch (Exception e) {
+                logger.error("prefetch segment failed: " + tag, e);
+            }
+        }
+        if (segment == null) {
+            segment = load();
+        }
+        next = null;
+        current = segment;
+    }
+
+    private Segment load() {
+        long max = store.increment(tag, step);
+        long start = max - step + 1;
+        return new Segment(start, max + 1, start + (long) (step * prefetchRatio));
+    }
+
+    private static final class Segment {
+        final AtomicLong value;
+        final long end; // exclusive
+        final long prefetchAt;
+
+        Segment(long start, long end, long prefetchAt) {
+            this.value = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package code.ponfee.commons.util;
+
+/**
+ * 号段存储：为{@link SegmentIdGenerator}分配号段
+ *
+ * @author Ponfee
+ */
+@FunctionalInterface
+public interface SegmentStore {
+
+    /**
+     * 原子地将业务标识的当前最大值增加step，并返回增加后的值，
+     * 即分配号段：(返回值-step, 返回值]
+     * 
+     * @param tag  业务标识
+     * @param step 号段长度
+     * @return 增加后的最大值
+     */
+    long increment(String tag, int step);
+
+}
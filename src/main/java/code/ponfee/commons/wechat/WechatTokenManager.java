@@ -1,12 +1,8 @@
 package code.ponfee.commons.wechat;
 
-import static code.ponfee.commons.concurrent.ThreadPoolExecutors.CALLER_RUN_HANDLER;
-
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
@@ -14,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 
+import code.ponfee.commons.concurrent.HashedWheelTimer;
 import code.ponfee.commons.jedis.JedisClient;
 import code.ponfee.commons.jedis.JedisLock;
 
@@ -63,15 +60,15 @@ public class WechatTokenManager implements DisposableBean {
     private static Logger logger = LoggerFactory.getLogger(WechatTokenManager.class);
 
     private final JedisClient jedisClient;
-    private ScheduledExecutorService scheduled;
+    private final HashedWheelTimer.Timeout refreshTask;
+    private final HashedWheelTimer.Timeout loadTask;
 
     public WechatTokenManager(JedisClient jedisClient) {
         this.jedisClient = jedisClient;
-        //this.scheduled = Executors.newSingleThreadScheduledExecutor();
-        this.scheduled = new ScheduledThreadPoolExecutor(1, CALLER_RUN_HANDLER);
+        HashedWheelTimer timer = HashedWheelTimer.shared();
 
         // refresh token from wechat schedule
-        this.scheduled.scheduleAtFixedRate(() -> {
+        this.refreshTask = timer.scheduleAtFixedRate(() -> {
             for (Wechat wechat : WECHAT_CONFIGS.values()) {
                 try {
                     refreshToken(wechat);
@@ -81,10 +78,10 @@ public class WechatTokenManager implements DisposableBean {
                     logger.error("refresh token occur error", t);
                 }
             }
-        }, 0, TOKEN_EXPIRE / 2 - 1, TimeUnit.SECONDS);
+        }, 0, TOKEN_EXPIRE / 2 - 1, TimeUnit.SECONDS, HashedWheelTimer.ioExecutor());
 
         // load token and ticket from redis cache schedule
-        this.scheduled.scheduleAtFixedRate(() -> {
+        this.loadTask = timer.scheduleAtFixedRate(() -> {
             try {
                 for (Wechat wx : WECHAT_CONFIGS.values()) {
                     String accessToken = jedisClient.valueOps().get(wx.accessTokenKey);
@@ -101,7 +98,7 @@ public class WechatTokenManager implements DisposableBean {
             } catch (Throwable t) {
                 logger.error("load token from cache occur error", t);
             }
-        }, 2, CACHE_REFRESH_SECONDS, TimeUnit.SECONDS);
+        }, 2, CACHE_REFRESH_SECONDS, TimeUnit.SECONDS, HashedWheelTimer.ioExecutor());
     }
 
     /**
@@ -168,12 +165,8 @@ public class WechatTokenManager implements DisposableBean {
     }
 
     public @Override void destroy() {
-        try {
-            this.scheduled.shutdown();
-        } catch (Exception ignored) {
-            ignored.printStackTrace();
-        }
-        this.scheduled = null;
+        this.refreshTask.cancel();
+        this.loadTask.cancel();
     }
 
     // -----------------------------------private methods--------------------------------- //
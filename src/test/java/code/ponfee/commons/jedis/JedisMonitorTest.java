@@ -0,0 +1,112 @@
+package code.ponfee.commons.jedis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPool;
+
+/**
+ * 借出ShardedJedis不会建立连接，故无需redis服务端
+ *
+ * @author Ponfee
+ */
+public class JedisMonitorTest {
+
+    private ShardedJedisPool pool;
+    private JedisMonitor monitor;
+
+    @Before
+    public void setup() {
+        GenericObjectPoolConfig cfg = new GenericObjectPoolConfig();
+        cfg.setMaxTotal(16);
+        cfg.setTestOnBorrow(false);
+        pool = new ShardedJedisPool(cfg, Arrays.asList(
+            new JedisShardInfo("127.0.0.1", 6379, "s1"), new JedisShardInfo("127.0.0.1", 6380, "s2")
+        ));
+        monitor = new JedisMonitor("test", pool);
+    }
+
+    @After
+    public void teardown() {
+        monitor.close();
+        pool.close();
+    }
+
+    @Test
+    public void testRecord() {
+        monitor.recordBorrow(TimeUnit.MILLISECONDS.toNanos(2), true);
+        monitor.recordBorrow(TimeUnit.MILLISECONDS.toNanos(4), true);
+        monitor.recordBorrow(0, false);
+        Assert.assertEquals(2, monitor.getBorrowCount());
+        Assert.assertEquals(1, monitor.getBorrowFailureCount());
+        Assert.assertEquals(3000D, monitor.getBorrowWaitMeanMicros(), 0.0D);
+
+        try (ShardedJedis jedis = pool.getResource()) {
+            String shard = jedis.getShardInfo("key1").getName();
+            monitor.recordCommand(jedis, new Object[] { "key1" }, TimeUnit.MICROSECONDS.toNanos(100), true);
+            monitor.recordCommand(jedis, new Object[] { "key1".getBytes() }, TimeUnit.MICROSECONDS.toNanos(300), false);
+            monitor.recordCommand(jedis, new Object[0], 0, true);
+            Assert.assertEquals(Long.valueOf(2), monitor.getShardCommandCounts().get(shard));
+            Assert.assertEquals(Long.valueOf(1), monitor.getShardErrorCounts().get(shard));
+            Assert.assertEquals(Long.valueOf(1), monitor.getShardCommandCounts().get("*"));
+            Assert.assertEquals(300, monitor.shardLatencyHistogram(shard).max());
+        }
+
+        monitor.reset();
+        Assert.assertEquals(0, monitor.getBorrowCount());
+        Assert.assertTrue(monitor.getShardCommandCounts().isEmpty());
+    }
+
+    @Test
+    public void testAdaptiveGrow() {
+        Assert.assertEquals(16, monitor.getMaxTotal());
+        for (int i = 0; i < 100; i++) {
+            monitor.recordBorrow(TimeUnit.MILLISECONDS.toNanos(50), true);
+        }
+        monitor.adjust(4, 18, TimeUnit.MILLISECONDS.toMicros(10));
+        Assert.assertEquals(18, monitor.getMaxTotal()); // 16+4，受上限限制
+
+        // 周期统计已重置，无等待时不再扩大
+        monitor.adjust(4, 64, TimeUnit.MILLISECONDS.toMicros(10));
+        Assert.assertTrue(monitor.getMaxTotal() <= 18);
+    }
+
+    @Test
+    public void testAdaptiveShrink() {
+        monitor.recordBorrow(TimeUnit.MICROSECONDS.toNanos(10), true);
+        monitor.adjust(4, 64, TimeUnit.MILLISECONDS.toMicros(10));
+        Assert.assertEquals(14, monitor.getMaxTotal()); // 16-2
+
+        monitor.setMaxTotal(5);
+        monitor.adjust(4, 64, TimeUnit.MILLISECONDS.toMicros(10));
+        Assert.assertEquals(4, monitor.getMaxTotal());
+        monitor.adjust(4, 64, TimeUnit.MILLISECONDS.toMicros(10));
+        Assert.assertEquals(4, monitor.getMaxTotal()); // 不低于下限
+    }
+
+    @Test
+    public void testAdaptiveKeepWhenBusy() {
+        List<ShardedJedis> borrowed = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            borrowed.add(pool.getResource());
+        }
+        try {
+            Assert.assertEquals(8, monitor.getNumActive());
+            monitor.adjust(4, 64, TimeUnit.MILLISECONDS.toMicros(10));
+            Assert.assertEquals(16, monitor.getMaxTotal()); // 活跃连接不少于一半，不缩小
+        } finally {
+            borrowed.forEach(ShardedJedis::close);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package test.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import code.ponfee.commons.collect.BigByteArray;
+import code.ponfee.commons.collect.BigIntArray;
+import code.ponfee.commons.collect.BigLongArray;
+
+public class BigArrayTest {
+
+    private static final int CHUNK_SHIFT = 12; // 4KB一块，覆盖跨块读写
+
+    @Test
+    public void testLongArray() {
+        int n = 100000;
+        long[] expect = new Random(1).longs(n).toArray();
+        try (BigLongArray array = BigLongArray.allocateDirect(n, CHUNK_SHIFT)) {
+            array.set(0, expect, 0, n);
+            for (int i = 0; i < n; i += 97) {
+                assertEquals(expect[i], array.get(i));
+            }
+            long[] actual = new long[n];
+            array.get(0, actual, 0, n);
+            assertArrayEquals(expect, actual);
+
+            // 重叠复制
+            array.copyTo(10, array, 1000, 5000);
+            System.arraycopy(expect, 10, expect, 1000, 5000);
+            array.copyTo(2000, array, 5, 3000);
+            System.arraycopy(expect, 2000, expect, 5, 3000);
+            array.fill(50000, 60000, -1);
+            Arrays.fill(expect, 50000, 60000, -1);
+            array.get(0, actual, 0, n);
+            assertArrayEquals(expect, actual);
+
+            array.sort();
+            Arrays.sort(expect);
+            array.get(0, actual, 0, n);
+            assertArrayEquals(expect, actual);
+            for (int i = 0; i < n; i += 1013) {
+                assertEquals(expect[i], array.get(array.binarySearch(expect[i])));
+            }
+            assertTrue(array.binarySearch(Long.MIN_VALUE) < 0 || expect[0] == Long.MIN_VALUE);
+        }
+    }
+
+    @Test
+    public void testParallelSort() {
+        int n = 3000000; // 超过堆内排序阈值，走并行快速排序
+        int[] expect = new Random(2).ints(n, -1000000, 1000000).toArray();
+        try (BigIntArray array = BigIntArray.allocateDirect(n, 20)) {
+            array.set(0, expect, 0, n);
+            array.sort();
+            Arrays.sort(expect);
+            int[] actual = new int[n];
+            array.get(0, actual, 0, n);
+            assertArrayEquals(expect, actual);
+        }
+    }
+
+    @Test
+    public void testByteArray() {
+        int n = 50000;
+        byte[] expect = new byte[n];
+        new Random(3).nextBytes(expect);
+        try (BigByteArray array = BigByteArray.allocateDirect(n, CHUNK_SHIFT)) {
+            array.set(0, expect, 0, n);
+            array.sort(100, 40000);
+            Arrays.sort(expect, 100, 40000);
+            byte[] actual = new byte[n];
+            array.get(0, actual, 0, n);
+            assertArrayEquals(expect, actual);
+        }
+    }
+
+    @Test
+    public void testMapped() throws IOException {
+        File file = File.createTempFile("big-array", ".bin");
+        file.deleteOnExit();
+        int n = 20000;
+        try (BigLongArray array = BigLongArray.map(file, n, CHUNK_SHIFT)) {
+            for (long i = 0; i < n; i++) {
+                array.set(i, i * i);
+            }
+        }
+        assertEquals(n * 8L, file.length());
+
+        try (BigLongArray array = BigLongArray.mapReadOnly(file)) {
+            assertEquals(n, array.length());
+            assertEquals(19999L * 19999L, array.get(19999));
+            assertEquals(12345L * 12345L, array.get(array.binarySearch(12345L * 12345L)));
+        }
+        try (BigIntArray array = BigIntArray.mapReadOnly(file)) {
+            assertEquals(n * 2, array.length()); // 同一文件按int读取（小端序）
+            assertEquals(3 * 3, array.get(6));
+        }
+        assertTrue(file.delete());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        BigLongArray array = BigLongArray.allocateDirect(10);
+        array.close();
+        array.close(); // 重复关闭无影响
+        array.get(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        try (BigIntArray array = BigIntArray.allocateDirect(10)) {
+            array.get(10);
+        }
+    }
+
+}
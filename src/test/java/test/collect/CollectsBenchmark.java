@@ -0,0 +1,93 @@
+package test.collect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import code.ponfee.commons.collect.Collects;
+
+/**
+ * <pre>
+ * Collects集合运算基准测试：原实现（list.contains，O(n*m)）与哈希/sort-merge/原始类型实现对比
+ *   两个list各size个元素，约一半重合
+ *
+ *   java [-Dbench.sizes=1000,10000,100000 -Dbench.legacy.max=20000] test.collect.CollectsBenchmark
+ * </pre>
+ */
+public class CollectsBenchmark {
+
+    private static final String SIZES = System.getProperty("bench.sizes", "1000,10000,100000");
+    private static final int LEGACY_MAX = Integer.getInteger("bench.legacy.max", 20000); // 原实现耗时过长时跳过
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s%-24s%14s%10s%n", "size", "operation", "millis", "result");
+        for (String s : SIZES.split(",")) {
+            int size = Integer.parseInt(s.trim());
+            List<Long> list1 = random(size, 1), list2 = random(size, 2);
+            long[] array1 = list1.stream().mapToLong(Long::longValue).toArray(),
+                   array2 = list2.stream().mapToLong(Long::longValue).toArray();
+            List<Long> sorted1 = new ArrayList<>(list1), sorted2 = new ArrayList<>(list2);
+            Collections.sort(sorted1);
+            Collections.sort(sorted2);
+
+            if (size <= LEGACY_MAX) {
+                run(size, "legacy intersect", () -> legacyIntersect(list1, list2).length);
+                run(size, "legacy different", () -> legacyDifferent(list1, list2).size());
+            }
+            run(size, "hash intersect", () -> length(Collects.intersect(list1, list2)));
+            run(size, "hash union", () -> length(Collects.union(list1, list2)));
+            run(size, "hash different", () -> Collects.different(list1, list2).size());
+            run(size, "merge intersect(sorted)", () -> Collects.intersectSorted(sorted1, sorted2).size());
+            run(size, "merge different(sorted)", () -> Collects.differentSorted(sorted1, sorted2).size());
+            run(size, "long[] intersect", () -> Collects.intersect(array1, array2).length);
+            run(size, "long[] different", () -> Collects.different(array1, array2).length);
+        }
+    }
+
+    private static void run(int size, String name, Supplier<Integer> action) {
+        action.get(); // warmup
+        long start = System.nanoTime();
+        int result = action.get();
+        System.out.printf("%-10d%-24s%14.2f%10d%n", size, name, (System.nanoTime() - start) / 1e6, result);
+    }
+
+    /**
+     * Collects.intersect/union(List, List)返回的数组运行时类型为Object[]
+     */
+    private static int length(Object[] array) {
+        return array.length;
+    }
+
+    /**
+     * 取值范围为size*1.5，两个list约一半元素重合
+     */
+    static List<Long> random(int size, long seed) {
+        Random random = new Random(seed);
+        List<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((long) random.nextInt(size + size / 2));
+        }
+        return list;
+    }
+
+    // ------------------------------------------------------------原实现
+    static <E> Object[] legacyIntersect(List<E> list1, List<E> list2) {
+        return list1.stream().filter(list2::contains).toArray();
+    }
+
+    static <E> Object[] legacyUnion(List<E> list1, List<E> list2) {
+        List<E> list = new ArrayList<>(list1);
+        list.addAll(list2);
+        return list.stream().distinct().toArray();
+    }
+
+    static <E> List<E> legacyDifferent(List<E> list1, List<E> list2) {
+        List<E> list = list1.stream().filter(t -> !list2.contains(t)).collect(Collectors.toList());
+        list.addAll(list2.stream().filter(t -> !list1.contains(t)).collect(Collectors.toList()));
+        return list;
+    }
+
+}
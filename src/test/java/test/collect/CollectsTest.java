@@ -0,0 +1,73 @@
+package test.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import code.ponfee.commons.collect.Collects;
+
+public class CollectsTest {
+
+    @Test
+    public void testSameAsLegacy() {
+        // 覆盖线性、哈希（较小的一方建表）与并行三种路径
+        for (int[] sizes : new int[][] { { 5, 7 }, { 100, 3000 }, { 3000, 100 }, { 5000, 5000 }, { 80000, 2000 } }) {
+            List<Long> list1 = CollectsBenchmark.random(sizes[0], 1), list2 = CollectsBenchmark.random(sizes[1], 2);
+            list1.add(null); // null与原实现一致
+            assertArrayEquals(CollectsBenchmark.legacyIntersect(list1, list2), Collects.intersect(list1, list2));
+            assertArrayEquals(CollectsBenchmark.legacyUnion(list1, list2), Collects.union(list1, list2));
+            assertEquals(CollectsBenchmark.legacyDifferent(list1, list2), Collects.different(list1, list2));
+        }
+    }
+
+    @Test
+    public void testArrayIntersect() {
+        String[] result = Collects.intersect(new String[] { "a", "b", "c", "b" }, Arrays.asList("b", "c", "d"));
+        assertArrayEquals(new String[] { "b", "c", "b" }, result);
+    }
+
+    @Test
+    public void testSorted() {
+        List<Integer> a = Arrays.asList(1, 2, 2, 3, 5), b = Arrays.asList(2, 2, 4, 5, 6);
+        assertEquals(Arrays.asList(2, 2, 5), Collects.intersectSorted(a, b));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), Collects.unionSorted(a, b));
+        assertEquals(Arrays.asList(1, 3, 4, 6), Collects.differentSorted(a, b));
+        assertEquals(Collections.emptyList(), Collects.intersectSorted(a, Collections.<Integer> emptyList()));
+
+        List<Long> list1 = CollectsBenchmark.random(10000, 1), list2 = CollectsBenchmark.random(10000, 2);
+        TreeSet<Long> set1 = new TreeSet<>(list1), set2 = new TreeSet<>(list2);
+        TreeSet<Long> union = new TreeSet<>(set1);
+        union.addAll(set2);
+        TreeSet<Long> intersect = new TreeSet<>(set1);
+        intersect.retainAll(set2);
+        assertEquals(new ArrayList<>(union), Collects.unionSorted(new ArrayList<>(set1), new ArrayList<>(set2)));
+        assertEquals(new ArrayList<>(intersect), Collects.intersectSorted(new ArrayList<>(set1), new ArrayList<>(set2)));
+    }
+
+    @Test
+    public void testPrimitive() {
+        assertArrayEquals(new long[] { 2, 3, 3 }, Collects.intersect(new long[] { 1, 2, 3, 3 }, new long[] { 2, 3, 4 }));
+        assertArrayEquals(new long[] { 1, 2, 3, 4 }, Collects.union(new long[] { 1, 2, 3, 3 }, new long[] { 2, 3, 4 }));
+        assertArrayEquals(new long[] { 1, 4 }, Collects.different(new long[] { 1, 2, 3 }, new long[] { 2, 3, 4 }));
+        assertArrayEquals(new int[] { 0, 2 }, Collects.intersect(new int[] { 0, 1, 2 }, new int[] { 2, 0 }));
+        assertArrayEquals(new int[] { 0, 1, 2, 5 }, Collects.union(new int[] { 0, 1, 2 }, new int[] { 2, 5 }));
+        assertArrayEquals(new int[] { 1, 5 }, Collects.different(new int[] { 0, 1, 2 }, new int[] { 2, 0, 5 }));
+
+        List<Long> list1 = CollectsBenchmark.random(100000, 1), list2 = CollectsBenchmark.random(50000, 2);
+        long[] array1 = list1.stream().mapToLong(Long::longValue).toArray(),
+               array2 = list2.stream().mapToLong(Long::longValue).toArray();
+        Object[] intersect = Collects.intersect(list1, list2); // 运行时类型为Object[]
+        assertArrayEquals(Arrays.stream(intersect).mapToLong(o -> (Long) o).toArray(),
+                          Collects.intersect(array1, array2));
+        assertArrayEquals(Collects.different(list1, list2).stream().mapToLong(Long::longValue).toArray(),
+                          Collects.different(array1, array2));
+    }
+
+}
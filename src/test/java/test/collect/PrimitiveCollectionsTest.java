@@ -0,0 +1,190 @@
+package test.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import code.ponfee.commons.collect.IntHashSet;
+import code.ponfee.commons.collect.IntIntMap;
+import code.ponfee.commons.collect.IntList;
+import code.ponfee.commons.collect.LongHashSet;
+import code.ponfee.commons.collect.LongList;
+import code.ponfee.commons.collect.LongLongMap;
+import code.ponfee.commons.collect.LongObjectMap;
+
+public class PrimitiveCollectionsTest {
+
+    private static final int ROUNDS = 200000;
+
+    @Test
+    public void testIntList() {
+        IntList list = new IntList();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        assertEquals(1000, list.size());
+        assertEquals(999, list.get(999));
+        list.add(0, -1);
+        assertEquals(-1, list.get(0));
+        assertEquals(-1, list.removeAt(0));
+        assertTrue(list.removeValue(500));
+        assertFalse(list.contains(500));
+        assertEquals(999, list.size());
+        list.addAll(7, 8, 9);
+        assertEquals(9, list.get(list.size() - 1));
+        IntList unsorted = IntList.of(3, 1, 2);
+        unsorted.sort();
+        assertEquals(IntList.of(1, 2, 3), unsorted);
+        assertEquals(6, IntList.of(1, 2, 3).stream().sum());
+        assertEquals("[1,2,3]", IntList.of(1, 2, 3).toString());
+    }
+
+    @Test
+    public void testLongList() {
+        LongList list = new LongList(2);
+        list.addAll(new long[] { 1L << 40, 2, 3 });
+        list.addAll(LongList.of(4, 5));
+        assertArrayEquals(new long[] { 1L << 40, 2, 3, 4, 5 }, list.toArray());
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testIntHashSet() {
+        Random random = new Random(1);
+        IntHashSet set = new IntHashSet(4);
+        Set<Integer> expect = new HashSet<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            int value = random.nextInt(20000) - 10000; // 含0与负数
+            if (random.nextInt(3) == 0) {
+                assertEquals(expect.remove(value), set.remove(value));
+            } else {
+                assertEquals(expect.add(value), set.add(value));
+            }
+        }
+        assertEquals(expect.size(), set.size());
+        for (int value = -10000; value < 10000; value++) {
+            assertEquals(expect.contains(value), set.contains(value));
+        }
+
+        Set<Integer> actual = new HashSet<>();
+        for (PrimitiveIterator.OfInt iter = set.iterator(); iter.hasNext(); ) {
+            actual.add(iter.nextInt());
+        }
+        assertEquals(expect, actual);
+        assertEquals(expect.size(), set.toArray().length);
+
+        IntHashSet other = IntHashSet.of(0, 1, 2, 3, 4, 5);
+        set.retainAll(other);
+        expect.retainAll(Arrays.asList(0, 1, 2, 3, 4, 5));
+        assertEquals(expect.size(), set.size());
+        expect.forEach(v -> assertTrue(set.contains(v)));
+    }
+
+    @Test
+    public void testLongHashSet() {
+        Random random = new Random(2);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expect = new HashSet<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            long value = (random.nextInt(20000) - 10000) * 4096L; // 低位相同的ID
+            if (random.nextInt(3) == 0) {
+                assertEquals(expect.remove(value), set.remove(value));
+            } else {
+                assertEquals(expect.add(value), set.add(value));
+            }
+        }
+        assertEquals(expect.size(), set.size());
+        Set<Long> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expect, actual);
+        assertEquals(LongHashSet.of(1, 2, 3), LongHashSet.of(3, 2, 1));
+    }
+
+    @Test
+    public void testIntIntMap() {
+        Random random = new Random(3);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expect = new HashMap<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            int key = random.nextInt(10000) - 5000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expect.getOrDefault(key, 0).intValue(), map.remove(key));
+                    expect.remove(key);
+                    break;
+                case 1:
+                    assertEquals(expect.merge(key, 1, Integer::sum).intValue(), map.addTo(key, 1));
+                    break;
+                default:
+                    Integer old = expect.put(key, i);
+                    assertEquals(old == null ? 0 : old, map.put(key, i));
+            }
+        }
+        assertEquals(expect.size(), map.size());
+        expect.forEach((k, v) -> assertEquals(v.intValue(), map.get(k)));
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expect, actual);
+
+        IntIntMap absent = new IntIntMap(8, 0.5F, -1);
+        assertEquals(-1, absent.get(1));
+        assertEquals(-1, absent.put(1, 5));
+        assertEquals(4, absent.addTo(2, 5));
+    }
+
+    @Test
+    public void testLongLongMap() {
+        LongLongMap map = new LongLongMap(2);
+        for (long i = 0; i < 10000; i++) {
+            map.addTo(i % 100, i);
+        }
+        assertEquals(100, map.size());
+        assertEquals(495000, map.get(0));
+        long[] keys = map.keys(), values = map.values();
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(map.get(keys[i]), values[i]);
+        }
+        LongLongMap copy = new LongLongMap();
+        copy.putAll(map);
+        assertEquals(map.size(), copy.size());
+        assertEquals(map.get(99), copy.remove(99));
+        assertFalse(copy.containsKey(99));
+    }
+
+    @Test
+    public void testLongObjectMap() {
+        Random random = new Random(4);
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expect = new HashMap<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            long key = random.nextInt(10000) - 5000L;
+            if (random.nextBoolean()) {
+                assertEquals(expect.remove(key), map.remove(key));
+            } else {
+                assertEquals(expect.put(key, "v" + i), map.put(key, "v" + i));
+            }
+        }
+        assertEquals(expect.size(), map.size());
+        expect.forEach((k, v) -> assertEquals(v, map.get(k)));
+        assertNull(map.get(Long.MAX_VALUE));
+        assertEquals("x", map.computeIfAbsent(Long.MAX_VALUE, k -> "x"));
+        assertEquals(expect.size() + 1, map.values().size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+    }
+
+}
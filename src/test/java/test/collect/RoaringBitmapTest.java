@@ -0,0 +1,154 @@
+package test.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import code.ponfee.commons.collect.RoaringBitmap;
+
+public class RoaringBitmapTest {
+
+    @Test
+    public void testSameAsTreeSet() {
+        Random random = new Random(1);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Long> expect = new TreeSet<>();
+        for (int i = 0; i < 300000; i++) {
+            // 稀疏、稠密与负数区间混合，覆盖array/bitmap容器互相转换
+            long value = random.nextBoolean() ? random.nextInt(1 << 18) - 50000L : random.nextInt(5000) * 977L;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expect.remove(value), bitmap.remove(value));
+            } else {
+                bitmap.add(value);
+                expect.add(value);
+            }
+        }
+        assertEquals(expect.size(), bitmap.getCardinality());
+        assertArrayEquals(toArray(expect), bitmap.toArray());
+        assertEquals(expect.first().longValue(), bitmap.first());
+        assertEquals(expect.last().longValue(), bitmap.last());
+
+        PrimitiveIterator.OfLong iter = bitmap.iterator();
+        for (long v : expect) {
+            assertEquals(v, iter.nextLong());
+        }
+        assertFalse(iter.hasNext());
+
+        List<Long> list = new ArrayList<>(expect);
+        for (int i = 0; i < 1000; i++) {
+            int j = random.nextInt(list.size());
+            long v = list.get(j);
+            assertEquals(v, bitmap.select(j));
+            assertEquals(j + 1, bitmap.rank(v));
+            assertEquals(expect.headSet(v + 1, false).size(), bitmap.rank(v));
+        }
+
+        bitmap.runOptimize();
+        assertArrayEquals(toArray(expect), bitmap.toArray());
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        Random random = new Random(2);
+        for (int round = 0; round < 20; round++) {
+            RoaringBitmap a = new RoaringBitmap(), b = new RoaringBitmap();
+            TreeSet<Long> sa = new TreeSet<>(), sb = new TreeSet<>();
+            int bound = 1 << (10 + round % 10);
+            for (int i = 0; i < 20000; i++) {
+                long x = random.nextInt(bound), y = random.nextInt(bound) + bound / 4;
+                a.add(x);
+                sa.add(x);
+                b.add(y);
+                sb.add(y);
+            }
+            if (round % 2 == 0) {
+                a.addRange(bound, bound + 100000);
+                for (long v = bound; v < bound + 100000; v++) {
+                    sa.add(v);
+                }
+                a.runOptimize();
+            }
+
+            TreeSet<Long> and = new TreeSet<>(sa), or = new TreeSet<>(sa), andNot = new TreeSet<>(sa), xor = new TreeSet<>(sa);
+            and.retainAll(sb);
+            or.addAll(sb);
+            andNot.removeAll(sb);
+            xor.addAll(sb);
+            xor.removeAll(and);
+            assertArrayEquals(toArray(and), RoaringBitmap.and(a, b).toArray());
+            assertArrayEquals(toArray(or), RoaringBitmap.or(a, b).toArray());
+            assertArrayEquals(toArray(andNot), RoaringBitmap.andNot(a, b).toArray());
+            assertArrayEquals(toArray(xor), RoaringBitmap.xor(a, b).toArray());
+            assertEquals(and.size(), RoaringBitmap.andCardinality(a, b));
+        }
+    }
+
+    @Test
+    public void testSerialize() {
+        RoaringBitmap bitmap = RoaringBitmap.of(-1, 0, 1, 65535, 65536, Long.MAX_VALUE, Long.MIN_VALUE);
+        bitmap.addRange(1000000, 1300000);
+        for (long i = 0; i < 10000; i++) {
+            bitmap.add(5000000 + i * 3);
+        }
+        byte[] data = bitmap.serialize();
+        assertEquals(bitmap.serializedSizeInBytes(), data.length);
+        RoaringBitmap copy = RoaringBitmap.deserialize(data);
+        assertEquals(bitmap, copy);
+        assertArrayEquals(bitmap.toArray(), copy.toArray());
+
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 10);
+        buffer.position(3);
+        bitmap.serialize(buffer);
+        assertEquals(3 + data.length, buffer.position());
+        buffer.position(3);
+        assertEquals(bitmap, RoaringBitmap.deserialize(buffer));
+
+        assertTrue(RoaringBitmap.deserialize(new RoaringBitmap().serialize()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeserializeTruncated() {
+        byte[] data = RoaringBitmap.of(1, 2, 3).serialize();
+        RoaringBitmap.deserialize(java.util.Arrays.copyOf(data, data.length - 1));
+    }
+
+    @Test
+    public void testDenseMemory() {
+        int n = 10000000;
+        RoaringBitmap dense = new RoaringBitmap();
+        for (long id = 100000000; id < 100000000 + n; id++) {
+            if (id % 10 != 0) { // 90%稠密
+                dense.add(id);
+            }
+        }
+        // 位图约1bit/ID，Set<Long>约为每个ID 50~60字节
+        System.out.printf("dense: %.3f bytes/id, serialized %d bytes%n",
+                          (double) dense.getSizeInBytes() / dense.getCardinality(), dense.serialize().length);
+        assertTrue(dense.getSizeInBytes() < dense.getCardinality() / 6);
+
+        RoaringBitmap range = new RoaringBitmap();
+        range.addRange(0, n);
+        assertEquals(n, range.getCardinality());
+        assertTrue(range.serialize().length < 4000); // 153个run容器，每个21字节
+
+        long start = System.nanoTime();
+        long card = RoaringBitmap.andCardinality(dense, range);
+        System.out.printf("and cardinality %d in %.2fms%n", card, (System.nanoTime() - start) / 1e6);
+        assertEquals(RoaringBitmap.and(dense, range).getCardinality(), card);
+    }
+
+    private static long[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+
+}
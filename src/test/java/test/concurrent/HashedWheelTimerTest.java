@@ -0,0 +1,113 @@
+package test.concurrent;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+
+import code.ponfee.commons.concurrent.HashedWheelTimer;
+import code.ponfee.commons.concurrent.HashedWheelTimer.Timeout;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 16, null);
+        CountDownLatch latch = new CountDownLatch(1);
+        Stopwatch watch = Stopwatch.createStarted();
+        timer.newTimeout(latch::countDown, 300, TimeUnit.MILLISECONDS); // 超过一圈
+        AtomicInteger cancelled = new AtomicInteger();
+        Timeout timeout = timer.newTimeout(cancelled::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        long elapsed = watch.elapsed(TimeUnit.MILLISECONDS);
+        Assert.assertTrue(elapsed >= 300 && elapsed < 400);
+        Assert.assertEquals(0, cancelled.get());
+        Assert.assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 64, null);
+        AtomicInteger count = new AtomicInteger();
+        Timeout timeout = timer.scheduleAtFixedRate(count::incrementAndGet, 0, 50, TimeUnit.MILLISECONDS);
+        Thread.sleep(525);
+        timeout.cancel();
+        int n = count.get();
+        Assert.assertTrue(n >= 9 && n <= 12);
+        Thread.sleep(100);
+        Assert.assertEquals(n, count.get());
+        timer.stop();
+    }
+
+    @Test
+    public void testMillions() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 512, null);
+        AtomicInteger fired = new AtomicInteger();
+        Stopwatch watch = Stopwatch.createStarted();
+        for (int i = 0; i < 1_000_000; i++) {
+            timer.newTimeout(fired::incrementAndGet, 100 + i % 500, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("schedule 1,000,000 timeouts " + watch.stop());
+        Thread.sleep(1500);
+        Assert.assertEquals(1_000_000, fired.get());
+        timer.stop();
+    }
+
+    @Test
+    public void testTaskExecutor() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 64, null);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-io"));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(3);
+        Timeout timeout = timer.scheduleAtFixedRate(() -> {
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+        }, 0, 20, TimeUnit.MILLISECONDS, executor);
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        timeout.cancel();
+        Assert.assertEquals(Collections.singleton("test-io"), threads); // 时间轮只负责触发
+
+        CountDownLatch once = new CountDownLatch(1);
+        timer.newTimeout(() -> {
+            threads.add(Thread.currentThread().getName() + "-once");
+            once.countDown();
+        }, 30, TimeUnit.MILLISECONDS, executor);
+        Assert.assertTrue(once.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(threads.contains("test-io-once"));
+        timer.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testNeverEarlyOrDropped() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8, null);
+        int count = 500;
+        AtomicInteger early = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            long delay = i % 250, start = System.nanoTime(); // 0~3圈
+            timer.newTimeout(() -> {
+                if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(delay)) {
+                    early.incrementAndGet();
+                }
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(0, early.get());
+        Assert.assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+}
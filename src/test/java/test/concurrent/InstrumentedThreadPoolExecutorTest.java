@@ -0,0 +1,152 @@
+package test.concurrent;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.InstrumentedThreadPoolExecutor;
+import code.ponfee.commons.concurrent.ResizableBlockingQueue;
+import code.ponfee.commons.concurrent.ThreadPoolExecutors;
+import code.ponfee.commons.concurrent.ThreadPoolRegistry;
+
+public class InstrumentedThreadPoolExecutorTest {
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolExecutors.create(2, 2, 60, 100, "test-metrics");
+        InstrumentedThreadPoolExecutor executor = (InstrumentedThreadPoolExecutor) pool;
+        Assert.assertNull(ThreadPoolRegistry.get(executor.getName())); // 默认不注册
+        executor.register();
+        Assert.assertSame(executor, ThreadPoolRegistry.get(executor.getName()));
+
+        CountDownLatch latch = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            executor.submit(() -> {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ignored) {
+                    // ignored
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(20, executor.getSubmittedCount());
+        Assert.assertEquals(20, executor.execHistogram().count());
+        Assert.assertTrue(executor.getExecP99Micros() >= 5000);
+        Assert.assertTrue(executor.getQueueWaitMaxMicros() > 0);
+        Assert.assertNull(ThreadPoolRegistry.get(executor.getName())); // 终止后注销
+    }
+
+    @Test
+    public void testOriginalTaskInQueue() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = (InstrumentedThreadPoolExecutor) ThreadPoolExecutors.create(
+            1, 1, 60, 10, "test-original"
+        );
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException ignored) {
+                // ignored
+            }
+        });
+        Runnable queued1 = () -> {}, queued2 = () -> {};
+        executor.execute(queued1);
+        executor.execute(queued2);
+        Assert.assertEquals(2, executor.getQueueSize());
+        Assert.assertTrue(executor.remove(queued1));
+        Assert.assertFalse(executor.remove(queued1));
+        Assert.assertEquals(Collections.singletonList(queued2), executor.shutdownNow());
+        block.countDown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executor.execHistogram().count());
+    }
+
+    @Test
+    public void testQueueWaitForExecute() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = (InstrumentedThreadPoolExecutor) ThreadPoolExecutors.create(
+            1, 1, 60, 10, "test-execute"
+        );
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException ignored) {
+                // ignored
+            }
+        });
+        executor.execute(() -> {});
+        Thread.sleep(20);
+        block.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.queueWaitHistogram().count());
+        Assert.assertTrue(executor.getQueueWaitMaxMicros() >= 20000);
+    }
+
+    @Test
+    public void testCreateRegistered() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolExecutors.createRegistered(1, 1, 60, 10, "test-registered");
+        Assert.assertSame(executor, ThreadPoolRegistry.get(executor.getName()));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assert.assertNull(ThreadPoolRegistry.get(executor.getName()));
+    }
+
+    @Test
+    public void testFailedCount() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = (InstrumentedThreadPoolExecutor) ThreadPoolExecutors.create(
+            1, 1, 60, 10, "test-failed"
+        );
+        executor.submit(() -> {
+            throw new IllegalStateException();
+        });
+        executor.submit(() -> {});
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executor.getFailedCount());
+        Assert.assertEquals(2, executor.queueWaitHistogram().count());
+    }
+
+    @Test
+    public void testResize() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolExecutors.create(1, 1, 60, 1, "test-resize", 
+                                                             new ThreadPoolExecutor.AbortPolicy());
+        InstrumentedThreadPoolExecutor executor = (InstrumentedThreadPoolExecutor) pool;
+        CountDownLatch block = new CountDownLatch(1);
+        Runnable task = () -> {
+            try {
+                block.await();
+            } catch (InterruptedException ignored) {
+                // ignored
+            }
+        };
+        executor.execute(task); // running
+        executor.execute(task); // queued
+        try {
+            executor.execute(task);
+            Assert.fail();
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+        }
+
+        executor.setQueueCapacity(2);
+        executor.execute(task);
+        Assert.assertEquals(2, executor.getQueueSize());
+
+        executor.resize(4, 4);
+        Assert.assertEquals(4, executor.getMaximumPoolSize());
+        Assert.assertTrue(executor.getQueue() instanceof ResizableBlockingQueue);
+        block.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
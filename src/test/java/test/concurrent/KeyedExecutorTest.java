@@ -0,0 +1,112 @@
+package test.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.KeyedExecutor;
+
+public class KeyedExecutorTest {
+
+    @Test
+    public void testOrdered() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor("test-keyed", 4, 128);
+        int keys = 50, count = 200;
+        AtomicIntegerArray last = new AtomicIntegerArray(keys);
+        AtomicIntegerArray running = new AtomicIntegerArray(keys);
+        AtomicInteger disorder = new AtomicInteger(), concurrent = new AtomicInteger();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int offset = p;
+            producers[p] = new Thread(() -> {
+                for (int seq = 1; seq <= count; seq++) {
+                    for (int key = offset; key < keys; key += producers.length) {
+                        int k = key, s = seq;
+                        executor.execute(k, () -> {
+                            if (running.incrementAndGet(k) > 1) {
+                                concurrent.incrementAndGet();
+                            }
+                            if (last.getAndSet(k, s) != s - 1) {
+                                disorder.incrementAndGet();
+                            }
+                            running.decrementAndGet(k);
+                        });
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, disorder.get());
+        Assert.assertEquals(0, concurrent.get());
+        for (int i = 0; i < keys; i++) {
+            Assert.assertEquals(count, last.get(i));
+        }
+        Assert.assertEquals(keys * count, executor.getExecHistogram().count());
+    }
+
+    @Test
+    public void testSteal() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor("test-keyed", 4, 1024);
+        CountDownLatch block = new CountDownLatch(1), done = new CountDownLatch(100);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(i, () -> { // 阻塞所有通道
+                try {
+                    block.await();
+                } catch (InterruptedException ignored) {
+                    // ignored
+                }
+            });
+        }
+        Thread.sleep(50);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(done::countDown); // 无序任务，积压在各通道
+        }
+        Assert.assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        block.countDown();
+        Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.tryExecute(null, () -> {}));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        System.out.println(executor.snapshot());
+    }
+
+    @Test
+    public void testUnorderedUsesAnyFreeLane() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor("test-unordered", 2, 1);
+        CountDownLatch block = new CountDownLatch(1), running = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException ignored) {
+                    // ignored
+                }
+            });
+        }
+        Assert.assertTrue(running.await(1, TimeUnit.SECONDS));
+
+        // 两个通道都在执行中，各自的无序队列还可以放一个任务：提交两个都不应阻塞
+        Thread producer = new Thread(() -> {
+            executor.execute(() -> {});
+            executor.execute(() -> {});
+        });
+        producer.start();
+        producer.join(1000);
+        Assert.assertFalse(producer.isAlive());
+        Assert.assertEquals(2, executor.getQueueSize());
+
+        block.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,56 @@
+package test.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.LoadDriver;
+
+public class LoadDriverTest {
+
+    @Test
+    public void testClosedLoop() {
+        AtomicInteger count = new AtomicInteger();
+        LoadDriver.Result result = LoadDriver.newBuilder().threads(4)
+            .warmup(200, TimeUnit.MILLISECONDS).duration(1, TimeUnit.SECONDS)
+            .build().run(() -> {
+                if (count.incrementAndGet() % 100 == 0) {
+                    throw new IllegalStateException();
+                }
+            });
+        System.out.println(result);
+        Assert.assertTrue(result.getCount() > 0);
+        Assert.assertTrue(result.getErrors() > 0);
+        Assert.assertTrue(result.getCount() <= count.get());
+        Assert.assertEquals(result.getCount(), sum(result.getTimeline()));
+    }
+
+    @Test
+    public void testFixedRate() {
+        // 服务每隔一段时间卡顿50ms，固定速率模式下卡顿期间排定的请求都计入延迟
+        AtomicInteger count = new AtomicInteger();
+        LoadDriver.Result result = LoadDriver.newBuilder().threads(1)
+            .duration(2, TimeUnit.SECONDS).ratePerSecond(1000)
+            .build().run(() -> {
+                if (count.incrementAndGet() % 500 == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                }
+            });
+        System.out.println(result.toCsv());
+        System.out.println(result.toJson());
+        Assert.assertEquals(2000, result.getCount(), 20);
+        Assert.assertTrue(result.getLatencyMicros().get("p99") > result.getServiceMicros().get("p99"));
+        Assert.assertTrue(result.latencyHistogram().max() >= 50000);
+    }
+
+    private static long sum(long[] array) {
+        long sum = 0;
+        for (long x : array) {
+            sum += x;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,65 @@
+package test.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.PartitionedBatchTransmitter;
+
+public class PartitionedBatchTransmitterTest {
+
+    /**
+     * end与put并发：put返回true的数据都被消费，每个分区最后一个批次（且只有一个）的isEnd为true
+     */
+    @Test
+    public void testEndRacingPut() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AtomicLong consumed = new AtomicLong(), accepted = new AtomicLong();
+            AtomicInteger endBatches = new AtomicInteger(), afterEnd = new AtomicInteger();
+            Map<String, Boolean> ended = new ConcurrentHashMap<>();
+            PartitionedBatchTransmitter<Integer, Integer> transmitter = new PartitionedBatchTransmitter<>(
+                e -> e, (list, isEnd) -> () -> {
+                    String partition = Thread.currentThread().getName();
+                    if (ended.containsKey(partition)) {
+                        afterEnd.incrementAndGet();
+                    }
+                    if (isEnd) {
+                        endBatches.incrementAndGet();
+                        ended.put(partition, true);
+                    }
+                    consumed.addAndGet(list.size());
+                }, 4, 10, 50, 64
+            );
+
+            int threads = 4;
+            CountDownLatch started = new CountDownLatch(threads), done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    started.countDown();
+                    for (int j = 0; j < 5000; j++) {
+                        if (transmitter.put(j)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }).start();
+            }
+            started.await();
+            Thread.sleep(round % 3);
+            transmitter.end();
+            done.await();
+            Assert.assertTrue(transmitter.awaitTermination(10000));
+
+            Assert.assertEquals(accepted.get(), consumed.get());
+            Assert.assertEquals(transmitter.partitionCount(), endBatches.get());
+            Assert.assertEquals(0, afterEnd.get());
+            Assert.assertFalse(transmitter.put(1));
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package test.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter;
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter.FullPolicy;
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter.WaitStrategy;
+
+public class RingBufferBatchTransmitterTest {
+
+    /**
+     * end与put并发（缓冲区很小，put会阻塞）：put返回true的数据都被消费，
+     * 最后一个批次（且只有一个）的end为true
+     */
+    @Test
+    public void testEndRacingPut() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AtomicLong consumed = new AtomicLong(), accepted = new AtomicLong();
+            AtomicInteger endBatches = new AtomicInteger(), afterEnd = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()
+            );
+            RingBufferBatchTransmitter<Integer> transmitter = new RingBufferBatchTransmitter<>(
+                (list, isEnd) -> () -> {
+                    if (endBatches.get() > 0) {
+                        afterEnd.incrementAndGet();
+                    }
+                    if (isEnd) {
+                        endBatches.incrementAndGet();
+                    }
+                    consumed.addAndGet(list.size());
+                }, 64, 10, WaitStrategy.BLOCKING, FullPolicy.BLOCK, executor
+            );
+
+            int threads = 4;
+            CountDownLatch started = new CountDownLatch(threads), done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    started.countDown();
+                    for (int j = 0; j < 5000; j++) {
+                        if (transmitter.put(j)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }).start();
+            }
+            started.await();
+            Thread.sleep(round % 3);
+            transmitter.end();
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(accepted.get(), consumed.get());
+            Assert.assertEquals(1, endBatches.get());
+            Assert.assertEquals(0, afterEnd.get());
+            Assert.assertFalse(transmitter.put(1));
+        }
+    }
+
+    @Test
+    public void testEndWithoutData() throws InterruptedException {
+        AtomicInteger endBatches = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()
+        );
+        RingBufferBatchTransmitter<Integer> transmitter = new RingBufferBatchTransmitter<>(
+            (list, isEnd) -> () -> {
+                if (isEnd && list.isEmpty()) {
+                    endBatches.incrementAndGet();
+                }
+            }, 64, 10, WaitStrategy.BLOCKING, FullPolicy.BLOCK, executor
+        );
+        transmitter.end();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, endBatches.get());
+    }
+
+}
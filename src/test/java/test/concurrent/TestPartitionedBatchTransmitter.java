@@ -0,0 +1,82 @@
+package test.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.google.common.base.Stopwatch;
+
+import code.ponfee.commons.concurrent.AsyncBatchTransmitter;
+import code.ponfee.commons.concurrent.PartitionedBatchTransmitter;
+
+/**
+ * 吞吐量对比：每个批次模拟1ms的IO耗时
+ */
+public class TestPartitionedBatchTransmitter {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 1000;
+    private static final int COUNT = 400_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        AtomicLong consumed = new AtomicLong();
+        Map<Integer, Integer> lastSeq = new ConcurrentHashMap<>();
+        AtomicLong disorder = new AtomicLong();
+        PartitionedBatchTransmitter<Integer, long[]> partitioned = new PartitionedBatchTransmitter<>(
+            e -> (int) e[0], (list, isEnd) -> () -> {
+                for (long[] e : list) {
+                    Integer last = lastSeq.put((int) e[0], (int) e[1]);
+                    if (last != null && last >= e[1]) {
+                        disorder.incrementAndGet();
+                    }
+                }
+                consumed.addAndGet(list.size());
+                sleep(1);
+            }, 8, 100, 200, 8192
+        );
+        Stopwatch watch = Stopwatch.createStarted();
+        produce(partitioned::put);
+        partitioned.end();
+        partitioned.awaitTermination(60000);
+        System.out.println("PartitionedBatchTransmitter: " + watch.stop() + ", consumed " 
+                         + consumed.get() + ", disorder " + disorder.get());
+
+        AtomicLong consumed2 = new AtomicLong();
+        AsyncBatchTransmitter<long[]> async = new AsyncBatchTransmitter<>((list, isEnd) -> () -> {
+            consumed2.addAndGet(list.size());
+            sleep(1);
+        }, 100, 200);
+        watch = Stopwatch.createStarted();
+        produce(async::put);
+        while (consumed2.get() < COUNT) {
+            sleep(1);
+        }
+        async.end();
+        System.out.println("AsyncBatchTransmitter: " + watch.stop() + ", consumed " + consumed2.get());
+    }
+
+    private static void produce(Consumer<long[]> put) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            new Thread(() -> {
+                // 每个key只由一个线程生产，序号递增
+                for (int j = 0; j < COUNT / THREADS; j++) {
+                    put.accept(new long[] { (j % (KEYS / THREADS)) * THREADS + thread, j });
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package test.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Stopwatch;
+
+import code.ponfee.commons.concurrent.AsyncBatchTransmitter;
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter;
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter.FullPolicy;
+import code.ponfee.commons.concurrent.RingBufferBatchTransmitter.WaitStrategy;
+
+public class TestRingBufferBatchTransmitter {
+
+    private static final int THREADS = 8;
+    private static final int COUNT = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            AtomicLong consumed = new AtomicLong();
+            AtomicInteger batches = new AtomicInteger();
+            RingBufferBatchTransmitter<Integer> transmitter = new RingBufferBatchTransmitter<>((list, isEnd) -> () -> {
+                consumed.addAndGet(list.size());
+                batches.incrementAndGet();
+            }, 8192, 200, strategy, FullPolicy.BLOCK, null);
+
+            Stopwatch watch = Stopwatch.createStarted();
+            produce(transmitter::put);
+            transmitter.end();
+            System.out.println(strategy + ": " + watch.stop() + ", consumed " + consumed.get() 
+                             + ", batches " + batches.get());
+        }
+
+        AtomicLong consumed = new AtomicLong();
+        AsyncBatchTransmitter<Integer> transmitter = new AsyncBatchTransmitter<>((list, isEnd) -> () -> {
+            consumed.addAndGet(list.size());
+        });
+        Stopwatch watch = Stopwatch.createStarted();
+        produce(transmitter::put);
+        transmitter.end();
+        System.out.println("AsyncBatchTransmitter put: " + watch.stop());
+    }
+
+    private static void produce(java.util.function.Consumer<Integer> put) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < COUNT / THREADS; j++) {
+                    put.accept(j);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+    }
+}
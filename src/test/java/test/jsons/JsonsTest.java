@@ -1,12 +1,28 @@
 package test.jsons;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Map;
 
 import org.junit.Test;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
+import bean.TestBean;
 import code.ponfee.commons.collect.Collects;
+import code.ponfee.commons.json.JsonArrayIterator;
+import code.ponfee.commons.json.JsonException;
 import code.ponfee.commons.json.Jsons;
 
 @SuppressWarnings("unchecked")
@@ -27,4 +43,97 @@ public class JsonsTest {
         });
         System.out.println("parse(json, TypeReference): " + map);
     }
+
+    @Test
+    public void testStreaming() {
+        TestBean bean = new TestBean(1, 2L, "abc");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Jsons.NORMAL.writeTo(out, bean);
+        assertEquals(Jsons.toJson(bean), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        assertEquals("abc", Jsons.NORMAL.parse(out.toByteArray(), TestBean.class).getS());
+        assertEquals(2L, Jsons.NORMAL.parse(new ByteArrayInputStream(out.toByteArray()), TestBean.class).getL().longValue());
+        assertNull(Jsons.NORMAL.parse(new ByteArrayInputStream(new byte[0]), TestBean.class));
+        assertNull(Jsons.NORMAL.parse(new byte[0], TestBean.class));
+    }
+
+    @Test
+    public void testIterate() throws IOException {
+        int count = 200000;
+        // 按需生成的json数组流，不在内存中构建完整数组
+        Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+            int i = 0;
+            @Override
+            public boolean hasMoreElements() {
+                return i <= count + 1;
+            }
+            @Override
+            public InputStream nextElement() {
+                String s;
+                if (i == 0) {
+                    s = "[";
+                } else if (i == count + 1) {
+                    s = "]";
+                } else {
+                    s = (i > 1 ? "," : "") + "{\"i\":" + i + ",\"s\":\"item-" + i + "\"}";
+                }
+                i++;
+                return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        long sum = 0, n = 0;
+        try (JsonArrayIterator<TestBean> iter = Jsons.NORMAL.iterate(new SequenceInputStream(parts), TestBean.class)) {
+            while (iter.hasNext()) {
+                TestBean bean = iter.next();
+                sum += bean.getI();
+                n++;
+            }
+        }
+        assertEquals(count, n);
+        assertEquals((long) count * (count + 1) / 2, sum);
+
+        try (JsonArrayIterator<Integer> iter = Jsons.NORMAL.iterate(
+            new ByteArrayInputStream("[1,null,3]".getBytes()), Integer.class)) {
+            assertEquals(1, iter.next().intValue());
+            assertNull(iter.next());
+            assertEquals(3, iter.next().intValue());
+            assertFalse(iter.hasNext());
+        }
+
+        try (JsonArrayIterator<Integer> iter = Jsons.NORMAL.iterate(
+            new ByteArrayInputStream(new byte[0]), Integer.class)) {
+            assertFalse(iter.hasNext());
+        }
+    }
+
+    @Test
+    public void testIterateClosedWhenExhausted() {
+        boolean[] closed = {false};
+        InputStream input = new ByteArrayInputStream("[1,2]".getBytes()) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+        JsonArrayIterator<Integer> iter = Jsons.NORMAL.iterate(input, Integer.class);
+        assertEquals(1, iter.next().intValue());
+        assertEquals(2, iter.next().intValue());
+        assertFalse(closed[0]);
+        assertFalse(iter.hasNext()); // 读完后无需调用close
+        assertTrue(closed[0]);
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = JsonException.class)
+    public void testIterateNotArray() {
+        Jsons.NORMAL.iterate(new ByteArrayInputStream("{\"i\":1}".getBytes()), TestBean.class);
+    }
+
+    @Test
+    public void testCachedReader() {
+        assertEquals(Collections.singletonList(1), Jsons.NORMAL.parse("[1]", new TypeReference<java.util.List<Integer>>() {}));
+        assertEquals(Collections.singletonList(2), Jsons.NORMAL.parse("[2]", new TypeReference<java.util.List<Integer>>() {}));
+    }
 }
@@ -0,0 +1,238 @@
+package test.limit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import code.ponfee.commons.limit.AdaptiveConcurrencyLimiter;
+import code.ponfee.commons.log.LogAnnotation;
+import code.ponfee.commons.log.LogRecorder;
+import code.ponfee.commons.reflect.ClassUtils;
+
+/**
+ * 以注入的耗时样本验证Vegas上限调整（probeMultiplier取较大值，测试期间不会重置rttNoLoad）
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final String KEY = "test";
+
+    /**
+     * 占满并发数，返回占用的个数
+     */
+    private static int fill(AdaptiveConcurrencyLimiter limiter) {
+        int count = 0;
+        while (limiter.acquire(KEY)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 在并发数占满的情况下注入一个耗时样本
+     */
+    private static void sample(AdaptiveConcurrencyLimiter limiter, long rtt) {
+        fill(limiter);
+        limiter.release(KEY, rtt, false);
+    }
+
+    @Test
+    public void testGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 1000, 1000);
+        Assert.assertEquals(20, fill(limiter));
+        limiter.release(KEY, BASE_RTT, false); // 首个样本作为rttNoLoad
+        Assert.assertEquals(20, limiter.getLimit(KEY));
+
+        // 无排队：limit += 6 * log10(limit)
+        sample(limiter, BASE_RTT);
+        Assert.assertEquals(27, limiter.getLimit(KEY)); // 20 + 6 * log10(20) = 27.8
+        sample(limiter, BASE_RTT);
+        Assert.assertEquals(36, limiter.getLimit(KEY)); // 27.8 + 6 * log10(27.8) = 36.47
+
+        // 少量排队：ceil(36.47 * (1 - 10/11)) = 4，介于log与alpha之间，limit += log10(limit)
+        sample(limiter, BASE_RTT * 11 / 10);
+        Assert.assertEquals(38, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void testShrink() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 5, 1000, 1000);
+        fill(limiter);
+        limiter.release(KEY, BASE_RTT, false);
+
+        // 严重排队：ceil(100 * (1 - 10/100)) = 90 > beta，limit -= log10(limit)
+        sample(limiter, BASE_RTT * 10);
+        Assert.assertEquals(98, limiter.getLimit(KEY));
+        for (int i = 0; i < 1000; i++) {
+            sample(limiter, BASE_RTT * 10);
+        }
+        // 收敛到 ceil(limit * 0.9) <= 6 * log 的位置，且不低于minLimit
+        int limit = limiter.getLimit(KEY);
+        Assert.assertTrue(String.valueOf(limit), limit >= 5 && limit <= 7);
+        Assert.assertEquals(limit - 1, limiter.getInflight(KEY));
+    }
+
+    @Test
+    public void testDropped() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 18, 1000, 1000);
+        fill(limiter);
+        limiter.release(KEY, BASE_RTT, false);
+        fill(limiter);
+        limiter.release(KEY, BASE_RTT, true); // 被丢弃视为过载
+        Assert.assertEquals(18, limiter.getLimit(KEY)); // 20 - log10(20) = 18.7
+        limiter.release(KEY, 0, true);
+        Assert.assertEquals(18, limiter.getLimit(KEY)); // 不低于minLimit
+    }
+
+    @Test
+    public void testNotBottleneck() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 1000, 1000);
+        Assert.assertTrue(limiter.acquire(KEY));
+        limiter.release(KEY, BASE_RTT, false);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(limiter.acquire(KEY));
+            limiter.release(KEY, BASE_RTT * 10, false); // 并发数不足上限一半，不调整
+            Assert.assertTrue(limiter.acquire(KEY));
+            limiter.release(KEY, BASE_RTT, false);
+        }
+        Assert.assertEquals(20, limiter.getLimit(KEY));
+        Assert.assertEquals(0, limiter.getInflight(KEY));
+
+        // 业务异常不作为样本
+        fill(limiter);
+        limiter.release(KEY);
+        Assert.assertEquals(20, limiter.getLimit(KEY));
+        Assert.assertEquals(19, limiter.getInflight(KEY));
+    }
+
+    @Test
+    public void testMaxLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 30, 1000);
+        fill(limiter);
+        limiter.release(KEY, BASE_RTT, false);
+        for (int i = 0; i < 10; i++) {
+            sample(limiter, BASE_RTT);
+        }
+        Assert.assertEquals(30, limiter.getLimit(KEY));
+    }
+
+    // --------------------------------------------------------------------LogRecorder
+    @Test
+    public void testLogRecorder() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1000);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new LimitedService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new LimitedLogRecorder(limiter));
+        LimitedService service = factory.getProxy();
+        String name = ClassUtils.getMethodSignature(LimitedService.class.getMethod("call", CountDownLatch.class));
+
+        Assert.assertEquals("ok", service.call(null));
+        Assert.assertEquals(0, limiter.getInflight(name));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> future = executor.submit(() -> service.call(latch));
+            while (limiter.getInflight(name) == 0) {
+                Thread.sleep(10);
+            }
+            try {
+                service.call(null); // 已达到并发上限
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("request denied", e.getMessage());
+            }
+            latch.countDown();
+            Assert.assertEquals("ok", future.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, limiter.getInflight(name));
+
+        try {
+            service.timeout(); // 超时视为过载，作为丢弃样本
+            Assert.fail();
+        } catch (TimeoutException expected) {
+            // expected
+        }
+        Assert.assertEquals(0, limiter.getInflight(ClassUtils.getMethodSignature(LimitedService.class.getMethod("timeout"))));
+        Assert.assertEquals("ok", service.call(null));
+    }
+
+    @Test
+    public void testLogRecorderReleaseWhenLoggingFails() throws Exception {
+        // 参数的toString在[exec-before]日志中调用
+        Assume.assumeTrue(LoggerFactory.getLogger(LogRecorder.class).isInfoEnabled());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1000);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new LimitedService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new LimitedLogRecorder(limiter));
+        LimitedService service = factory.getProxy();
+        String name = ClassUtils.getMethodSignature(LimitedService.class.getMethod("echo", Object.class));
+
+        Object bad = new Object() {
+            @Override
+            public String toString() {
+                throw new UnsupportedOperationException("toString");
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.echo(bad);
+                Assert.fail();
+            } catch (UnsupportedOperationException expected) {
+                // expected
+            }
+            Assert.assertEquals(0, limiter.getInflight(name));
+        }
+        Assert.assertEquals("ok", service.echo("ok"));
+    }
+
+    @Aspect
+    public static class LimitedLogRecorder extends LogRecorder {
+        public LimitedLogRecorder(AdaptiveConcurrencyLimiter limiter) {
+            super(limiter);
+        }
+
+        @Around(value = "execution(public * test.limit.LimitedService.*(..)) && @annotation(log)", argNames = "pjp,log")
+        @Override
+        public Object around(ProceedingJoinPoint pjp, LogAnnotation log) throws Throwable {
+            return super.around(pjp, log);
+        }
+    }
+}
+
+/**
+ * 顶层类：ClassUtils.getMethodSignature按简单类名读取class文件
+ */
+class LimitedService {
+    @LogAnnotation(enabled = true)
+    public String call(CountDownLatch latch) throws InterruptedException {
+        if (latch != null) {
+            latch.await();
+        }
+        return "ok";
+    }
+
+    @LogAnnotation(enabled = true)
+    public Object echo(Object arg) {
+        return arg;
+    }
+
+    @LogAnnotation(enabled = true)
+    public String timeout() throws TimeoutException {
+        throw new TimeoutException();
+    }
+}
@@ -0,0 +1,101 @@
+package test.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.limit.CircuitBreaker;
+import code.ponfee.commons.limit.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenAndRecover() throws InterruptedException {
+        CircuitBreaker breaker = CircuitBreaker.newBuilder("test").failureRateThreshold(50)
+                                               .minimumCalls(10).openMillis(200)
+                                               .halfOpenPermits(3).build();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(1000);
+        }
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+            breaker.onError(1000);
+        }
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(250);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+        }
+        Assert.assertFalse(breaker.tryAcquire()); // 探测许可已用完
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(1000);
+        }
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testSlowCall() {
+        CircuitBreaker breaker = CircuitBreaker.newBuilder("slow").slowCallRateThreshold(50)
+                                               .slowCallMillis(100).minimumCalls(4).build();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(200_000_000L);
+        }
+        Assert.assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testAllSlowWithDefaultThreshold() {
+        CircuitBreaker breaker = CircuitBreaker.newBuilder("allSlow").slowCallMillis(100).minimumCalls(4).build();
+        for (int i = 0; i < 3; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(200_000_000L);
+        }
+        breaker.tryAcquire();
+        breaker.onSuccess(1000);
+        Assert.assertEquals(State.CLOSED, breaker.getState()); // 默认100：并非全部为慢调用
+        breaker.reset();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(200_000_000L);
+        }
+        Assert.assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenPermitsAndTimeout() throws InterruptedException {
+        CircuitBreaker breaker = CircuitBreaker.newBuilder("halfOpen").minimumCalls(2).openMillis(100)
+                                               .halfOpenPermits(2).build();
+        for (int i = 0; i < 2; i++) {
+            breaker.tryAcquire();
+            breaker.onError(1000);
+        }
+        Assert.assertEquals(State.OPEN, breaker.getState());
+
+        Thread.sleep(150);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertFalse(breaker.tryAcquire());
+        }
+        // 许可数不为负，归还后也不超过halfOpenPermits
+        breaker.release();
+        breaker.release();
+        breaker.release();
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+
+        // 探测请求一直未完成，超时后开始新一轮探测
+        Thread.sleep(150);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(1000);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(1000);
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,98 @@
+package test.limit;
+
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import code.ponfee.commons.jedis.JedisClient;
+import code.ponfee.commons.limit.LeasingCurrentLimiter;
+
+/**
+ * 需要jedis-cfg.xml中配置的redis
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "classpath:jedis-cfg.xml" })
+public class LeasingCurrentLimiterTester {
+
+    private static final String BUCKET_KEY_PREFIX = "cir:lea:";
+
+    @Resource
+    private JedisClient jedisClient;
+
+    private double tokens(String key) {
+        String value = jedisClient.hashOps().hget(BUCKET_KEY_PREFIX + key, "tokens");
+        return value == null ? -1 : Double.parseDouble(value);
+    }
+
+    @Test
+    public void testGrantAndExhaust() {
+        LeasingCurrentLimiter limiter = new LeasingCurrentLimiter(jedisClient, 60000, 1.0D);
+        try {
+            String key = UUID.randomUUID().toString();
+            // 容量10，每分钟补充10个：一分钟内只能通过10次（续租多次）
+            int passed = 0;
+            for (int i = 0; i < 20; i++) {
+                if (limiter.checkpoint(key, 10)) {
+                    passed++;
+                }
+            }
+            Assert.assertEquals(10, passed);
+            Assert.assertTrue(tokens(key) < 1);
+        } finally {
+            limiter.destroy();
+        }
+    }
+
+    @Test
+    public void testGiveBackOnDestroy() {
+        LeasingCurrentLimiter limiter = new LeasingCurrentLimiter(jedisClient, 60000, 1.0D);
+        String key = UUID.randomUUID().toString();
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(limiter.checkpoint(key, 6000));
+        }
+        double leased = 6000 - tokens(key);
+        Assert.assertTrue(leased >= 50);
+        limiter.destroy();
+        // 未使用的令牌归还后，redis端只少了实际消耗的50个（另有少量补充）
+        Assert.assertTrue(6000 - tokens(key) <= 50);
+    }
+
+    @Test
+    public void testExpireAndRenew() throws InterruptedException {
+        LeasingCurrentLimiter limiter = new LeasingCurrentLimiter(jedisClient, 200, 1.0D);
+        try {
+            String key = UUID.randomUUID().toString();
+            for (int i = 0; i < 20; i++) {
+                Assert.assertTrue(limiter.checkpoint(key, 6000));
+            }
+            Thread.sleep(600); // 租约到期，后台任务归还剩余令牌
+            Assert.assertTrue(6000 - tokens(key) <= 20);
+
+            // 到期后再次访问时续租
+            Assert.assertTrue(limiter.checkpoint(key, 6000));
+            Assert.assertTrue(6000 - tokens(key) >= 1);
+        } finally {
+            limiter.destroy();
+        }
+    }
+
+    @Test
+    public void testUnlimitedAndForbidden() {
+        LeasingCurrentLimiter limiter = new LeasingCurrentLimiter(jedisClient);
+        try {
+            String key = UUID.randomUUID().toString();
+            Assert.assertTrue(limiter.checkpoint(key, -1));
+            Assert.assertFalse(limiter.checkpoint(key, 0));
+            Assert.assertEquals(-1, tokens(key), 0.0D);
+        } finally {
+            limiter.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package test.limit;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+
+import code.ponfee.commons.limit.ConcurrencyCurrentLimiter;
+import code.ponfee.commons.limit.CurrentLimiter;
+import code.ponfee.commons.limit.SlidingWindowCurrentLimiter;
+import code.ponfee.commons.limit.TokenBucketCurrentLimiter;
+
+public class LocalCurrentLimiterTest {
+
+    @Test
+    public void testTokenBucket() {
+        // 600/分钟，1秒的突发容量为10
+        CurrentLimiter limiter = new TokenBucketCurrentLimiter(600, 1, 100, 60);
+        int passed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.checkpoint("a")) {
+                passed++;
+            }
+        }
+        Assert.assertEquals(10, passed);
+        Assert.assertTrue(limiter.checkpoint("b"));
+        Assert.assertFalse(limiter.checkpoint("c", 0));
+        Assert.assertTrue(limiter.checkpoint("c", -1));
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        SlidingWindowCurrentLimiter limiter = new SlidingWindowCurrentLimiter(100);
+        int passed = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (limiter.checkpoint("a")) {
+                passed++;
+            }
+        }
+        Assert.assertEquals(100, passed);
+        long now = System.currentTimeMillis();
+        Assert.assertEquals(100, limiter.countByRange("a", new Date(now - 60000), new Date(now + 1)));
+
+        limiter.setRequestThreshold("a", 200);
+        Assert.assertTrue(limiter.checkpoint("a"));
+    }
+
+    @Test
+    public void testConcurrency() {
+        ConcurrencyCurrentLimiter limiter = new ConcurrencyCurrentLimiter(2);
+        Assert.assertTrue(limiter.checkpoint("a"));
+        Assert.assertTrue(limiter.checkpoint("a"));
+        Assert.assertFalse(limiter.checkpoint("a"));
+        limiter.release("a");
+        Assert.assertEquals(1, limiter.inflight("a"));
+        Assert.assertTrue(limiter.checkpoint("a"));
+    }
+
+    @Test
+    public void testCountByRangeUnsupported() {
+        long now = System.currentTimeMillis();
+        Date from = new Date(now - 60000), to = new Date(now + 1);
+        Assert.assertEquals(-1, new TokenBucketCurrentLimiter(600).countByRange("a", from, to));
+        Assert.assertEquals(-1, new ConcurrencyCurrentLimiter(2).countByRange("a", from, to));
+    }
+
+    /**
+     * 并发校验时通过的数量不超过阀值
+     */
+    @Test
+    public void testContention() throws InterruptedException {
+        ConcurrencyCurrentLimiter concurrency = new ConcurrencyCurrentLimiter(100);
+        Assert.assertEquals(100, contend(concurrency));
+
+        // 桶容量为600（60秒的令牌产生量），每100毫秒补充1个
+        TokenBucketCurrentLimiter tokenBucket = new TokenBucketCurrentLimiter(600, 60, 100, 60);
+        Stopwatch watch = Stopwatch.createStarted();
+        long passed = contend(tokenBucket);
+        long refilled = watch.elapsed(TimeUnit.MILLISECONDS) / 100 + 1;
+        Assert.assertTrue(String.valueOf(passed), passed >= 600 && passed <= 600 + refilled);
+    }
+
+    private static long contend(CurrentLimiter limiter) throws InterruptedException {
+        int threads = 8;
+        AtomicLong passed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                    // ignored
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (limiter.checkpoint("key")) {
+                        passed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        return passed.get();
+    }
+}
@@ -0,0 +1,91 @@
+package test.limit;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import code.ponfee.commons.jedis.JedisClient;
+import code.ponfee.commons.limit.RedisCurrentLimiter;
+
+/**
+ * 需要jedis-cfg.xml中配置的redis
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "classpath:jedis-cfg.xml" })
+public class RedisCurrentLimiterTester {
+
+    @Resource
+    private JedisClient jedisClient;
+
+    private RedisCurrentLimiter limiter;
+
+    @Before
+    public void setup() {
+        limiter = RedisCurrentLimiter.slidingWindow(jedisClient, 120);
+    }
+
+    @After
+    public void teardown() {
+        limiter.destory();
+    }
+
+    @Test
+    public void testThresholdSemantics() {
+        String key = UUID.randomUUID().toString();
+        // 与记录模式一致：已有计数不大于阀值时通过，即阀值5时一分钟内通过6次
+        int passed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.checkpoint(key, 5)) {
+                passed++;
+            }
+        }
+        Assert.assertEquals(6, passed);
+        Assert.assertEquals(6, limiter.countByLastTime(key, 1, TimeUnit.MINUTES));
+        Assert.assertFalse(limiter.checkpoint(key, 0));
+        Assert.assertTrue(limiter.checkpoint(key, -1));
+    }
+
+    @Test
+    public void testCount() {
+        String key = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(limiter.checkpoint(key, 100));
+        }
+        Assert.assertEquals(3, limiter.countByLastTime(key, 10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, limiter.countByLastTime(key, 2, TimeUnit.MINUTES));
+
+        long now = System.currentTimeMillis();
+        // 区间超出保留时长时只统计保留的桶
+        Assert.assertEquals(3, limiter.countByRange(key, new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now + 1000)));
+        Assert.assertEquals(0, limiter.countByRange(key, new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now - 10000)));
+
+        try {
+            limiter.countByLastTime(key, 3, TimeUnit.MINUTES);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRollingBuckets() throws InterruptedException {
+        String key = UUID.randomUUID().toString();
+        Assert.assertTrue(limiter.checkpoint(key, 100));
+        Thread.sleep(2100);
+        Assert.assertTrue(limiter.checkpoint(key, 100));
+        Assert.assertEquals(1, limiter.countByLastTime(key, 1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, limiter.countByLastTime(key, 1, TimeUnit.MINUTES));
+        Assert.assertTrue(jedisClient.hashOps().hlen("cir:win:" + key) <= 2);
+    }
+
+}
@@ -0,0 +1,137 @@
+package test.limit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import code.ponfee.commons.jedis.JedisClient;
+import code.ponfee.commons.limit.RateLimitResult;
+import code.ponfee.commons.limit.RequestLimitException;
+import code.ponfee.commons.limit.RequestLimiter;
+
+/**
+ * 需要jedis-cfg.xml中配置的redis（两个分片）
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "classpath:jedis-cfg.xml" })
+public class RequestLimiterTester {
+
+    @Resource
+    private JedisClient jedisClient;
+
+    private static String key() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void testGcraBurst() {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        String key = key();
+        // 每秒10次（间隔100ms），突发容量5
+        for (int i = 4; i >= 0; i--) {
+            RateLimitResult result = limiter.acquire(key, 1, 10, 5);
+            Assert.assertTrue(result.toString(), result.isAllowed());
+            Assert.assertEquals(i, result.getRemaining());
+        }
+        RateLimitResult denied = limiter.acquire(key, 1, 10, 5);
+        Assert.assertFalse(denied.isAllowed());
+        Assert.assertEquals(0, denied.getRemaining());
+        Assert.assertTrue(denied.getRetryAfterMillis() > 0 && denied.getRetryAfterMillis() <= 100);
+    }
+
+    @Test
+    public void testGcraRefill() throws InterruptedException {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        String key = key();
+        Assert.assertTrue(limiter.acquire(key, 1, 10, 1).isAllowed());
+        Assert.assertFalse(limiter.acquire(key, 1, 10, 1).isAllowed());
+        Thread.sleep(120);
+        Assert.assertTrue(limiter.acquire(key, 1, 10, 1).isAllowed());
+    }
+
+    @Test
+    public void testGcraAllOrNothing() {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        // 多个key，覆盖同分片与跨分片两种情况
+        List<String> keys = Arrays.asList(key(), key(), key(), key());
+        Assert.assertTrue(limiter.acquire(keys.get(0), 60, 1, 1).isAllowed()); // 用完第一个key的配额
+
+        List<RateLimitResult> results = limiter.acquire(keys, 60, 1, 1, true);
+        for (RateLimitResult result : results) {
+            Assert.assertFalse(result.isAllowed());
+        }
+        // 未通过时其它key的令牌不被消耗
+        for (int i = 1; i < keys.size(); i++) {
+            Assert.assertTrue(limiter.acquire(keys.get(i), 60, 1, 1).isAllowed());
+        }
+
+        List<String> others = Arrays.asList(key(), key(), key());
+        for (RateLimitResult result : limiter.acquire(others, 60, 1, 1, true)) {
+            Assert.assertTrue(result.isAllowed());
+        }
+        for (String key : others) {
+            Assert.assertFalse(limiter.acquire(key, 60, 1, 1).isAllowed());
+        }
+    }
+
+    @Test
+    public void testGcraIndependent() {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        List<String> keys = Arrays.asList(key(), key(), key());
+        Assert.assertTrue(limiter.acquire(keys.get(1), 60, 1, 1).isAllowed());
+        List<RateLimitResult> results = limiter.acquire(keys, 60, 1, 1, false);
+        Assert.assertTrue(results.get(0).isAllowed());
+        Assert.assertFalse(results.get(1).isAllowed());
+        Assert.assertTrue(results.get(2).isAllowed());
+    }
+
+    @Test
+    public void testLimitRate() throws RequestLimitException {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        String key = key();
+        limiter.limitRate(key, 60, 2, 2).limitRate(key, 60, 2, 2);
+        try {
+            limiter.limitRate(key, 60, 2, 2);
+            Assert.fail();
+        } catch (RequestLimitException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThresholdAndCode() throws RequestLimitException {
+        RequestLimiter limiter = RequestLimiter.create(jedisClient);
+        String key = key();
+        limiter.limitThreshold(key, 60, 2).limitThreshold(key, 60, 2);
+        try {
+            limiter.limitThreshold(key, 60, 2);
+            Assert.fail();
+        } catch (RequestLimitException expected) {
+            // expected
+        }
+
+        limiter.cacheCode(key, "123456", 60);
+        try {
+            limiter.checkCode(key, "000000", 3);
+            Assert.fail();
+        } catch (RequestLimitException expected) {
+            // expected
+        }
+        limiter.checkCode(key, "123456", 3);
+        try {
+            limiter.checkCode(key, "123456", 3); // 验证成功后失效
+            Assert.fail();
+        } catch (RequestLimitException expected) {
+            // expected
+        }
+    }
+
+}
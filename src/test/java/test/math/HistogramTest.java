@@ -0,0 +1,80 @@
+package test.math;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.math.Histogram;
+
+public class HistogramTest {
+
+    @Test
+    public void testExactLinearBuckets() {
+        Histogram h = new Histogram();
+        for (int i = 1; i <= 60; i++) {
+            h.record(i);
+        }
+        Assert.assertEquals(60, h.count());
+        Assert.assertEquals(1, h.min());
+        Assert.assertEquals(60, h.max());
+        Assert.assertEquals(30.5D, h.mean(), 0.0D);
+        Assert.assertEquals(30, h.percentile(50));
+        Assert.assertEquals(60, h.percentile(100));
+        Assert.assertEquals(1, h.percentile(0));
+    }
+
+    @Test
+    public void testRelativeError() {
+        Histogram h = new Histogram();
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ThreadLocalRandom.current().nextLong(1, 10_000_000);
+            h.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        for (double p : new double[] { 50, 90, 99, 99.9 }) {
+            long expect = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long actual = h.percentile(p);
+            Assert.assertTrue(p + ": " + expect + " vs " + actual, actual >= expect);
+            Assert.assertTrue(p + ": " + expect + " vs " + actual, actual <= expect + expect / 32 + 1);
+        }
+    }
+
+    @Test
+    public void testCorrectedAndMerge() {
+        Histogram h = new Histogram();
+        h.recordCorrected(100, 20); // 100, 80, 60, 40, 20
+        Assert.assertEquals(5, h.count());
+        Assert.assertEquals(300, h.sum());
+        h.record(-5);
+        Assert.assertEquals(0, h.min());
+
+        Histogram other = new Histogram();
+        other.record(1000);
+        h.add(other);
+        Assert.assertEquals(7, h.count());
+        Assert.assertEquals(1000, h.max());
+
+        long[] total = { 0 };
+        h.forEachBucket((low, high, c) -> {
+            Assert.assertTrue(low <= high);
+            total[0] += c;
+        });
+        Assert.assertEquals(7, total[0]);
+
+        h.reset();
+        Assert.assertEquals(0, h.count());
+        Assert.assertEquals(0, h.percentile(99));
+    }
+
+    @Test
+    public void testConcurrentRecord() {
+        Histogram h = new Histogram();
+        IntStream.range(0, 200000).parallel().forEach(i -> h.record(i % 1000));
+        Assert.assertEquals(200000, h.count());
+        Assert.assertEquals(999, h.max());
+    }
+
+}
@@ -0,0 +1,63 @@
+package test.serial;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bean.TestBean;
+import code.ponfee.commons.serial.CodecRegistry;
+import code.ponfee.commons.serial.EnvelopeSerializer;
+import code.ponfee.commons.serial.HessianSerializer;
+import code.ponfee.commons.serial.JdkSerializer;
+import code.ponfee.commons.serial.Serializer;
+import code.ponfee.commons.serial.StringSerializer;
+
+public class EnvelopeSerializerTest {
+
+    private final CodecRegistry registry = CodecRegistry.createDefault();
+    private final Serializer legacy = new HessianSerializer();
+
+    @Test
+    public void testSwitchCodec() {
+        TestBean bean = new TestBean(1, 2L, "envelope");
+        EnvelopeSerializer hessian = new EnvelopeSerializer(registry, CodecRegistry.HESSIAN, legacy);
+        EnvelopeSerializer kryo = new EnvelopeSerializer(registry, CodecRegistry.KRYO, 3, legacy);
+
+        byte[] old = hessian.serialize(bean, true);
+        byte[] neo = kryo.serialize(bean, false);
+        Assert.assertEquals(CodecRegistry.KRYO, kryo.header(neo).getCodecId());
+        Assert.assertEquals(EnvelopeSerializer.COMPRESSION_NONE, kryo.header(neo).getCompression());
+        Assert.assertEquals(3, kryo.header(neo).getSchemaVersion());
+
+        // 读取时忽略调用方的isCompress，按头解码
+        Assert.assertEquals("envelope", kryo.deserialize(old, TestBean.class, false).getS());
+        Assert.assertEquals("envelope", hessian.deserialize(neo, TestBean.class, true).getS());
+    }
+
+    @Test
+    public void testLegacy() {
+        TestBean bean = new TestBean(1, 2L, "legacy");
+        EnvelopeSerializer envelope = new EnvelopeSerializer(registry, CodecRegistry.KRYO, legacy);
+        for (boolean isCompress : new boolean[] { true, false }) {
+            byte[] data = legacy.serialize(bean, isCompress);
+            Assert.assertNull(envelope.header(data));
+            Assert.assertEquals("legacy", envelope.deserialize(data, TestBean.class, isCompress).getS());
+        }
+
+        // 未配置legacy时不支持无头数据
+        EnvelopeSerializer strict = new EnvelopeSerializer(registry, CodecRegistry.KRYO, null);
+        try {
+            strict.deserialize(new JdkSerializer().serialize(bean, false), TestBean.class, false);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEmptyPayload() {
+        EnvelopeSerializer envelope = new EnvelopeSerializer(registry, CodecRegistry.STRING, new StringSerializer("UTF-8"));
+        byte[] data = envelope.serialize("", false);
+        Assert.assertEquals(EnvelopeSerializer.HEADER_SIZE, data.length);
+        Assert.assertEquals("", envelope.deserialize(data, String.class, false));
+    }
+}
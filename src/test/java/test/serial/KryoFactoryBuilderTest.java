@@ -0,0 +1,121 @@
+package test.serial;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+
+import bean.TestBean;
+import code.ponfee.commons.model.Page;
+import code.ponfee.commons.serial.KryoFactoryBuilder;
+import code.ponfee.commons.serial.KryoSerializer;
+import code.ponfee.commons.serial.Serializer;
+
+public class KryoFactoryBuilderTest {
+
+    private static final int ROUNDS = 20000;
+
+    @Test
+    public void testCompact() {
+        Page<TestBean> page = page();
+        Serializer normal = new KryoSerializer();
+        Serializer compact = new KryoSerializer(
+            KryoFactoryBuilder.newBuilder().register(TestBean.class, 101).register(Page.class, 102)
+                              .register(ArrayList.class, 103)
+        );
+        Serializer compatible = new KryoSerializer(
+            KryoFactoryBuilder.newBuilder().register(TestBean.class, 101).register(Page.class, 102)
+                              .register(ArrayList.class, 103).compatible(true)
+        );
+
+        byte[] a = normal.serialize(page, false), b = compact.serialize(page, false), c = compatible.serialize(page, false);
+        System.out.printf("size: default=%d, registered=%d, compatible=%d%n", a.length, b.length, c.length);
+        Assert.assertTrue(b.length < a.length);
+
+        for (Serializer serializer : new Serializer[] { compact, compatible }) {
+            Page<?> actual = serializer.deserialize(serializer.serialize(page, false), Page.class, false);
+            Assert.assertEquals(page.getRows().size(), actual.getRows().size());
+            Assert.assertEquals(((TestBean) page.getRows().get(7)).getS(), ((TestBean) actual.getRows().get(7)).getS());
+            actual = serializer.deserialize(serializer.serialize(page, true), Page.class, true);
+            Assert.assertEquals(page.getTotal(), actual.getTotal());
+        }
+
+        System.out.println("default:    " + roundTrip(normal, page));
+        System.out.println("registered: " + roundTrip(compact, page));
+        System.out.println("compatible: " + roundTrip(compatible, page));
+    }
+
+    @Test
+    public void testRegistrationRequired() {
+        Serializer serializer = new KryoSerializer(KryoFactoryBuilder.newBuilder().registrationRequired(true));
+        try {
+            serializer.serialize(new TestBean(1, 1L, "x"), false);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Class is not registered: " + TestBean.class.getName()));
+        }
+
+        serializer = new KryoSerializer(
+            KryoFactoryBuilder.newBuilder().registrationRequired(true).register(TestBean.class, 101)
+        );
+        TestBean bean = serializer.deserialize(serializer.serialize(new TestBean(1, 1L, "x"), false), TestBean.class, false);
+        Assert.assertEquals("x", bean.getS());
+    }
+
+    @Test
+    public void testDuplicateId() {
+        KryoFactoryBuilder builder = KryoFactoryBuilder.newBuilder().register(TestBean.class, 101);
+        builder.register(TestBean.class, 101); // 相同的注册允许重复
+        try {
+            builder.register(Page.class, 101);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("duplicate register id 101"));
+        }
+        try {
+            builder.register(TestBean.class, 102);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("duplicate register: "));
+        }
+        try {
+            KryoFactoryBuilder.newBuilder().registerFromResource("kryo-registration-duplicate.properties");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("duplicate register id 101"));
+        }
+    }
+
+    @Test
+    public void testScan() {
+        KryoFactoryBuilder builder = KryoFactoryBuilder.newBuilder().register(TestBean.class, 100)
+                                                       .scan("code.ponfee.commons.model");
+        Assert.assertEquals(Integer.valueOf(100), builder.getRegistrations().get(TestBean.class));
+        Assert.assertTrue(builder.getRegistrations().get(Page.class) > 100);
+        // 扫描分配的ID互不相同
+        Assert.assertEquals(builder.getRegistrations().size(), new HashSet<>(builder.getRegistrations().values()).size());
+    }
+
+    private static String roundTrip(Serializer serializer, Page<TestBean> page) {
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            serializer.deserialize(serializer.serialize(page, false), Page.class, false);
+        }
+        Stopwatch watch = Stopwatch.createStarted();
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.deserialize(serializer.serialize(page, false), Page.class, false);
+        }
+        return watch.stop().toString();
+    }
+
+    private static Page<TestBean> page() {
+        List<TestBean> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(new TestBean(i, (long) i * 7, "row-" + i));
+        }
+        return new Page<>(rows);
+    }
+}
@@ -0,0 +1,169 @@
+package test.serial;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import bean.TestBean;
+import code.ponfee.commons.concurrent.LoadDriver;
+import code.ponfee.commons.json.Jsons;
+import code.ponfee.commons.model.Page;
+import code.ponfee.commons.model.Result;
+import code.ponfee.commons.serial.FstSerializer;
+import code.ponfee.commons.serial.HessianSerializer;
+import code.ponfee.commons.serial.JdkSerializer;
+import code.ponfee.commons.serial.JsonSerializer;
+import code.ponfee.commons.serial.KryoSerializer;
+import code.ponfee.commons.serial.Serializer;
+import code.ponfee.commons.serial.StringSerializer;
+
+/**
+ * <pre>
+ * 序列化基准测试：各序列化器 × 负载 × 是否压缩 × 单/多线程
+ *   指标：序列化+反序列化往返的吞吐量(ops/s)、p99延迟(us)、每次往返的分配字节数、序列化后大小，
+ *   以及往返后的对象与原对象是否一致（按json比较）
+ *
+ *   java [-Dbench.warmup=1 -Dbench.seconds=3 -Dbench.threads=8] test.serial.SerializerBenchmark [report.csv]
+ * </pre>
+ */
+public class SerializerBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 1);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 3);
+    private static final int THREADS = Integer.getInteger("bench.threads", Runtime.getRuntime().availableProcessors());
+    private static final int ALLOC_SAMPLES = 2000;
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Serializer> serializers = new LinkedHashMap<>();
+        serializers.put("kryo", new KryoSerializer());
+        serializers.put("fst", new FstSerializer());
+        serializers.put("hessian", new HessianSerializer());
+        serializers.put("json", new JsonSerializer());
+        serializers.put("jdk", new JdkSerializer());
+
+        Map<String, Object> payloads = payloads();
+
+        StringBuilder report = new StringBuilder(
+            "serializer,payload,compress,threads,size,valid,throughput,p99Micros,allocBytesPerOp\n"
+        );
+        for (Map.Entry<String, Serializer> s : serializers.entrySet()) {
+            for (Map.Entry<String, Object> p : payloads.entrySet()) {
+                run(s.getKey(), s.getValue(), p.getKey(), p.getValue(), report);
+            }
+        }
+        // 字符串序列化器仅支持String
+        run("string", new StringSerializer(StandardCharsets.UTF_8), "jsonText",
+            Jsons.toJson(payloads.get("flat")), report);
+
+        System.out.println("\n" + report);
+        if (args.length > 0) {
+            java.nio.file.Files.write(new File(args[0]).toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void run(String name, Serializer serializer, String payloadName,
+                            Object payload, StringBuilder report) {
+        for (boolean isCompress : new boolean[] { false, true }) {
+            byte[] data;
+            boolean valid;
+            try {
+                data = serializer.serialize(payload, isCompress);
+                valid = equals(payload, serializer.deserialize(data, payload.getClass(), isCompress));
+            } catch (Throwable t) {
+                System.err.println(name + "/" + payloadName + " unsupported: " + t);
+                continue;
+            }
+
+            long alloc = allocatedBytesPerOp(serializer, payload, isCompress);
+            for (int threads : new int[] { 1, THREADS }) {
+                LoadDriver.Result result = LoadDriver.newBuilder()
+                    .name(name + "-" + payloadName + (isCompress ? "-gzip" : ""))
+                    .threads(threads)
+                    .warmup(WARMUP, TimeUnit.SECONDS)
+                    .duration(SECONDS, TimeUnit.SECONDS)
+                    .build()
+                    .run(() -> serializer.deserialize(serializer.serialize(payload, isCompress),
+                                                      payload.getClass(), isCompress));
+                System.out.println(result);
+                report.append(name).append(',').append(payloadName).append(',')
+                      .append(isCompress).append(',').append(threads).append(',')
+                      .append(data.length).append(',').append(valid).append(',')
+                      .append(String.format("%.0f", result.getThroughput())).append(',')
+                      .append(result.getLatencyMicros().get("p99")).append(',')
+                      .append(alloc).append('\n');
+            }
+        }
+    }
+
+    private static boolean equals(Object expect, Object actual) {
+        try {
+            return MAPPER.writeValueAsString(expect).equals(MAPPER.writeValueAsString(actual));
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * 当前线程每次往返分配的字节数（HotSpot）
+     */
+    private static long allocatedBytesPerOp(Serializer serializer, Object payload, boolean isCompress) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < ALLOC_SAMPLES; i++) {
+            serializer.deserialize(serializer.serialize(payload, isCompress), payload.getClass(), isCompress);
+        }
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ALLOC_SAMPLES; i++) {
+            serializer.deserialize(serializer.serialize(payload, isCompress), payload.getClass(), isCompress);
+        }
+        return (mx.getThreadAllocatedBytes(tid) - before) / ALLOC_SAMPLES;
+    }
+
+    private static Map<String, Object> payloads() {
+        Map<String, Object> payloads = new LinkedHashMap<>();
+        TestBean flat = new TestBean(1312321111, 222243222L, "serializer benchmark flat bean");
+        payloads.put("flat", flat);
+
+        HashMap<String, Object> graph = new HashMap<>();
+        HashMap<String, Object> child = new HashMap<>();
+        ArrayList<Object> beans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            beans.add(new TestBean(i, (long) i * 31, "child-" + i));
+        }
+        child.put("beans", beans);
+        child.put("name", "child");
+        graph.put("child", child);
+        graph.put("id", 123456789L);
+        graph.put("tags", new ArrayList<>(java.util.Arrays.asList("a", "b", "c")));
+        payloads.put("graph", graph);
+
+        ArrayList<TestBean> large = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            large.add(new TestBean(i, (long) i, "item-" + i));
+        }
+        payloads.put("collection", large);
+
+        List<TestBean> rows = new ArrayList<>(large.subList(0, 20));
+        payloads.put("page", new Page<>(rows));
+        payloads.put("result", Result.success(flat));
+        return payloads;
+    }
+
+}
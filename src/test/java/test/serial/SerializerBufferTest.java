@@ -0,0 +1,81 @@
+package test.serial;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bean.TestBean;
+import code.ponfee.commons.serial.FstSerializer;
+import code.ponfee.commons.serial.HessianSerializer;
+import code.ponfee.commons.serial.JdkSerializer;
+import code.ponfee.commons.serial.JsonSerializer;
+import code.ponfee.commons.serial.KryoSerializer;
+import code.ponfee.commons.serial.Serializer;
+
+/**
+ * 字节数组、OutputStream、ByteBuffer三种方式序列化结果一致并可互相读取
+ */
+public class SerializerBufferTest {
+
+    private static final List<Serializer> SERIALIZERS = Arrays.asList(
+        new KryoSerializer(), new FstSerializer(), new HessianSerializer(), 
+        new JsonSerializer(), new JdkSerializer()
+    );
+
+    @Test
+    public void testRoundTrip() {
+        TestBean bean = new TestBean(1312321111, 222243222L, "abc中文");
+        for (Serializer serializer : SERIALIZERS) {
+            for (boolean isCompress : new boolean[] { false, true }) {
+                String name = serializer.getClass().getSimpleName() + "/" + isCompress;
+                byte[] data = serializer.serialize(bean, isCompress);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                serializer.serialize(bean, out, isCompress);
+                check(name, bean, serializer.deserialize(out.toByteArray(), TestBean.class, isCompress));
+                check(name, bean, serializer.deserialize(new ByteArrayInputStream(data), TestBean.class, isCompress));
+
+                // direct buffer, written after a prefix
+                ByteBuffer direct = ByteBuffer.allocateDirect(4096);
+                direct.putInt(0xCAFEBABE);
+                int size = serializer.serialize(bean, direct, isCompress);
+                Assert.assertEquals(name, direct.position() - 4, size);
+                direct.flip();
+                Assert.assertEquals(0xCAFEBABE, direct.getInt());
+                check(name, bean, serializer.deserialize(direct, TestBean.class, isCompress));
+                Assert.assertFalse(direct.hasRemaining());
+
+                // heap buffer slice with offset
+                ByteBuffer heap = ByteBuffer.allocate(data.length + 8);
+                heap.position(8);
+                heap.put(data).position(8);
+                check(name, bean, serializer.deserialize(heap.slice(), TestBean.class, isCompress));
+                check(name, bean, serializer.deserialize(ByteBuffer.wrap(data), TestBean.class, isCompress));
+            }
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        Serializer serializer = new KryoSerializer();
+        byte[] big = new byte[2 * 1024 * 1024];
+        Arrays.fill(big, (byte) 7);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertArrayEquals(big, serializer.deserialize(serializer.serialize(big, true), byte[].class, true));
+            Assert.assertArrayEquals(big, serializer.deserialize(serializer.serialize(big, false), byte[].class, false));
+            TestBean bean = new TestBean(i, (long) i, "s" + i);
+            check("reuse", bean, serializer.deserialize(serializer.serialize(bean, false), TestBean.class, false));
+        }
+    }
+
+    private static void check(String name, TestBean expect, TestBean actual) {
+        Assert.assertEquals(name, expect.getI(), actual.getI());
+        Assert.assertEquals(name, expect.getL(), actual.getL());
+        Assert.assertEquals(name, expect.getS(), actual.getS());
+    }
+}
@@ -0,0 +1,148 @@
+package test.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.base.Stopwatch;
+
+import code.ponfee.commons.util.Bytes;
+
+/**
+ * Bytes编解码与原实现（StringBuilder逐字符拼接、Character.digit、每次new byte[]）的对比
+ *
+ * @author Ponfee
+ */
+@SuppressWarnings("deprecation")
+public class BytesBenchmark {
+
+    private static final int ROUND = 200000;
+
+    public static void main(String[] args) {
+        byte[] data = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(data);
+        String hex = Bytes.hexEncode(data), b64 = Base64.getEncoder().encodeToString(data);
+        byte[] b64Bytes = b64.getBytes(StandardCharsets.US_ASCII);
+        if (!b64.equals(legacyBase64Encode(data)) || !Arrays.equals(data, legacyHexDecode(hex))) {
+            throw new AssertionError("legacy implementation mismatch");
+        }
+
+        for (int warm = 0; warm < 2; warm++) {
+            System.out.println("------------------------round " + warm);
+
+            Stopwatch watch = Stopwatch.createStarted();
+            for (int i = 0; i < ROUND; i++) {
+                legacyHexDecode(hex);
+            }
+            System.out.println("legacy hexDecode: " + watch.stop());
+
+            byte[] out = new byte[data.length];
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Bytes.hexDecode(hex, 0, hex.length(), out, 0);
+            }
+            System.out.println("table hexDecode(offset): " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                legacyBase64Encode(data);
+            }
+            System.out.println("legacy base64Encode: " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Bytes.base64Encode(data);
+            }
+            System.out.println("base64Encode: " + watch.stop());
+
+            byte[] b64Out = new byte[Bytes.base64EncodedLength(data.length)];
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Bytes.base64Encode(data, 0, data.length, b64Out, 0);
+            }
+            System.out.println("base64Encode(offset): " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Base64.getEncoder().encode(data, b64Out);
+            }
+            System.out.println("Base64.getEncoder().encode(src, dst): " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Bytes.base64Decode(b64);
+            }
+            System.out.println("base64Decode: " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Bytes.base64Decode(b64Bytes, 0, b64Bytes.length, out, 0);
+            }
+            System.out.println("base64Decode(offset): " + watch.stop());
+
+            watch.reset().start();
+            for (int i = 0; i < ROUND; i++) {
+                Base64.getDecoder().decode(b64Bytes, out);
+            }
+            System.out.println("Base64.getDecoder().decode(src, dst): " + watch.stop());
+
+            long sum = 0;
+            watch.reset().start();
+            for (int i = 0; i < ROUND * 100; i++) {
+                sum += Bytes.fromLong(i)[7];
+            }
+            System.out.println("fromLong: " + watch.stop());
+
+            byte[] buf = new byte[8];
+            watch.reset().start();
+            for (int i = 0; i < ROUND * 100; i++) {
+                Bytes.putLong(buf, 0, i);
+                sum += buf[7];
+            }
+            System.out.println("putLong: " + watch.stop() + ", " + sum);
+        }
+    }
+
+    // ------------------------------------------------------------------------legacy implementations
+    private static byte[] legacyHexDecode(String hex) {
+        char[] data = hex.toCharArray();
+        int len = data.length;
+        byte[] out = new byte[len >> 1];
+        for (int i = 0, j = 0; j < len; i++, j += 2) {
+            out[i] = (byte) (Character.digit(data[j], 16) << 4 | Character.digit(data[j + 1], 16));
+        }
+        return out;
+    }
+
+    private static final char[] BASE64_ENCODES =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static String legacyBase64Encode(byte[] data) {
+        StringBuilder builder = new StringBuilder((data.length << 2) / 3 + 2);
+        for (int i = 0, len = data.length, b1, b2, b3; i < len;) {
+            b1 = data[i++] & 0xFF;
+            if (i == len) {
+                builder.append(BASE64_ENCODES[b1 >>> 2]);
+                builder.append(BASE64_ENCODES[(b1 & 0x3) << 4]);
+                builder.append("==");
+                break;
+            }
+            b2 = data[i++] & 0xFF;
+            if (i == len) {
+                builder.append(BASE64_ENCODES[b1 >>> 2]);
+                builder.append(BASE64_ENCODES[((b1 & 0x03) << 4) | ((b2 & 0xf0) >>> 4)]);
+                builder.append(BASE64_ENCODES[(b2 & 0x0f) << 2]);
+                builder.append("=");
+                break;
+            }
+            b3 = data[i++] & 0xFF;
+            builder.append(BASE64_ENCODES[b1 >>> 2]);
+            builder.append(BASE64_ENCODES[((b1 & 0x03) << 4) | ((b2 & 0xf0) >>> 4)]);
+            builder.append(BASE64_ENCODES[((b2 & 0x0f) << 2) | ((b3 & 0xc0) >>> 6)]);
+            builder.append(BASE64_ENCODES[b3 & 0x3f]);
+        }
+        return builder.toString();
+    }
+
+}
@@ -1,5 +1,7 @@
 package test.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.concurrent.ThreadLocalRandom;
@@ -79,4 +81,111 @@ public class BytesTest {
             Assert.assertArrayEquals(data, Bytes.hexDecode(hex));
         }
     }
+
+    @Test
+    public void testHexOffset() {
+        for (int i = 0; i < 1000; i++) {
+            byte[] data = SecureRandoms.nextBytes(ThreadLocalRandom.current().nextInt(200));
+            int off = data.length == 0 ? 0 : ThreadLocalRandom.current().nextInt(data.length);
+            int len = data.length - off;
+            char[] out = new char[3 + (len << 1)];
+            Assert.assertEquals(len << 1, Bytes.hexEncode(data, off, len, out, 3, false));
+            String hex = Hex.encodeHexString(Arrays.copyOfRange(data, off, data.length)).toUpperCase();
+            Assert.assertEquals(hex, new String(out, 3, len << 1));
+
+            byte[] decoded = new byte[len + 1];
+            Assert.assertEquals(len, Bytes.hexDecode("xx" + hex, 2, hex.length(), decoded, 1));
+            Assert.assertArrayEquals(Arrays.copyOfRange(data, off, data.length), Arrays.copyOfRange(decoded, 1, len + 1));
+        }
+        try {
+            Bytes.hexDecode("0g");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBase64Offset() {
+        for (int i = 0; i < 1000; i++) {
+            byte[] data = SecureRandoms.nextBytes(ThreadLocalRandom.current().nextInt(200));
+            byte[] expect = Base64.getEncoder().encode(data);
+            byte[] out = new byte[Bytes.base64EncodedLength(data.length) + 2];
+            Assert.assertEquals(expect.length, Bytes.base64Encode(data, 0, data.length, out, 2));
+            Assert.assertArrayEquals(expect, Arrays.copyOfRange(out, 2, out.length));
+            Assert.assertEquals(Base64.getEncoder().encodeToString(data), Bytes.base64Encode(data));
+
+            byte[] decoded = new byte[data.length];
+            Assert.assertEquals(data.length, Bytes.base64DecodedLength(out, 2, expect.length));
+            Assert.assertEquals(data.length, Bytes.base64Decode(out, 2, expect.length, decoded, 0));
+            Assert.assertArrayEquals(data, decoded);
+            Assert.assertArrayEquals(data, Bytes.base64Decode(new String(expect)));
+        }
+
+        // 宽松解码：跳过非法字符
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, Bytes.base64Decode("AQ\nID"));
+        try {
+            byte[] b64 = "AQ=ID===".getBytes();
+            Bytes.base64Decode(b64, 0, b64.length, new byte[6], 0);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBase64Buffer() {
+        byte[] data = SecureRandoms.nextBytes(10007);
+        byte[] expect = Base64.getEncoder().encode(data);
+
+        ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+        src.put(data).flip();
+        ByteBuffer b64 = ByteBuffer.allocateDirect(expect.length);
+        Assert.assertEquals(expect.length, Bytes.base64Encode(src, b64));
+        Assert.assertFalse(src.hasRemaining());
+        b64.flip();
+        Assert.assertEquals(ByteBuffer.wrap(expect), b64);
+
+        ByteBuffer dst = ByteBuffer.allocate(data.length);
+        Assert.assertEquals(data.length, Bytes.base64Decode(b64, dst));
+        Assert.assertArrayEquals(data, dst.array());
+
+        dst.clear();
+        Assert.assertEquals(data.length, Bytes.base64Decode(ByteBuffer.wrap(expect), dst));
+        Assert.assertArrayEquals(data, dst.array());
+    }
+
+    @Test
+    public void testNumberCodecs() {
+        byte[] buf = new byte[11];
+        ByteBuffer be = ByteBuffer.wrap(buf), le = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 10000; i++) {
+            long v = ThreadLocalRandom.current().nextLong();
+            Bytes.putLong(buf, 3, v);
+            Assert.assertEquals(v, be.getLong(3));
+            Assert.assertEquals(v, Bytes.toLong(buf, 3));
+            Bytes.putLongLE(buf, 3, v);
+            Assert.assertEquals(v, le.getLong(3));
+            Assert.assertEquals(v, Bytes.toLongLE(buf, 3));
+
+            Bytes.putInt(buf, 1, (int) v);
+            Assert.assertEquals((int) v, be.getInt(1));
+            Bytes.putIntLE(buf, 1, (int) v);
+            Assert.assertEquals((int) v, le.getInt(1));
+            Assert.assertEquals((int) v, Bytes.toIntLE(buf, 1));
+
+            Bytes.putShort(buf, 0, (short) v);
+            Assert.assertEquals((short) v, Bytes.toShort(buf, 0));
+            Bytes.putShortLE(buf, 0, (short) v);
+            Assert.assertEquals((short) v, le.getShort(0));
+            Assert.assertEquals((short) v, Bytes.toShortLE(buf, 0));
+
+            Bytes.putDouble(buf, 2, v / 3.0D);
+            Assert.assertEquals(v / 3.0D, be.getDouble(2), 0.0D);
+        }
+
+        byte[] out = new byte[10];
+        Assert.assertEquals(10, Bytes.concatTo(out, 1, new byte[] { 1, 2 }, null, Bytes.fromInt(7), new byte[] { 3, 4, 5 }));
+        Assert.assertArrayEquals(new byte[] { 0, 1, 2, 0, 0, 0, 7, 3, 4, 5 }, out);
+    }
 }
@@ -0,0 +1,53 @@
+package test.utils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.LoadDriver;
+import code.ponfee.commons.util.IdWorker;
+
+public class IdWorkerTest {
+
+    @Test
+    public void testMonotonic() {
+        // 4位序列：每毫秒仅16个ID，需要借用未来时间
+        IdWorker worker = new IdWorker(1, 1, 4, 5, 5, 5);
+        long last = -1;
+        for (int i = 0; i < 10000; i++) {
+            long id = worker.nextId();
+            Assert.assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    @Test
+    public void testNextIds() {
+        IdWorker worker = new IdWorker(3, 0, 4, 5, 0);
+        long last = -1;
+        for (int i = 0; i < 1000; i++) {
+            for (long id : worker.nextIds(1 + i % 16)) {
+                Assert.assertTrue(id > last);
+                last = id;
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrent() {
+        Set<Long> set = ConcurrentHashMap.newKeySet();
+        IdWorker worker = IdWorker.LOCAL_WORKER;
+        LoadDriver.Result result = LoadDriver.newBuilder().threads(20)
+            .duration(1, TimeUnit.SECONDS).build().run(() -> {
+                if (!set.add(worker.nextId())) {
+                    throw new IllegalStateException();
+                }
+            });
+        System.out.println(result);
+        Assert.assertEquals(0, result.getErrors());
+        Assert.assertEquals(result.getCount(), set.size());
+    }
+}
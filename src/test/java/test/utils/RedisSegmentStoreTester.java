@@ -0,0 +1,37 @@
+package test.utils;
+
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import code.ponfee.commons.jedis.JedisClient;
+import code.ponfee.commons.util.RedisSegmentStore;
+
+/**
+ * 需要jedis-cfg.xml中配置的redis
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "classpath:jedis-cfg.xml" })
+public class RedisSegmentStoreTester {
+
+    @Resource
+    private JedisClient jedisClient;
+
+    @Test
+    public void testIncrementWithoutExpire() {
+        String tag = UUID.randomUUID().toString();
+        RedisSegmentStore store = new RedisSegmentStore(jedisClient);
+        Assert.assertEquals(1000, store.increment(tag, 1000));
+        Assert.assertEquals(2000, store.increment(tag, 1000));
+        // -1表示key存在且没有失效期
+        Assert.assertEquals(-1L, jedisClient.keysOps().ttl("seg:id:" + tag).longValue());
+        jedisClient.keysOps().del("seg:id:" + tag);
+    }
+
+}
@@ -0,0 +1,89 @@
+package test.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import code.ponfee.commons.concurrent.LoadDriver;
+import code.ponfee.commons.util.FileSegmentStore;
+import code.ponfee.commons.util.SegmentIdGenerator;
+import code.ponfee.commons.util.SegmentStore;
+
+public class SegmentIdGeneratorTest {
+
+    @Test
+    public void testSequential() {
+        AtomicLong max = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        SegmentStore store = (tag, step) -> {
+            loads.incrementAndGet();
+            return max.addAndGet(step);
+        };
+        SegmentIdGenerator generator = new SegmentIdGenerator("test", store, 100);
+        for (long i = 1; i <= 1000; i++) {
+            Assert.assertEquals(i, generator.nextId());
+        }
+        Assert.assertTrue(loads.get() >= 10 && loads.get() <= 11);
+    }
+
+    @Test
+    public void testConcurrent() {
+        AtomicLong max = new AtomicLong();
+        SegmentStore store = (tag, step) -> max.addAndGet(step);
+        SegmentIdGenerator generator = new SegmentIdGenerator("test", store, 1000);
+        Set<Long> set = ConcurrentHashMap.newKeySet();
+        LoadDriver.Result result = LoadDriver.newBuilder().threads(8)
+            .duration(1, TimeUnit.SECONDS).build().run(() -> {
+                if (!set.add(generator.nextId())) {
+                    throw new IllegalStateException();
+                }
+            });
+        System.out.println(result);
+        Assert.assertEquals(0, result.getErrors());
+        Assert.assertEquals(result.getCount(), set.size());
+    }
+
+    @Test
+    public void testFileStore() throws Exception {
+        File dir = Files.createTempDirectory("segment").toFile();
+        FileSegmentStore store = new FileSegmentStore(dir.getAbsolutePath());
+        Assert.assertEquals(10, store.increment("order", 10));
+        Assert.assertEquals(30, store.increment("order", 20));
+
+        // 重启后继续分配
+        SegmentIdGenerator generator = new SegmentIdGenerator("order", new FileSegmentStore(dir.getAbsolutePath()), 10);
+        Assert.assertEquals(31, generator.nextId());
+    }
+
+    @Test
+    public void testFileStoreSharedDirectory() throws Exception {
+        File dir = Files.createTempDirectory("segment").toFile();
+        // 同一目录的两个实例并发分配，不应抛OverlappingFileLockException且号段不重叠
+        FileSegmentStore[] stores = {
+            new FileSegmentStore(dir.getAbsolutePath()), new FileSegmentStore(dir.getAbsolutePath() + "/.")
+        };
+        Set<Long> maxes = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            FileSegmentStore store = stores[i % 2];
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    maxes.add(store.increment("shared", 10));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(400, maxes.size());
+        Assert.assertEquals(4010, stores[0].increment("shared", 10));
+    }
+}